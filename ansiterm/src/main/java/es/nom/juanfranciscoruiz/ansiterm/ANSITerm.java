@@ -3,13 +3,25 @@ package es.nom.juanfranciscoruiz.ansiterm;
 import com.sun.jna.LastErrorException;
 import es.nom.juanfranciscoruiz.ansiterm.codes.*;
 import es.nom.juanfranciscoruiz.ansiterm.exceptions.ANSITermException;
+import es.nom.juanfranciscoruiz.ansiterm.input.InputReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static es.nom.juanfranciscoruiz.ansiterm.LinuxTerminal.getPosition;
-import static es.nom.juanfranciscoruiz.ansiterm.codes.BGColor.DEFAULT;
 import static es.nom.juanfranciscoruiz.ansiterm.codes.CSI.ESC;
 import static es.nom.juanfranciscoruiz.ansiterm.codes.ColorsAndStylesCodes.*;
 import static es.nom.juanfranciscoruiz.ansiterm.codes.CursorStylesCodes.*;
@@ -34,6 +46,18 @@ public class ANSITerm {
      * For logging
      */
     public static final Logger logger = LoggerFactory.getLogger(ANSITerm.class);
+
+    /**
+     * Default interval, in milliseconds, at which the resize watcher checks
+     * the size of the terminal.
+     */
+    public static final long DEFAULT_RESIZE_POLL_MILLIS = 250L;
+
+    /**
+     * Maximum time, in milliseconds, to wait for the answer of the terminal
+     * to a cursor position query when the input reader is running.
+     */
+    public static final long CURSOR_REPORT_TIMEOUT_MILLIS = 1000L;
     
     /**
      * ITerminal object to make calls to the OS functions where the program is
@@ -42,14 +66,39 @@ public class ANSITerm {
      */
     private final ITerminal osCall;
     /**
-     * Terminal size
+     * Terminal size (cached)
      */
-    private TerminalSize terminalSize;
+    private volatile TerminalSize terminalSize;
     /**
-     * Cursor position
+     * Software model of the cursor, updated with every output written through
+     * this terminal
      */
-    private Position cursorPosition;
-
+    private final CursorTracker cursor;
+    /**
+     * Batching output layer where all the sequences are written
+     */
+    private final FrameWriter writer;
+    /**
+     * Stream with the input of the terminal (keys and answers to queries)
+     */
+    private final InputStream in;
+    /**
+     * Listeners notified when the size of the terminal changes
+     */
+    private final List<TerminalResizeListener> resizeListeners = new CopyOnWriteArrayList<>();
+    /**
+     * Background thread that watches the size of the terminal while there are
+     * resize listeners, or null if it is not running
+     */
+    private Thread resizeWatcher;
+    /**
+     * Interval in milliseconds at which the resize watcher checks the size
+     */
+    private volatile long resizePollMillis = DEFAULT_RESIZE_POLL_MILLIS;
+    /**
+     * Reader of the keyboard input, or null if it is not running
+     */
+    private volatile InputReader inputReader;
 
     // Constructors
     /**
@@ -62,28 +111,130 @@ public class ANSITerm {
      * @throws ANSITermException if the operating system is unsupported.
      */
     public ANSITerm() throws ANSITermException {
+        this(System.in, new FrameWriter(), createOsTerminal());
+    }
+
+    /**
+     * Constructor for the ANSITerm class that sends all its output through
+     * the given writer, for example one created with
+     * {@link FrameWriter#openTty()} to write directly to the terminal device
+     * instead of going through System.out.
+     *
+     * @param writer the output layer where all the sequences are written
+     * @throws ANSITermException if the operating system is unsupported or
+     * the writer is null.
+     */
+    public ANSITerm(FrameWriter writer) throws ANSITermException {
+        this(System.in, writer, createOsTerminal());
+    }
+
+    /**
+     * Constructor for the ANSITerm class bound to any input and output, with
+     * its own size, cursor and input state. Several of these terminals can be
+     * used at the same time in the same JVM, for example one per user
+     * connected through the network.
+     *
+     * @param in       the stream with the input of the terminal
+     * @param writer   the output layer where all the sequences are written
+     * @param terminal the low-level access to the terminal, e.g. a
+     *                 {@link StreamTerminal} for a remote terminal
+     * @throws ANSITermException if any argument is null.
+     * @see #forStreams(InputStream, OutputStream, Charset, TerminalSize)
+     * @see #forChannels(ReadableByteChannel, WritableByteChannel, Charset, TerminalSize)
+     */
+    public ANSITerm(InputStream in, FrameWriter writer, ITerminal terminal) throws ANSITermException {
+        if (in == null || writer == null || terminal == null) {
+            throw new ANSITermException("The input, the writer and the terminal cannot be null");
+        }
+        this.in = in;
+        this.osCall = terminal;
+        this.writer = writer;
+        this.terminalSize = osCall.getTerminalSize();
+        this.cursor = new CursorTracker(terminalSize == null ? StreamTerminal.DEFAULT_SIZE : terminalSize,
+                terminal.isNewlineTranslated());
+    }
+
+    /**
+     * Creates a terminal bound to a pair of streams, such as the streams of a
+     * network connection. Its size is kept by a {@link StreamTerminal}
+     * (see {@link #getOsCall()}).
+     *
+     * @param in      the stream with the input of the terminal
+     * @param out     the stream where the output is written
+     * @param charset the charset of the terminal
+     * @param size    the initial size of the terminal
+     * @return the new terminal
+     * @throws ANSITermException if any argument is null.
+     */
+    public static ANSITerm forStreams(InputStream in, OutputStream out, Charset charset, TerminalSize size)
+            throws ANSITermException {
+        if (out == null || charset == null || size == null) {
+            throw new ANSITermException("The output, the charset and the size cannot be null");
+        }
+        return new ANSITerm(in, new FrameWriter(out, charset), new StreamTerminal(size));
+    }
+
+    /**
+     * Creates a terminal bound to a pair of channels, such as a socket
+     * channel. The output is written directly to the channel from direct
+     * buffers. Its size is kept by a {@link StreamTerminal}
+     * (see {@link #getOsCall()}).
+     *
+     * @param in      the channel with the input of the terminal
+     * @param out     the channel where the output is written
+     * @param charset the charset of the terminal
+     * @param size    the initial size of the terminal
+     * @return the new terminal
+     * @throws ANSITermException if any argument is null.
+     */
+    public static ANSITerm forChannels(ReadableByteChannel in, WritableByteChannel out, Charset charset,
+                                       TerminalSize size) throws ANSITermException {
+        if (in == null || out == null || charset == null || size == null) {
+            throw new ANSITermException("The channels, the charset and the size cannot be null");
+        }
+        return new ANSITerm(Channels.newInputStream(in), new FrameWriter(out, charset), new StreamTerminal(size));
+    }
+
+    /**
+     * Creates the ITerminal of the operating system where the program is
+     * running.
+     *
+     * @return the ITerminal for Windows or Linux
+     * @throws ANSITermException if the operating system is unsupported.
+     */
+    private static ITerminal createOsTerminal() throws ANSITermException {
         String os = System.getProperty("os.name").toLowerCase();
         if (os.contains("windows")) {
-            osCall = new WindowsTerminal();
+            return new WindowsTerminal();
         } else if (os.contains("linux")) {
-            osCall = new LinuxTerminal();
+            return new TermiosTerminal();
         }  else {
             throw new ANSITermException("Unsupported operating system");
         }
-        this.terminalSize = osCall.getTerminalSize();
-        this.cursorPosition = new Position(0, 0);
     }
 
     // Getters and setters
     /**
-     * Returns terminal size
+     * Returns terminal size.
+     * <p>
+     * While the resize watcher is running (there is at least one
+     * {@link TerminalResizeListener}) the cached size, kept up to date by the
+     * watcher, is returned without asking the operating system. Otherwise the
+     * size is read and the cache is updated.
+     *
      * @return a TerminalSize object with the current lines and columns of
      * the terminal.
      *
      * @see TerminalSize
+     * @see #addResizeListener(TerminalResizeListener)
      */
     public TerminalSize getTerminalSize(){
-        return osCall.getTerminalSize();
+        TerminalSize size = terminalSize;
+        if (size == null || !isWatchingResize()) {
+            size = osCall.getTerminalSize();
+            updateTerminalSize(size);
+        }
+        return size == null ? null : new TerminalSize(size.getColumns(), size.getLines());
     }
 
     /**
@@ -91,15 +242,68 @@ public class ANSITerm {
      *
      * @param terminalSize the new size to set for the terminal
      */
-    public void setTerminalSize(TerminalSize terminalSize) {this.terminalSize = terminalSize;}
+    public void setTerminalSize(TerminalSize terminalSize) {updateTerminalSize(terminalSize);}
+
+    /**
+     * Updates the cached size of the terminal and, if it has changed, the
+     * size used by the cursor tracking.
+     *
+     * @param size the size of the terminal
+     */
+    private void updateTerminalSize(TerminalSize size) {
+        synchronized (writer) {
+            TerminalSize old = terminalSize;
+            terminalSize = size;
+            if (size != null && (old == null || old.getColumns() != size.getColumns()
+                    || old.getLines() != size.getLines())) {
+                cursor.resize(size);
+            }
+        }
+    }
+
+    /**
+     * Returns the interval at which the resize watcher checks the size of
+     * the terminal.
+     *
+     * @return the interval in milliseconds
+     */
+    public long getResizePollMillis() {
+        return resizePollMillis;
+    }
 
     /**
-     * Sets the cursor position.
+     * Sets the interval at which the resize watcher checks the size of the
+     * terminal. On Linux the watcher is also woken up by the SIGWINCH signal,
+     * so the interval only matters if the signal cannot be handled.
      *
-     * @param cursorPosition the new position to set for the cursor
+     * @param resizePollMillis the interval in milliseconds
+     * @throws IllegalArgumentException if the interval is not positive
      */
-    public void setCursorPosition(Position cursorPosition) {
-        this.cursorPosition = cursorPosition;
+    public void setResizePollMillis(long resizePollMillis) throws IllegalArgumentException {
+        if (resizePollMillis <= 0) {
+            throw new IllegalArgumentException("The resize poll interval must be positive");
+        }
+        this.resizePollMillis = resizePollMillis;
+    }
+
+    /**
+     * Sets the position of the software cursor without moving the cursor of
+     * the terminal, for example because the application knows where the
+     * cursor is after writing to the terminal by other means. To move the
+     * cursor use {@link #printAt(Position)}.
+     *
+     * @param cursorPosition the position of the cursor, with columns and
+     *                       lines starting at 1
+     * @throws IllegalArgumentException if the position is null
+     * @see #resyncCursorPosition()
+     */
+    public void setCursorPosition(Position cursorPosition) throws IllegalArgumentException {
+        if (cursorPosition == null) {
+            throw new IllegalArgumentException("The cursor position cannot be null");
+        }
+        synchronized (writer) {
+            cursor.moveTo(cursorPosition.getLin(), cursorPosition.getCol());
+        }
     }
 
     /**
@@ -112,6 +316,23 @@ public class ANSITerm {
         return osCall;
     }
 
+    /**
+     * Returns the batching output layer used by this terminal. It can be used
+     * to adjust the auto-flush policy or to append text directly.
+     * @return the FrameWriter where all the output of this terminal is written.
+     */
+    public FrameWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * Returns the stream with the input of this terminal.
+     * @return the input stream (System.in for the terminal of this process)
+     */
+    public InputStream getInput() {
+        return in;
+    }
+
 
 
     // Methods
@@ -124,7 +345,7 @@ public class ANSITerm {
      * is not running on Microsoft Windows.
      */
     public void enableRawMode() throws LastErrorException {
-        osCall.enableRawMode();
+        setRawMode(true);
     }
 
     /**
@@ -134,7 +355,268 @@ public class ANSITerm {
      * is not running on Microsoft Windows.
      */
     public void disableRawMode() throws LastErrorException {
-        osCall.disableRawMode();
+        setRawMode(false);
+    }
+
+    /**
+     * Enables or disables 'raw' mode and makes the software cursor take a
+     * line feed as the terminal does in the new mode: in 'raw' mode the
+     * driver no longer adds a carriage return. The text already appended is
+     * written first, since the cursor has followed it in the previous mode.
+     *
+     * @param raw true to enable raw mode, false to disable it
+     * @throws LastErrorException if the mode cannot be changed
+     */
+    private void setRawMode(boolean raw) throws LastErrorException {
+        synchronized (writer) {
+            writer.flush();
+            if (raw) {
+                osCall.enableRawMode();
+            } else {
+                osCall.disableRawMode();
+            }
+            cursor.setNewlineReturns(osCall.isNewlineTranslated());
+        }
+    }
+
+    /* ------------------------------------------------ Output frames methods ---------------------------------------*/
+    /**
+     * Opens an output frame. All the sequences generated by this terminal
+     * until the matching {@link #commitFrame()} are collected in a buffer and
+     * written to the terminal with a single write. Frames can be nested.
+     *
+     * @see FrameWriter
+     */
+    public void beginFrame() {
+        writer.beginFrame();
+    }
+
+    /**
+     * Closes the current output frame. If it is the outermost frame, all the
+     * collected sequences are written to the terminal with a single write.
+     *
+     * @throws IllegalStateException if there is no open frame
+     */
+    public void commitFrame() throws IllegalStateException {
+        writer.commitFrame();
+    }
+
+    /**
+     * Writes to the terminal the output collected so far, even if a frame is
+     * still open.
+     */
+    public void flush() {
+        writer.flush();
+    }
+
+    /* ------------------------------------------------ Resize events methods ---------------------------------------*/
+    /**
+     * Registers a listener that is notified each time the size of the
+     * terminal changes. The first listener starts a background daemon thread
+     * that watches the size of the terminal and keeps the cached size returned
+     * by {@link #getTerminalSize()} up to date.
+     *
+     * @param listener the listener to register
+     * @throws IllegalArgumentException if the listener is null
+     */
+    public synchronized void addResizeListener(TerminalResizeListener listener) throws IllegalArgumentException {
+        if (listener == null) {
+            throw new IllegalArgumentException("The resize listener cannot be null");
+        }
+        resizeListeners.add(listener);
+        startResizeWatcher();
+    }
+
+    /**
+     * Unregisters a resize listener. When the last listener is removed the
+     * background thread that watches the size of the terminal stops.
+     *
+     * @param listener the listener to unregister
+     */
+    public synchronized void removeResizeListener(TerminalResizeListener listener) {
+        resizeListeners.remove(listener);
+        if (resizeListeners.isEmpty()) {
+            stopResizeWatcher();
+        }
+    }
+
+    /**
+     * Unregisters all the resize listeners and stops the background thread
+     * that watches the size of the terminal.
+     */
+    public synchronized void removeResizeListeners() {
+        resizeListeners.clear();
+        stopResizeWatcher();
+    }
+
+    /**
+     * Indicates whether the background thread that watches the size of the
+     * terminal is running.
+     *
+     * @return true if the resize watcher is running
+     */
+    public synchronized boolean isWatchingResize() {
+        return resizeWatcher != null;
+    }
+
+    /**
+     * Starts the resize watcher if it is not running.
+     */
+    private synchronized void startResizeWatcher() {
+        if (resizeWatcher != null) {
+            return;
+        }
+        // Taken before reading the size, so a change from now on is not missed
+        int seen = osCall instanceof LinuxTerminal ? LinuxTerminal.getResizeCount() : 0;
+        int streamSeen = osCall instanceof StreamTerminal st ? st.getSizeChanges() : 0;
+        terminalSize = osCall.getTerminalSize();
+        Runnable watcher = () -> watchResize(seen, streamSeen);
+        if (osCall instanceof StreamTerminal) {
+            // One watcher per remote session: it only waits on a monitor
+            resizeWatcher = Thread.ofVirtual().name("ansiterm-resize-watcher").start(watcher);
+        } else {
+            resizeWatcher = new Thread(watcher, "ansiterm-resize-watcher");
+            resizeWatcher.setDaemon(true);
+            resizeWatcher.start();
+        }
+    }
+
+    /**
+     * Stops the resize watcher if it is running.
+     */
+    private synchronized void stopResizeWatcher() {
+        if (resizeWatcher != null) {
+            resizeWatcher.interrupt();
+            resizeWatcher = null;
+        }
+    }
+
+    /**
+     * Body of the resize watcher: waits for a SIGWINCH signal (Linux) or for
+     * the poll interval, reads the size of the terminal and, if it has
+     * changed, updates the cache and notifies the listeners.
+     *
+     * @param seen       the SIGWINCH count when the watcher was started, or 0
+     *                   if the terminal is not a LinuxTerminal
+     * @param streamSeen the size changes of a StreamTerminal when the watcher
+     *                   was started
+     */
+    private void watchResize(int seen, int streamSeen) {
+        Thread current = Thread.currentThread();
+        while (!current.isInterrupted()) {
+            try {
+                if (osCall instanceof StreamTerminal st) {
+                    st.awaitSizeChange(streamSeen, resizePollMillis);
+                    streamSeen = st.getSizeChanges();
+                } else if (osCall instanceof LinuxTerminal) {
+                    LinuxTerminal.awaitResize(seen, resizePollMillis);
+                    seen = LinuxTerminal.getResizeCount();
+                } else {
+                    Thread.sleep(resizePollMillis);
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+            TerminalSize oldSize = terminalSize;
+            TerminalSize newSize = osCall.getTerminalSize();
+            if (newSize == null || (oldSize != null
+                    && oldSize.getColumns() == newSize.getColumns()
+                    && oldSize.getLines() == newSize.getLines())) {
+                continue;
+            }
+            updateTerminalSize(newSize);
+            for (TerminalResizeListener listener : resizeListeners) {
+                try {
+                    listener.terminalResized(oldSize, new TerminalSize(newSize.getColumns(), newSize.getLines()));
+                } catch (RuntimeException e) {
+                    logger.error("Error in resize listener: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /* ------------------------------------------------ Input methods -----------------------------------------------*/
+    /**
+     * Puts the terminal in 'raw' mode and starts a reader thread that decodes
+     * the keyboard input into key events. If it is already running, the
+     * running reader is returned.
+     * <p>
+     * While the reader runs, {@link #getCursorPosition()} takes the answer of
+     * the terminal from the reader instead of reading the standard input, so
+     * the keys typed by the user are not lost.
+     *
+     * @return the input reader
+     * @throws LastErrorException if raw mode cannot be enabled
+     * @see InputReader
+     */
+    public synchronized InputReader startInputReader() throws LastErrorException {
+        if (inputReader == null) {
+            setRawMode(true);
+            inputReader = new InputReader(in).start();
+        }
+        return inputReader;
+    }
+
+    /**
+     * Returns the running input reader.
+     *
+     * @return the input reader, or null if it has not been started
+     */
+    public InputReader getInputReader() {
+        return inputReader;
+    }
+
+    /**
+     * Stops the input reader, if it is running, and restores the mode the
+     * terminal had before {@link #startInputReader()}.
+     *
+     * @throws LastErrorException if raw mode cannot be disabled
+     */
+    public synchronized void stopInputReader() throws LastErrorException {
+        if (inputReader != null) {
+            inputReader.close();
+            inputReader = null;
+            setRawMode(false);
+        }
+    }
+
+    /* ------------------------------------------------ Output methods ----------------------------------------------*/
+    /**
+     * Writes a text at the cursor position. The text can contain escape
+     * sequences, such as the ones returned by the styles and colors methods,
+     * and the software model of the cursor follows all of them (see
+     * {@link CursorTracker}).
+     *
+     * @param text the text to write
+     */
+    public void print(CharSequence text) {
+        write(text);
+    }
+
+    /**
+     * Appends a text or a sequence to the output and updates the software
+     * cursor with it, as a single step for the other threads.
+     *
+     * @param text the text or sequence
+     */
+    private void write(CharSequence text) {
+        synchronized (writer) {
+            writer.append(text);
+            cursor.advance(text);
+        }
+    }
+
+    /**
+     * Appends a character to the output and updates the software cursor
+     * with it.
+     *
+     * @param c the character
+     */
+    private void write(char c) {
+        synchronized (writer) {
+            writer.append(c);
+            cursor.advance(c);
+        }
     }
 
     /* ------------------------------------------ ANSI control sequences methods -------------------------------------*/
@@ -142,46 +624,42 @@ public class ANSITerm {
      * Rings the terminal bell
      */
     public void bell() {
-        System.out.print(GeneralControlCodes.bell());
+        write(GeneralControlCodes.bell());
     }
 
-    /*
-    TODO: The methods that moves the cursor has to update the 'cursorPosition' property of this
-     class.
-     */
     /**
      * Causes a cursor backspace
      */
     public void backSpace() {
-        System.out.print(GeneralControlCodes.backSpace());
+        write(GeneralControlCodes.backSpace());
     }
 
     /**
      * Generates a tab
      */
     public void tab() {
-        System.out.print(GeneralControlCodes.tab());
+        write(GeneralControlCodes.tab());
     }
 
     /**
      * Generates a line feed
      */
     public void linefeed() {
-        System.out.print(GeneralControlCodes.linefeed());
+        write(GeneralControlCodes.linefeed());
     }
 
     /**
      * Generates a vertical tab
      */
     public void verticalTab() {
-        System.out.print(GeneralControlCodes.verticalTab());
+        write(GeneralControlCodes.verticalTab());
     }
 
     /**
      * Generates a form feed
      */
     public void formfeed() {
-        System.out.print(GeneralControlCodes.formfeed());
+        write(GeneralControlCodes.formfeed());
     }
 
     /**
@@ -189,30 +667,155 @@ public class ANSITerm {
      * In the Windows terminal it moves the cursor to the beginning of the line.
      * To do a line break you have to do a linefeed() or use  the Java \n escape code
      */
-    public void carriagereturn() {System.out.print(GeneralControlCodes.carriagereturn()); }
+    public void carriagereturn() {write(GeneralControlCodes.carriagereturn()); }
 
     /* ----------------------------- Cursor movements, getting position and printing methods -------------------------*/
     /**
-     * Returns the cursor position on the screen
+     * Returns the cursor position on the screen, as followed by the software
+     * model of the cursor: every text and sequence written through this
+     * terminal updates the model, so no query is sent to the terminal.
+     * <p>
+     * The model loses track of the cursor if something else writes to the
+     * terminal (for example, System.out, or text appended directly to the
+     * {@link #getWriter() writer}). Then {@link #resyncCursorPosition()} sets
+     * it again from the position reported by the terminal.
+     *
+     * @return a Position object with the current cursor position on the
+     * screen, with columns and lines starting at 1
+     */
+    public Position getCursorPosition() {
+        synchronized (writer) {
+            return cursor.getPosition();
+        }
+    }
+
+    /**
+     * Asks the terminal for the cursor position, waits for the answer and
+     * sets the software model of the cursor to it. The output of the other
+     * threads waits until the answer arrives, so that the position reported
+     * is the current one.
+     *
+     * @return a Position object with the cursor position reported by the
+     * terminal
+     * @throws LastErrorException if an error occurs while getting the position
+     * @see #getCursorPosition()
+     */
+    public Position resyncCursorPosition() throws LastErrorException {
+        synchronized (writer) {
+            Position p = queryCursorPosition();
+            cursor.moveTo(p.getLin(), p.getCol());
+            return cursor.getPosition();
+        }
+    }
+
+    /**
+     * Asks the terminal for the cursor position and waits for the answer.
      *
-     * @return a Posicion object with the current cursor position on the screen
+     * @return the position reported, or (1,1) if the terminal does not answer
      * @throws LastErrorException if an error occurs while getting the position
      */
-    public Position getCursorPosition() throws LastErrorException {
+    private Position queryCursorPosition() throws LastErrorException {
+        InputReader reader = getInputReader();
+        if (reader != null) {
+            return getCursorPosition(reader);
+        }
         try {
             // We make the console not show the characters that are written
             // and that the user's keystrokes are obtained without waiting
             // for them to press ENTER (raw mode)
-            this.osCall.enableRawMode();
-            System.out.print(CursorMovementCodes.getSecForGetCursorPosition());
-            return getPosition();
+            setRawMode(true);
+            writer.append(CursorMovementCodes.getSecForGetCursorPosition());
+            writer.flush();
+            return getPosition(in);
         } catch (IOException e) {
             logger.error(e.getMessage());
-            System.out.println(e.getMessage());
             return new Position(1, 1);
         } finally {
             // The console must be left in normal mode.
-            this.osCall.disableRawMode();
+            setRawMode(false);
+        }
+    }
+
+    /**
+     * Asks the terminal for the cursor position and takes the answer from the
+     * input reader.
+     *
+     * @param reader the running input reader
+     * @return the cursor position, or (1,1) if the terminal does not answer
+     */
+    private Position getCursorPosition(InputReader reader) {
+        CompletableFuture<Position> future = requestCursorPosition(reader);
+        writer.flush();
+        try {
+            return future.get(CURSOR_REPORT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("The terminal did not report the cursor position");
+        } catch (ExecutionException e) {
+            logger.error(e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return new Position(1, 1);
+    }
+
+    /**
+     * Asks the terminal for the cursor position without waiting for the
+     * answer. The input reader is started if it is not running.
+     * <p>
+     * The query is appended to the output like any other sequence, so inside
+     * an output frame several queries can be pipelined in a single write
+     * (for example, moving the cursor and asking for its position after each
+     * text drawn) and their answers arrive in order:
+     * <pre>{@code
+     * term.beginFrame();
+     * term.printAt(label, 3, 1);
+     * CompletableFuture<Position> afterLabel = term.requestCursorPosition();
+     * term.printAt(value, 4, 1);
+     * CompletableFuture<Position> afterValue = term.requestCursorPosition();
+     * term.commitFrame();
+     * }</pre>
+     * Outside a frame the query is written immediately.
+     *
+     * @return a future completed with the cursor position reported by the
+     * terminal
+     * @throws LastErrorException if the input reader has to be started and
+     * raw mode cannot be enabled
+     * @see #requestCursorPosition(long, TimeUnit)
+     */
+    public CompletableFuture<Position> requestCursorPosition() throws LastErrorException {
+        return requestCursorPosition(startInputReader());
+    }
+
+    /**
+     * Asks the terminal for the cursor position without waiting for the
+     * answer. The returned future fails with a {@link TimeoutException} if
+     * the terminal does not answer in time.
+     *
+     * @param timeout the maximum time to wait for the answer
+     * @param unit    the unit of the timeout
+     * @return a future completed with the cursor position reported by the
+     * terminal
+     * @throws LastErrorException if the input reader has to be started and
+     * raw mode cannot be enabled
+     * @see #requestCursorPosition()
+     */
+    public CompletableFuture<Position> requestCursorPosition(long timeout, TimeUnit unit) throws LastErrorException {
+        return requestCursorPosition().orTimeout(timeout, unit);
+    }
+
+    /**
+     * Registers the wait for a cursor position report and appends the query.
+     * Both steps are done while holding the lock of the writer so that the
+     * order of the futures is the order of the queries in the output.
+     *
+     * @param reader the running input reader
+     * @return a future completed with the reported position
+     */
+    private CompletableFuture<Position> requestCursorPosition(InputReader reader) {
+        synchronized (writer) {
+            CompletableFuture<Position> future = reader.expectCursorPosition();
+            writer.append(CursorMovementCodes.getSecForGetCursorPosition());
+            return future;
         }
     }
 
@@ -220,14 +823,14 @@ public class ANSITerm {
      * Moves the cursor to the beginning of the terminal (0,0)
      */
     public void moveCursorToBegin() {
-        System.out.print(CursorMovementCodes.getSecforSetCursorToBegin());
+        write(CursorMovementCodes.getSecforSetCursorToBegin());
     }
 
     /**
      * Moves the cursor one line up
      */
     public void moveCursorUp() {
-        System.out.println(CursorMovementCodes.getSecForMoveCursorNLinesUp(1));
+        write(CursorMovementCodes.getSecForMoveCursorNLinesUp(1) + System.lineSeparator());
     }
 
     /**
@@ -237,7 +840,7 @@ public class ANSITerm {
      * @param lines an integer with the lines up where the cursor will be moved
      */
     public void moveCursorUp(int lines) {
-        System.out.print(CursorMovementCodes.getSecForMoveCursorNLinesUp(lines));
+        write(CursorMovementCodes.getSecForMoveCursorNLinesUp(lines));
     }
 
     /**
@@ -247,7 +850,7 @@ public class ANSITerm {
      * @param lines an integer with the lines down where the cursor will be moved
      */
     public void moveCursorDown(int lines) {
-        System.out.print(CursorMovementCodes.getSecForMoveCursorNLinesDown(lines));
+        write(CursorMovementCodes.getSecForMoveCursorNLinesDown(lines));
     }
 
     /**
@@ -259,7 +862,7 @@ public class ANSITerm {
      * cursor will be moved
      */
     public void moveCursorRight(int cars) {
-        System.out.print(CursorMovementCodes.getSecForMoveCursorNCharsToRight(cars));
+        write(CursorMovementCodes.getSecForMoveCursorNCharsToRight(cars));
     }
 
     /**
@@ -270,7 +873,7 @@ public class ANSITerm {
      * @param cars an integer with the characters to the left where the
      * cursor will be moved
      */
-    public void moveCursorLeft(int cars) {System.out.print(CursorMovementCodes.getSecForMoveCursorNCharsToLeft(cars));}
+    public void moveCursorLeft(int cars) {write(CursorMovementCodes.getSecForMoveCursorNCharsToLeft(cars));}
 
     /**
      * Moves the cursor to the line, column position of the terminal
@@ -286,7 +889,7 @@ public class ANSITerm {
      */
     public void printAt(int line, int column) {
         //TODO: Validar que la posicion sea valida
-        System.out.print(CursorMovementCodes.getSecforSetCursorAtPosition(line, column));
+        write(CursorMovementCodes.getSecforSetCursorAtPosition(line, column));
     }
 
     /**
@@ -297,14 +900,14 @@ public class ANSITerm {
      */
     public void printAt(Position p) {
         //TODO: Validar que la posicion sea valida
-        System.out.print(CursorMovementCodes.getSecforSetCursorAtPosition(p.getLin(), p.getCol()));
+        write(CursorMovementCodes.getSecforSetCursorAtPosition(p.getLin(), p.getCol()));
     }
 
     /**
      * Saves the cursor position
      */
     public void saveCursorPos() {
-        System.out.print(CursorMovementCodes.getSecForSaveCursorPosition());
+        write(CursorMovementCodes.getSecForSaveCursorPosition());
 
     }
 
@@ -312,7 +915,7 @@ public class ANSITerm {
      * Restores the cursor position
      */
     public void restoreCursorPos() {
-        System.out.print(CursorMovementCodes.getSecForRestoreCurrentCursorPosition());
+        write(CursorMovementCodes.getSecForRestoreCurrentCursorPosition());
     }
 
 
@@ -321,26 +924,26 @@ public class ANSITerm {
      * Hides the cursor
      * CODE: DECTCEM (Text Cursor Enable Mode Hide)
      */
-    public void cursorHide() {System.out.print(CursorControlCodes.getScForHideCursor());}
+    public void cursorHide() {write(CursorControlCodes.getScForHideCursor());}
 
     /**
      * Shows the cursor
      * CODE: DECTCEM (Text Cursor Enable Mode Show)
      */
-    public void cursorShow() {System.out.print(CursorControlCodes.getScForShowCursor());}
+    public void cursorShow() {write(CursorControlCodes.getScForShowCursor());}
     
     
     /**
      * Enables cursor blinking
      * CODE: ATT160 (Text Cursor Enable Blinking)
      */
-    public void cursorBlink() {System.out.print(CursorControlCodes.getScForEnableCursorBlink());}
+    public void cursorBlink() {write(CursorControlCodes.getScForEnableCursorBlink());}
     
     /**
      * Disables cursor blinking
      * CODE: ATT160 (Text Cursor Disable Blinking)
      */
-    public void cursorNoBlink() {System.out.print(CursorControlCodes.getScForDisableCursorBlink());}
+    public void cursorNoBlink() {write(CursorControlCodes.getScForDisableCursorBlink());}
 
 
     /* ---------------------------------------------- Cursor Styles methods ----------------------------------------- */
@@ -373,7 +976,7 @@ public class ANSITerm {
                 && !style.equals(CURSOR_USER_SHAPE)) {
             throw new ANSITermException(EX_STYLE_UNKNOWN);
         }
-        System.out.print(style);
+        write(style);
     }
 
     /* -------------------------------------------- Text modification ----------------------------------------------- */
@@ -386,7 +989,7 @@ public class ANSITerm {
      */
     public void insertSpaces(int cars) throws ANSITermException {
         if (cars > 0) {
-            System.out.print(TextModificationCodes.insertSpaces(cars));
+            write(TextModificationCodes.insertSpaces(cars));
         } else {
             throw new ANSITermException(EX_CARS_INVALID);
         }
@@ -401,7 +1004,7 @@ public class ANSITerm {
      */
     public void eraseCharacters(int cars) throws ANSITermException {
         if (cars > 0) {
-            System.out.print(TextModificationCodes.eraseCharacters(cars));
+            write(TextModificationCodes.eraseCharacters(cars));
         } else {
             throw new ANSITermException(EX_CARS_INVALID);
         }
@@ -416,7 +1019,7 @@ public class ANSITerm {
      */
     public void eraseCharsWithSpaces(int cars)  throws ANSITermException {
         if (cars > 0) {
-            System.out.print(TextModificationCodes.eraseCharactersWithSpaces(cars));
+            write(TextModificationCodes.eraseCharactersWithSpaces(cars));
         } else {
             throw new ANSITermException(EX_WHITE_SPACE_INVALID);
         }
@@ -432,7 +1035,7 @@ public class ANSITerm {
      */
     public void insertLines(int lines) throws ANSITermException {
         if (lines > 0) {
-            System.out.print(TextModificationCodes.insertLines(lines));
+            write(TextModificationCodes.insertLines(lines));
         } else {
             throw new ANSITermException(EX_LINES_INVALID);
         }
@@ -447,7 +1050,7 @@ public class ANSITerm {
      */
     public void deleteLines(int lines) throws ANSITermException {
         if (lines > 0) {
-            System.out.print(TextModificationCodes.deleteLines(lines));
+            write(TextModificationCodes.deleteLines(lines));
         } else {
             throw new ANSITermException(EX_LINES_INVALID);
         }
@@ -458,19 +1061,19 @@ public class ANSITerm {
      * Deletes everything from the cursor position to the end of the screen
      */
     public void deleteFromCursorToEndScreen() {
-        System.out.print(EraseSecuencesCodes.deleteFromCursorToEndScreen());
+        write(EraseSecuencesCodes.deleteFromCursorToEndScreen());
     }
 
     /**
      * Deletes everything from the cursor position to the beginning of the screen
      */
-    public void deleteFromCursorToBeginScreen() {System.out.print(EraseSecuencesCodes.deleteFromCursorToBeginScreen()); }
+    public void deleteFromCursorToBeginScreen() {write(EraseSecuencesCodes.deleteFromCursorToBeginScreen()); }
 
     /**
      * Erases the screen
      */
     public void clearScreen() {
-        System.out.print(EraseSecuencesCodes.clearScreen());
+        write(EraseSecuencesCodes.clearScreen());
     }
 
     /**
@@ -478,7 +1081,7 @@ public class ANSITerm {
      * where it is located.
      */
     public void deleteFromCursorToEndLine() {
-        System.out.print(EraseSecuencesCodes.deleteFromCursorToEndLine());
+        write(EraseSecuencesCodes.deleteFromCursorToEndLine());
     }
 
     /**
@@ -486,7 +1089,7 @@ public class ANSITerm {
      * where it is located.
      */
     public void deleteFromCursorToBeginLine() {
-        System.out.print(EraseSecuencesCodes.deleteFromCursorToBeginLine());
+        write(EraseSecuencesCodes.deleteFromCursorToBeginLine());
     }
 
     /**
@@ -494,7 +1097,7 @@ public class ANSITerm {
      * located.
      */
     public void deleteCursorLine() {
-        System.out.print(EraseSecuencesCodes.deleteLine());
+        write(EraseSecuencesCodes.deleteLine());
     }
 
     /* ----------------------------------------------- Colors and styles -------------------------------------------- */
@@ -686,72 +1289,39 @@ public class ANSITerm {
             boolean isBlink, boolean isInverse,
             boolean isStrikeThrough, String msg) throws ANSITermException {
 
-        StringBuilder sb = new StringBuilder();
-        boolean isMessageAdded = false;
-        if (msg != null && !msg.isEmpty()) {
-            if (isBold) {
-                sb.append(setBold(msg));
-                isMessageAdded = true;
-            }
-            if (isDim) {
-                if (isMessageAdded) {
-                    sb.insert(0, ESC +
-                        DIM_START).append(ESC +
-                        DIM_END);
-                } else {
-                    sb.append(setDim(msg));
-                    isMessageAdded = true;
-                }
-            }
-            if (isItalic) {
-                if (isMessageAdded) {
-                    sb.insert(0, ESC +
-                        ITALIC_START).append(ESC +
-                        ITALIC_END);
-                } else {
-                    sb.append(setItalic(msg));
-                    isMessageAdded = true;
-                }
-            }
-            if (isUnderline) {
-                if (isMessageAdded) {
-                    sb.insert(0, ESC +
-                        UNDERLINE_START).append(ESC +
-                        UNDERLINE_STOP);
-                } else {
-                    sb.append(setUnderline(msg));
-                    isMessageAdded = true;
-                }
-            }
-            if (isBlink) {
-                if (isMessageAdded) {
-                    sb.insert(0, ESC +
-                        BLINK_START).append(ESC +
-                        BLINK_END);
-                } else {
-                    sb.append(setBlink(msg));
-                    isMessageAdded = true;
-                }
-            }
-            if (isInverse) {
-                if (isMessageAdded) {
-                    sb.insert(0, ESC +
-                        REVERSE_START).append(ESC +
-                        REVERSE_END);
-                } else {
-                    sb.append(setInverse(msg));
-                    isMessageAdded = true;
-                }
-            }
-            if (isStrikeThrough) {
-                if (isMessageAdded) {
-                    sb.insert(0, ESC +
-                            STRIKETHROUGH_START).append(ESC +
-                            STRIKETHROUGH_END);
-                } else sb.append(setStrikeThrough(msg));
-            }
-        } else throw new ANSITermException(EX_NO_MSG);
-        return sb.toString();
+        if (msg == null || msg.isEmpty()) {
+            throw new ANSITermException(EX_NO_MSG);
+        }
+        int styles = (isBold ? TextStyle.BOLD : 0)
+                | (isDim ? TextStyle.DIM : 0)
+                | (isItalic ? TextStyle.ITALIC : 0)
+                | (isUnderline ? TextStyle.UNDERLINE : 0)
+                | (isBlink ? TextStyle.BLINK : 0)
+                | (isInverse ? TextStyle.INVERSE : 0)
+                | (isStrikeThrough ? TextStyle.STRIKETHROUGH : 0);
+        return setStyle(TextStyle.of(styles, -1, -1), msg);
+    }
+
+    /**
+     * Applies a style (styles and colors) to the passed string. All the
+     * attributes of the style are set with a single sequence before the
+     * string and unset with another after it.
+     *
+     * @param style the style to apply
+     * @param msg the string to which the style will be applied
+     * @return a String with the ANSI sequences necessary so that, if later
+     * printed in the terminal, it appears with the requested style.
+     * @throws ANSITermException In case any argument is not valid.
+     * @see TextStyle
+     */
+    public String setStyle(TextStyle style, String msg) throws ANSITermException {
+        if (style == null) {
+            throw new ANSITermException("The style cannot be null");
+        }
+        if (msg == null || msg.isEmpty()) {
+            throw new ANSITermException(EX_NO_MSG);
+        }
+        return style.apply(msg);
     }
 
     /**
@@ -763,22 +1333,11 @@ public class ANSITerm {
      * @throws IllegalArgumentException In case any argument is not valid.
      */
     public String setColor(Color color, String msg) throws IllegalArgumentException {
-        StringBuilder sb = new StringBuilder();
-        int iColor = Integer.parseInt(color.getAsString());
-        if ((msg != null && !msg.isEmpty())) {
-            sb.append(ESC).append("[")
-                .append(iColor)
-                .append("m")
-                .append(msg)
-                .append(ESC)
-                .append("[")
-                .append(Color.DEFAULT.getAsString())
-                .append("m");
-        } else {
+        String start = ColorSequences.foreground(color);
+        if (msg == null || msg.isEmpty()) {
             throw new IllegalArgumentException(EX_NO_MSG);
         }
-
-        return sb.toString();
+        return start + msg + ColorSequences.FOREGROUND_RESET;
     }
     
     /**
@@ -793,8 +1352,6 @@ public class ANSITerm {
      * @throws IllegalArgumentException In case any argument is not valid.
      */
     public String setColor256(int color, String msg) throws IllegalArgumentException {
-        StringBuilder sb = new StringBuilder();
-        
         if (color < 0 || color > 255) {
             throw new IllegalArgumentException(EX_NO_COL);
         }
@@ -803,16 +1360,7 @@ public class ANSITerm {
             throw new IllegalArgumentException(EX_NO_MSG);
         }
         
-        sb.append(ESC).append(FOREGROUND_COLOR256)
-            .append(color)
-            .append("m")
-            .append(msg)
-            .append(ESC)
-            .append("[")
-            .append(Color.DEFAULT.getAsString())
-            .append("m");
-        
-        return sb.toString();
+        return ColorSequences.foreground256(color) + msg + ColorSequences.FOREGROUND_RESET;
     }
     
     /**
@@ -826,9 +1374,7 @@ public class ANSITerm {
      * @throws IllegalArgumentException In case any argument is not valid.
      */
     public String setBackgroundColor256(int color, String msg) throws IllegalArgumentException {
-        StringBuilder sb = new StringBuilder();
-        
-        if (color <= 0 || color > 255) {
+        if (color < 0 || color > 255) {
             throw new IllegalArgumentException(EX_NO_COL);
         }
         
@@ -836,16 +1382,7 @@ public class ANSITerm {
             throw new IllegalArgumentException(EX_NO_MSG);
         }
         
-        sb.append(ESC).append(BACKGROUND_COLOR256)
-            .append(color)
-            .append("m")
-            .append(msg)
-            .append(ESC)
-            .append("[")
-            .append(Color.DEFAULT.getAsString())
-            .append("m");
-        
-        return sb.toString();
+        return ColorSequences.background256(color) + msg + ColorSequences.BACKGROUND_RESET;
     }
     
     /**
@@ -858,22 +1395,11 @@ public class ANSITerm {
      * @throws IllegalArgumentException In case any argument is not valid.
      */
     public String setBackgroundColor(BGColor color, String msg) throws IllegalArgumentException {
-        StringBuilder sb = new StringBuilder();
-        int iColor = Integer.parseInt(color.getAsString());
-        if ((msg != null && !msg.isEmpty())) {
-            sb.append(ESC).append("[")
-                .append(iColor)
-                .append("m")
-                .append(msg)
-                .append(ESC)
-                .append("[")
-                .append(DEFAULT.getAsString())
-                .append("m");
-        } else {
+        String start = ColorSequences.background(color);
+        if (msg == null || msg.isEmpty()) {
             throw new IllegalArgumentException(EX_NO_MSG);
         }
-
-        return sb.toString();
+        return start + msg + ColorSequences.BACKGROUND_RESET;
     }
 
 
@@ -889,27 +1415,13 @@ public class ANSITerm {
      * @throws ANSITermException In case any argument is not valid.
      */
     public String setColors(Color color, BGColor backgroundColor, String msg) throws ANSITermException {
-        StringBuilder sb = new StringBuilder();
-        int iColor = Integer.parseInt(color.getAsString());
-        int bColor = Integer.parseInt(backgroundColor.getAsString());
-        if ((iColor < 30 || iColor > 37)) {
+        if (color == null || color.getCode() < 30 || color.getCode() > 37) {
             throw new ANSITermException(EX_NO_COL);
         }
-        if (bColor < 40) throw new ANSITermException(EX_NO_BACKCOL);
+        if (backgroundColor == null || backgroundColor.getCode() < 40) throw new ANSITermException(EX_NO_BACKCOL);
         if ((msg == null || msg.isEmpty())) throw new ANSITermException(EX_NO_MSG);
 
-        sb.append(ESC);
-        sb.append("[");
-        sb.append(color);
-        sb.append(";");
-        sb.append(backgroundColor);
-        sb.append("m");
-        sb.append(msg);
-        sb.append(ESC);
-        sb.append("[");
-        sb.append(RESET_COLOR_AND_STYLES);
-        sb.append("m");
-        return sb.toString();
+        return ColorSequences.colors(color, backgroundColor) + msg + ColorSequences.COLORS_RESET;
     }
 
     /**
@@ -917,7 +1429,7 @@ public class ANSITerm {
      * this method when you finish using Terminal in your application.
      */
     public void resetScreen() {
-        System.out.print(AnsiBufferManager.RESTORES_SCREEN);
+        write(AnsiBufferManager.RESTORES_SCREEN);
     }
 
 
@@ -934,8 +1446,10 @@ public class ANSITerm {
      */
     public void printAt(String msg, int line, int col) throws ANSITermException {
         if ((msg != null && !msg.isEmpty())) {
-            printAt(line, col);
-            System.out.print(msg);
+            synchronized (writer) {
+                printAt(line, col);
+                write(msg);
+            }
         } else {
             throw new ANSITermException(EX_NO_MSG);
         }
@@ -950,7 +1464,7 @@ public class ANSITerm {
      */
     public void printAt(String msg, Position p) throws ANSITermException {
         try {
-            printAt(msg, p.getCol(), p.getLin());
+            printAt(msg, p.getLin(), p.getCol());
         } catch (ANSITermException e) {
             throw new ANSITermException(e);
         }
@@ -962,7 +1476,7 @@ public class ANSITerm {
      * @param lines the number of lines by which the text should be scrolled upwards
      */
     public void scrollTextUp(int lines) {
-        System.out.println(ViewportPositioningCodes.getEsForScrollTextUp(lines));
+        write(ViewportPositioningCodes.getEsForScrollTextUp(lines) + System.lineSeparator());
     }
 
     /**
@@ -971,14 +1485,14 @@ public class ANSITerm {
      * @param lines the number of lines to scroll the text down
      */
     public void scrollTextDown(int lines) {
-        System.out.println(ViewportPositioningCodes.getEsForScrollTextDown(lines));
+        write(ViewportPositioningCodes.getEsForScrollTextDown(lines) + System.lineSeparator());
     }
 
     /**
      * Captures and saves the current state of the screen.
      */
     public void saveScreen(){
-        System.out.print(AnsiBufferManager.getESforSaveScreen());
+        write(AnsiBufferManager.getESforSaveScreen());
     }
 
     /**
@@ -987,7 +1501,7 @@ public class ANSITerm {
      * from the PositionCodes utility class using the getESforRestoreScreen method.
      */
     public void restoreScreen(){
-        System.out.print(AnsiBufferManager.getESforRestoreScreen());
+        write(AnsiBufferManager.getESforRestoreScreen());
     }
 
     /**
@@ -1003,7 +1517,7 @@ public class ANSITerm {
      * terminal standard output.
      */
     public void enableAlternativeBuffer(){
-        System.out.print(AnsiBufferManager.getESforEnableAlternateBuffer());
+        write(AnsiBufferManager.getESforEnableAlternateBuffer());
     }
 
     /**
@@ -1016,7 +1530,7 @@ public class ANSITerm {
      * to accomplish this.
      */
     public void disableAlternativeBuffer(){
-        System.out.print(AnsiBufferManager.getESforDisableAlternateBuffer());
+        write(AnsiBufferManager.getESforDisableAlternateBuffer());
     }
 
     /* --------------------------------------------- Window Title methods ------------------------------------------- */
@@ -1026,7 +1540,7 @@ public class ANSITerm {
      * @param title the title to set for the window
      */
     public void setWindowTitle(String title){
-        System.out.print(WindowTitleCodes.getEsForSetWindowTitle(title));
+        write(WindowTitleCodes.getEsForSetWindowTitle(title));
     }
 
     /**
@@ -1034,7 +1548,7 @@ public class ANSITerm {
      * @param title the title to set for the window
      */
     public void setOnlyWindowTitle(String title){
-        System.out.print(WindowTitleCodes.getEsForSetOnlyWindowTitle(title));
+        write(WindowTitleCodes.getEsForSetOnlyWindowTitle(title));
     }
 
     /* ---------------------------------------- Scrolling Margins methods ------------------------------------------- */
@@ -1046,14 +1560,14 @@ public class ANSITerm {
      * @param bottom the size of the margin at the bottom, typically measured in pixels or rows
      */
     public void setScrollingMargins(int top, int bottom){
-        System.out.print(ScrollingMarginsCodes.getEsForSetScrollingMargins(top, bottom));
+        write(ScrollingMarginsCodes.getEsForSetScrollingMargins(top, bottom));
     }
 
     /**
      * Resets the scrolling margins
      */
     public void resetScrollingMargins(){
-        System.out.print(ScrollingMarginsCodes.getEsForResetScrollingMargins());
+        write(ScrollingMarginsCodes.getEsForResetScrollingMargins());
     }
 
     /* ---------------------------------------- Windows Witdh methods ----------------------------------------------- */
@@ -1062,14 +1576,14 @@ public class ANSITerm {
      * Sets the window width to 132 columns
      */
     public void setWindowWidth132Columns(){
-        System.out.print(WindowWidth.getEsForWidth132Columns());
+        write(WindowWidth.getEsForWidth132Columns());
     }
 
     /**
      * Sets the window width to 80 columns
      */
     public void setWindowWidth80Columns(){
-        System.out.print(WindowWidth.getEsForWidth80Columns());
+        write(WindowWidth.getEsForWidth80Columns());
     }
     
     @Override
@@ -1077,7 +1591,7 @@ public class ANSITerm {
         return "ANSITerm{" +
                 "osCall=" + osCall +
                 ", terminalSize=" + terminalSize +
-                ", cursorPosition=" + cursorPosition +
+                ", cursor=" + cursor +
                 '}';
     }
 }
@@ -0,0 +1,611 @@
+package es.nom.juanfranciscoruiz.ansiterm;
+
+/**
+ * Software model of the cursor of a terminal: it follows the position of the
+ * cursor as the output is written, so that the position can be known without
+ * asking the terminal (ESC[6n) and waiting for its answer.
+ * <p>
+ * The model follows the rules of a VT100/xterm terminal with automatic wrap:
+ * the printable characters advance the cursor one column; writing in the last
+ * column leaves the cursor there with a pending wrap, and the next character
+ * goes to the start of the following line; a line feed on the bottom margin of
+ * the scrolling region scrolls the region instead of moving the cursor; and
+ * the movements are clipped to the screen (or to the scrolling region when
+ * the cursor is inside it). Lines and columns start at 1.
+ * <p>
+ * The escape sequences found in the output are interpreted when they move the
+ * cursor (CUP, CUU, CUD, CUF, CUB, CNL, CPL, CHA, VPA, DECSTBM, IL, DL, DECSC,
+ * DECRC, IND, NEL, RI, RIS, DECCOLM and the alternate buffer 1049) and skipped
+ * otherwise. Every character takes one column, so characters that take two
+ * columns in the terminal are not supported. When the model may have lost
+ * track of the cursor (for example, after something else has written to the
+ * terminal) it can be set again from the position reported by the terminal
+ * with {@link ANSITerm#resyncCursorPosition()}.
+ * <p>
+ * This class is not thread-safe: {@link ANSITerm} accesses it while holding
+ * the lock of its writer, so the model changes in the same order as the
+ * output.
+ *
+ * @author Juan F. Ruiz
+ */
+public final class CursorTracker {
+    /**
+     * Distance between two tab stops.
+     */
+    public static final int TAB_WIDTH = 8;
+
+    /**
+     * Parameters above this value stop growing, to avoid overflows.
+     */
+    private static final int MAX_PARAMETER = 100_000;
+
+    /**
+     * Number of lines of the screen
+     */
+    private int lines;
+    /**
+     * Number of columns of the screen
+     */
+    private int columns;
+    /**
+     * Line of the cursor
+     */
+    private int line = 1;
+    /**
+     * Column of the cursor
+     */
+    private int column = 1;
+    /**
+     * True if a character has been written in the last column and the next
+     * one goes to the following line
+     */
+    private boolean pendingWrap;
+    /**
+     * First line of the scrolling region
+     */
+    private int top = 1;
+    /**
+     * Last line of the scrolling region, or 0 for the last line of the screen
+     */
+    private int bottom;
+    /**
+     * Whether a line feed also returns the cursor to the first column, as
+     * when the terminal driver translates LF into CR LF
+     */
+    private boolean newlineReturns;
+    /**
+     * Line saved by {@link #save()}
+     */
+    private int savedLine = 1;
+    /**
+     * Column saved by {@link #save()}
+     */
+    private int savedColumn = 1;
+
+    /**
+     * Instantiates a tracker with the cursor at the home position (1,1).
+     *
+     * @param size           the size of the screen
+     * @param newlineReturns whether a line feed also returns the cursor to the
+     *                       first column
+     * @throws IllegalArgumentException if the size is null
+     */
+    public CursorTracker(TerminalSize size, boolean newlineReturns) throws IllegalArgumentException {
+        resize(size);
+        this.newlineReturns = newlineReturns;
+    }
+
+    // Getters and setters
+    /**
+     * Returns the position of the cursor.
+     *
+     * @return the position, with columns and lines starting at 1
+     */
+    public Position getPosition() {
+        return new Position(column, line);
+    }
+
+    /**
+     * Returns the line of the cursor.
+     *
+     * @return the line, starting at 1
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Returns the column of the cursor.
+     *
+     * @return the column, starting at 1
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Indicates whether the cursor is in the last column with a pending wrap.
+     *
+     * @return true if the next character goes to the following line
+     */
+    public boolean isPendingWrap() {
+        return pendingWrap;
+    }
+
+    /**
+     * Indicates whether a line feed also returns the cursor to the first
+     * column.
+     *
+     * @return true if LF is taken as CR LF
+     */
+    public boolean isNewlineReturns() {
+        return newlineReturns;
+    }
+
+    /**
+     * Sets whether a line feed also returns the cursor to the first column.
+     * It does for the terminal of the process in 'cooked' mode, whose driver
+     * translates LF into CR LF, and it does not in 'raw' mode nor for a
+     * remote terminal (see {@link ITerminal#isNewlineTranslated()}).
+     *
+     * @param newlineReturns true if LF is taken as CR LF
+     */
+    public void setNewlineReturns(boolean newlineReturns) {
+        this.newlineReturns = newlineReturns;
+    }
+
+    // Methods
+    /**
+     * Changes the size of the screen, keeping the cursor inside it. The
+     * scrolling region is reset, as terminals do when they are resized.
+     *
+     * @param size the new size
+     * @throws IllegalArgumentException if the size is null
+     */
+    public void resize(TerminalSize size) throws IllegalArgumentException {
+        if (size == null) {
+            throw new IllegalArgumentException("The terminal size cannot be null");
+        }
+        lines = Math.max(1, size.getLines());
+        columns = Math.max(1, size.getColumns());
+        top = 1;
+        bottom = 0;
+        line = Math.min(line, lines);
+        column = Math.min(column, columns);
+        pendingWrap = false;
+    }
+
+    /**
+     * Moves the cursor to a position of the screen (CUP). The position is
+     * clipped to the screen.
+     *
+     * @param line   the line
+     * @param column the column
+     */
+    public void moveTo(int line, int column) {
+        this.line = clamp(line, 1, lines);
+        this.column = clamp(column, 1, columns);
+        pendingWrap = false;
+    }
+
+    /**
+     * Moves the cursor up (CUU), stopping at the top margin if the cursor is
+     * inside the scrolling region.
+     *
+     * @param n the number of lines; 0 moves one line, as in the terminal
+     */
+    public void moveUp(int n) {
+        int limit = line >= top ? top : 1;
+        line = Math.max(limit, line - Math.max(1, n));
+        pendingWrap = false;
+    }
+
+    /**
+     * Moves the cursor down (CUD), stopping at the bottom margin if the
+     * cursor is inside the scrolling region.
+     *
+     * @param n the number of lines; 0 moves one line, as in the terminal
+     */
+    public void moveDown(int n) {
+        int limit = line <= bottom() ? bottom() : lines;
+        line = Math.min(limit, line + Math.max(1, n));
+        pendingWrap = false;
+    }
+
+    /**
+     * Moves the cursor to the right (CUF), stopping at the last column.
+     *
+     * @param n the number of columns; 0 moves one column, as in the terminal
+     */
+    public void moveRight(int n) {
+        column = Math.min(columns, column + Math.max(1, n));
+        pendingWrap = false;
+    }
+
+    /**
+     * Moves the cursor to the left (CUB), stopping at the first column.
+     *
+     * @param n the number of columns; 0 moves one column, as in the terminal
+     */
+    public void moveLeft(int n) {
+        column = Math.max(1, column - Math.max(1, n));
+        pendingWrap = false;
+    }
+
+    /**
+     * Moves the cursor one line down, scrolling the region up if the cursor
+     * is on its bottom margin (LF, VT and FF).
+     *
+     * @param returns whether the cursor also returns to the first column
+     */
+    public void lineFeed(boolean returns) {
+        if (line != bottom() && line < lines) {
+            line++;
+        }
+        if (returns) {
+            column = 1;
+        }
+        pendingWrap = false;
+    }
+
+    /**
+     * Moves the cursor one line up, scrolling the region down if the cursor
+     * is on its top margin (RI).
+     */
+    public void reverseLineFeed() {
+        if (line != top && line > 1) {
+            line--;
+        }
+        pendingWrap = false;
+    }
+
+    /**
+     * Moves the cursor to the first column (CR).
+     */
+    public void carriageReturn() {
+        column = 1;
+        pendingWrap = false;
+    }
+
+    /**
+     * Moves the cursor one column to the left, if it is not on the first one
+     * (BS).
+     */
+    public void backSpace() {
+        if (column > 1) {
+            column--;
+        }
+        pendingWrap = false;
+    }
+
+    /**
+     * Moves the cursor to the next tab stop or to the last column (HT).
+     */
+    public void tab() {
+        column = Math.min(columns, ((column - 1) / TAB_WIDTH + 1) * TAB_WIDTH + 1);
+    }
+
+    /**
+     * Moves the cursor to the first column of its line, as the insert line
+     * and delete line operations do (IL, DL).
+     */
+    public void lineOperation() {
+        column = 1;
+        pendingWrap = false;
+    }
+
+    /**
+     * Saves the position of the cursor (DECSC).
+     */
+    public void save() {
+        savedLine = line;
+        savedColumn = column;
+    }
+
+    /**
+     * Restores the position saved with {@link #save()} (DECRC).
+     */
+    public void restore() {
+        moveTo(savedLine, savedColumn);
+    }
+
+    /**
+     * Sets the scrolling region (DECSTBM) and moves the cursor home, as the
+     * terminal does. An invalid region resets it to the whole screen.
+     *
+     * @param top    the first line of the region
+     * @param bottom the last line of the region
+     */
+    public void setScrollRegion(int top, int bottom) {
+        if (top >= 1 && bottom <= lines && top < bottom) {
+            this.top = top;
+            this.bottom = bottom;
+        } else {
+            resetScrollRegion();
+        }
+        moveTo(1, 1);
+    }
+
+    /**
+     * Makes the scrolling region the whole screen and moves the cursor home.
+     */
+    public void resetScrollRegion() {
+        top = 1;
+        bottom = 0;
+        moveTo(1, 1);
+    }
+
+    /**
+     * Resets the model as a terminal reset (RIS) does: cursor home, whole
+     * screen scrolling region and saved position home.
+     */
+    public void reset() {
+        resetScrollRegion();
+        savedLine = 1;
+        savedColumn = 1;
+    }
+
+    /**
+     * Advances the cursor over a text written at its position: printable
+     * characters, control characters (CR, LF, VT, FF, BS and HT) and escape
+     * sequences.
+     *
+     * @param text the text written
+     */
+    public void advance(CharSequence text) {
+        int len = text.length();
+        int i = 0;
+        while (i < len) {
+            char c = text.charAt(i);
+            if (c == '\u001B') {
+                i = escape(text, i + 1);
+                continue;
+            }
+            i++;
+            if (c < ' ' || c == '\u007F') {
+                control(c);
+            } else if (Character.isHighSurrogate(c) && i < len && Character.isLowSurrogate(text.charAt(i))) {
+                i++;
+                print();
+            } else {
+                print();
+            }
+        }
+    }
+
+    /**
+     * Advances the cursor over a character written at its position.
+     *
+     * @param c the character
+     */
+    public void advance(char c) {
+        if (c < ' ' || c == '\u007F') {
+            control(c);
+        } else {
+            print();
+        }
+    }
+
+    /**
+     * Applies a control character.
+     *
+     * @param c the control character
+     */
+    private void control(char c) {
+        switch (c) {
+            case '\r' -> carriageReturn();
+            case '\n' -> lineFeed(newlineReturns);
+            case '\u000B', '\f' -> lineFeed(false);
+            case '\b' -> backSpace();
+            case '\t' -> tab();
+            default -> {
+                // BEL, NUL, DEL and the other control characters do not move
+                // the cursor
+            }
+        }
+    }
+
+    /**
+     * Advances the cursor over a printable character, wrapping to the next
+     * line if the previous character was written in the last column.
+     */
+    private void print() {
+        if (pendingWrap) {
+            lineFeed(true);
+        }
+        if (column < columns) {
+            column++;
+        } else {
+            pendingWrap = true;
+        }
+    }
+
+    /**
+     * Applies an escape sequence.
+     *
+     * @param text the text
+     * @param i    the index following the ESC
+     * @return the index following the sequence
+     */
+    private int escape(CharSequence text, int i) {
+        int len = text.length();
+        if (i >= len) {
+            return i;
+        }
+        char c = text.charAt(i++);
+        switch (c) {
+            case '[' -> {
+                return csi(text, i);
+            }
+            case '\u001B' -> {
+                // A second ESC cancels the first one and starts a new sequence
+                return i - 1;
+            }
+            case ']', 'P', '_', '^' -> {
+                // OSC, DCS, APC, PM: up to BEL or ST (ESC \)
+                while (i < len) {
+                    char p = text.charAt(i++);
+                    if (p == '\u0007') {
+                        break;
+                    }
+                    if (p == '\u001B' && i < len && text.charAt(i) == '\\') {
+                        i++;
+                        break;
+                    }
+                }
+            }
+            case '7' -> save();
+            case '8' -> restore();
+            case 'D' -> lineFeed(false);
+            case 'E' -> lineFeed(true);
+            case 'M' -> reverseLineFeed();
+            case 'c' -> reset();
+            default -> {
+                // Intermediate bytes (e.g. ESC ( B) followed by a final byte
+                if (c >= ' ' && c <= '/') {
+                    while (i < len && text.charAt(i) >= ' ' && text.charAt(i) <= '/') {
+                        i++;
+                    }
+                    if (i < len) {
+                        i++;
+                    }
+                }
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Applies a control sequence (CSI). Only the first two parameters are
+     * kept, which are all the sequences that move the cursor use.
+     *
+     * @param text the text
+     * @param i    the index following ESC [
+     * @return the index following the sequence
+     */
+    private int csi(CharSequence text, int i) {
+        int len = text.length();
+        boolean isPrivate = false;
+        int count = 0;
+        int p0 = 0;
+        int p1 = 0;
+        while (i < len) {
+            char c = text.charAt(i++);
+            if (c >= '0' && c <= '9') {
+                if (count == 0 && p0 < MAX_PARAMETER) {
+                    p0 = p0 * 10 + (c - '0');
+                } else if (count == 1 && p1 < MAX_PARAMETER) {
+                    p1 = p1 * 10 + (c - '0');
+                }
+            } else if (c == ';') {
+                count++;
+            } else if (c == '?') {
+                isPrivate = true;
+            } else if (c >= '@' && c <= '~') {
+                if (isPrivate) {
+                    privateMode(c, p0);
+                } else {
+                    csi(c, count, p0, p1);
+                }
+                break;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Applies a control sequence with its parameters.
+     *
+     * @param command the final character of the sequence
+     * @param count   the number of ';' found
+     * @param p0      the first parameter, 0 if omitted
+     * @param p1      the second parameter, 0 if omitted
+     */
+    private void csi(char command, int count, int p0, int p1) {
+        switch (command) {
+            case 'A' -> moveUp(p0);
+            case 'B', 'e' -> moveDown(p0);
+            case 'C', 'a' -> moveRight(p0);
+            case 'D' -> moveLeft(p0);
+            case 'E' -> {
+                moveDown(p0);
+                carriageReturn();
+            }
+            case 'F' -> {
+                moveUp(p0);
+                carriageReturn();
+            }
+            case 'G', '`' -> moveTo(line, Math.max(1, p0));
+            case 'd' -> moveTo(Math.max(1, p0), column);
+            case 'H', 'f' -> moveTo(Math.max(1, p0), Math.max(1, p1));
+            case 'r' -> {
+                if (count == 0 && p0 == 0) {
+                    resetScrollRegion();
+                } else {
+                    setScrollRegion(Math.max(1, p0), p1 == 0 ? lines : p1);
+                }
+            }
+            case 'L', 'M' -> lineOperation();
+            case 's' -> save();
+            case 'u' -> restore();
+            default -> {
+                // SGR, erase and the other sequences do not move the cursor
+            }
+        }
+    }
+
+    /**
+     * Applies a private mode sequence (CSI ? n h or CSI ? n l).
+     *
+     * @param command the final character of the sequence
+     * @param mode    the mode
+     */
+    private void privateMode(char command, int mode) {
+        if (command != 'h' && command != 'l') {
+            return;
+        }
+        if (mode == 1049) {
+            // The alternate buffer saves the cursor on entry and restores it on exit
+            if (command == 'h') {
+                save();
+            } else {
+                restore();
+            }
+        } else if (mode == 3) {
+            // DECCOLM clears the screen, resets the margins and homes the cursor
+            resetScrollRegion();
+        }
+    }
+
+    /**
+     * Returns the last line of the scrolling region.
+     *
+     * @return the bottom margin
+     */
+    private int bottom() {
+        return bottom == 0 ? lines : bottom;
+    }
+
+    /**
+     * Clips a value to a range.
+     *
+     * @param value the value
+     * @param min   the minimum
+     * @param max   the maximum
+     * @return the clipped value
+     */
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    @Override
+    public String toString() {
+        return "CursorTracker{" +
+                "line=" + line +
+                ", column=" + column +
+                ", pendingWrap=" + pendingWrap +
+                ", size=" + columns + "x" + lines +
+                ", scrollRegion=" + top + "-" + bottom() +
+                '}';
+    }
+}
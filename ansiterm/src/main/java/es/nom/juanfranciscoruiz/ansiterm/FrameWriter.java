@@ -0,0 +1,543 @@
+package es.nom.juanfranciscoruiz.ansiterm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Batching output layer used by {@link ANSITerm} to send text and ANSI escape
+ * sequences to the terminal.
+ * <p>
+ * Outside a frame every call to one of the {@code append} methods is written
+ * to the terminal immediately, which is the behaviour the terminal methods have
+ * always had. Between {@link #beginFrame()} and {@link #commitFrame()} all the
+ * sequences are collected into a single reusable buffer and written to the
+ * terminal with one write when the outermost frame is committed. Frames can be
+ * nested: only the outermost commit writes the buffer.
+ * <p>
+ * While a frame is open the buffer is also written out (auto-flushed) when it
+ * reaches {@link #getAutoFlushChars()} characters or when more than
+ * {@link #getAutoFlushMillis()} milliseconds have passed since the last write.
+ * The time limit is checked each time something is appended, so a frame that
+ * stays idle is not written until more output arrives or it is committed.
+ * A value of 0 disables the corresponding limit. An automatic write (outside
+ * a frame or by one of the limits) never splits a surrogate pair: if the last
+ * character appended is a high surrogate it stays in the buffer until its low
+ * surrogate is appended or the output is written with {@link #flush()}.
+ * <p>
+ * The output can go to an {@link OutputStream} (by default the standard
+ * output) or directly to a {@link WritableByteChannel}, such as a
+ * {@link FileChannel} opened on the terminal device with {@link #openTty()}.
+ * With a channel the text is encoded into reusable direct buffers of
+ * {@link #SEGMENT_SIZE} bytes and a frame larger than one buffer is written
+ * with a single gathering write, so a large redraw costs one system call and
+ * does not go through the synchronized {@code PrintStream} of System.out.
+ * <p>
+ * {@link #close()} writes the pending output and closes the channel opened by
+ * {@link #openTty()} or {@link #openFileDescriptor(int)}. The streams and
+ * channels passed to the constructors belong to the caller and are never
+ * closed.
+ *
+ * @author Juan F. Ruiz
+ */
+public class FrameWriter implements Appendable, Closeable {
+    /**
+     * For logging
+     */
+    public static final Logger logger = LoggerFactory.getLogger(FrameWriter.class);
+
+    /**
+     * Default number of buffered characters that forces an auto-flush.
+     */
+    public static final int DEFAULT_AUTO_FLUSH_CHARS = 64 * 1024;
+
+    /**
+     * Default number of milliseconds after which an open frame is auto-flushed.
+     */
+    public static final long DEFAULT_AUTO_FLUSH_MILLIS = 100L;
+
+    /**
+     * Initial capacity of the character buffer.
+     */
+    private static final int INITIAL_CAPACITY = 4096;
+
+    /**
+     * Size in bytes of each direct buffer used to write to a channel.
+     */
+    public static final int SEGMENT_SIZE = 64 * 1024;
+
+    /**
+     * Path of the controlling terminal device on Unix-like systems.
+     */
+    public static final String TTY_PATH = "/dev/tty";
+
+    /**
+     * The stream where the encoded bytes are written, or null if they are
+     * written to a channel.
+     */
+    private final OutputStream out;
+
+    /**
+     * The channel where the encoded bytes are written, or null if they are
+     * written to a stream.
+     */
+    private final WritableByteChannel channel;
+
+    /**
+     * True if the channel was opened by this FrameWriter, which must close it.
+     */
+    private final boolean ownsChannel;
+
+    /**
+     * Reusable direct buffers used to write to the channel.
+     */
+    private final List<ByteBuffer> segments;
+
+    /**
+     * Array view of the segments used in the last gathering write.
+     */
+    private ByteBuffer[] segmentArray;
+
+    /**
+     * Encoder used to convert the buffered characters into bytes.
+     */
+    private final CharsetEncoder encoder;
+
+    /**
+     * Reusable buffer where the sequences of the current frame are collected.
+     */
+    private final StringBuilder buffer;
+
+    /**
+     * Reusable buffer with the encoded bytes that are written to the stream.
+     */
+    private ByteBuffer bytes;
+
+    /**
+     * Number of frames currently open (frames can be nested).
+     */
+    private int depth;
+
+    /**
+     * Number of buffered characters that forces an auto-flush (0 disables it).
+     */
+    private int autoFlushChars;
+
+    /**
+     * Nanoseconds after the last write that force an auto-flush (0 disables it).
+     */
+    private long autoFlushNanos;
+
+    /**
+     * Instant (System.nanoTime()) of the last write to the stream.
+     */
+    private long lastFlushNanos;
+
+    /**
+     * Creates a FrameWriter that writes to the standard output using its
+     * charset.
+     */
+    public FrameWriter() {
+        this(System.out, System.out.charset());
+    }
+
+    /**
+     * Creates a FrameWriter that writes to the given stream.
+     *
+     * @param out     the stream where the terminal output will be written
+     * @param charset the charset used to encode the text
+     * @throws IllegalArgumentException if any argument is null
+     */
+    public FrameWriter(OutputStream out, Charset charset) throws IllegalArgumentException {
+        if (out == null || charset == null) {
+            throw new IllegalArgumentException("The output stream and the charset cannot be null");
+        }
+        this.out = out;
+        this.channel = null;
+        this.ownsChannel = false;
+        this.segments = null;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.buffer = new StringBuilder(INITIAL_CAPACITY);
+        this.bytes = ByteBuffer.allocate(INITIAL_CAPACITY);
+        this.autoFlushChars = DEFAULT_AUTO_FLUSH_CHARS;
+        this.autoFlushNanos = DEFAULT_AUTO_FLUSH_MILLIS * 1_000_000L;
+        this.lastFlushNanos = System.nanoTime();
+    }
+
+    /**
+     * Creates a FrameWriter that writes to the given channel. The text is
+     * encoded into reusable direct buffers and each flush is written with a
+     * single (gathering, if the channel supports it) write.
+     *
+     * @param channel the channel where the terminal output will be written
+     * @param charset the charset used to encode the text
+     * @throws IllegalArgumentException if any argument is null
+     */
+    public FrameWriter(WritableByteChannel channel, Charset charset) throws IllegalArgumentException {
+        this(channel, charset, false);
+    }
+
+    /**
+     * Creates a FrameWriter that writes to the given channel.
+     *
+     * @param channel     the channel where the terminal output will be written
+     * @param charset     the charset used to encode the text
+     * @param ownsChannel true if the channel must be closed by {@link #close()}
+     * @throws IllegalArgumentException if any argument is null
+     */
+    private FrameWriter(WritableByteChannel channel, Charset charset, boolean ownsChannel)
+            throws IllegalArgumentException {
+        if (channel == null || charset == null) {
+            throw new IllegalArgumentException("The output channel and the charset cannot be null");
+        }
+        this.out = null;
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        this.segments = new ArrayList<>();
+        this.segments.add(ByteBuffer.allocateDirect(SEGMENT_SIZE));
+        this.segmentArray = new ByteBuffer[0];
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.buffer = new StringBuilder(INITIAL_CAPACITY);
+        this.bytes = null;
+        this.autoFlushChars = DEFAULT_AUTO_FLUSH_CHARS;
+        this.autoFlushNanos = DEFAULT_AUTO_FLUSH_MILLIS * 1_000_000L;
+        this.lastFlushNanos = System.nanoTime();
+    }
+
+    /**
+     * Creates a FrameWriter that writes directly to the controlling terminal
+     * ({@value #TTY_PATH}) through a {@link FileChannel}, using the charset of
+     * the standard output. The device is closed by {@link #close()}.
+     *
+     * @return the new FrameWriter
+     * @throws IOException if the terminal device cannot be opened
+     */
+    public static FrameWriter openTty() throws IOException {
+        return open(Path.of(TTY_PATH));
+    }
+
+    /**
+     * Creates a FrameWriter that writes directly to an open file descriptor
+     * of this process (through /dev/fd) using the charset of the standard
+     * output. For example, 1 is the standard output and 2 the standard error.
+     * The channel opened on it is closed by {@link #close()}.
+     *
+     * @param fd the file descriptor
+     * @return the new FrameWriter
+     * @throws IOException if the file descriptor cannot be opened
+     */
+    public static FrameWriter openFileDescriptor(int fd) throws IOException {
+        return open(Path.of("/dev/fd", String.valueOf(fd)));
+    }
+
+    /**
+     * Opens a FileChannel to write on a device or file and creates a
+     * FrameWriter on it.
+     *
+     * @param path the path of the device or file
+     * @return the new FrameWriter
+     * @throws IOException if the path cannot be opened
+     */
+    private static FrameWriter open(Path path) throws IOException {
+        FileChannel fc = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return new FrameWriter(fc, System.out.charset(), true);
+    }
+
+    // Getters and setters
+    /**
+     * Returns the number of buffered characters that forces an auto-flush.
+     *
+     * @return the number of characters, or 0 if the limit is disabled
+     */
+    public synchronized int getAutoFlushChars() {
+        return autoFlushChars;
+    }
+
+    /**
+     * Sets the number of buffered characters that forces an auto-flush of an
+     * open frame.
+     *
+     * @param autoFlushChars the number of characters, or 0 to disable the limit
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public synchronized void setAutoFlushChars(int autoFlushChars) throws IllegalArgumentException {
+        if (autoFlushChars < 0) {
+            throw new IllegalArgumentException("The auto-flush size cannot be negative");
+        }
+        this.autoFlushChars = autoFlushChars;
+    }
+
+    /**
+     * Returns the number of milliseconds after which an open frame is
+     * auto-flushed.
+     *
+     * @return the number of milliseconds, or 0 if the limit is disabled
+     */
+    public synchronized long getAutoFlushMillis() {
+        return autoFlushNanos / 1_000_000L;
+    }
+
+    /**
+     * Sets the number of milliseconds after which an open frame is
+     * auto-flushed.
+     *
+     * @param autoFlushMillis the number of milliseconds, or 0 to disable the
+     *                        limit
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public synchronized void setAutoFlushMillis(long autoFlushMillis) throws IllegalArgumentException {
+        if (autoFlushMillis < 0) {
+            throw new IllegalArgumentException("The auto-flush time cannot be negative");
+        }
+        this.autoFlushNanos = autoFlushMillis * 1_000_000L;
+    }
+
+    /**
+     * Indicates whether a frame is currently open.
+     *
+     * @return true if {@link #beginFrame()} has been called more times than
+     * {@link #commitFrame()}
+     */
+    public synchronized boolean isInFrame() {
+        return depth > 0;
+    }
+
+    // Methods
+    /**
+     * Opens a frame. Everything appended until the matching
+     * {@link #commitFrame()} is collected and written with a single write.
+     */
+    public synchronized void beginFrame() {
+        if (depth == 0) {
+            flush();
+            lastFlushNanos = System.nanoTime();
+        }
+        depth++;
+    }
+
+    /**
+     * Closes the current frame. If it is the outermost frame, the collected
+     * output is written to the terminal.
+     *
+     * @throws IllegalStateException if there is no open frame
+     */
+    public synchronized void commitFrame() throws IllegalStateException {
+        if (depth == 0) {
+            throw new IllegalStateException("There is no open frame to commit");
+        }
+        depth--;
+        if (depth == 0) {
+            flush();
+        }
+    }
+
+    /**
+     * Appends a character sequence to the output.
+     *
+     * @param csq the character sequence to append. If null, "null" is appended
+     * @return this FrameWriter
+     */
+    @Override
+    public synchronized FrameWriter append(CharSequence csq) {
+        buffer.append(csq);
+        afterAppend();
+        return this;
+    }
+
+    /**
+     * Appends a subsequence of a character sequence to the output.
+     *
+     * @param csq   the character sequence with the subsequence to append
+     * @param start the index of the first character of the subsequence
+     * @param end   the index of the character following the last character of
+     *              the subsequence
+     * @return this FrameWriter
+     */
+    @Override
+    public synchronized FrameWriter append(CharSequence csq, int start, int end) {
+        buffer.append(csq, start, end);
+        afterAppend();
+        return this;
+    }
+
+    /**
+     * Appends a character to the output.
+     *
+     * @param c the character to append
+     * @return this FrameWriter
+     */
+    @Override
+    public synchronized FrameWriter append(char c) {
+        buffer.append(c);
+        afterAppend();
+        return this;
+    }
+
+    /**
+     * Writes the buffered output to the terminal with a single write, even if
+     * a frame is open.
+     */
+    public synchronized void flush() {
+        write(buffer.length());
+    }
+
+    /**
+     * Writes the first characters of the buffer to the terminal with a single
+     * write and keeps the rest in the buffer.
+     *
+     * @param end the number of characters to write
+     */
+    private void write(int end) {
+        if (end == 0) {
+            return;
+        }
+        if (channel != null) {
+            flushToChannel(end);
+            return;
+        }
+        int needed = (int) Math.ceil(end * (double) encoder.maxBytesPerChar());
+        if (bytes.capacity() < needed) {
+            bytes = ByteBuffer.allocate(Math.max(needed, bytes.capacity() * 2));
+        }
+        bytes.clear();
+        encoder.reset();
+        encoder.encode(CharBuffer.wrap(buffer, 0, end), bytes, true);
+        encoder.flush(bytes);
+        buffer.delete(0, end);
+        try {
+            out.write(bytes.array(), 0, bytes.position());
+            out.flush();
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+        }
+        lastFlushNanos = System.nanoTime();
+    }
+
+    /**
+     * Writes the buffered output and closes the channel if it was opened by
+     * {@link #openTty()} or {@link #openFileDescriptor(int)}. The streams and
+     * channels given by the caller are left open. Closing an already closed
+     * FrameWriter has no effect.
+     *
+     * @throws IOException if the channel cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (ownsChannel) {
+            if (channel.isOpen()) {
+                flush();
+                channel.close();
+            }
+        } else {
+            flush();
+        }
+    }
+
+    /**
+     * Encodes the first characters of the buffer into the direct segments,
+     * adding segments if needed, and writes all of them to the channel with
+     * one write.
+     *
+     * @param end the number of characters to write
+     */
+    private void flushToChannel(int end) {
+        encoder.reset();
+        CharBuffer chars = CharBuffer.wrap(buffer, 0, end);
+        int used = 0;
+        ByteBuffer seg = segments.get(0);
+        seg.clear();
+        while (encoder.encode(chars, seg, true).isOverflow()) {
+            seg = nextSegment(++used);
+        }
+        while (encoder.flush(seg).isOverflow()) {
+            seg = nextSegment(++used);
+        }
+        used++;
+        buffer.delete(0, end);
+        if (segmentArray.length != used) {
+            segmentArray = segments.subList(0, used).toArray(new ByteBuffer[0]);
+        }
+        long remaining = 0;
+        for (ByteBuffer b : segmentArray) {
+            b.flip();
+            remaining += b.remaining();
+        }
+        try {
+            if (channel instanceof GatheringByteChannel gathering) {
+                while (remaining > 0) {
+                    remaining -= gathering.write(segmentArray);
+                }
+            } else {
+                for (ByteBuffer b : segmentArray) {
+                    while (b.hasRemaining()) {
+                        channel.write(b);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+        }
+        lastFlushNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns an empty direct segment, allocating it the first time it is
+     * needed.
+     *
+     * @param index the index of the segment
+     * @return the cleared segment
+     */
+    private ByteBuffer nextSegment(int index) {
+        if (index == segments.size()) {
+            segments.add(ByteBuffer.allocateDirect(SEGMENT_SIZE));
+        }
+        ByteBuffer seg = segments.get(index);
+        seg.clear();
+        return seg;
+    }
+
+    /**
+     * Applies the flush policy after something has been appended: outside a
+     * frame the output is written immediately, inside a frame only when one of
+     * the auto-flush limits is reached. A trailing high surrogate is kept in
+     * the buffer so that it is encoded together with its low surrogate.
+     */
+    private void afterAppend() {
+        if (depth == 0
+                || (autoFlushChars > 0 && buffer.length() >= autoFlushChars)
+                || (autoFlushNanos > 0 && System.nanoTime() - lastFlushNanos >= autoFlushNanos)) {
+            int end = buffer.length();
+            write(end > 0 && Character.isHighSurrogate(buffer.charAt(end - 1)) ? end - 1 : end);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FrameWriter{" +
+                "target=" + (channel != null ? "channel" : "stream") +
+                ", depth=" + depth +
+                ", buffered=" + buffer.length() +
+                ", autoFlushChars=" + autoFlushChars +
+                ", autoFlushMillis=" + getAutoFlushMillis() +
+                '}';
+    }
+}
@@ -24,4 +24,15 @@ public interface ITerminal {
      * @see es.nom.juanfranciscoruiz.ansiterm.TerminalSize
      */
     TerminalSize getTerminalSize();
+
+    /**
+     * Indicates whether the terminal currently outputs a line feed as a
+     * carriage return and a line feed, as the terminal driver does in
+     * 'cooked' mode (OPOST and ONLCR) and stops doing in 'raw' mode.
+     *
+     * @return true if a line feed also returns the cursor to the first column
+     */
+    default boolean isNewlineTranslated() {
+        return true;
+    }
 }
@@ -0,0 +1,212 @@
+package es.nom.juanfranciscoruiz.ansiterm;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Platform;
+import com.sun.jna.Structure;
+
+/**
+ * Access through JNA (Java Native Access) to the functions of the standard C
+ * library (libc) of Linux that are needed to control the terminal without
+ * running external commands.
+ *
+ * @author Juan F. Ruiz
+ */
+interface LibC extends Library {
+    /**
+     * The libc library, or null if it is not available (not running on
+     * Linux, or JNA cannot load it).
+     */
+    LibC INSTANCE = load();
+
+    /**
+     * Flag of open() to open a file for reading and writing.
+     */
+    int O_RDWR = 2;
+
+    /**
+     * Output flag of termios: the output is processed.
+     */
+    int OPOST = 1;
+
+    /**
+     * Output flag of termios: a line feed is output as CR LF (if OPOST is set).
+     */
+    int ONLCR = 4;
+
+    /**
+     * Optional action of tcsetattr(): the change occurs immediately.
+     */
+    int TCSANOW = 0;
+
+    /**
+     * Request of ioctl() that reads the size of the terminal (Linux).
+     */
+    NativeLong TIOCGWINSZ = new NativeLong(0x5413L);
+
+    /**
+     * Represents the 'termios' structure of Linux (glibc), with the terminal
+     * attributes read by tcgetattr() and written by tcsetattr().
+     */
+    @Structure.FieldOrder({"c_iflag", "c_oflag", "c_cflag", "c_lflag", "c_line", "c_cc", "c_ispeed", "c_ospeed"})
+    class Termios extends Structure {
+        /**
+         * Input modes.
+         */
+        public int c_iflag;
+        /**
+         * Output modes.
+         */
+        public int c_oflag;
+        /**
+         * Control modes.
+         */
+        public int c_cflag;
+        /**
+         * Local modes.
+         */
+        public int c_lflag;
+        /**
+         * Line discipline.
+         */
+        public byte c_line;
+        /**
+         * Special control characters.
+         */
+        public byte[] c_cc = new byte[32];
+        /**
+         * Input speed.
+         */
+        public int c_ispeed;
+        /**
+         * Output speed.
+         */
+        public int c_ospeed;
+
+        /**
+         * Constructs a new, empty, Termios structure.
+         */
+        public Termios() {
+        }
+
+        /**
+         * Returns a new Termios structure with the same values as this one.
+         *
+         * @return a copy of this structure
+         */
+        public Termios copy() {
+            Termios t = new Termios();
+            t.c_iflag = c_iflag;
+            t.c_oflag = c_oflag;
+            t.c_cflag = c_cflag;
+            t.c_lflag = c_lflag;
+            t.c_line = c_line;
+            t.c_cc = c_cc.clone();
+            t.c_ispeed = c_ispeed;
+            t.c_ospeed = c_ospeed;
+            return t;
+        }
+    }
+
+    /**
+     * Represents the 'winsize' structure with the size of a terminal in
+     * characters and pixels.
+     */
+    @Structure.FieldOrder({"ws_row", "ws_col", "ws_xpixel", "ws_ypixel"})
+    class WinSize extends Structure {
+        /**
+         * Number of rows (lines).
+         */
+        public short ws_row;
+        /**
+         * Number of columns.
+         */
+        public short ws_col;
+        /**
+         * Width in pixels.
+         */
+        public short ws_xpixel;
+        /**
+         * Height in pixels.
+         */
+        public short ws_ypixel;
+
+        /**
+         * Constructs a new, empty, WinSize structure.
+         */
+        public WinSize() {
+        }
+    }
+
+    /**
+     * Performs a device-specific operation on a file descriptor.
+     *
+     * @param fd      the file descriptor
+     * @param request the request code (e.g. {@link #TIOCGWINSZ})
+     * @param ws      the structure that receives the terminal size
+     * @return 0 if successful, -1 in case of error
+     */
+    int ioctl(int fd, NativeLong request, WinSize ws);
+
+    /**
+     * Opens a file.
+     *
+     * @param path  the path of the file
+     * @param flags the access flags (e.g. {@link #O_RDWR})
+     * @return the new file descriptor, or -1 in case of error
+     */
+    int open(String path, int flags);
+
+    /**
+     * Indicates whether a file descriptor refers to a terminal.
+     *
+     * @param fd the file descriptor
+     * @return 1 if it is a terminal, 0 otherwise
+     */
+    int isatty(int fd);
+
+    /**
+     * Reads the attributes of a terminal.
+     *
+     * @param fd      the file descriptor of the terminal
+     * @param termios the structure that receives the attributes
+     * @return 0 if successful, -1 in case of error
+     */
+    int tcgetattr(int fd, Termios termios);
+
+    /**
+     * Sets the attributes of a terminal.
+     *
+     * @param fd               the file descriptor of the terminal
+     * @param optionalActions  when the change occurs (e.g. {@link #TCSANOW})
+     * @param termios          the new attributes
+     * @return 0 if successful, -1 in case of error
+     */
+    int tcsetattr(int fd, int optionalActions, Termios termios);
+
+    /**
+     * Modifies the attributes of the structure to put the terminal in 'raw'
+     * mode: no echo, no line editing, no signals and no output processing.
+     *
+     * @param termios the structure to modify
+     */
+    void cfmakeraw(Termios termios);
+
+    /**
+     * Loads the C library if the program is running on Linux.
+     *
+     * @return the library, or null if it is not available
+     */
+    private static LibC load() {
+        if (!Platform.isLinux()) {
+            return null;
+        }
+        try {
+            return Native.load("c", LibC.class);
+        } catch (UnsatisfiedLinkError | NoClassDefFoundError e) {
+            LinuxTerminal.logger.warn("libc is not available: {}", e.getMessage());
+            return null;
+        }
+    }
+}
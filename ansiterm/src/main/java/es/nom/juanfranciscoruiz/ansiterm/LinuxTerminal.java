@@ -1,9 +1,11 @@
 package es.nom.juanfranciscoruiz.ansiterm;
 
+import es.nom.juanfranciscoruiz.ansiterm.codes.SequenceEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -11,6 +13,12 @@ import java.util.regex.Pattern;
  * Provides access to the raw and cooked modes of the Linux terminal as well as
  * obtaining the terminal size using ANSI escape sequences and setting the
  * raw mode so that the ANSI code does not appear on the screen.
+ * <p>
+ * The terminal size is read with the TIOCGWINSZ ioctl when the C library is
+ * available, and with the cursor position trick otherwise. The size is cached
+ * and the cache is invalidated when the process receives the SIGWINCH signal
+ * (the terminal window has been resized), so reading it is free until the
+ * window changes.
  *
  * @author Juan F. Ruiz
  */
@@ -38,13 +46,85 @@ public class LinuxTerminal implements ITerminal {
      */
     private static final String REC_POS_CUR = ESC + "[6n";
 
-    
+    /**
+     * Number of SIGWINCH signals received by the process. Cached sizes read
+     * with a different value are stale.
+     */
+    private static volatile int resizeCount;
+
+    /**
+     * Monitor notified each time a SIGWINCH signal is received.
+     */
+    private static final Object RESIZE_MONITOR = new Object();
+
+    /**
+     * Installs the SIGWINCH handler the first time the size of a
+     * LinuxTerminal is read or awaited, and not when the class is merely
+     * loaded, e.g. to call {@link #getPosition(java.io.InputStream)}.
+     */
+    private static final class ResizeHandler {
+        /**
+         * True if the SIGWINCH handler has been installed, so the size can
+         * be cached.
+         */
+        static final boolean INSTALLED = installResizeHandler();
+    }
+
+    /**
+     * True while 'stty raw' is in effect, which disables the output
+     * processing.
+     */
+    private volatile boolean raw;
+
+    /**
+     * Last terminal size read.
+     */
+    private volatile TerminalSize cachedSize;
+
+    /**
+     * Value of resizeCount when cachedSize was read.
+     */
+    private volatile int cachedResizeCount;
+
     /**
      * Instantiates a LinuxTerminal object
      */
     public LinuxTerminal(){
         
     }
+
+    /**
+     * Returns the number of times the terminal window has been resized
+     * (SIGWINCH signals received) since the program started.
+     *
+     * @return the number of resizes
+     */
+    public static int getResizeCount() {
+        return resizeCount;
+    }
+
+    /**
+     * Waits until the terminal window is resized or the timeout expires.
+     *
+     * @param lastCount     the value of {@link #getResizeCount()} already seen
+     *                      by the caller
+     * @param timeoutMillis the maximum time to wait in milliseconds
+     * @return true if the window has been resized since lastCount was read.
+     * Without a SIGWINCH handler it just sleeps and returns false
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public static boolean awaitResize(int lastCount, long timeoutMillis) throws InterruptedException {
+        if (!ResizeHandler.INSTALLED) {
+            Thread.sleep(timeoutMillis);
+            return false;
+        }
+        synchronized (RESIZE_MONITOR) {
+            if (resizeCount == lastCount) {
+                RESIZE_MONITOR.wait(timeoutMillis);
+            }
+            return resizeCount != lastCount;
+        }
+    }
     
     /**
      * Enables the 'raw' mode of the console. It uses the 'stty' command which
@@ -61,7 +141,7 @@ public class LinuxTerminal implements ITerminal {
         try {
             String[] cmd = {"/bin/sh", "-c", "stty raw -echo < /dev/tty"};
             Process process = Runtime.getRuntime().exec(cmd);
-            process.waitFor();
+            raw = process.waitFor() == 0 || raw;
         } catch (InterruptedException | IOException e) {
             logger.error(e.getMessage());
         }
@@ -79,19 +159,78 @@ public class LinuxTerminal implements ITerminal {
         try {
             String[] cmd = {"/bin/sh", "-c", "stty cooked echo < /dev/tty"};
             Process process = Runtime.getRuntime().exec(cmd);
-            process.waitFor();
+            raw = process.waitFor() != 0 && raw;
         } catch (InterruptedException | IOException e) {
             logger.error(e.getMessage());
         }
     }
 
-    
     /**
-     * Obtains the terminal size.
+     * Indicates whether a line feed is output as CR LF, which 'stty raw'
+     * disables and 'stty cooked' enables again.
+     *
+     * @return false while raw mode is enabled
+     */
+    @Override
+    public boolean isNewlineTranslated() {
+        return !raw;
+    }
+
+    /**
+     * Obtains the terminal size. The size is read from the cache unless the
+     * window has been resized since it was read.
      * @return a TerminalSize object with the lines and columns of the terminal.
      */
     @Override
     public TerminalSize getTerminalSize() {
+        TerminalSize size = cachedSize;
+        int count = resizeCount;
+        if (size == null || !ResizeHandler.INSTALLED || cachedResizeCount != count) {
+            size = readWindowSize();
+            if (size == null) {
+                size = probeTerminalSize();
+            }
+            cachedSize = size;
+            cachedResizeCount = count;
+        }
+        return new TerminalSize(size.getColumns(), size.getLines());
+    }
+
+    /**
+     * Discards the cached terminal size, so the next call to
+     * {@link #getTerminalSize()} reads it again.
+     */
+    public void invalidateTerminalSize() {
+        cachedSize = null;
+    }
+
+    /**
+     * Reads the terminal size with the TIOCGWINSZ ioctl on the standard
+     * output or, if it is not a terminal, on the standard input.
+     *
+     * @return the terminal size, or null if the C library is not available
+     * or neither stream is a terminal
+     */
+    private static TerminalSize readWindowSize() {
+        LibC libc = LibC.INSTANCE;
+        if (libc == null) {
+            return null;
+        }
+        LibC.WinSize ws = new LibC.WinSize();
+        for (int fd = 1; fd >= 0; fd--) {
+            if (libc.ioctl(fd, LibC.TIOCGWINSZ, ws) == 0 && ws.ws_col > 0 && ws.ws_row > 0) {
+                return new TerminalSize(ws.ws_col, ws.ws_row);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Obtains the terminal size moving the cursor beyond the bottom right
+     * corner of the screen and asking the terminal where it has been left.
+     * @return a TerminalSize object with the lines and columns of the terminal.
+     */
+    private TerminalSize probeTerminalSize() {
         Position inicialPosition = readCurrentPosition();
         gotoXY(10000, 10000); // Trick for getting the terminal size
         Position result = readCurrentPosition();
@@ -100,6 +239,20 @@ public class LinuxTerminal implements ITerminal {
         return new TerminalSize(result.getCol(), result.getLin());
     }
 
+    /**
+     * Installs a handler of the SIGWINCH signal that counts the resizes of
+     * the terminal window.
+     *
+     * @return true if the handler has been installed
+     */
+    private static boolean installResizeHandler() {
+        return ResizeSignal.install(() -> {
+            synchronized (RESIZE_MONITOR) {
+                resizeCount++;
+                RESIZE_MONITOR.notifyAll();
+            }
+        });
+    }
 
     /**
      * Reads the current cursor position in the terminal. The method switches the terminal
@@ -142,11 +295,29 @@ public class LinuxTerminal implements ITerminal {
      * @throws IOException if an error occurs while reading input from the terminal.
      */
     static Position getPosition() throws IOException {
+        return getPosition(System.in);
+    }
+
+    /**
+     * Reads the answer of the terminal to a cursor position query (ESC[6n)
+     * from the given input stream.
+     *
+     * @param in the stream with the input of the terminal
+     * @return a {@link Position} object representing the current cursor position in the
+     *         terminal, or a default {@link Position} with values (1, 1) in case of a failure
+     *         to correctly parse the terminal response.
+     * @throws IOException if an error occurs while reading input from the terminal.
+     * @see #getPosition()
+     */
+    static Position getPosition(InputStream in) throws IOException {
         StringBuilder result = new StringBuilder();
         int character;
 
         do {
-            character = System.in.read();
+            character = in.read();
+            if (character < 0) {
+                return new Position(1, 1);
+            }
             if (character == 27) {
                 result.append("^");
             } else {
@@ -174,7 +345,11 @@ public class LinuxTerminal implements ITerminal {
      *          from 1, where 1 represents the topmost row.
      */
     private void gotoXY(int x, int y) {
-        System.out.printf("\u001B[%d;%dH", y, x); // CSI n ; m H
+        // CSI n ; m H, encoded without format parsing and written as bytes
+        byte[] seq = new byte[SequenceEncoder.length(y, x)];
+        SequenceEncoder.csi(seq, 0, y, x, SequenceEncoder.CUP);
+        System.out.write(seq, 0, seq.length);
+        System.out.flush();
     }
 
     /**
@@ -186,7 +361,7 @@ public class LinuxTerminal implements ITerminal {
      *                       line and column numbers to move the cursor to.
      */
     private void gotoXY(Position screenPosition) {
-        System.out.printf("\u001B[%d;%dH", screenPosition.getLin(), screenPosition.getCol()); // CSI n ; m H
+        gotoXY(screenPosition.getCol(), screenPosition.getLin());
     }
 
     @Override
@@ -0,0 +1,69 @@
+package es.nom.juanfranciscoruiz.ansiterm;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Installs a handler of the SIGWINCH signal, which the process receives each
+ * time the terminal window is resized.
+ * <p>
+ * {@code sun.misc.Signal} is the only way a Java program can handle a signal,
+ * but javac warns about every reference to it as an internal proprietary API
+ * and that warning cannot be silenced with {@code @SuppressWarnings}. The
+ * class and its handler interface are therefore reached through reflection,
+ * here and nowhere else.
+ *
+ * @author Juan F. Ruiz
+ */
+final class ResizeSignal {
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private ResizeSignal() {
+    }
+
+    /**
+     * Installs a handler of the SIGWINCH signal. The previous handler, if
+     * any, is still called after the action.
+     *
+     * @param action what to do each time the signal is received
+     * @return true if the handler has been installed
+     */
+    static boolean install(Runnable action) {
+        try {
+            Class<?> signalClass = Class.forName("sun.misc.Signal");
+            Class<?> handlerClass = Class.forName("sun.misc.SignalHandler");
+            Method handle = signalClass.getMethod("handle", signalClass, handlerClass);
+            Method handlerMethod = handlerClass.getMethod("handle", signalClass);
+            Object defaultHandler = handlerClass.getField("SIG_DFL").get(null);
+            Object ignoreHandler = handlerClass.getField("SIG_IGN").get(null);
+            Object winch = signalClass.getConstructor(String.class).newInstance("WINCH");
+
+            final Object[] previous = new Object[1];
+            InvocationHandler invocationHandler = (proxy, method, args) -> switch (method.getName()) {
+                case "handle" -> {
+                    action.run();
+                    Object p = previous[0];
+                    if (p != null && p != defaultHandler && p != ignoreHandler) {
+                        handlerMethod.invoke(p, args[0]);
+                    }
+                    yield null;
+                }
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                default -> "SIGWINCH handler";
+            };
+            Object handler = Proxy.newProxyInstance(ResizeSignal.class.getClassLoader(),
+                    new Class<?>[]{handlerClass}, invocationHandler);
+            previous[0] = handle.invoke(null, winch, handler);
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            LinuxTerminal.logger.warn("SIGWINCH cannot be handled, the terminal size will not be cached: {}",
+                    cause.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package es.nom.juanfranciscoruiz.ansiterm;
+
+/**
+ * ITerminal of a terminal that is reached through streams instead of being
+ * the terminal of this process, for example the terminal of a user connected
+ * through the network.
+ * <p>
+ * There is no local terminal device to configure: the 'raw' mode of the
+ * remote terminal is negotiated by the protocol that carries the streams, so
+ * {@link #enableRawMode()} and {@link #disableRawMode()} do nothing. The size
+ * of the terminal is the last one reported with
+ * {@link #setTerminalSize(TerminalSize)} (e.g. by a telnet NAWS negotiation).
+ *
+ * @author Juan F. Ruiz
+ */
+public class StreamTerminal implements ITerminal {
+    /**
+     * Size used until the remote terminal reports its size.
+     */
+    public static final TerminalSize DEFAULT_SIZE = new TerminalSize(80, 24);
+
+    /**
+     * Monitor notified each time the size changes.
+     */
+    private final Object sizeMonitor = new Object();
+    /**
+     * Last size reported
+     */
+    private TerminalSize size;
+    /**
+     * Number of times the size has changed
+     */
+    private int sizeChanges;
+
+    /**
+     * Instantiates a StreamTerminal with the default size (80x24).
+     */
+    public StreamTerminal() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * Instantiates a StreamTerminal with the given initial size.
+     *
+     * @param size the initial size of the terminal
+     * @throws IllegalArgumentException if the size is null
+     */
+    public StreamTerminal(TerminalSize size) throws IllegalArgumentException {
+        if (size == null) {
+            throw new IllegalArgumentException("The terminal size cannot be null");
+        }
+        this.size = new TerminalSize(size.getColumns(), size.getLines());
+    }
+
+    /**
+     * Does nothing: the mode of the remote terminal is negotiated by the
+     * protocol that carries the streams.
+     */
+    @Override
+    public void enableRawMode() {
+    }
+
+    /**
+     * Does nothing: the mode of the remote terminal is negotiated by the
+     * protocol that carries the streams.
+     */
+    @Override
+    public void disableRawMode() {
+    }
+
+    /**
+     * A remote terminal receives the line feeds as they are written.
+     *
+     * @return false
+     */
+    @Override
+    public boolean isNewlineTranslated() {
+        return false;
+    }
+
+    /**
+     * Returns the last size reported for the terminal.
+     *
+     * @return a copy of the size of the terminal
+     */
+    @Override
+    public TerminalSize getTerminalSize() {
+        synchronized (sizeMonitor) {
+            return new TerminalSize(size.getColumns(), size.getLines());
+        }
+    }
+
+    /**
+     * Sets the size of the terminal, as reported by the remote side, and
+     * wakes up the threads waiting in {@link #awaitSizeChange(int, long)}.
+     *
+     * @param size the new size
+     * @throws IllegalArgumentException if the size is null
+     */
+    public void setTerminalSize(TerminalSize size) throws IllegalArgumentException {
+        if (size == null) {
+            throw new IllegalArgumentException("The terminal size cannot be null");
+        }
+        synchronized (sizeMonitor) {
+            this.size = new TerminalSize(size.getColumns(), size.getLines());
+            sizeChanges++;
+            sizeMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Returns how many times the size has been set.
+     *
+     * @return the number of size changes
+     */
+    public int getSizeChanges() {
+        synchronized (sizeMonitor) {
+            return sizeChanges;
+        }
+    }
+
+    /**
+     * Waits until the size is set again or the timeout expires.
+     *
+     * @param lastChanges   the value of {@link #getSizeChanges()} already seen
+     *                      by the caller
+     * @param timeoutMillis the maximum time to wait in milliseconds
+     * @return true if the size has been set since lastChanges was read
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public boolean awaitSizeChange(int lastChanges, long timeoutMillis) throws InterruptedException {
+        synchronized (sizeMonitor) {
+            if (sizeChanges == lastChanges) {
+                sizeMonitor.wait(timeoutMillis);
+            }
+            return sizeChanges != lastChanges;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "StreamTerminal{'Terminal reached through streams', size=" + getTerminalSize().getColumns() +
+                "x" + getTerminalSize().getLines() + '}';
+    }
+}
@@ -0,0 +1,21 @@
+package es.nom.juanfranciscoruiz.ansiterm;
+
+/**
+ * Receives the changes of size of the terminal detected by {@link ANSITerm}.
+ * Listeners are called from the background thread that watches the terminal
+ * size, so they must not block it for long.
+ *
+ * @author Juan F. Ruiz
+ * @see ANSITerm#addResizeListener(TerminalResizeListener)
+ */
+@FunctionalInterface
+public interface TerminalResizeListener {
+
+    /**
+     * Called when the size of the terminal has changed.
+     *
+     * @param oldSize the previous size of the terminal
+     * @param newSize the new size of the terminal
+     */
+    void terminalResized(TerminalSize oldSize, TerminalSize newSize);
+}
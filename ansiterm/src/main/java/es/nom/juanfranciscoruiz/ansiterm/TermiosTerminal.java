@@ -0,0 +1,149 @@
+package es.nom.juanfranciscoruiz.ansiterm;
+
+/**
+ * Provides access to the raw and cooked modes of the Linux terminal calling
+ * directly the tcgetattr() and tcsetattr() functions of the C library through
+ * JNA, instead of running the 'stty' command in a new process each time.
+ * <p>
+ * The original attributes of the terminal are read when raw mode is enabled
+ * and kept in memory to restore them when it is disabled. Calls can be
+ * nested: the terminal returns to its original mode when the outermost
+ * {@link #disableRawMode()} is called.
+ * <p>
+ * If the C library cannot be loaded, the methods of {@link LinuxTerminal}
+ * (which use 'stty') are used instead.
+ *
+ * @author Juan F. Ruiz
+ */
+public class TermiosTerminal extends LinuxTerminal {
+    /**
+     * The C library, or null if it is not available.
+     */
+    private final LibC libc;
+    /**
+     * File descriptor of the controlling terminal (/dev/tty), or of the
+     * standard input if /dev/tty cannot be opened.
+     */
+    private final int fd;
+    /**
+     * Attributes of the terminal before raw mode was enabled.
+     */
+    private LibC.Termios original;
+    /**
+     * Number of nested calls to enableRawMode() not yet undone.
+     */
+    private int rawDepth;
+
+    /**
+     * Instantiates a TermiosTerminal object
+     */
+    public TermiosTerminal() {
+        this.libc = LibC.INSTANCE;
+        this.fd = libc == null ? -1 : openTerminal(libc);
+    }
+
+    /**
+     * Indicates whether the terminal is controlled through the C library or
+     * the 'stty' command is being used.
+     *
+     * @return true if the C library is available
+     */
+    public boolean isNative() {
+        return libc != null;
+    }
+
+    /**
+     * Enables the 'raw' mode of the terminal. The first call saves the
+     * current attributes of the terminal.
+     */
+    @Override
+    public synchronized void enableRawMode() {
+        if (libc == null) {
+            super.enableRawMode();
+            return;
+        }
+        if (rawDepth++ > 0) {
+            return;
+        }
+        LibC.Termios current = new LibC.Termios();
+        if (libc.tcgetattr(fd, current) != 0) {
+            logger.error("tcgetattr failed on file descriptor {}, using stty", fd);
+            super.enableRawMode();
+            return;
+        }
+        original = current;
+        LibC.Termios raw = current.copy();
+        libc.cfmakeraw(raw);
+        if (libc.tcsetattr(fd, LibC.TCSANOW, raw) != 0) {
+            logger.error("tcsetattr failed on file descriptor {}, using stty", fd);
+            original = null;
+            super.enableRawMode();
+        }
+    }
+
+    /**
+     * Disables the 'raw' mode of the terminal restoring the attributes it
+     * had before the first call to {@link #enableRawMode()}.
+     */
+    @Override
+    public synchronized void disableRawMode() {
+        if (libc == null) {
+            super.disableRawMode();
+            return;
+        }
+        if (rawDepth == 0 || --rawDepth > 0) {
+            return;
+        }
+        if (original == null) {
+            super.disableRawMode();
+            return;
+        }
+        if (libc.tcsetattr(fd, LibC.TCSANOW, original) != 0) {
+            logger.error("tcsetattr failed on file descriptor {}, using stty", fd);
+            super.disableRawMode();
+        }
+        original = null;
+    }
+
+    /**
+     * Indicates whether a line feed is output as CR LF, reading the OPOST and
+     * ONLCR flags of the terminal, which cfmakeraw() clears.
+     *
+     * @return true if the terminal translates the line feeds
+     */
+    @Override
+    public boolean isNewlineTranslated() {
+        if (libc == null) {
+            return super.isNewlineTranslated();
+        }
+        LibC.Termios current = new LibC.Termios();
+        if (libc.tcgetattr(fd, current) != 0) {
+            return super.isNewlineTranslated();
+        }
+        int flags = LibC.OPOST | LibC.ONLCR;
+        return (current.c_oflag & flags) == flags;
+    }
+
+    /**
+     * Opens the controlling terminal, as 'stty' does when its input is
+     * redirected from /dev/tty. If it cannot be opened the standard input is
+     * used.
+     *
+     * @param libc the C library
+     * @return the file descriptor of the terminal
+     */
+    private static int openTerminal(LibC libc) {
+        int tty = libc.open("/dev/tty", LibC.O_RDWR);
+        if (tty < 0) {
+            logger.warn("/dev/tty cannot be opened, using the standard input");
+            return 0;
+        }
+        return tty;
+    }
+
+    @Override
+    public String toString() {
+        return "TermiosTerminal{'Access to the raw and cooked modes of the Linux terminal with termios through JNA'" +
+                ", native=" + isNative() + '}';
+    }
+}
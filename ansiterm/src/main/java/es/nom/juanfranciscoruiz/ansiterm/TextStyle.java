@@ -0,0 +1,449 @@
+package es.nom.juanfranciscoruiz.ansiterm;
+
+import es.nom.juanfranciscoruiz.ansiterm.codes.BGColor;
+import es.nom.juanfranciscoruiz.ansiterm.codes.Color;
+import es.nom.juanfranciscoruiz.ansiterm.screen.CellAttributes;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import static es.nom.juanfranciscoruiz.ansiterm.codes.CSI.ESC;
+
+/**
+ * Immutable combination of text styles (bold, dim, italic, underline, blink,
+ * inverse, hidden and strikethrough) and foreground and background colors of
+ * the 256-color palette.
+ * <p>
+ * A style is rendered as a single SGR sequence that sets all its attributes
+ * at once (e.g. ESC[1;3;4;38;5;208m), and another single sequence that turns
+ * them off again (e.g. ESC[22;23;24;39m). Both sequences are built when the
+ * style is created, and the styles are cached, so applying a style to a text
+ * is one copy of the prefix, the text and the suffix:
+ * <pre>{@code
+ * TextStyle warning = TextStyle.NONE.bold().underline().withForeground(Color.YELLOW);
+ * term.printAt(warning.apply("Warning!"), 1, 1);
+ * }</pre>
+ * The attributes are packed as in {@link CellAttributes}, so a style can also
+ * be used to draw in a {@link es.nom.juanfranciscoruiz.ansiterm.screen.ScreenBuffer}
+ * with {@link #getAttributes()}.
+ *
+ * @author Juan F. Ruiz
+ */
+public final class TextStyle {
+    /**
+     * Bold style flag.
+     */
+    public static final int BOLD = CellAttributes.BOLD;
+    /**
+     * Dim style flag.
+     */
+    public static final int DIM = CellAttributes.DIM;
+    /**
+     * Italic style flag.
+     */
+    public static final int ITALIC = CellAttributes.ITALIC;
+    /**
+     * Underline style flag.
+     */
+    public static final int UNDERLINE = CellAttributes.UNDERLINE;
+    /**
+     * Blink style flag.
+     */
+    public static final int BLINK = CellAttributes.BLINK;
+    /**
+     * Inverse style flag.
+     */
+    public static final int INVERSE = CellAttributes.INVERSE;
+    /**
+     * Hidden style flag.
+     */
+    public static final int HIDDEN = CellAttributes.HIDDEN;
+    /**
+     * Strikethrough style flag.
+     */
+    public static final int STRIKETHROUGH = CellAttributes.STRIKETHROUGH;
+
+    /**
+     * Cache of the styles already created, by packed attributes.
+     */
+    private static final ConcurrentHashMap<Integer, TextStyle> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * SGR parameter that turns on each style flag, indexed by bit number.
+     */
+    private static final int[] STYLE_ON = {1, 2, 3, 4, 5, 7, 8, 9};
+    /**
+     * SGR parameter that turns off each style flag, indexed by bit number.
+     * Bold and dim are both turned off by 22.
+     */
+    private static final int[] STYLE_OFF = {22, 22, 23, 24, 25, 27, 28, 29};
+
+    /**
+     * The style without attributes: the text is not modified.
+     */
+    public static final TextStyle NONE = of(0, -1, -1);
+
+    /**
+     * Packed attributes (see {@link CellAttributes})
+     */
+    private final int attributes;
+    /**
+     * Sequence that turns on the attributes
+     */
+    private final String prefix;
+    /**
+     * Sequence that turns off the attributes
+     */
+    private final String suffix;
+
+    /**
+     * Creates a style and renders its sequences.
+     *
+     * @param attributes the packed attributes
+     */
+    private TextStyle(int attributes) {
+        this.attributes = attributes;
+        this.prefix = renderPrefix(attributes);
+        this.suffix = renderSuffix(attributes);
+    }
+
+    // Factories
+    /**
+     * Returns the style with the given styles and colors of the 256-color
+     * palette.
+     *
+     * @param styles     a combination of the style flags of this class
+     * @param foreground the foreground color (0 to 255), or -1 for the default
+     *                   color
+     * @param background the background color (0 to 255), or -1 for the default
+     *                   color
+     * @return the style
+     * @throws IllegalArgumentException if a color is out of range
+     */
+    public static TextStyle of(int styles, int foreground, int background) throws IllegalArgumentException {
+        return ofAttributes(CellAttributes.of(styles, foreground, background));
+    }
+
+    /**
+     * Returns the style with the given styles and colors.
+     *
+     * @param styles     a combination of the style flags of this class
+     * @param foreground the foreground color, or null for the default color
+     * @param background the background color, or null for the default color
+     * @return the style
+     */
+    public static TextStyle of(int styles, Color foreground, BGColor background) {
+        return ofAttributes(CellAttributes.of(styles, foreground, background));
+    }
+
+    /**
+     * Returns the style of some packed attributes.
+     *
+     * @param attributes the attributes, packed as in {@link CellAttributes}
+     * @return the style
+     */
+    public static TextStyle ofAttributes(int attributes) {
+        TextStyle style = CACHE.get(attributes);
+        return style != null ? style : CACHE.computeIfAbsent(attributes, TextStyle::new);
+    }
+
+    // Getters
+    /**
+     * Returns the attributes of the style packed as in {@link CellAttributes}.
+     *
+     * @return the packed attributes
+     */
+    public int getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Returns the style flags.
+     *
+     * @return a combination of the style flags of this class
+     */
+    public int getStyles() {
+        return CellAttributes.getStyles(attributes);
+    }
+
+    /**
+     * Returns the foreground color.
+     *
+     * @return the color (0 to 255), or -1 for the default color
+     */
+    public int getForeground() {
+        return CellAttributes.getForeground(attributes);
+    }
+
+    /**
+     * Returns the background color.
+     *
+     * @return the color (0 to 255), or -1 for the default color
+     */
+    public int getBackground() {
+        return CellAttributes.getBackground(attributes);
+    }
+
+    /**
+     * Returns the sequence that turns on the attributes of this style.
+     *
+     * @return the sequence, empty for {@link #NONE}
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Returns the sequence that turns off the attributes of this style.
+     *
+     * @return the sequence, empty for {@link #NONE}
+     */
+    public String getSuffix() {
+        return suffix;
+    }
+
+    // Derived styles
+    /**
+     * Returns this style with some style flags added.
+     *
+     * @param styles the style flags to add
+     * @return the new style
+     */
+    public TextStyle with(int styles) {
+        return ofAttributes(attributes | (styles & CellAttributes.STYLE_MASK));
+    }
+
+    /**
+     * Returns this style with some style flags removed.
+     *
+     * @param styles the style flags to remove
+     * @return the new style
+     */
+    public TextStyle without(int styles) {
+        return ofAttributes(attributes & ~(styles & CellAttributes.STYLE_MASK));
+    }
+
+    /**
+     * Returns this style in bold.
+     *
+     * @return the new style
+     */
+    public TextStyle bold() {
+        return with(BOLD);
+    }
+
+    /**
+     * Returns this style dimmed.
+     *
+     * @return the new style
+     */
+    public TextStyle dim() {
+        return with(DIM);
+    }
+
+    /**
+     * Returns this style in italics.
+     *
+     * @return the new style
+     */
+    public TextStyle italic() {
+        return with(ITALIC);
+    }
+
+    /**
+     * Returns this style underlined.
+     *
+     * @return the new style
+     */
+    public TextStyle underline() {
+        return with(UNDERLINE);
+    }
+
+    /**
+     * Returns this style blinking.
+     *
+     * @return the new style
+     */
+    public TextStyle blink() {
+        return with(BLINK);
+    }
+
+    /**
+     * Returns this style with the colors inverted.
+     *
+     * @return the new style
+     */
+    public TextStyle inverse() {
+        return with(INVERSE);
+    }
+
+    /**
+     * Returns this style with a strikethrough.
+     *
+     * @return the new style
+     */
+    public TextStyle strikeThrough() {
+        return with(STRIKETHROUGH);
+    }
+
+    /**
+     * Returns this style with another foreground color.
+     *
+     * @param color the color (0 to 255), or -1 for the default color
+     * @return the new style
+     * @throws IllegalArgumentException if the color is out of range
+     */
+    public TextStyle withForeground(int color) throws IllegalArgumentException {
+        return of(getStyles(), color, getBackground());
+    }
+
+    /**
+     * Returns this style with another foreground color.
+     *
+     * @param color the color, or null for the default color
+     * @return the new style
+     */
+    public TextStyle withForeground(Color color) {
+        return withForeground(CellAttributes.paletteIndex(color));
+    }
+
+    /**
+     * Returns this style with another background color.
+     *
+     * @param color the color (0 to 255), or -1 for the default color
+     * @return the new style
+     * @throws IllegalArgumentException if the color is out of range
+     */
+    public TextStyle withBackground(int color) throws IllegalArgumentException {
+        return of(getStyles(), getForeground(), color);
+    }
+
+    /**
+     * Returns this style with another background color.
+     *
+     * @param color the color, or null for the default color
+     * @return the new style
+     */
+    public TextStyle withBackground(BGColor color) {
+        return withBackground(CellAttributes.paletteIndex(color));
+    }
+
+    // Methods
+    /**
+     * Applies this style to a text.
+     *
+     * @param msg the text
+     * @return the text between the prefix and the suffix of this style
+     */
+    public String apply(String msg) {
+        if (this == NONE) {
+            return msg;
+        }
+        return prefix + msg + suffix;
+    }
+
+    /**
+     * Appends a text with this style to a StringBuilder.
+     *
+     * @param sb  where the styled text is appended
+     * @param msg the text
+     * @return the same StringBuilder
+     */
+    public StringBuilder appendTo(StringBuilder sb, CharSequence msg) {
+        return sb.append(prefix).append(msg).append(suffix);
+    }
+
+    /**
+     * Renders the sequence that turns on some attributes.
+     *
+     * @param attributes the packed attributes
+     * @return the sequence, or an empty string if there are no attributes
+     */
+    private static String renderPrefix(int attributes) {
+        if (attributes == CellAttributes.NONE) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(24).append(ESC).append('[');
+        int styles = CellAttributes.getStyles(attributes);
+        for (int bit = 0; styles != 0; bit++, styles >>>= 1) {
+            if ((styles & 1) != 0) {
+                sb.append(STYLE_ON[bit]).append(';');
+            }
+        }
+        appendColor(sb, CellAttributes.getForeground(attributes), 30, 90, 38);
+        appendColor(sb, CellAttributes.getBackground(attributes), 40, 100, 48);
+        sb.setCharAt(sb.length() - 1, 'm');
+        return sb.toString();
+    }
+
+    /**
+     * Renders the sequence that turns off some attributes.
+     *
+     * @param attributes the packed attributes
+     * @return the sequence, or an empty string if there are no attributes
+     */
+    private static String renderSuffix(int attributes) {
+        if (attributes == CellAttributes.NONE) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(24).append(ESC).append('[');
+        int styles = CellAttributes.getStyles(attributes);
+        int last = -1;
+        for (int bit = 0; styles != 0; bit++, styles >>>= 1) {
+            if ((styles & 1) != 0 && STYLE_OFF[bit] != last) {
+                last = STYLE_OFF[bit];
+                sb.append(last).append(';');
+            }
+        }
+        if (CellAttributes.getForeground(attributes) >= 0) {
+            sb.append("39;");
+        }
+        if (CellAttributes.getBackground(attributes) >= 0) {
+            sb.append("49;");
+        }
+        sb.setCharAt(sb.length() - 1, 'm');
+        return sb.toString();
+    }
+
+    /**
+     * Appends the SGR parameters of a color followed by ';'. The first 16
+     * colors of the palette use their basic codes.
+     *
+     * @param sb       where the parameters are appended
+     * @param color    the palette index, or -1 for the default color
+     * @param normal   base code of the eight normal colors
+     * @param glossy   base code of the eight glossy colors
+     * @param extended code that introduces a 256-color parameter
+     */
+    private static void appendColor(StringBuilder sb, int color, int normal, int glossy, int extended) {
+        if (color < 0) {
+            return;
+        }
+        if (color < 8) {
+            sb.append(normal + color);
+        } else if (color < 16) {
+            sb.append(glossy + color - 8);
+        } else {
+            sb.append(extended).append(";5;").append(color);
+        }
+        sb.append(';');
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof TextStyle other && attributes == other.attributes;
+    }
+
+    @Override
+    public int hashCode() {
+        return attributes;
+    }
+
+    @Override
+    public String toString() {
+        return "TextStyle{" +
+                "styles=" + Integer.toBinaryString(getStyles()) +
+                ", foreground=" + getForeground() +
+                ", background=" + getBackground() +
+                '}';
+    }
+}
@@ -3,6 +3,7 @@ package es.nom.juanfranciscoruiz.ansiterm.app;
 import es.nom.juanfranciscoruiz.ansiterm.ANSITerm;
 import es.nom.juanfranciscoruiz.ansiterm.app.options.*;
 import es.nom.juanfranciscoruiz.ansiterm.exceptions.ANSITermException;
+import es.nom.juanfranciscoruiz.ansiterm.server.TerminalServer;
 import es.nom.juanfranciscoruiz.utiles.Menu;
 import es.nom.juanfranciscoruiz.utiles.MenuManager;
 import es.nom.juanfranciscoruiz.utiles.exceptions.MenuErrors;
@@ -38,6 +39,11 @@ public class App {
      */
     public static final Logger logger = LoggerFactory.getLogger(App.class);
 
+    /**
+     * Port used by the server mode when none is given.
+     */
+    public static final int DEFAULT_SERVER_PORT = 2323;
+
     /**
      * Application entry point.
      *
@@ -47,6 +53,11 @@ public class App {
     public static void main(String[] args) throws Exception {
         info(logger,"Application launch");
 
+        if (args.length > 0 && args[0].equals("--server")) {
+            runServer(args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SERVER_PORT);
+            return;
+        }
+
         ANSITerm term;
         List<String> opciones;
         App app = new App();
@@ -154,6 +165,22 @@ public class App {
     }
 
 
+    /**
+     * Runs the application in server mode: each telnet client connected to
+     * the port gets its own terminal with the {@link RemoteSession}
+     * demonstration. The server runs until the process is stopped.
+     *
+     * @param port the port of the loopback address where the server listens
+     * @throws Exception In case of any error
+     */
+    private static void runServer(int port) throws Exception {
+        TerminalServer server = new TerminalServer(port, new RemoteSession()).start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        prtln(1, "Terminal server listening on port " + server.getPort()
+                + ". Connect with: telnet localhost " + server.getPort());
+        Thread.currentThread().join();
+    }
+
     /**
      * Returns a list of menu options.
      *
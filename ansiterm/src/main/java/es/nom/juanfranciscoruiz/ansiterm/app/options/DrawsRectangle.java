@@ -2,10 +2,13 @@ package es.nom.juanfranciscoruiz.ansiterm.app.options;
 
 import es.nom.juanfranciscoruiz.ansiterm.ANSITerm;
 import es.nom.juanfranciscoruiz.ansiterm.TerminalSize;
+import es.nom.juanfranciscoruiz.ansiterm.screen.CellAttributes;
+import es.nom.juanfranciscoruiz.ansiterm.screen.ScreenBuffer;
 import es.nom.juanfranciscoruiz.ansiterm.utiles.Util;
 
 /**
- * Draws a rectangle with asterisks around the screen borders.
+ * Draws a rectangle with asterisks around the screen borders. The rectangle
+ * is drawn in a ScreenBuffer and sent to the terminal in a single frame.
  *
  * @author Juan F. Ruiz
  */
@@ -25,21 +28,23 @@ public class DrawsRectangle {
     term.clearScreen();
     term.moveCursorToBegin();
     TerminalSize ts = term.getTerminalSize();
+    ScreenBuffer screen = new ScreenBuffer(ts);
     
-    term.printAt("------------ Printing text at specific coordinates ------------", 1, 1);
-    term.printAt("A rectangle will be drawn on the screen:", 2, 1);
+    screen.print(1, 1, "------------ Printing text at specific coordinates ------------");
+    screen.print(2, 1, "A rectangle will be drawn on the screen:");
     for (int col = 2; col < ts.getColumns(); col++) {
-      term.printAt("*", 3, col);
+      screen.put(3, col, '*', CellAttributes.NONE);
     }
     for (int linea = 3; linea < ts.getLines() - 2; linea++) {
-      term.printAt("*", linea, ts.getColumns() - 1);
+      screen.put(linea, ts.getColumns() - 1, '*', CellAttributes.NONE);
     }
     for (int col = ts.getColumns() - 1; col > 1; col--) {
-      term.printAt("*", ts.getLines() - 2, col);
+      screen.put(ts.getLines() - 2, col, '*', CellAttributes.NONE);
     }
     for (int linea = ts.getLines() - 2; linea > 2; linea--) {
-      term.printAt("*", linea, 2);
+      screen.put(linea, 2, '*', CellAttributes.NONE);
     }
+    screen.flush(term);
     
     Util.pauseWithMessage(0, "Press <ENTER> to return to menu");
   }
@@ -54,7 +54,7 @@ public class RecoverCursorPosition {
         Position p = new Position(1, 1);
         term.printAt("X", lin, col);
         try {
-          p = term.getCursorPosition();
+          p = term.resyncCursorPosition();
         } catch (LastErrorException e) {
           logger.error(String.valueOf(e.getErrorCode()));
           System.out.println(e.getErrorCode());
@@ -0,0 +1,81 @@
+package es.nom.juanfranciscoruiz.ansiterm.app.options;
+
+import es.nom.juanfranciscoruiz.ansiterm.ANSITerm;
+import es.nom.juanfranciscoruiz.ansiterm.TerminalSize;
+import es.nom.juanfranciscoruiz.ansiterm.exceptions.ANSITermException;
+import es.nom.juanfranciscoruiz.ansiterm.input.InputReader;
+import es.nom.juanfranciscoruiz.ansiterm.input.KeyEvent;
+import es.nom.juanfranciscoruiz.ansiterm.input.KeyType;
+import es.nom.juanfranciscoruiz.ansiterm.server.SessionHandler;
+import es.nom.juanfranciscoruiz.ansiterm.server.TelnetSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Demonstrates the server mode: each telnet client gets its own terminal,
+ * which shows its window size, follows its resizes and echoes the keys
+ * pressed until "q" is pressed.
+ *
+ * @author Juan F. Ruiz
+ */
+public class RemoteSession implements SessionHandler {
+    /**
+     * For logging
+     */
+    public static final Logger logger = LoggerFactory.getLogger(RemoteSession.class);
+
+    /**
+     * Constructs a new RemoteSession.
+     */
+    public RemoteSession() {
+    }
+
+    /**
+     * Runs the demonstration for one client.
+     *
+     * @param session the session of the client
+     * @throws Exception If an error occurs during execution.
+     */
+    @Override
+    public void handle(TelnetSession session) throws Exception {
+        ANSITerm term = session.getTerminal();
+        InputReader reader = term.startInputReader();
+        term.addResizeListener((oldSize, newSize) -> draw(term, session, newSize, null));
+        draw(term, session, term.getTerminalSize(), null);
+        KeyEvent key;
+        do {
+            key = reader.takeKey();
+            draw(term, session, term.getTerminalSize(), key);
+        } while (key.getType() != KeyType.EOF
+                && !(key.getType() == KeyType.CHARACTER && key.getCodePoint() == 'q'));
+        term.clearScreen();
+        term.moveCursorToBegin();
+        term.flush();
+    }
+
+    /**
+     * Draws the screen of the session in a single frame.
+     *
+     * @param term    the terminal of the session
+     * @param session the session
+     * @param size    the size of the terminal
+     * @param key     the last key pressed, or null
+     */
+    private void draw(ANSITerm term, TelnetSession session, TerminalSize size, KeyEvent key) {
+        term.beginFrame();
+        try {
+            term.clearScreen();
+            term.printAt("------------ Remote session " + session.getId() + " ------------", 1, 1);
+            term.printAt("Connected from " + session.getRemoteAddress(), 2, 1);
+            term.printAt("Window size: %d columns and %d lines".formatted(size.getColumns(), size.getLines()), 3, 1);
+            term.printAt("Try resizing the window. Press q to disconnect.", 4, 1);
+            if (key != null) {
+                term.printAt("Last key: " + key, 6, 1);
+            }
+        } catch (ANSITermException e) {
+            logger.error(e.getMessage());
+        } finally {
+            term.commitFrame();
+        }
+    }
+}
@@ -80,6 +80,11 @@ public enum BGColor {
      */
     private final int codigo;
 
+    /**
+     * The ANSI color code as a string.
+     */
+    private final String codigoAsString;
+
     /**
      * Constructs a new BGColor with the specified code.
      * 
@@ -87,6 +92,7 @@ public enum BGColor {
      */
     BGColor(int codigo) {
         this.codigo = codigo;
+        this.codigoAsString = String.valueOf(codigo);
     }
 
     /**
@@ -94,7 +100,15 @@ public enum BGColor {
      * @return a string with the textual representation of the code
      */
     public String getAsString() {
-        return String.valueOf(this.codigo);
+        return this.codigoAsString;
+    }
+
+    /**
+     * Returns the ANSI code of the color.
+     * @return an integer with the code
+     */
+    public int getCode() {
+        return this.codigo;
     }
 
     @Override
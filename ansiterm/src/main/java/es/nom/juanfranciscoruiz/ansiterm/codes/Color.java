@@ -80,6 +80,11 @@ public enum Color {
      * The ANSI color code.
      */
     private final int code;
+
+    /**
+     * The ANSI color code as a string.
+     */
+    private final String codeAsString;
     
     /**
      * Constructs a new Color with the specified code.
@@ -88,6 +93,7 @@ public enum Color {
      */
     Color(int code){
         this.code = code;
+        this.codeAsString = String.valueOf(code);
     }
     
     /**
@@ -95,6 +101,14 @@ public enum Color {
      * @return a string with the textual representation of the code
      */
     public String getAsString() {
-        return String.valueOf(this.code);
+        return this.codeAsString;
+    }
+
+    /**
+     * Returns the ANSI code of the color.
+     * @return an integer with the code
+     */
+    public int getCode() {
+        return this.code;
     }
 }
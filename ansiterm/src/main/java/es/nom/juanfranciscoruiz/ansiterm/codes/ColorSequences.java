@@ -0,0 +1,313 @@
+package es.nom.juanfranciscoruiz.ansiterm.codes;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static es.nom.juanfranciscoruiz.ansiterm.codes.CSI.ESC;
+
+/**
+ * Precomputed escape sequences of the colors: the 256 foreground and the 256
+ * background colors of the 256-color palette, every {@link Color} and
+ * {@link BGColor}, and every combination of a {@link Color} with a
+ * {@link BGColor} in a single sequence.
+ * <p>
+ * The sequences are built once, when the class is loaded, both as Strings and
+ * as byte arrays (the sequences are ASCII), so coloring a text is a plain copy
+ * of an existing sequence instead of formatting the color code each time.
+ * The byte arrays are not exposed: they are copied with the {@code copy}
+ * methods into a caller-supplied array or buffer.
+ * More information about using ANSI escape sequences at:<br><br>
+ *
+ * <a href="https://invisible-island.net/xterm/ctlseqs/ctlseqs.html">XTerm Control Sequences by Edward Moy</a><br>
+ * <a href="https://learn.microsoft.com/en-us/windows/console/console-virtual-terminal-sequences">Microsoft Learn - Console Virtual Terminal Sequences</a><br>
+ * <a href="https://en.wikipedia.org/wiki/ANSI_escape_code">Wikipedia - ANSI escape code</a>
+ *
+ * @author Juan F. Ruiz
+ */
+public class ColorSequences {
+    /**
+     * Singleton instance of the {@code ColorSequences} class.
+     */
+    private static final ColorSequences instance;
+
+    /**
+     * Sequence that returns the foreground color to its default value: ESC[39m
+     */
+    public static final String FOREGROUND_RESET = ESC + "[39m";
+    /**
+     * Sequence that returns the background color to its default value: ESC[49m
+     */
+    public static final String BACKGROUND_RESET = ESC + "[49m";
+    /**
+     * Sequence that resets colors and styles: ESC[0m
+     */
+    public static final String COLORS_RESET = ESC + "[0m";
+
+    /**
+     * Foreground sequences of the 256-color palette (ESC[38;5;nm)
+     */
+    private static final String[] FG256 = new String[256];
+    /**
+     * Background sequences of the 256-color palette (ESC[48;5;nm)
+     */
+    private static final String[] BG256 = new String[256];
+    /**
+     * Sequences of the Color enum, indexed by ordinal
+     */
+    private static final String[] FG_ENUM = new String[Color.values().length];
+    /**
+     * Sequences of the BGColor enum, indexed by ordinal
+     */
+    private static final String[] BG_ENUM = new String[BGColor.values().length];
+    /**
+     * Combined sequences (ESC[fg;bgm), indexed by Color and BGColor ordinal
+     */
+    private static final String[][] COMBINED = new String[Color.values().length][BGColor.values().length];
+
+    /**
+     * ASCII bytes of FG256
+     */
+    private static final byte[][] FG256_BYTES = new byte[256][];
+    /**
+     * ASCII bytes of BG256
+     */
+    private static final byte[][] BG256_BYTES = new byte[256][];
+    /**
+     * ASCII bytes of FG_ENUM
+     */
+    private static final byte[][] FG_ENUM_BYTES = new byte[FG_ENUM.length][];
+    /**
+     * ASCII bytes of BG_ENUM
+     */
+    private static final byte[][] BG_ENUM_BYTES = new byte[BG_ENUM.length][];
+
+    static {
+        instance = new ColorSequences();
+        for (int i = 0; i < 256; i++) {
+            FG256[i] = (ESC + "[38;5;" + i + "m").intern();
+            BG256[i] = (ESC + "[48;5;" + i + "m").intern();
+            FG256_BYTES[i] = FG256[i].getBytes(StandardCharsets.US_ASCII);
+            BG256_BYTES[i] = BG256[i].getBytes(StandardCharsets.US_ASCII);
+        }
+        for (Color c : Color.values()) {
+            FG_ENUM[c.ordinal()] = (ESC + "[" + c.getCode() + "m").intern();
+            FG_ENUM_BYTES[c.ordinal()] = FG_ENUM[c.ordinal()].getBytes(StandardCharsets.US_ASCII);
+            for (BGColor b : BGColor.values()) {
+                COMBINED[c.ordinal()][b.ordinal()] = (ESC + "[" + c.getCode() + ";" + b.getCode() + "m").intern();
+            }
+        }
+        for (BGColor b : BGColor.values()) {
+            BG_ENUM[b.ordinal()] = (ESC + "[" + b.getCode() + "m").intern();
+            BG_ENUM_BYTES[b.ordinal()] = BG_ENUM[b.ordinal()].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    /**
+     * Private constructor. Class can't be instantiated by the user
+     */
+    private ColorSequences() {
+    }
+
+    /**
+     * Provides access to a singleton instance of the {@code ColorSequences} class.
+     *
+     * @return the singleton instance of {@code ColorSequences}.
+     */
+    public static ColorSequences getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the sequence that sets a foreground color of the 256-color
+     * palette (ESC[38;5;nm).
+     *
+     * @param color the color (0 to 255)
+     * @return the sequence
+     * @throws IllegalArgumentException if the color is out of range
+     */
+    public static String foreground256(int color) throws IllegalArgumentException {
+        return FG256[check256(color)];
+    }
+
+    /**
+     * Returns the sequence that sets a background color of the 256-color
+     * palette (ESC[48;5;nm).
+     *
+     * @param color the color (0 to 255)
+     * @return the sequence
+     * @throws IllegalArgumentException if the color is out of range
+     */
+    public static String background256(int color) throws IllegalArgumentException {
+        return BG256[check256(color)];
+    }
+
+    /**
+     * Returns the sequence that sets a foreground color.
+     *
+     * @param color the color
+     * @return the sequence
+     * @throws IllegalArgumentException if the color is null
+     */
+    public static String foreground(Color color) throws IllegalArgumentException {
+        return FG_ENUM[checkNotNull(color).ordinal()];
+    }
+
+    /**
+     * Returns the sequence that sets a background color.
+     *
+     * @param color the background color
+     * @return the sequence
+     * @throws IllegalArgumentException if the color is null
+     */
+    public static String background(BGColor color) throws IllegalArgumentException {
+        return BG_ENUM[checkNotNull(color).ordinal()];
+    }
+
+    /**
+     * Returns the sequence that sets a foreground and a background color at
+     * once (ESC[fg;bgm).
+     *
+     * @param color           the foreground color
+     * @param backgroundColor the background color
+     * @return the sequence
+     * @throws IllegalArgumentException if any color is null
+     */
+    public static String colors(Color color, BGColor backgroundColor) throws IllegalArgumentException {
+        return COMBINED[checkNotNull(color).ordinal()][checkNotNull(backgroundColor).ordinal()];
+    }
+
+    /**
+     * Copies the sequence of a foreground color of the 256-color palette into
+     * an array.
+     *
+     * @param color the color (0 to 255)
+     * @param dst   the array
+     * @param off   the index where the sequence starts
+     * @return the index following the last byte copied
+     * @throws IllegalArgumentException  if the color is out of range
+     * @throws IndexOutOfBoundsException if the sequence does not fit
+     */
+    public static int copyForeground256(int color, byte[] dst, int off)
+            throws IllegalArgumentException, IndexOutOfBoundsException {
+        return copy(FG256_BYTES[check256(color)], dst, off);
+    }
+
+    /**
+     * Copies the sequence of a background color of the 256-color palette into
+     * an array.
+     *
+     * @param color the color (0 to 255)
+     * @param dst   the array
+     * @param off   the index where the sequence starts
+     * @return the index following the last byte copied
+     * @throws IllegalArgumentException  if the color is out of range
+     * @throws IndexOutOfBoundsException if the sequence does not fit
+     */
+    public static int copyBackground256(int color, byte[] dst, int off)
+            throws IllegalArgumentException, IndexOutOfBoundsException {
+        return copy(BG256_BYTES[check256(color)], dst, off);
+    }
+
+    /**
+     * Copies the sequence of a foreground color into an array.
+     *
+     * @param color the color
+     * @param dst   the array
+     * @param off   the index where the sequence starts
+     * @return the index following the last byte copied
+     * @throws IllegalArgumentException  if the color is null
+     * @throws IndexOutOfBoundsException if the sequence does not fit
+     */
+    public static int copy(Color color, byte[] dst, int off)
+            throws IllegalArgumentException, IndexOutOfBoundsException {
+        return copy(FG_ENUM_BYTES[checkNotNull(color).ordinal()], dst, off);
+    }
+
+    /**
+     * Copies the sequence of a background color into an array.
+     *
+     * @param color the background color
+     * @param dst   the array
+     * @param off   the index where the sequence starts
+     * @return the index following the last byte copied
+     * @throws IllegalArgumentException  if the color is null
+     * @throws IndexOutOfBoundsException if the sequence does not fit
+     */
+    public static int copy(BGColor color, byte[] dst, int off)
+            throws IllegalArgumentException, IndexOutOfBoundsException {
+        return copy(BG_ENUM_BYTES[checkNotNull(color).ordinal()], dst, off);
+    }
+
+    /**
+     * Puts the sequence of a foreground color of the 256-color palette at the
+     * position of a buffer.
+     *
+     * @param color the color (0 to 255)
+     * @param dst   the buffer
+     * @throws IllegalArgumentException         if the color is out of range
+     * @throws java.nio.BufferOverflowException if the sequence does not fit
+     */
+    public static void putForeground256(int color, ByteBuffer dst) throws IllegalArgumentException {
+        dst.put(FG256_BYTES[check256(color)]);
+    }
+
+    /**
+     * Puts the sequence of a background color of the 256-color palette at the
+     * position of a buffer.
+     *
+     * @param color the color (0 to 255)
+     * @param dst   the buffer
+     * @throws IllegalArgumentException         if the color is out of range
+     * @throws java.nio.BufferOverflowException if the sequence does not fit
+     */
+    public static void putBackground256(int color, ByteBuffer dst) throws IllegalArgumentException {
+        dst.put(BG256_BYTES[check256(color)]);
+    }
+
+    /**
+     * Copies a sequence into an array.
+     *
+     * @param seq the sequence
+     * @param dst the array
+     * @param off the index where the sequence starts
+     * @return the index following the last byte copied
+     */
+    private static int copy(byte[] seq, byte[] dst, int off) {
+        System.arraycopy(seq, 0, dst, off, seq.length);
+        return off + seq.length;
+    }
+
+    /**
+     * Checks that a color of the 256-color palette is in range.
+     *
+     * @param color the color
+     * @return the same color
+     * @throws IllegalArgumentException if the color is out of range
+     */
+    private static int check256(int color) throws IllegalArgumentException {
+        if (color < 0 || color > 255) {
+            throw new IllegalArgumentException("The color must be between 0 and 255: " + color);
+        }
+        return color;
+    }
+
+    /**
+     * Checks that a color is not null.
+     *
+     * @param color the color
+     * @param <T>   the type of the color
+     * @return the same color
+     * @throws IllegalArgumentException if the color is null
+     */
+    private static <T> T checkNotNull(T color) throws IllegalArgumentException {
+        if (color == null) {
+            throw new IllegalArgumentException("The color cannot be null");
+        }
+        return color;
+    }
+
+    @Override
+    public String toString() {
+        return "ColorSequences{'Precomputed escape sequences of the colors'}";
+    }
+}
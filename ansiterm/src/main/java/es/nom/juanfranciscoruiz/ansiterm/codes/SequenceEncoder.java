@@ -0,0 +1,439 @@
+package es.nom.juanfranciscoruiz.ansiterm.codes;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes CSI escape sequences with numeric parameters directly into a
+ * caller-supplied {@code byte[]}, {@link ByteBuffer}, {@link StringBuilder}
+ * or {@link Appendable}, without creating intermediate Strings.
+ * <p>
+ * The methods of the other classes of this package, like
+ * {@link CursorMovementCodes#getSecforSetCursorAtPosition(int, int)} or
+ * {@link TextModificationCodes#insertSpaces(int)}, build a new String on
+ * every call. The methods of this class write the same sequences and format
+ * the numbers with a lookup table of digit pairs, so a rendering loop that
+ * reuses its buffer does not produce garbage. The sequence is chosen with
+ * its final character, for which there are constants in this class:
+ * <pre>{@code
+ * // ESC[12;40H, the same as CursorMovementCodes.getSecforSetCursorAtPosition(12, 40)
+ * off = SequenceEncoder.csi(buf, off, 12, 40, SequenceEncoder.CUP);
+ * // ESC[3@, the same as TextModificationCodes.insertSpaces(3)
+ * SequenceEncoder.csi(sb, 3, SequenceEncoder.ICH);
+ * }</pre>
+ * The numeric parameters cannot be negative.
+ * More information about using ANSI escape sequences at:<br><br>
+ *
+ * <a href="https://invisible-island.net/xterm/ctlseqs/ctlseqs.html">XTerm Control Sequences by Edward Moy</a><br>
+ * <a href="https://learn.microsoft.com/en-us/windows/console/console-virtual-terminal-sequences">Microsoft Learn - Console Virtual Terminal Sequences</a><br>
+ * <a href="https://en.wikipedia.org/wiki/ANSI_escape_code">Wikipedia - ANSI escape code</a>
+ *
+ * @author Juan F. Ruiz
+ */
+public class SequenceEncoder {
+    /**
+     * Singleton instance of the {@code SequenceEncoder} class.
+     */
+    private static final SequenceEncoder instance;
+
+    static {
+        instance = new SequenceEncoder();
+    }
+
+    /**
+     * Final character of CUU (Cursor Up): ESC[nA
+     */
+    public static final char CUU = 'A';
+    /**
+     * Final character of CUD (Cursor Down): ESC[nB
+     */
+    public static final char CUD = 'B';
+    /**
+     * Final character of CUF (Cursor Forward): ESC[nC
+     */
+    public static final char CUF = 'C';
+    /**
+     * Final character of CUB (Cursor Backward): ESC[nD
+     */
+    public static final char CUB = 'D';
+    /**
+     * Final character of CUP (Cursor Position): ESC[line;columnH
+     */
+    public static final char CUP = 'H';
+    /**
+     * Final character of CHT (Cursor Horizontal Tab): ESC[nI
+     */
+    public static final char CHT = 'I';
+    /**
+     * Final character of CBT (Cursor Backwards Tab): ESC[nZ
+     */
+    public static final char CBT = 'Z';
+    /**
+     * Final character of ICH (Insert Character): ESC[n@
+     */
+    public static final char ICH = '@';
+    /**
+     * Final character of DCH (Delete Character): ESC[nP
+     */
+    public static final char DCH = 'P';
+    /**
+     * Final character of ECH (Erase Character): ESC[nX
+     */
+    public static final char ECH = 'X';
+    /**
+     * Final character of IL (Insert Line): ESC[nL
+     */
+    public static final char IL = 'L';
+    /**
+     * Final character of DL (Delete Line): ESC[nM
+     */
+    public static final char DL = 'M';
+    /**
+     * Final character of SU (Scroll Up): ESC[nS
+     */
+    public static final char SU = 'S';
+    /**
+     * Final character of SD (Scroll Down): ESC[nT
+     */
+    public static final char SD = 'T';
+    /**
+     * Final character of DECSTBM (Set Scrolling Region): ESC[top;bottomr
+     */
+    public static final char DECSTBM = 'r';
+    /**
+     * Final character of SGR (Select Graphic Rendition): ESC[nm
+     */
+    public static final char SGR = 'm';
+
+    /**
+     * ESC character
+     */
+    private static final byte ESC_BYTE = 0x1B;
+    /**
+     * ASCII digits of the numbers 00 to 99, two bytes per number.
+     */
+    private static final byte[] DIGIT_PAIRS = new byte[200];
+    /**
+     * Powers of 10 that fit in an int.
+     */
+    private static final int[] POW10 = {
+            1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000, 1_000_000_000
+    };
+
+    static {
+        for (int i = 0; i < 100; i++) {
+            DIGIT_PAIRS[2 * i] = (byte) ('0' + i / 10);
+            DIGIT_PAIRS[2 * i + 1] = (byte) ('0' + i % 10);
+        }
+    }
+
+    /**
+     * Private constructor. Class can't be instantiated by the user
+     */
+    private SequenceEncoder() {
+    }
+
+    /**
+     * Provides access to a singleton instance of the {@code SequenceEncoder} class.
+     *
+     * @return the singleton instance of {@code SequenceEncoder}.
+     */
+    public static SequenceEncoder getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the number of bytes of a sequence with one parameter.
+     *
+     * @param n the parameter
+     * @return the length of ESC[n + final character
+     * @throws IllegalArgumentException if the parameter is negative
+     */
+    public static int length(int n) throws IllegalArgumentException {
+        return 3 + digits(n);
+    }
+
+    /**
+     * Returns the number of bytes of a sequence with two parameters.
+     *
+     * @param n1 the first parameter
+     * @param n2 the second parameter
+     * @return the length of ESC[n1;n2 + final character
+     * @throws IllegalArgumentException if a parameter is negative
+     */
+    public static int length(int n1, int n2) throws IllegalArgumentException {
+        return 4 + digits(n1) + digits(n2);
+    }
+
+    /* ------------------------------------------------ byte[] ------------------------------------------------------*/
+    /**
+     * Writes the sequence ESC[n + finalChar into an array.
+     *
+     * @param dst       the array
+     * @param off       the index where the sequence starts
+     * @param n         the parameter
+     * @param finalChar the final character of the sequence (e.g. {@link #CUU})
+     * @return the index following the last byte written
+     * @throws IllegalArgumentException  if the parameter is negative
+     * @throws IndexOutOfBoundsException if the sequence does not fit
+     */
+    public static int csi(byte[] dst, int off, int n, char finalChar)
+            throws IllegalArgumentException, IndexOutOfBoundsException {
+        dst[off] = ESC_BYTE;
+        dst[off + 1] = '[';
+        off = writeNumber(dst, off + 2, n);
+        dst[off] = (byte) finalChar;
+        return off + 1;
+    }
+
+    /**
+     * Writes the sequence ESC[n1;n2 + finalChar into an array.
+     *
+     * @param dst       the array
+     * @param off       the index where the sequence starts
+     * @param n1        the first parameter
+     * @param n2        the second parameter
+     * @param finalChar the final character of the sequence (e.g. {@link #CUP})
+     * @return the index following the last byte written
+     * @throws IllegalArgumentException  if a parameter is negative
+     * @throws IndexOutOfBoundsException if the sequence does not fit
+     */
+    public static int csi(byte[] dst, int off, int n1, int n2, char finalChar)
+            throws IllegalArgumentException, IndexOutOfBoundsException {
+        dst[off] = ESC_BYTE;
+        dst[off + 1] = '[';
+        off = writeNumber(dst, off + 2, n1);
+        dst[off] = ';';
+        off = writeNumber(dst, off + 1, n2);
+        dst[off] = (byte) finalChar;
+        return off + 1;
+    }
+
+    /**
+     * Writes the decimal digits of a number into an array.
+     *
+     * @param dst the array
+     * @param off the index where the digits start
+     * @param n   the number
+     * @return the index following the last digit
+     * @throws IllegalArgumentException  if the number is negative
+     * @throws IndexOutOfBoundsException if the digits do not fit
+     */
+    public static int writeNumber(byte[] dst, int off, int n)
+            throws IllegalArgumentException, IndexOutOfBoundsException {
+        int end = off + digits(n);
+        int pos = end;
+        while (n >= 100) {
+            int q = n / 100;
+            int r = (n - q * 100) << 1;
+            n = q;
+            dst[--pos] = DIGIT_PAIRS[r + 1];
+            dst[--pos] = DIGIT_PAIRS[r];
+        }
+        if (n >= 10) {
+            dst[--pos] = DIGIT_PAIRS[(n << 1) + 1];
+            dst[--pos] = DIGIT_PAIRS[n << 1];
+        } else {
+            dst[--pos] = (byte) ('0' + n);
+        }
+        return end;
+    }
+
+    /* ------------------------------------------------ ByteBuffer --------------------------------------------------*/
+    /**
+     * Writes the sequence ESC[n + finalChar at the position of a buffer.
+     *
+     * @param dst       the buffer
+     * @param n         the parameter
+     * @param finalChar the final character of the sequence (e.g. {@link #CUU})
+     * @throws IllegalArgumentException if the parameter is negative
+     * @throws BufferOverflowException  if the sequence does not fit
+     */
+    public static void csi(ByteBuffer dst, int n, char finalChar) throws IllegalArgumentException {
+        dst.put(ESC_BYTE).put((byte) '[');
+        writeNumber(dst, n);
+        dst.put((byte) finalChar);
+    }
+
+    /**
+     * Writes the sequence ESC[n1;n2 + finalChar at the position of a buffer.
+     *
+     * @param dst       the buffer
+     * @param n1        the first parameter
+     * @param n2        the second parameter
+     * @param finalChar the final character of the sequence (e.g. {@link #CUP})
+     * @throws IllegalArgumentException if a parameter is negative
+     * @throws BufferOverflowException  if the sequence does not fit
+     */
+    public static void csi(ByteBuffer dst, int n1, int n2, char finalChar) throws IllegalArgumentException {
+        dst.put(ESC_BYTE).put((byte) '[');
+        writeNumber(dst, n1);
+        dst.put((byte) ';');
+        writeNumber(dst, n2);
+        dst.put((byte) finalChar);
+    }
+
+    /**
+     * Writes the decimal digits of a number at the position of a buffer.
+     *
+     * @param dst the buffer
+     * @param n   the number
+     * @throws IllegalArgumentException if the number is negative
+     * @throws BufferOverflowException  if the digits do not fit
+     */
+    public static void writeNumber(ByteBuffer dst, int n) throws IllegalArgumentException {
+        if (dst.hasArray()) {
+            int start = dst.arrayOffset() + dst.position();
+            int len = digits(n);
+            if (dst.remaining() < len) {
+                throw new BufferOverflowException();
+            }
+            writeNumber(dst.array(), start, n);
+            dst.position(dst.position() + len);
+            return;
+        }
+        int d = digits(n);
+        if ((d & 1) != 0) {
+            int p = POW10[d - 1];
+            int q = n / p;
+            dst.put((byte) ('0' + q));
+            n -= q * p;
+            d--;
+        }
+        while (d > 0) {
+            int p = POW10[d - 2];
+            int q = n / p;
+            dst.put(DIGIT_PAIRS[q << 1]).put(DIGIT_PAIRS[(q << 1) + 1]);
+            n -= q * p;
+            d -= 2;
+        }
+    }
+
+    /* ------------------------------------------------ StringBuilder -----------------------------------------------*/
+    /**
+     * Appends the sequence ESC[n + finalChar to a StringBuilder.
+     *
+     * @param sb        the StringBuilder
+     * @param n         the parameter
+     * @param finalChar the final character of the sequence (e.g. {@link #CUU})
+     * @return the same StringBuilder
+     * @throws IllegalArgumentException if the parameter is negative
+     */
+    public static StringBuilder csi(StringBuilder sb, int n, char finalChar) throws IllegalArgumentException {
+        checkNotNegative(n);
+        return sb.append(CSI.ESC).append('[').append(n).append(finalChar);
+    }
+
+    /**
+     * Appends the sequence ESC[n1;n2 + finalChar to a StringBuilder.
+     *
+     * @param sb        the StringBuilder
+     * @param n1        the first parameter
+     * @param n2        the second parameter
+     * @param finalChar the final character of the sequence (e.g. {@link #CUP})
+     * @return the same StringBuilder
+     * @throws IllegalArgumentException if a parameter is negative
+     */
+    public static StringBuilder csi(StringBuilder sb, int n1, int n2, char finalChar) throws IllegalArgumentException {
+        checkNotNegative(n1);
+        checkNotNegative(n2);
+        return sb.append(CSI.ESC).append('[').append(n1).append(';').append(n2).append(finalChar);
+    }
+
+    /* ------------------------------------------------ Appendable --------------------------------------------------*/
+    /**
+     * Appends the sequence ESC[n + finalChar to an Appendable (for example a
+     * Writer or a {@link es.nom.juanfranciscoruiz.ansiterm.FrameWriter}).
+     *
+     * @param out       the Appendable
+     * @param n         the parameter
+     * @param finalChar the final character of the sequence (e.g. {@link #CUU})
+     * @throws IllegalArgumentException if the parameter is negative
+     * @throws IOException              if the Appendable fails
+     */
+    public static void csi(Appendable out, int n, char finalChar) throws IllegalArgumentException, IOException {
+        out.append(CSI.ESC).append('[');
+        writeNumber(out, n);
+        out.append(finalChar);
+    }
+
+    /**
+     * Appends the sequence ESC[n1;n2 + finalChar to an Appendable (for
+     * example a Writer or a {@link es.nom.juanfranciscoruiz.ansiterm.FrameWriter}).
+     *
+     * @param out       the Appendable
+     * @param n1        the first parameter
+     * @param n2        the second parameter
+     * @param finalChar the final character of the sequence (e.g. {@link #CUP})
+     * @throws IllegalArgumentException if a parameter is negative
+     * @throws IOException              if the Appendable fails
+     */
+    public static void csi(Appendable out, int n1, int n2, char finalChar)
+            throws IllegalArgumentException, IOException {
+        out.append(CSI.ESC).append('[');
+        writeNumber(out, n1);
+        out.append(';');
+        writeNumber(out, n2);
+        out.append(finalChar);
+    }
+
+    /**
+     * Appends the decimal digits of a number to an Appendable.
+     *
+     * @param out the Appendable
+     * @param n   the number
+     * @throws IllegalArgumentException if the number is negative
+     * @throws IOException              if the Appendable fails
+     */
+    public static void writeNumber(Appendable out, int n) throws IllegalArgumentException, IOException {
+        int d = digits(n);
+        if ((d & 1) != 0) {
+            int p = POW10[d - 1];
+            int q = n / p;
+            out.append((char) ('0' + q));
+            n -= q * p;
+            d--;
+        }
+        while (d > 0) {
+            int p = POW10[d - 2];
+            int q = n / p;
+            out.append((char) DIGIT_PAIRS[q << 1]).append((char) DIGIT_PAIRS[(q << 1) + 1]);
+            n -= q * p;
+            d -= 2;
+        }
+    }
+
+    /**
+     * Returns the number of decimal digits of a number.
+     *
+     * @param n the number
+     * @return the number of digits (1 to 10)
+     * @throws IllegalArgumentException if the number is negative
+     */
+    public static int digits(int n) throws IllegalArgumentException {
+        checkNotNegative(n);
+        int d = 1;
+        while (d < POW10.length && n >= POW10[d]) {
+            d++;
+        }
+        return d;
+    }
+
+    /**
+     * Checks that a parameter of a sequence is not negative.
+     *
+     * @param n the parameter
+     * @throws IllegalArgumentException if the parameter is negative
+     */
+    private static void checkNotNegative(int n) throws IllegalArgumentException {
+        if (n < 0) {
+            throw new IllegalArgumentException("The parameter of a sequence cannot be negative: " + n);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SequenceEncoder{'Allocation-free encoder of CSI sequences with numeric parameters'}";
+    }
+}
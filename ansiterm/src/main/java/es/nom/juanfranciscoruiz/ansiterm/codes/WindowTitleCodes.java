@@ -30,7 +30,7 @@ public class WindowTitleCodes {
      * @return the ANSI escape sequence
      */
     public static String getEsForSetWindowTitle(String title) {
-        return OSC.OSC + title + OSC.ST;
+        return OSC.OSC + "0;" + title + OSC.ST;
     }
 
     /**
@@ -0,0 +1,522 @@
+package es.nom.juanfranciscoruiz.ansiterm.emulator;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental parser of the output sent to a VT100/xterm terminal: it splits
+ * the stream into runs of printable characters, control characters, escape
+ * sequences (ESC), control sequences (CSI) and operating system commands
+ * (OSC), and passes them to a {@link Handler}.
+ * <p>
+ * The output can be fed in chunks of any size, as bytes in UTF-8 or as
+ * characters: a sequence or a UTF-8 character split between two calls is
+ * completed with the next call. The printable characters are delivered in
+ * runs, not one by one, and the runs of ASCII bytes are copied with a tight
+ * loop, so plain text is parsed at memory speed. The parser follows the state
+ * machine of the DEC terminals: a CAN or SUB control character aborts a
+ * sequence, an ESC starts a new one, and the control characters found inside
+ * a control sequence are executed.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author Juan F. Ruiz
+ */
+public final class VTParser {
+
+    /**
+     * Receives the results of the parsing.
+     */
+    public interface Handler {
+        /**
+         * Called for each run of printable characters.
+         *
+         * @param chars the array with the characters
+         * @param off   the index of the first character
+         * @param len   the number of characters
+         */
+        void print(char[] chars, int off, int len);
+
+        /**
+         * Called for each control character (C0 or DEL) outside a string.
+         *
+         * @param c the control character
+         */
+        void execute(char c);
+
+        /**
+         * Called for each escape sequence that is not a CSI or a string.
+         *
+         * @param intermediate the intermediate character (e.g. '(' in ESC ( 0),
+         *                     or 0 if there is none
+         * @param command      the final character
+         */
+        void escDispatch(char intermediate, char command);
+
+        /**
+         * Called for each control sequence (ESC [).
+         *
+         * @param prefix       the private prefix ('?', '&gt;', '=' or '&lt;'),
+         *                     or 0 if there is none
+         * @param params       the numeric parameters; an omitted parameter is 0
+         * @param count        the number of parameters
+         * @param intermediate the intermediate character (e.g. ' ' in
+         *                     ESC [ 2 SP q), or 0 if there is none
+         * @param command      the final character
+         */
+        void csiDispatch(char prefix, int[] params, int count, char intermediate, char command);
+
+        /**
+         * Called for each operating system command (ESC ]), such as the
+         * change of the window title.
+         *
+         * @param data the text between ESC ] and the terminator
+         */
+        void oscDispatch(CharSequence data);
+    }
+
+    /**
+     * Maximum number of parameters of a control sequence. The rest are
+     * ignored.
+     */
+    public static final int MAX_PARAMS = 16;
+    /**
+     * Maximum length of an operating system command. The rest is ignored.
+     */
+    public static final int MAX_OSC_LENGTH = 1024;
+
+    /**
+     * Parameters above this value stop growing, to avoid overflows.
+     */
+    private static final int MAX_PARAMETER_VALUE = 65_535;
+    /**
+     * Size of the buffer of printable characters.
+     */
+    private static final int RUN_SIZE = 4096;
+
+    // Parser states
+    private static final int GROUND = 0;
+    private static final int ESCAPE = 1;
+    private static final int ESCAPE_INTERMEDIATE = 2;
+    private static final int CSI_PARAM = 3;
+    private static final int CSI_INTERMEDIATE = 4;
+    private static final int CSI_IGNORE = 5;
+    private static final int OSC_STRING = 6;
+    private static final int OSC_ESCAPE = 7;
+    private static final int STRING = 8;
+    private static final int STRING_ESCAPE = 9;
+
+    /**
+     * Receiver of the results
+     */
+    private final Handler handler;
+    /**
+     * Printable characters not yet delivered
+     */
+    private final char[] run = new char[RUN_SIZE];
+    /**
+     * Number of characters in run
+     */
+    private int runLength;
+    /**
+     * Parameters of the control sequence in progress
+     */
+    private final int[] params = new int[MAX_PARAMS];
+    /**
+     * Number of parameters of the control sequence in progress, counting the
+     * one being read
+     */
+    private int paramCount;
+    /**
+     * Private prefix of the control sequence in progress
+     */
+    private char prefix;
+    /**
+     * Intermediate character of the sequence in progress
+     */
+    private char intermediate;
+    /**
+     * Text of the operating system command in progress
+     */
+    private final StringBuilder osc = new StringBuilder();
+    /**
+     * Current state
+     */
+    private int state = GROUND;
+    /**
+     * Code point of the UTF-8 character being decoded
+     */
+    private int utf8CodePoint;
+    /**
+     * Continuation bytes left of the UTF-8 character being decoded
+     */
+    private int utf8Remaining;
+
+    /**
+     * Instantiates a parser.
+     *
+     * @param handler the receiver of the results
+     * @throws IllegalArgumentException if the handler is null
+     */
+    public VTParser(Handler handler) throws IllegalArgumentException {
+        if (handler == null) {
+            throw new IllegalArgumentException("The handler cannot be null");
+        }
+        this.handler = handler;
+    }
+
+    /**
+     * Parses output encoded in UTF-8.
+     *
+     * @param bytes the array with the output
+     * @param off   the index of the first byte
+     * @param len   the number of bytes
+     */
+    public void parse(byte[] bytes, int off, int len) {
+        int end = off + len;
+        int i = off;
+        while (i < end) {
+            if (state == GROUND && utf8Remaining == 0) {
+                // Fast path: copy the run of printable ASCII bytes
+                int room = RUN_SIZE - runLength;
+                int stop = Math.min(end, i + room);
+                int start = i;
+                while (i < stop) {
+                    byte b = bytes[i];
+                    if (b < 0x20 || b == 0x7F) {
+                        break;
+                    }
+                    run[runLength++] = (char) b;
+                    i++;
+                }
+                if (runLength == RUN_SIZE) {
+                    flushRun();
+                }
+                if (i > start || i >= end) {
+                    continue;
+                }
+            }
+            parseByte(bytes[i++] & 0xFF);
+        }
+        flushRun();
+    }
+
+    /**
+     * Parses output encoded in UTF-8, from the position to the limit of a
+     * buffer, such as a mapped file. The position of the buffer is moved to
+     * its limit.
+     *
+     * @param buffer the buffer with the output
+     */
+    public void parse(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            int len = buffer.remaining();
+            parse(buffer.array(), buffer.arrayOffset() + buffer.position(), len);
+            buffer.position(buffer.limit());
+            return;
+        }
+        byte[] chunk = new byte[Math.min(buffer.remaining(), 64 * 1024)];
+        while (buffer.hasRemaining()) {
+            int n = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, n);
+            parse(chunk, 0, n);
+        }
+    }
+
+    /**
+     * Parses output given as characters.
+     *
+     * @param text the output
+     */
+    public void parse(CharSequence text) {
+        int len = text.length();
+        for (int i = 0; i < len; i++) {
+            char c = text.charAt(i);
+            if (state == GROUND && c >= 0x20 && c != 0x7F) {
+                if (runLength == RUN_SIZE) {
+                    flushRun();
+                }
+                run[runLength++] = c;
+            } else {
+                parseChar(c);
+            }
+        }
+        flushRun();
+    }
+
+    /**
+     * Indicates whether the parser is in the middle of a sequence.
+     *
+     * @return true if a sequence or a UTF-8 character is incomplete
+     */
+    public boolean hasPending() {
+        return state != GROUND || utf8Remaining != 0;
+    }
+
+    /**
+     * Discards any incomplete sequence and returns to the initial state.
+     */
+    public void reset() {
+        flushRun();
+        state = GROUND;
+        utf8Remaining = 0;
+        osc.setLength(0);
+    }
+
+    /**
+     * Parses a byte that is not part of a run of printable ASCII bytes,
+     * decoding UTF-8.
+     *
+     * @param b the byte
+     */
+    private void parseByte(int b) {
+        if (utf8Remaining > 0) {
+            if ((b & 0xC0) == 0x80) {
+                utf8CodePoint = (utf8CodePoint << 6) | (b & 0x3F);
+                if (--utf8Remaining == 0) {
+                    parseCodePoint(utf8CodePoint);
+                }
+                return;
+            }
+            // Truncated character
+            utf8Remaining = 0;
+            parseChar('�');
+        }
+        if (b < 0x80) {
+            parseChar((char) b);
+        } else if ((b & 0xE0) == 0xC0) {
+            utf8CodePoint = b & 0x1F;
+            utf8Remaining = 1;
+        } else if ((b & 0xF0) == 0xE0) {
+            utf8CodePoint = b & 0x0F;
+            utf8Remaining = 2;
+        } else if ((b & 0xF8) == 0xF0) {
+            utf8CodePoint = b & 0x07;
+            utf8Remaining = 3;
+        } else {
+            parseChar('�');
+        }
+    }
+
+    /**
+     * Parses a decoded code point.
+     *
+     * @param codePoint the code point
+     */
+    private void parseCodePoint(int codePoint) {
+        if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            parseChar((char) codePoint);
+        } else {
+            parseChar(Character.highSurrogate(codePoint));
+            parseChar(Character.lowSurrogate(codePoint));
+        }
+    }
+
+    /**
+     * Parses a character through the state machine.
+     *
+     * @param c the character
+     */
+    private void parseChar(char c) {
+        // CAN and SUB abort any sequence; ESC starts a new one
+        if (c == 0x18 || c == 0x1A) {
+            flushRun();
+            state = GROUND;
+            return;
+        }
+        if (c == 0x1B && state != OSC_STRING && state != STRING) {
+            flushRun();
+            state = ESCAPE;
+            intermediate = 0;
+            return;
+        }
+        switch (state) {
+            case GROUND -> {
+                if (c < 0x20 || c == 0x7F) {
+                    flushRun();
+                    handler.execute(c);
+                } else {
+                    if (runLength == RUN_SIZE) {
+                        flushRun();
+                    }
+                    run[runLength++] = c;
+                }
+            }
+            case ESCAPE -> escape(c);
+            case ESCAPE_INTERMEDIATE -> {
+                if (c < 0x20) {
+                    handler.execute(c);
+                } else if (c <= 0x2F) {
+                    intermediate = c;
+                } else {
+                    state = GROUND;
+                    handler.escDispatch(intermediate, c);
+                }
+            }
+            case CSI_PARAM -> csiParam(c);
+            case CSI_INTERMEDIATE -> {
+                if (c < 0x20) {
+                    handler.execute(c);
+                } else if (c <= 0x2F) {
+                    intermediate = c;
+                } else if (c <= 0x3F) {
+                    state = CSI_IGNORE;
+                } else {
+                    dispatchCsi(c);
+                }
+            }
+            case CSI_IGNORE -> {
+                if (c < 0x20) {
+                    handler.execute(c);
+                } else if (c >= 0x40 && c <= 0x7E) {
+                    state = GROUND;
+                }
+            }
+            case OSC_STRING -> {
+                if (c == 0x07) {
+                    dispatchOsc();
+                } else if (c == 0x1B) {
+                    state = OSC_ESCAPE;
+                } else if (c >= 0x20 && osc.length() < MAX_OSC_LENGTH) {
+                    osc.append(c);
+                }
+            }
+            case OSC_ESCAPE -> {
+                // ESC \ (ST) ends the command; any other ESC starts a sequence
+                dispatchOsc();
+                if (c != '\\') {
+                    state = ESCAPE;
+                    intermediate = 0;
+                    escape(c);
+                }
+            }
+            case STRING -> {
+                if (c == 0x07) {
+                    state = GROUND;
+                } else if (c == 0x1B) {
+                    state = STRING_ESCAPE;
+                }
+            }
+            case STRING_ESCAPE -> {
+                state = GROUND;
+                if (c != '\\') {
+                    state = ESCAPE;
+                    intermediate = 0;
+                    escape(c);
+                }
+            }
+            default -> state = GROUND;
+        }
+    }
+
+    /**
+     * Processes the character following an ESC.
+     *
+     * @param c the character
+     */
+    private void escape(char c) {
+        if (c < 0x20) {
+            handler.execute(c);
+            return;
+        }
+        switch (c) {
+            case '[' -> {
+                state = CSI_PARAM;
+                prefix = 0;
+                intermediate = 0;
+                paramCount = 0;
+                params[0] = 0;
+            }
+            case ']' -> {
+                state = OSC_STRING;
+                osc.setLength(0);
+            }
+            case 'P', 'X', '^', '_' -> state = STRING;
+            default -> {
+                if (c <= 0x2F) {
+                    intermediate = c;
+                    state = ESCAPE_INTERMEDIATE;
+                } else {
+                    state = GROUND;
+                    handler.escDispatch((char) 0, c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Processes a character of the parameters of a control sequence.
+     *
+     * @param c the character
+     */
+    private void csiParam(char c) {
+        if (c >= '0' && c <= '9') {
+            if (paramCount == 0) {
+                paramCount = 1;
+            }
+            int i = paramCount - 1;
+            if (i < MAX_PARAMS && params[i] <= MAX_PARAMETER_VALUE) {
+                params[i] = params[i] * 10 + (c - '0');
+            }
+        } else if (c == ';' || c == ':') {
+            if (paramCount == 0) {
+                paramCount = 1;
+            }
+            if (paramCount < MAX_PARAMS) {
+                params[paramCount] = 0;
+            }
+            paramCount++;
+        } else if (c >= '<' && c <= '?') {
+            if (paramCount == 0 && prefix == 0) {
+                prefix = c;
+            } else {
+                state = CSI_IGNORE;
+            }
+        } else if (c < 0x20) {
+            handler.execute(c);
+        } else if (c <= 0x2F) {
+            intermediate = c;
+            state = CSI_INTERMEDIATE;
+        } else if (c >= 0x40 && c <= 0x7E) {
+            dispatchCsi(c);
+        } else {
+            state = CSI_IGNORE;
+        }
+    }
+
+    /**
+     * Delivers the control sequence in progress.
+     *
+     * @param command the final character
+     */
+    private void dispatchCsi(char command) {
+        state = GROUND;
+        handler.csiDispatch(prefix, params, Math.min(paramCount, MAX_PARAMS), intermediate, command);
+    }
+
+    /**
+     * Delivers the operating system command in progress.
+     */
+    private void dispatchOsc() {
+        state = GROUND;
+        handler.oscDispatch(osc);
+        osc.setLength(0);
+    }
+
+    /**
+     * Delivers the printable characters not yet delivered.
+     */
+    private void flushRun() {
+        if (runLength > 0) {
+            handler.print(run, 0, runLength);
+            runLength = 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "VTParser{" +
+                "state=" + state +
+                ", pending=" + hasPending() +
+                '}';
+    }
+}
@@ -0,0 +1,1432 @@
+package es.nom.juanfranciscoruiz.ansiterm.emulator;
+
+import es.nom.juanfranciscoruiz.ansiterm.ANSITerm;
+import es.nom.juanfranciscoruiz.ansiterm.FrameWriter;
+import es.nom.juanfranciscoruiz.ansiterm.Position;
+import es.nom.juanfranciscoruiz.ansiterm.StreamTerminal;
+import es.nom.juanfranciscoruiz.ansiterm.TerminalSize;
+import es.nom.juanfranciscoruiz.ansiterm.exceptions.ANSITermException;
+import es.nom.juanfranciscoruiz.ansiterm.screen.CellAttributes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Headless terminal emulator: it interprets the output of an application in
+ * the same way as a VT100/xterm terminal, keeps the resulting screen in a grid
+ * of cells and answers the queries of the application, without any real
+ * terminal or window.
+ * <p>
+ * It allows running the options of the demo application, the dashboards and
+ * any other code written against {@link ANSITerm} in unit tests or in a
+ * continuous integration job, and asserting the exact contents of the screen:
+ * <pre>{@code
+ * VirtualTerminal vt = new VirtualTerminal(new TerminalSize(40, 10));
+ * ANSITerm term = vt.createANSITerm();
+ * term.clearScreen();
+ * term.printAt("Hello!", 3, 5);
+ * term.flush();
+ * assertEquals("Hello!", vt.getLineText(3).strip());
+ * assertEquals(new Position(11, 3), vt.getCursorPosition());
+ * }</pre>
+ * It understands all the sequences of the codes package: cursor movement,
+ * colors and styles (SGR, including 256 colors and true colors, which are
+ * approximated to the 256-color palette), erasing, insertion and deletion of
+ * characters and lines, scrolling margins, tab stops, the alternate screen
+ * buffer, the DEC line drawing character set, the cursor style and
+ * visibility, the window title and the queries of the cursor position.
+ * The answers to the queries are sent to the input of the terminal
+ * ({@link #getInputStream()}), where the keys typed with {@link #type(String)}
+ * also arrive.
+ * <p>
+ * The output can also be given directly with {@link #process(byte[], int, int)}
+ * or {@link #process(ByteBuffer)}, for example to replay a recording of a
+ * session from a mapped file; the parser handles plain text at memory speed.
+ * The counters {@link #getBytesProcessed()} and {@link #getWrites()} allow
+ * measuring how many bytes and frames an application sends.
+ * <p>
+ * As a {@link StreamTerminal}, a line feed does not return the carriage, and
+ * changing the size with {@link #setTerminalSize(TerminalSize)} resizes the
+ * grid and notifies the resize listeners of the ANSITerm objects bound to it.
+ * Each character takes one cell; wide characters are not supported.
+ * <p>
+ * This class is thread-safe: the application may write from one thread while
+ * the test reads the screen from another.
+ *
+ * @author Juan F. Ruiz
+ */
+public final class VirtualTerminal extends StreamTerminal {
+    /**
+     * Distance between the initial tab stops.
+     */
+    public static final int TAB_WIDTH = 8;
+
+    /**
+     * Characters of the DEC special graphics set, for the characters 0x5F to
+     * 0x7E.
+     */
+    private static final String LINE_DRAWING =
+            " ◆▒␉␌␍␊°±␤␋┘┐┌└┼⎺⎻─⎼⎽├┤┴┬│≤≥π≠£·";
+
+    /**
+     * Cells of a screen buffer.
+     */
+    private static final class Grid {
+        /**
+         * Character of each cell, line by line
+         */
+        char[] chars;
+        /**
+         * Packed attributes of each cell (see {@link CellAttributes})
+         */
+        int[] attributes;
+
+        /**
+         * Creates a blank grid.
+         *
+         * @param cells the number of cells
+         */
+        Grid(int cells) {
+            chars = new char[cells];
+            attributes = new int[cells];
+            Arrays.fill(chars, ' ');
+        }
+    }
+
+    /**
+     * Interprets the results of the parser
+     */
+    private final VTParser parser;
+    /**
+     * Input of the terminal: typed keys and answers to the queries
+     */
+    private final InputQueue input = new InputQueue();
+    /**
+     * Output of the terminal
+     */
+    private final OutputStream output = new Output();
+    /**
+     * Number of lines of the grids
+     */
+    private int lines;
+    /**
+     * Number of columns of the grids
+     */
+    private int columns;
+    /**
+     * Normal screen buffer
+     */
+    private Grid mainGrid;
+    /**
+     * Alternate screen buffer
+     */
+    private Grid alternateGrid;
+    /**
+     * Buffer shown
+     */
+    private Grid grid;
+    /**
+     * Line of the cursor, from 0
+     */
+    private int line;
+    /**
+     * Column of the cursor, from 0
+     */
+    private int column;
+    /**
+     * True when a character has been written in the last column and the next
+     * one goes to the next line
+     */
+    private boolean pendingWrap;
+    /**
+     * First line of the scrolling region, from 0
+     */
+    private int top;
+    /**
+     * Last line of the scrolling region, from 0
+     */
+    private int bottom;
+    /**
+     * Attributes of the characters written
+     */
+    private int attributes;
+    /**
+     * Columns with a tab stop
+     */
+    private boolean[] tabStops;
+    /**
+     * True if the G0 character set is the DEC line drawing one
+     */
+    private boolean g0LineDrawing;
+    /**
+     * True if the G1 character set is the DEC line drawing one
+     */
+    private boolean g1LineDrawing;
+    /**
+     * True if the G1 character set is selected (SO)
+     */
+    private boolean shiftOut;
+    /**
+     * Saved cursor (DECSC): line, column, attributes and character set
+     */
+    private int savedLine;
+    private int savedColumn;
+    private int savedAttributes;
+    private boolean savedG0LineDrawing;
+    /**
+     * Saved cursor of the normal buffer while the alternate one is shown
+     */
+    private int[] alternateSavedCursor;
+    /**
+     * Modes
+     */
+    private boolean autowrap;
+    private boolean cursorVisible;
+    private boolean cursorBlink;
+    private int cursorStyle;
+    private boolean applicationKeypad;
+    private boolean applicationCursorKeys;
+    /**
+     * Window title
+     */
+    private String title = "";
+    /**
+     * Number of BEL characters received
+     */
+    private long bells;
+    /**
+     * Number of bytes interpreted
+     */
+    private long bytesProcessed;
+    /**
+     * Number of writes received through the output stream
+     */
+    private long writes;
+
+    /**
+     * Instantiates an 80x24 virtual terminal.
+     */
+    public VirtualTerminal() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * Instantiates a virtual terminal.
+     *
+     * @param size the size of the terminal
+     * @throws IllegalArgumentException if the size is null
+     */
+    public VirtualTerminal(TerminalSize size) throws IllegalArgumentException {
+        super(size);
+        parser = new VTParser(new Interpreter());
+        reset();
+    }
+
+    // Getters and setters
+    /**
+     * Changes the size of the terminal. The contents of the grids are kept
+     * from the top left corner, the cursor is clamped and the scrolling
+     * region is reset.
+     *
+     * @param size the new size
+     * @throws IllegalArgumentException if the size is null
+     */
+    @Override
+    public void setTerminalSize(TerminalSize size) throws IllegalArgumentException {
+        if (size == null) {
+            throw new IllegalArgumentException("The terminal size cannot be null");
+        }
+        synchronized (this) {
+            resizeGrids(Math.max(1, size.getColumns()), Math.max(1, size.getLines()));
+        }
+        super.setTerminalSize(size);
+    }
+
+    /**
+     * Returns the stream where the application writes to the terminal.
+     * Every write is interpreted immediately and counted as a frame.
+     *
+     * @return the output stream of the terminal
+     */
+    public OutputStream getOutputStream() {
+        return output;
+    }
+
+    /**
+     * Returns the stream where the application reads from the terminal: the
+     * keys typed with {@link #type(String)} and the answers to the queries.
+     *
+     * @return the input stream of the terminal
+     */
+    public InputStream getInputStream() {
+        return input;
+    }
+
+    /**
+     * Returns the position of the cursor.
+     *
+     * @return the position, from (1, 1)
+     */
+    public synchronized Position getCursorPosition() {
+        return new Position(column + 1, line + 1);
+    }
+
+    /**
+     * Returns the character of a cell.
+     *
+     * @param line   the line, from 1
+     * @param column the column, from 1
+     * @return the character
+     * @throws IllegalArgumentException if the cell is out of the screen
+     */
+    public synchronized char getChar(int line, int column) throws IllegalArgumentException {
+        return grid.chars[cellIndex(line, column)];
+    }
+
+    /**
+     * Returns the attributes of a cell.
+     *
+     * @param line   the line, from 1
+     * @param column the column, from 1
+     * @return the packed attributes (see {@link CellAttributes})
+     * @throws IllegalArgumentException if the cell is out of the screen
+     */
+    public synchronized int getAttributes(int line, int column) throws IllegalArgumentException {
+        return grid.attributes[cellIndex(line, column)];
+    }
+
+    /**
+     * Returns the text of a line, with its trailing spaces.
+     *
+     * @param line the line, from 1
+     * @return the text
+     * @throws IllegalArgumentException if the line is out of the screen
+     */
+    public synchronized String getLineText(int line) throws IllegalArgumentException {
+        return new String(grid.chars, cellIndex(line, 1), columns);
+    }
+
+    /**
+     * Returns the text of the screen: the lines without their trailing
+     * spaces, separated by '\n', without the trailing blank lines.
+     *
+     * @return the text of the screen
+     */
+    public synchronized String getScreenText() {
+        StringBuilder sb = new StringBuilder(lines * (columns + 1));
+        for (int l = 0; l < lines; l++) {
+            int start = l * columns;
+            int end = start + columns;
+            while (end > start && grid.chars[end - 1] == ' ') {
+                end--;
+            }
+            if (l > 0) {
+                sb.append('\n');
+            }
+            sb.append(grid.chars, start, end - start);
+        }
+        int length = sb.length();
+        while (length > 0 && sb.charAt(length - 1) == '\n') {
+            length--;
+        }
+        sb.setLength(length);
+        return sb.toString();
+    }
+
+    /**
+     * Indicates whether the alternate screen buffer is shown.
+     *
+     * @return true if the alternate buffer is shown
+     */
+    public synchronized boolean isAlternateBuffer() {
+        return grid == alternateGrid;
+    }
+
+    /**
+     * Indicates whether the cursor is visible.
+     *
+     * @return true if the cursor is visible
+     */
+    public synchronized boolean isCursorVisible() {
+        return cursorVisible;
+    }
+
+    /**
+     * Indicates whether the cursor blinks.
+     *
+     * @return true if the cursor blinks
+     */
+    public synchronized boolean isCursorBlink() {
+        return cursorBlink;
+    }
+
+    /**
+     * Returns the style of the cursor set with ESC [ n SP q.
+     *
+     * @return the style, from 0 (the default) to 6
+     */
+    public synchronized int getCursorStyle() {
+        return cursorStyle;
+    }
+
+    /**
+     * Indicates whether the keypad is in application mode (ESC =).
+     *
+     * @return true if the keypad is in application mode
+     */
+    public synchronized boolean isApplicationKeypad() {
+        return applicationKeypad;
+    }
+
+    /**
+     * Indicates whether the cursor keys are in application mode (ESC [?1h).
+     *
+     * @return true if the cursor keys are in application mode
+     */
+    public synchronized boolean isApplicationCursorKeys() {
+        return applicationCursorKeys;
+    }
+
+    /**
+     * Indicates whether the text wraps at the end of the line (ESC [?7h).
+     *
+     * @return true if the autowrap mode is set
+     */
+    public synchronized boolean isAutowrap() {
+        return autowrap;
+    }
+
+    /**
+     * Returns the scrolling region set with ESC [ top ; bottom r.
+     *
+     * @return an array with the first and the last lines of the region, from 1
+     */
+    public synchronized int[] getScrollRegion() {
+        return new int[]{top + 1, bottom + 1};
+    }
+
+    /**
+     * Returns the window title set with ESC ] 0 ; title ST or ESC ] 2 ; title ST.
+     *
+     * @return the title, empty if none has been set
+     */
+    public synchronized String getTitle() {
+        return title;
+    }
+
+    /**
+     * Returns the number of BEL characters received.
+     *
+     * @return the number of bells
+     */
+    public synchronized long getBells() {
+        return bells;
+    }
+
+    /**
+     * Returns the number of bytes interpreted.
+     *
+     * @return the number of bytes
+     */
+    public synchronized long getBytesProcessed() {
+        return bytesProcessed;
+    }
+
+    /**
+     * Returns the number of writes received through the output stream. As a
+     * {@link FrameWriter} writes each flush at once, it is the number of
+     * frames sent by the application.
+     *
+     * @return the number of writes
+     */
+    public synchronized long getWrites() {
+        return writes;
+    }
+
+    // Methods
+    /**
+     * Creates an ANSITerm bound to this terminal, writing in UTF-8.
+     *
+     * @return the ANSITerm
+     * @throws ANSITermException if the ANSITerm cannot be created
+     */
+    public ANSITerm createANSITerm() throws ANSITermException {
+        return new ANSITerm(input, new FrameWriter(output, StandardCharsets.UTF_8), this);
+    }
+
+    /**
+     * Interprets output encoded in UTF-8.
+     *
+     * @param bytes the array with the output
+     * @param off   the index of the first byte
+     * @param len   the number of bytes
+     * @throws IndexOutOfBoundsException if the range is out of the array
+     */
+    public synchronized void process(byte[] bytes, int off, int len) throws IndexOutOfBoundsException {
+        Objects.checkFromIndexSize(off, len, bytes.length);
+        parser.parse(bytes, off, len);
+        bytesProcessed += len;
+    }
+
+    /**
+     * Interprets output encoded in UTF-8, from the position to the limit of a
+     * buffer, such as a file mapped with
+     * {@link java.nio.channels.FileChannel#map}. The position of the buffer is
+     * moved to its limit.
+     *
+     * @param buffer the buffer with the output
+     */
+    public synchronized void process(ByteBuffer buffer) {
+        int len = buffer.remaining();
+        parser.parse(buffer);
+        bytesProcessed += len;
+    }
+
+    /**
+     * Interprets output given as characters.
+     *
+     * @param text the output
+     */
+    public synchronized void process(CharSequence text) {
+        parser.parse(text);
+        bytesProcessed += text.length();
+    }
+
+    /**
+     * Sends keys to the input of the terminal, encoded in UTF-8.
+     *
+     * @param keys the keys, e.g. "q" or "\033[A" for the up arrow
+     */
+    public void type(String keys) {
+        input.add(keys.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends bytes to the input of the terminal.
+     *
+     * @param bytes the bytes
+     */
+    public void sendInput(byte[] bytes) {
+        input.add(bytes.clone());
+    }
+
+    /**
+     * Closes the input of the terminal: once the pending bytes have been
+     * read, the reads return end of file.
+     */
+    public void closeInput() {
+        input.close();
+    }
+
+    /**
+     * Returns the terminal to its initial state (RIS, ESC c): blank screen,
+     * default attributes and modes, cursor at the top left corner. The
+     * counters, the title and the pending input are kept.
+     */
+    public synchronized void reset() {
+        TerminalSize size = getTerminalSize();
+        lines = Math.max(1, size.getLines());
+        columns = Math.max(1, size.getColumns());
+        mainGrid = new Grid(lines * columns);
+        alternateGrid = new Grid(lines * columns);
+        grid = mainGrid;
+        tabStops = new boolean[columns];
+        for (int c = TAB_WIDTH; c < columns; c += TAB_WIDTH) {
+            tabStops[c] = true;
+        }
+        line = 0;
+        column = 0;
+        pendingWrap = false;
+        top = 0;
+        bottom = lines - 1;
+        attributes = CellAttributes.NONE;
+        g0LineDrawing = false;
+        g1LineDrawing = false;
+        shiftOut = false;
+        savedLine = 0;
+        savedColumn = 0;
+        savedAttributes = CellAttributes.NONE;
+        savedG0LineDrawing = false;
+        alternateSavedCursor = null;
+        autowrap = true;
+        cursorVisible = true;
+        cursorBlink = false;
+        cursorStyle = 0;
+        applicationKeypad = false;
+        applicationCursorKeys = false;
+    }
+
+    /**
+     * Returns the index in the grid of a cell.
+     *
+     * @param line   the line, from 1
+     * @param column the column, from 1
+     * @return the index
+     * @throws IllegalArgumentException if the cell is out of the screen
+     */
+    private int cellIndex(int line, int column) throws IllegalArgumentException {
+        if (line < 1 || line > lines || column < 1 || column > columns) {
+            throw new IllegalArgumentException("The cell (" + line + ", " + column + ") is out of the screen");
+        }
+        return (line - 1) * columns + column - 1;
+    }
+
+    /**
+     * Resizes the grids, keeping their contents from the top left corner.
+     *
+     * @param newColumns the new number of columns
+     * @param newLines   the new number of lines
+     */
+    private void resizeGrids(int newColumns, int newLines) {
+        if (newColumns == columns && newLines == lines) {
+            return;
+        }
+        boolean alternate = grid == alternateGrid;
+        mainGrid = copyGrid(mainGrid, newColumns, newLines);
+        alternateGrid = copyGrid(alternateGrid, newColumns, newLines);
+        grid = alternate ? alternateGrid : mainGrid;
+        boolean[] stops = new boolean[newColumns];
+        System.arraycopy(tabStops, 0, stops, 0, Math.min(columns, newColumns));
+        for (int c = (columns + TAB_WIDTH - 1) / TAB_WIDTH * TAB_WIDTH; c < newColumns; c += TAB_WIDTH) {
+            stops[c] = true;
+        }
+        tabStops = stops;
+        columns = newColumns;
+        lines = newLines;
+        line = Math.min(line, lines - 1);
+        column = Math.min(column, columns - 1);
+        pendingWrap = false;
+        top = 0;
+        bottom = lines - 1;
+    }
+
+    /**
+     * Copies a grid into a grid of another size.
+     *
+     * @param old        the grid
+     * @param newColumns the number of columns of the copy
+     * @param newLines   the number of lines of the copy
+     * @return the copy
+     */
+    private Grid copyGrid(Grid old, int newColumns, int newLines) {
+        Grid copy = new Grid(newColumns * newLines);
+        int width = Math.min(columns, newColumns);
+        for (int l = 0; l < Math.min(lines, newLines); l++) {
+            System.arraycopy(old.chars, l * columns, copy.chars, l * newColumns, width);
+            System.arraycopy(old.attributes, l * columns, copy.attributes, l * newColumns, width);
+        }
+        return copy;
+    }
+
+    /**
+     * Returns the attributes of the erased cells: the background color of
+     * the current attributes, without styles.
+     *
+     * @return the packed attributes
+     */
+    private int blankAttributes() {
+        return CellAttributes.of(CellAttributes.NONE, -1, CellAttributes.getBackground(attributes));
+    }
+
+    /**
+     * Blanks a range of cells of the shown grid.
+     *
+     * @param from the index of the first cell
+     * @param to   the index after the last cell
+     */
+    private void blank(int from, int to) {
+        if (from < to) {
+            Arrays.fill(grid.chars, from, to, ' ');
+            Arrays.fill(grid.attributes, from, to, blankAttributes());
+        }
+    }
+
+    /**
+     * Writes characters at the cursor, wrapping at the end of the lines.
+     *
+     * @param chars the array with the characters
+     * @param off   the index of the first character
+     * @param len   the number of characters
+     */
+    private void print(char[] chars, int off, int len) {
+        boolean lineDrawing = shiftOut ? g1LineDrawing : g0LineDrawing;
+        while (len > 0) {
+            if (pendingWrap) {
+                pendingWrap = false;
+                column = 0;
+                lineFeed();
+            }
+            int n = Math.min(len, columns - column);
+            int at = line * columns + column;
+            if (lineDrawing) {
+                for (int i = 0; i < n; i++) {
+                    grid.chars[at + i] = lineDrawing(chars[off + i]);
+                }
+            } else {
+                System.arraycopy(chars, off, grid.chars, at, n);
+            }
+            Arrays.fill(grid.attributes, at, at + n, attributes);
+            off += n;
+            len -= n;
+            column += n;
+            if (column == columns) {
+                column = columns - 1;
+                if (autowrap) {
+                    pendingWrap = true;
+                } else if (len > 0) {
+                    // Without autowrap the last character stays in the last column
+                    char last = chars[off + len - 1];
+                    grid.chars[at + n - 1] = lineDrawing ? lineDrawing(last) : last;
+                    len = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Translates a character to the DEC line drawing set.
+     *
+     * @param c the character
+     * @return the line drawing character, or c if it has none
+     */
+    private static char lineDrawing(char c) {
+        return c >= 0x5F && c <= 0x7E ? LINE_DRAWING.charAt(c - 0x5F) : c;
+    }
+
+    /**
+     * Executes a control character.
+     *
+     * @param c the control character
+     */
+    private void execute(char c) {
+        switch (c) {
+            case 0x07 -> bells++;
+            case 0x08 -> {
+                pendingWrap = false;
+                column = Math.max(0, column - 1);
+            }
+            case 0x09 -> tabForward(1);
+            case 0x0A, 0x0B, 0x0C -> lineFeed();
+            case 0x0D -> {
+                pendingWrap = false;
+                column = 0;
+            }
+            case 0x0E -> shiftOut = true;
+            case 0x0F -> shiftOut = false;
+            default -> {
+                // Other control characters are ignored
+            }
+        }
+    }
+
+    /**
+     * Moves the cursor down a line, scrolling the region when the cursor is
+     * on its last line.
+     */
+    private void lineFeed() {
+        pendingWrap = false;
+        if (line == bottom) {
+            scrollUp(1);
+        } else if (line < lines - 1) {
+            line++;
+        }
+    }
+
+    /**
+     * Moves the cursor up a line, scrolling the region down when the cursor
+     * is on its first line.
+     */
+    private void reverseLineFeed() {
+        pendingWrap = false;
+        if (line == top) {
+            scrollDown(1);
+        } else if (line > 0) {
+            line--;
+        }
+    }
+
+    /**
+     * Scrolls up the lines of the scrolling region, or of part of it.
+     *
+     * @param from the first line scrolled
+     * @param n    the number of lines
+     */
+    private void scrollUp(int from, int n) {
+        n = Math.min(n, bottom - from + 1);
+        int moved = (bottom - from + 1 - n) * columns;
+        System.arraycopy(grid.chars, (from + n) * columns, grid.chars, from * columns, moved);
+        System.arraycopy(grid.attributes, (from + n) * columns, grid.attributes, from * columns, moved);
+        blank((bottom + 1 - n) * columns, (bottom + 1) * columns);
+    }
+
+    /**
+     * Scrolls down the lines of the scrolling region, or of part of it.
+     *
+     * @param from the first line scrolled
+     * @param n    the number of lines
+     */
+    private void scrollDown(int from, int n) {
+        n = Math.min(n, bottom - from + 1);
+        int moved = (bottom - from + 1 - n) * columns;
+        System.arraycopy(grid.chars, from * columns, grid.chars, (from + n) * columns, moved);
+        System.arraycopy(grid.attributes, from * columns, grid.attributes, (from + n) * columns, moved);
+        blank(from * columns, (from + n) * columns);
+    }
+
+    /**
+     * Scrolls up the scrolling region.
+     *
+     * @param n the number of lines
+     */
+    private void scrollUp(int n) {
+        scrollUp(top, n);
+    }
+
+    /**
+     * Scrolls down the scrolling region.
+     *
+     * @param n the number of lines
+     */
+    private void scrollDown(int n) {
+        scrollDown(top, n);
+    }
+
+    /**
+     * Moves the cursor to the next tab stops.
+     *
+     * @param n the number of tab stops
+     */
+    private void tabForward(int n) {
+        pendingWrap = false;
+        for (; n > 0 && column < columns - 1; n--) {
+            do {
+                column++;
+            } while (column < columns - 1 && !tabStops[column]);
+        }
+    }
+
+    /**
+     * Moves the cursor to the previous tab stops.
+     *
+     * @param n the number of tab stops
+     */
+    private void tabBackward(int n) {
+        pendingWrap = false;
+        for (; n > 0 && column > 0; n--) {
+            do {
+                column--;
+            } while (column > 0 && !tabStops[column]);
+        }
+    }
+
+    /**
+     * Moves the cursor, clamping the position to the screen.
+     *
+     * @param newLine   the line, from 0
+     * @param newColumn the column, from 0
+     */
+    private void moveTo(int newLine, int newColumn) {
+        pendingWrap = false;
+        line = Math.clamp(newLine, 0, lines - 1);
+        column = Math.clamp(newColumn, 0, columns - 1);
+    }
+
+    /**
+     * Saves the cursor, the attributes and the character set (DECSC).
+     */
+    private void saveCursor() {
+        savedLine = line;
+        savedColumn = column;
+        savedAttributes = attributes;
+        savedG0LineDrawing = g0LineDrawing;
+    }
+
+    /**
+     * Restores the cursor, the attributes and the character set (DECRC).
+     */
+    private void restoreCursor() {
+        moveTo(savedLine, savedColumn);
+        attributes = savedAttributes;
+        g0LineDrawing = savedG0LineDrawing;
+    }
+
+    /**
+     * Shows the alternate or the normal screen buffer.
+     *
+     * @param alternate true for the alternate buffer
+     * @param clear     true to clear the alternate buffer when it is shown
+     */
+    private void useAlternateGrid(boolean alternate, boolean clear) {
+        if (alternate && grid != alternateGrid) {
+            grid = alternateGrid;
+            if (clear) {
+                blank(0, lines * columns);
+            }
+        } else if (!alternate && grid == alternateGrid) {
+            grid = mainGrid;
+        }
+    }
+
+    /**
+     * Executes an escape sequence.
+     *
+     * @param intermediate the intermediate character, or 0
+     * @param command      the final character
+     */
+    private void escDispatch(char intermediate, char command) {
+        if (intermediate == '(' || intermediate == ')') {
+            boolean lineDrawing = command == '0';
+            if (intermediate == '(') {
+                g0LineDrawing = lineDrawing;
+            } else {
+                g1LineDrawing = lineDrawing;
+            }
+            return;
+        }
+        if (intermediate == '#') {
+            if (command == '8') {
+                // DECALN: fills the screen with 'E'
+                Arrays.fill(grid.chars, 0, lines * columns, 'E');
+                Arrays.fill(grid.attributes, 0, lines * columns, CellAttributes.NONE);
+                top = 0;
+                bottom = lines - 1;
+                moveTo(0, 0);
+            }
+            return;
+        }
+        if (intermediate != 0) {
+            return;
+        }
+        switch (command) {
+            case '7' -> saveCursor();
+            case '8' -> restoreCursor();
+            case 'D' -> lineFeed();
+            case 'E' -> {
+                lineFeed();
+                column = 0;
+            }
+            case 'M' -> reverseLineFeed();
+            case 'H' -> tabStops[column] = true;
+            case 'c' -> reset();
+            case '=' -> applicationKeypad = true;
+            case '>' -> applicationKeypad = false;
+            default -> {
+                // Other escape sequences are ignored
+            }
+        }
+    }
+
+    /**
+     * Executes a control sequence.
+     *
+     * @param prefix       the private prefix, or 0
+     * @param params       the parameters
+     * @param count        the number of parameters
+     * @param intermediate the intermediate character, or 0
+     * @param command      the final character
+     */
+    private void csiDispatch(char prefix, int[] params, int count, char intermediate, char command) {
+        if (prefix == '?') {
+            if (command == 'h' || command == 'l') {
+                for (int i = 0; i < Math.max(count, 1); i++) {
+                    privateMode(count == 0 ? 0 : params[i], command == 'h');
+                }
+            }
+            return;
+        }
+        if (intermediate == ' ') {
+            if (command == 'q') {
+                cursorStyle = Math.min(param(params, count, 0, 0), 6);
+            }
+            return;
+        }
+        if (prefix != 0 || intermediate != 0) {
+            return;
+        }
+        int n = param(params, count, 0, 1);
+        switch (command) {
+            case 'A' -> moveTo(Math.max(line - n, line >= top ? top : 0), column);
+            case 'B', 'e' -> moveTo(Math.min(line + n, line <= bottom ? bottom : lines - 1), column);
+            case 'C', 'a' -> moveTo(line, column + n);
+            case 'D' -> moveTo(line, column - n);
+            case 'E' -> moveTo(Math.min(line + n, line <= bottom ? bottom : lines - 1), 0);
+            case 'F' -> moveTo(Math.max(line - n, line >= top ? top : 0), 0);
+            case 'G', '`' -> moveTo(line, n - 1);
+            case 'd' -> moveTo(n - 1, column);
+            case 'H', 'f' -> moveTo(n - 1, param(params, count, 1, 1) - 1);
+            case 'I' -> tabForward(n);
+            case 'Z' -> tabBackward(n);
+            case 'J' -> eraseInDisplay(param(params, count, 0, 0));
+            case 'K' -> eraseInLine(param(params, count, 0, 0));
+            case 'X' -> {
+                int at = line * columns + column;
+                blank(at, at + Math.min(n, columns - column));
+                pendingWrap = false;
+            }
+            case '@' -> insertCharacters(n);
+            case 'P' -> deleteCharacters(n);
+            case 'L' -> {
+                if (line >= top && line <= bottom) {
+                    scrollDown(line, n);
+                    moveTo(line, 0);
+                }
+            }
+            case 'M' -> {
+                if (line >= top && line <= bottom) {
+                    scrollUp(line, n);
+                    moveTo(line, 0);
+                }
+            }
+            case 'S' -> scrollUp(n);
+            case 'T' -> scrollDown(n);
+            case 'g' -> {
+                int mode = param(params, count, 0, 0);
+                if (mode == 0) {
+                    tabStops[column] = false;
+                } else if (mode == 3) {
+                    Arrays.fill(tabStops, false);
+                }
+            }
+            case 'm' -> selectGraphicRendition(params, count);
+            case 'r' -> {
+                int newTop = param(params, count, 0, 1) - 1;
+                int newBottom = Math.min(param(params, count, 1, lines), lines) - 1;
+                if (newTop < newBottom) {
+                    top = newTop;
+                    bottom = newBottom;
+                    moveTo(0, 0);
+                }
+            }
+            case 's' -> saveCursor();
+            case 'u' -> restoreCursor();
+            case 'n' -> deviceStatusReport(param(params, count, 0, 0));
+            default -> {
+                // Other control sequences are ignored
+            }
+        }
+    }
+
+    /**
+     * Returns a parameter of a control sequence.
+     *
+     * @param params       the parameters
+     * @param count        the number of parameters
+     * @param index        the index of the parameter
+     * @param defaultValue the value of an omitted or zero parameter
+     * @return the value of the parameter
+     */
+    private static int param(int[] params, int count, int index, int defaultValue) {
+        return index < count && params[index] != 0 ? params[index] : defaultValue;
+    }
+
+    /**
+     * Sets or resets a private mode (ESC [ ? n h / l).
+     *
+     * @param mode the mode
+     * @param set  true to set the mode
+     */
+    private void privateMode(int mode, boolean set) {
+        switch (mode) {
+            case 1 -> applicationCursorKeys = set;
+            case 3 -> {
+                // DECCOLM: 132 or 80 columns, clearing the screen
+                setTerminalSize(new TerminalSize(set ? 132 : 80, lines));
+                top = 0;
+                bottom = lines - 1;
+                blank(0, lines * columns);
+                moveTo(0, 0);
+            }
+            case 7 -> autowrap = set;
+            case 12 -> cursorBlink = set;
+            case 25 -> cursorVisible = set;
+            case 47, 1047 -> useAlternateGrid(set, mode == 1047);
+            case 1048 -> {
+                if (set) {
+                    saveCursor();
+                } else {
+                    restoreCursor();
+                }
+            }
+            case 1049 -> {
+                if (set && grid != alternateGrid) {
+                    saveCursor();
+                    alternateSavedCursor = new int[]{savedLine, savedColumn, savedAttributes};
+                    useAlternateGrid(true, true);
+                } else if (!set && grid == alternateGrid) {
+                    useAlternateGrid(false, false);
+                    if (alternateSavedCursor != null) {
+                        savedLine = alternateSavedCursor[0];
+                        savedColumn = alternateSavedCursor[1];
+                        savedAttributes = alternateSavedCursor[2];
+                        alternateSavedCursor = null;
+                    }
+                    restoreCursor();
+                }
+            }
+            default -> {
+                // Other modes are ignored
+            }
+        }
+    }
+
+    /**
+     * Erases part of the screen (ED).
+     *
+     * @param mode 0 from the cursor to the end, 1 from the beginning to the
+     *             cursor, 2 or 3 the whole screen
+     */
+    private void eraseInDisplay(int mode) {
+        int at = line * columns + column;
+        switch (mode) {
+            case 0 -> blank(at, lines * columns);
+            case 1 -> blank(0, at + 1);
+            case 2, 3 -> blank(0, lines * columns);
+            default -> {
+                return;
+            }
+        }
+        pendingWrap = false;
+    }
+
+    /**
+     * Erases part of the line of the cursor (EL).
+     *
+     * @param mode 0 from the cursor to the end, 1 from the beginning to the
+     *             cursor, 2 the whole line
+     */
+    private void eraseInLine(int mode) {
+        int start = line * columns;
+        switch (mode) {
+            case 0 -> blank(start + column, start + columns);
+            case 1 -> blank(start, start + column + 1);
+            case 2 -> blank(start, start + columns);
+            default -> {
+                return;
+            }
+        }
+        pendingWrap = false;
+    }
+
+    /**
+     * Inserts blank characters at the cursor, shifting the rest of the line
+     * to the right (ICH).
+     *
+     * @param n the number of characters
+     */
+    private void insertCharacters(int n) {
+        int at = line * columns + column;
+        n = Math.min(n, columns - column);
+        int moved = columns - column - n;
+        System.arraycopy(grid.chars, at, grid.chars, at + n, moved);
+        System.arraycopy(grid.attributes, at, grid.attributes, at + n, moved);
+        blank(at, at + n);
+        pendingWrap = false;
+    }
+
+    /**
+     * Deletes characters at the cursor, shifting the rest of the line to the
+     * left (DCH).
+     *
+     * @param n the number of characters
+     */
+    private void deleteCharacters(int n) {
+        int at = line * columns + column;
+        int end = line * columns + columns;
+        n = Math.min(n, columns - column);
+        int moved = columns - column - n;
+        System.arraycopy(grid.chars, at + n, grid.chars, at, moved);
+        System.arraycopy(grid.attributes, at + n, grid.attributes, at, moved);
+        blank(end - n, end);
+        pendingWrap = false;
+    }
+
+    /**
+     * Changes the attributes of the characters written (SGR).
+     *
+     * @param params the parameters
+     * @param count  the number of parameters
+     */
+    private void selectGraphicRendition(int[] params, int count) {
+        if (count == 0) {
+            attributes = CellAttributes.NONE;
+            return;
+        }
+        int styles = CellAttributes.getStyles(attributes);
+        int foreground = CellAttributes.getForeground(attributes);
+        int background = CellAttributes.getBackground(attributes);
+        for (int i = 0; i < count; i++) {
+            int p = params[i];
+            switch (p) {
+                case 0 -> {
+                    styles = CellAttributes.NONE;
+                    foreground = -1;
+                    background = -1;
+                }
+                case 1 -> styles |= CellAttributes.BOLD;
+                case 2 -> styles |= CellAttributes.DIM;
+                case 3 -> styles |= CellAttributes.ITALIC;
+                case 4 -> styles |= CellAttributes.UNDERLINE;
+                case 5, 6 -> styles |= CellAttributes.BLINK;
+                case 7 -> styles |= CellAttributes.INVERSE;
+                case 8 -> styles |= CellAttributes.HIDDEN;
+                case 9 -> styles |= CellAttributes.STRIKETHROUGH;
+                case 22 -> styles &= ~(CellAttributes.BOLD | CellAttributes.DIM);
+                case 23 -> styles &= ~CellAttributes.ITALIC;
+                case 24 -> styles &= ~CellAttributes.UNDERLINE;
+                case 25 -> styles &= ~CellAttributes.BLINK;
+                case 27 -> styles &= ~CellAttributes.INVERSE;
+                case 28 -> styles &= ~CellAttributes.HIDDEN;
+                case 29 -> styles &= ~CellAttributes.STRIKETHROUGH;
+                case 39 -> foreground = -1;
+                case 49 -> background = -1;
+                case 38, 48 -> {
+                    int color = -1;
+                    if (i + 2 < count && params[i + 1] == 5) {
+                        color = Math.min(params[i + 2], 255);
+                        i += 2;
+                    } else if (i + 4 < count && params[i + 1] == 2) {
+                        color = rgbToPalette(params[i + 2], params[i + 3], params[i + 4]);
+                        i += 4;
+                    } else {
+                        i = count;
+                    }
+                    if (color >= 0) {
+                        if (p == 38) {
+                            foreground = color;
+                        } else {
+                            background = color;
+                        }
+                    }
+                }
+                default -> {
+                    if (p >= 30 && p <= 37) {
+                        foreground = p - 30;
+                    } else if (p >= 90 && p <= 97) {
+                        foreground = p - 90 + 8;
+                    } else if (p >= 40 && p <= 47) {
+                        background = p - 40;
+                    } else if (p >= 100 && p <= 107) {
+                        background = p - 100 + 8;
+                    }
+                }
+            }
+        }
+        attributes = CellAttributes.of(styles, foreground, background);
+    }
+
+    /**
+     * Approximates a true color to the 6x6x6 color cube of the 256-color
+     * palette.
+     *
+     * @param red   the red component (0 to 255)
+     * @param green the green component (0 to 255)
+     * @param blue  the blue component (0 to 255)
+     * @return the palette index (16 to 231)
+     */
+    private static int rgbToPalette(int red, int green, int blue) {
+        return 16 + 36 * cubeLevel(red) + 6 * cubeLevel(green) + cubeLevel(blue);
+    }
+
+    /**
+     * Returns the nearest level of the color cube to a color component.
+     *
+     * @param component the component (0 to 255)
+     * @return the level (0 to 5)
+     */
+    private static int cubeLevel(int component) {
+        int c = Math.min(component, 255);
+        return c < 48 ? 0 : c < 115 ? 1 : (c - 35) / 40;
+    }
+
+    /**
+     * Answers a device status report query (DSR) through the input.
+     *
+     * @param query 5 for the status, 6 for the cursor position
+     */
+    private void deviceStatusReport(int query) {
+        if (query == 5) {
+            input.add("\033[0n".getBytes(StandardCharsets.US_ASCII));
+        } else if (query == 6) {
+            input.add(("\033[" + (line + 1) + ";" + (column + 1) + "R").getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    /**
+     * Executes an operating system command. Only the change of the window
+     * title (0 and 2) is supported.
+     *
+     * @param data the text of the command
+     */
+    private void oscDispatch(CharSequence data) {
+        int separator = 0;
+        while (separator < data.length() && Character.isDigit(data.charAt(separator))) {
+            separator++;
+        }
+        if (separator == 0 || separator == data.length() || data.charAt(separator) != ';') {
+            return;
+        }
+        String command = data.subSequence(0, separator).toString();
+        if (command.equals("0") || command.equals("2")) {
+            title = data.subSequence(separator + 1, data.length()).toString();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "VirtualTerminal{" +
+                "size=" + columns + "x" + lines +
+                ", cursor=" + getCursorPosition() +
+                ", alternateBuffer=" + isAlternateBuffer() +
+                ", bytesProcessed=" + bytesProcessed +
+                ", writes=" + writes +
+                '}';
+    }
+
+    /**
+     * Passes the results of the parser to the terminal, which is locked by
+     * the process methods.
+     */
+    private final class Interpreter implements VTParser.Handler {
+        @Override
+        public void print(char[] chars, int off, int len) {
+            VirtualTerminal.this.print(chars, off, len);
+        }
+
+        @Override
+        public void execute(char c) {
+            VirtualTerminal.this.execute(c);
+        }
+
+        @Override
+        public void escDispatch(char intermediate, char command) {
+            VirtualTerminal.this.escDispatch(intermediate, command);
+        }
+
+        @Override
+        public void csiDispatch(char prefix, int[] params, int count, char intermediate, char command) {
+            VirtualTerminal.this.csiDispatch(prefix, params, count, intermediate, command);
+        }
+
+        @Override
+        public void oscDispatch(CharSequence data) {
+            VirtualTerminal.this.oscDispatch(data);
+        }
+    }
+
+    /**
+     * Output stream that interprets what is written and counts the writes.
+     */
+    private final class Output extends OutputStream {
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            synchronized (VirtualTerminal.this) {
+                process(b, off, len);
+                writes++;
+            }
+        }
+    }
+
+    /**
+     * Blocking input stream fed with the typed keys and the answers to the
+     * queries.
+     */
+    private static final class InputQueue extends InputStream {
+        /**
+         * Pending bytes, from head to tail
+         */
+        private byte[] buffer = new byte[256];
+        private int head;
+        private int tail;
+        /**
+         * True once the input has been closed
+         */
+        private boolean closed;
+
+        /**
+         * Adds bytes at the end of the queue.
+         *
+         * @param bytes the bytes
+         */
+        synchronized void add(byte[] bytes) {
+            if (closed) {
+                return;
+            }
+            if (tail + bytes.length > buffer.length) {
+                int pending = tail - head;
+                byte[] target = pending + bytes.length > buffer.length
+                        ? new byte[Math.max(buffer.length * 2, pending + bytes.length)]
+                        : buffer;
+                System.arraycopy(buffer, head, target, 0, pending);
+                buffer = target;
+                head = 0;
+                tail = pending;
+            }
+            System.arraycopy(bytes, 0, buffer, tail, bytes.length);
+            tail += bytes.length;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            if (!await()) {
+                return -1;
+            }
+            return buffer[head++] & 0xFF;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) {
+                return 0;
+            }
+            if (!await()) {
+                return -1;
+            }
+            int n = Math.min(len, tail - head);
+            System.arraycopy(buffer, head, b, off, n);
+            head += n;
+            return n;
+        }
+
+        @Override
+        public synchronized int available() {
+            return tail - head;
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+
+        /**
+         * Waits until there are pending bytes or the input is closed.
+         *
+         * @return true if there are pending bytes
+         * @throws InterruptedIOException if the thread is interrupted
+         */
+        private boolean await() throws InterruptedIOException {
+            while (head == tail && !closed) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException(e.getMessage());
+                }
+            }
+            return head < tail;
+        }
+    }
+}
@@ -0,0 +1,487 @@
+package es.nom.juanfranciscoruiz.ansiterm.input;
+
+import es.nom.juanfranciscoruiz.ansiterm.Position;
+
+/**
+ * Incremental decoder that converts the raw bytes received from a terminal in
+ * 'raw' mode into {@link KeyEvent key events} and cursor position reports.
+ * <p>
+ * Bytes can be fed in chunks of any size: a sequence split between two calls
+ * to {@link #decode(byte[], int, int)} is completed with the next call. It
+ * recognizes:
+ * <ul>
+ * <li>UTF-8 encoded characters</li>
+ * <li>Enter, Tab, Backspace, Escape and Ctrl+letter combinations</li>
+ * <li>Alt combinations (ESC followed by a key)</li>
+ * <li>Arrows, Home, End, Insert, Delete, Page Up/Down and F1 to F12, in their
+ * CSI (ESC [) and SS3 (ESC O) forms, with the xterm modifier parameter</li>
+ * <li>Cursor position reports (ESC [ row ; column R), which are not keys and
+ * are passed to {@link Handler#cursorPositionReported(Position)}</li>
+ * </ul>
+ * A cursor position report has the same form as F3 with modifiers (xterm
+ * sends ESC [ 1 ; 5 R for Ctrl+F3), so the sequence is taken as a report only
+ * while {@link Handler#cursorPositionExpected()} is true, and as a key
+ * otherwise.
+ * A lone ESC cannot be told apart from the beginning of a sequence until more
+ * bytes arrive, so the reader must call {@link #flushPending()} when no more
+ * input arrives in a short time.
+ * <p>
+ * This class is not thread-safe: it is meant to be used by a single reader
+ * thread.
+ *
+ * @author Juan F. Ruiz
+ */
+public final class InputDecoder {
+
+    /**
+     * Receives the results of the decoding.
+     */
+    public interface Handler {
+        /**
+         * Called for each decoded key.
+         *
+         * @param event the key
+         */
+        void keyDecoded(KeyEvent event);
+
+        /**
+         * Called for each cursor position report (the answer to
+         * DSR, ESC [ 6 n) found in the input.
+         *
+         * @param position the position of the cursor
+         */
+        void cursorPositionReported(Position position);
+
+        /**
+         * Indicates whether the answer to a cursor position query is being
+         * waited for. While it is not, ESC [ a ; b R is decoded as F3 with
+         * modifiers.
+         *
+         * @return true if a cursor position report is expected
+         */
+        boolean cursorPositionExpected();
+    }
+
+    /**
+     * Maximum number of parameter bytes of a CSI sequence. Longer sequences
+     * are discarded.
+     */
+    private static final int MAX_PARAMS = 32;
+
+    // Decoder states
+    private static final int GROUND = 0;
+    private static final int ESCAPE = 1;
+    private static final int CSI = 2;
+    private static final int SS3 = 3;
+    private static final int UTF8 = 4;
+
+    /**
+     * Keys of the 'ESC [ n ~' sequences, indexed by n.
+     */
+    private static final KeyType[] TILDE_KEYS = new KeyType[25];
+
+    static {
+        TILDE_KEYS[1] = KeyType.HOME;
+        TILDE_KEYS[2] = KeyType.INSERT;
+        TILDE_KEYS[3] = KeyType.DELETE;
+        TILDE_KEYS[4] = KeyType.END;
+        TILDE_KEYS[5] = KeyType.PAGE_UP;
+        TILDE_KEYS[6] = KeyType.PAGE_DOWN;
+        TILDE_KEYS[7] = KeyType.HOME;
+        TILDE_KEYS[8] = KeyType.END;
+        TILDE_KEYS[11] = KeyType.F1;
+        TILDE_KEYS[12] = KeyType.F2;
+        TILDE_KEYS[13] = KeyType.F3;
+        TILDE_KEYS[14] = KeyType.F4;
+        TILDE_KEYS[15] = KeyType.F5;
+        TILDE_KEYS[17] = KeyType.F6;
+        TILDE_KEYS[18] = KeyType.F7;
+        TILDE_KEYS[19] = KeyType.F8;
+        TILDE_KEYS[20] = KeyType.F9;
+        TILDE_KEYS[21] = KeyType.F10;
+        TILDE_KEYS[23] = KeyType.F11;
+        TILDE_KEYS[24] = KeyType.F12;
+    }
+
+    /**
+     * Where the results are sent
+     */
+    private final Handler handler;
+    /**
+     * Current state of the decoder
+     */
+    private int state = GROUND;
+    /**
+     * Numeric parameters of the CSI sequence being decoded
+     */
+    private final int[] params = new int[4];
+    /**
+     * Number of parameters of the CSI sequence being decoded
+     */
+    private int paramCount;
+    /**
+     * Number of parameter bytes of the CSI sequence being decoded
+     */
+    private int paramBytes;
+    /**
+     * True if the CSI sequence being decoded is private (ESC [ ?, &lt;, = or &gt;)
+     */
+    private boolean privateCsi;
+    /**
+     * Code point of the UTF-8 character being decoded
+     */
+    private int utf8CodePoint;
+    /**
+     * Continuation bytes still missing of the UTF-8 character being decoded
+     */
+    private int utf8Missing;
+    /**
+     * True if the key being decoded was preceded by ESC (Alt modifier)
+     */
+    private boolean alt;
+
+    /**
+     * Creates a decoder.
+     *
+     * @param handler where the decoded keys and position reports are sent
+     * @throws IllegalArgumentException if the handler is null
+     */
+    public InputDecoder(Handler handler) throws IllegalArgumentException {
+        if (handler == null) {
+            throw new IllegalArgumentException("The handler cannot be null");
+        }
+        this.handler = handler;
+    }
+
+    /**
+     * Indicates whether the decoder is in the middle of a sequence (for
+     * example after a lone ESC) and is waiting for more bytes.
+     *
+     * @return true if there is an incomplete sequence
+     */
+    public boolean hasPending() {
+        return state != GROUND;
+    }
+
+    /**
+     * Decodes a chunk of bytes.
+     *
+     * @param buf the bytes
+     * @param off the index of the first byte to decode
+     * @param len the number of bytes to decode
+     */
+    public void decode(byte[] buf, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            decode(buf[i] & 0xFF);
+        }
+    }
+
+    /**
+     * Decodes one byte.
+     *
+     * @param b the byte (0 to 255)
+     */
+    public void decode(int b) {
+        switch (state) {
+            case ESCAPE -> escape(b);
+            case CSI -> csi(b);
+            case SS3 -> ss3(b);
+            case UTF8 -> utf8(b);
+            default -> ground(b);
+        }
+    }
+
+    /**
+     * Finishes the incomplete sequence, if any, because no more bytes have
+     * arrived: a lone ESC is reported as the Escape key, and an incomplete
+     * sequence as an unknown key.
+     */
+    public void flushPending() {
+        switch (state) {
+            case ESCAPE -> emit(KeyType.ESCAPE, -1, 0);
+            case SS3 -> emit(KeyType.CHARACTER, 'O', KeyEvent.ALT);
+            case CSI, UTF8 -> emit(KeyType.UNKNOWN, -1, 0);
+            default -> {
+                return;
+            }
+        }
+        reset();
+    }
+
+    /**
+     * Decodes a byte outside any sequence.
+     *
+     * @param b the byte
+     */
+    private void ground(int b) {
+        if (b == 0x1B) {
+            state = ESCAPE;
+        } else if (b >= 0x80) {
+            startUtf8(b);
+        } else {
+            emitAscii(b);
+        }
+    }
+
+    /**
+     * Decodes the byte that follows an ESC.
+     *
+     * @param b the byte
+     */
+    private void escape(int b) {
+        if (b == '[') {
+            state = CSI;
+            paramCount = 0;
+            paramBytes = 0;
+            privateCsi = false;
+            params[0] = 0;
+        } else if (b == 'O') {
+            state = SS3;
+        } else if (b == 0x1B) {
+            // ESC ESC: the first one was the Escape key
+            emit(KeyType.ESCAPE, -1, 0);
+        } else {
+            // Alt + key
+            state = GROUND;
+            alt = true;
+            if (b >= 0x80) {
+                startUtf8(b);
+            } else {
+                emitAscii(b);
+            }
+        }
+    }
+
+    /**
+     * Decodes a byte of a CSI sequence.
+     *
+     * @param b the byte
+     */
+    private void csi(int b) {
+        if (b >= '0' && b <= '9') {
+            if (paramCount == 0) {
+                paramCount = 1;
+            }
+            if (paramCount <= params.length) {
+                params[paramCount - 1] = Math.min(params[paramCount - 1] * 10 + (b - '0'), 100_000);
+            }
+            paramBytesCheck();
+        } else if (b == ';') {
+            if (paramCount == 0) {
+                paramCount = 1;
+            }
+            paramCount++;
+            if (paramCount <= params.length) {
+                params[paramCount - 1] = 0;
+            }
+            paramBytesCheck();
+        } else if (b >= 0x3C && b <= 0x3F) {
+            privateCsi = true;
+            paramBytesCheck();
+        } else if (b >= 0x20 && b <= 0x2F) {
+            // Intermediate bytes are not used by the supported sequences
+            paramBytesCheck();
+        } else if (b >= 0x40 && b <= 0x7E) {
+            state = GROUND;
+            finishCsi(b);
+        } else {
+            // Not a valid CSI sequence
+            emit(KeyType.UNKNOWN, -1, 0);
+            reset();
+            decode(b);
+        }
+    }
+
+    /**
+     * Discards the CSI sequence being decoded if it has too many parameter
+     * bytes.
+     */
+    private void paramBytesCheck() {
+        if (++paramBytes > MAX_PARAMS) {
+            emit(KeyType.UNKNOWN, -1, 0);
+            reset();
+        }
+    }
+
+    /**
+     * Interprets a complete CSI sequence.
+     *
+     * @param finalByte the final byte of the sequence
+     */
+    private void finishCsi(int finalByte) {
+        int p1 = paramCount >= 1 ? params[0] : 0;
+        int mods = paramCount >= 2 ? modifiers(params[1]) : 0;
+        if (privateCsi) {
+            emit(KeyType.UNKNOWN, -1, 0);
+        } else if (finalByte == 'R' && paramCount == 2 && handler.cursorPositionExpected()) {
+            // Cursor position report: ESC [ row ; column R
+            alt = false;
+            handler.cursorPositionReported(new Position(params[1], params[0]));
+        } else if (finalByte == '~') {
+            KeyType key = p1 < TILDE_KEYS.length ? TILDE_KEYS[p1] : null;
+            emit(key == null ? KeyType.UNKNOWN : key, -1, mods);
+        } else if (finalByte == 'Z') {
+            emit(KeyType.TAB, -1, KeyEvent.SHIFT);
+        } else {
+            KeyType key = letterKey(finalByte);
+            emit(key == null ? KeyType.UNKNOWN : key, -1, mods);
+        }
+        reset();
+    }
+
+    /**
+     * Decodes the byte that follows ESC O.
+     *
+     * @param b the byte
+     */
+    private void ss3(int b) {
+        KeyType key = letterKey(b);
+        if (key == null && b == 'M') {
+            key = KeyType.ENTER;
+        }
+        emit(key == null ? KeyType.UNKNOWN : key, -1, 0);
+        reset();
+    }
+
+    /**
+     * Returns the key of the sequences that end with a letter, which are the
+     * same in their CSI and SS3 forms.
+     *
+     * @param b the final letter
+     * @return the key, or null if the letter is not recognized
+     */
+    private static KeyType letterKey(int b) {
+        return switch (b) {
+            case 'A' -> KeyType.ARROW_UP;
+            case 'B' -> KeyType.ARROW_DOWN;
+            case 'C' -> KeyType.ARROW_RIGHT;
+            case 'D' -> KeyType.ARROW_LEFT;
+            case 'H' -> KeyType.HOME;
+            case 'F' -> KeyType.END;
+            case 'P' -> KeyType.F1;
+            case 'Q' -> KeyType.F2;
+            case 'R' -> KeyType.F3;
+            case 'S' -> KeyType.F4;
+            default -> null;
+        };
+    }
+
+    /**
+     * Converts the xterm modifier parameter (1 + Shift + 2*Alt + 4*Ctrl) into
+     * the modifier flags of {@link KeyEvent}.
+     *
+     * @param param the parameter
+     * @return the modifier flags
+     */
+    private static int modifiers(int param) {
+        int m = param - 1;
+        int mods = 0;
+        if ((m & 1) != 0) {
+            mods |= KeyEvent.SHIFT;
+        }
+        if ((m & 2) != 0) {
+            mods |= KeyEvent.ALT;
+        }
+        if ((m & 4) != 0) {
+            mods |= KeyEvent.CTRL;
+        }
+        return m < 0 ? 0 : mods;
+    }
+
+    /**
+     * Starts decoding a multibyte UTF-8 character.
+     *
+     * @param b the lead byte
+     */
+    private void startUtf8(int b) {
+        if (b >= 0xC2 && b <= 0xDF) {
+            utf8CodePoint = b & 0x1F;
+            utf8Missing = 1;
+        } else if (b >= 0xE0 && b <= 0xEF) {
+            utf8CodePoint = b & 0x0F;
+            utf8Missing = 2;
+        } else if (b >= 0xF0 && b <= 0xF4) {
+            utf8CodePoint = b & 0x07;
+            utf8Missing = 3;
+        } else {
+            emit(KeyType.CHARACTER, 0xFFFD, 0);
+            return;
+        }
+        state = UTF8;
+    }
+
+    /**
+     * Decodes a continuation byte of a UTF-8 character.
+     *
+     * @param b the byte
+     */
+    private void utf8(int b) {
+        if ((b & 0xC0) != 0x80) {
+            emit(KeyType.CHARACTER, 0xFFFD, 0);
+            reset();
+            decode(b);
+            return;
+        }
+        utf8CodePoint = (utf8CodePoint << 6) | (b & 0x3F);
+        if (--utf8Missing == 0) {
+            state = GROUND;
+            emit(KeyType.CHARACTER, Character.isValidCodePoint(utf8CodePoint) ? utf8CodePoint : 0xFFFD, 0);
+        }
+    }
+
+    /**
+     * Emits the key of an ASCII byte.
+     *
+     * @param b the byte (0 to 127)
+     */
+    private void emitAscii(int b) {
+        switch (b) {
+            case '\r', '\n' -> emit(KeyType.ENTER, -1, 0);
+            case '\t' -> emit(KeyType.TAB, -1, 0);
+            case 0x7F, 0x08 -> emit(KeyType.BACKSPACE, -1, 0);
+            case 0x00 -> emit(KeyType.CHARACTER, ' ', KeyEvent.CTRL);
+            default -> {
+                if (b < 0x1B) {
+                    emit(KeyType.CHARACTER, 'a' + b - 1, KeyEvent.CTRL);
+                } else if (b < 0x20) {
+                    // Ctrl + \ ] ^ _
+                    emit(KeyType.CHARACTER, b + 0x40, KeyEvent.CTRL);
+                } else {
+                    emit(KeyType.CHARACTER, b, 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends a key to the handler, adding the Alt modifier if the key was
+     * preceded by ESC.
+     *
+     * @param type      the kind of key
+     * @param codePoint the character, or -1
+     * @param modifiers the modifier flags
+     */
+    private void emit(KeyType type, int codePoint, int modifiers) {
+        if (alt) {
+            modifiers |= KeyEvent.ALT;
+            alt = false;
+        }
+        handler.keyDecoded(new KeyEvent(type, codePoint, modifiers));
+    }
+
+    /**
+     * Returns to the initial state.
+     */
+    private void reset() {
+        state = GROUND;
+        paramCount = 0;
+        paramBytes = 0;
+        privateCsi = false;
+        alt = false;
+    }
+
+    @Override
+    public String toString() {
+        return "InputDecoder{state=" + state + '}';
+    }
+}
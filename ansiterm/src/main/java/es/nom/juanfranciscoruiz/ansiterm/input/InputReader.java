@@ -0,0 +1,450 @@
+package es.nom.juanfranciscoruiz.ansiterm.input;
+
+import es.nom.juanfranciscoruiz.ansiterm.Position;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the input of the terminal in a dedicated virtual thread and decodes
+ * it with an {@link InputDecoder}.
+ * <p>
+ * The decoded keys are delivered to the registered {@link KeyListener
+ * listeners} and, if there are none, stored in a queue from which they can be
+ * taken with {@link #pollKey()}, {@link #pollKey(long, TimeUnit)} or
+ * {@link #takeKey()}. The cursor position reports that arrive in the same
+ * stream are kept apart, so a query of the cursor position never steals the
+ * keys typed by the user and the keys never break the answer of a query.
+ * Each report completes, in order, the oldest future returned by
+ * {@link #expectCursorPosition()}. While no report is expected, a sequence
+ * with the form of a report is a key (F3 with modifiers) and is delivered as
+ * such.
+ * <p>
+ * The terminal must be in 'raw' mode for the keys to arrive as they are
+ * pressed. The reader does not change the mode of the terminal.
+ * <p>
+ * A blocking read of the standard input cannot be interrupted in Java: after
+ * {@link #close()} the thread ends when the next byte or the end of the
+ * stream arrives, and the bytes read after closing are discarded.
+ *
+ * @author Juan F. Ruiz
+ */
+public class InputReader implements AutoCloseable {
+    /**
+     * For logging
+     */
+    public static final Logger logger = LoggerFactory.getLogger(InputReader.class);
+
+    /**
+     * Default time, in milliseconds, after which an ESC not followed by more
+     * bytes is taken as the Escape key.
+     */
+    public static final long DEFAULT_ESCAPE_TIMEOUT_MILLIS = 50L;
+
+    /**
+     * Default time, in milliseconds, during which a cursor position query
+     * that has been cancelled or has timed out still waits for its report.
+     */
+    public static final long DEFAULT_LATE_REPORT_MILLIS = 1000L;
+
+    /**
+     * Size of the read buffer.
+     */
+    private static final int BUFFER_SIZE = 1024;
+
+    /**
+     * The stream where the input is read
+     */
+    private final InputStream in;
+    /**
+     * Decoder of the input bytes
+     */
+    private final InputDecoder decoder;
+    /**
+     * Keys not yet taken, when there are no listeners
+     */
+    private final BlockingQueue<KeyEvent> keys = new LinkedBlockingQueue<>();
+    /**
+     * Futures waiting for a cursor position report, in the order in which the
+     * queries were sent
+     */
+    private final Queue<PendingPosition> pendingPositions = new ConcurrentLinkedQueue<>();
+    /**
+     * Listeners notified of each key
+     */
+    private final List<KeyListener> listeners = new CopyOnWriteArrayList<>();
+    /**
+     * Time after which a lone ESC is taken as the Escape key
+     */
+    private volatile long escapeTimeoutMillis = DEFAULT_ESCAPE_TIMEOUT_MILLIS;
+    /**
+     * Time during which an abandoned query still waits for its report
+     */
+    private volatile long lateReportMillis = DEFAULT_LATE_REPORT_MILLIS;
+    /**
+     * The reader thread, or null if it has not been started
+     */
+    private Thread thread;
+    /**
+     * True once the reader has been closed
+     */
+    private volatile boolean closed;
+
+    /**
+     * Creates a reader of the given stream. The reading does not begin until
+     * {@link #start()} is called.
+     *
+     * @param in the stream with the input of the terminal
+     * @throws IllegalArgumentException if the stream is null
+     */
+    public InputReader(InputStream in) throws IllegalArgumentException {
+        if (in == null) {
+            throw new IllegalArgumentException("The input stream cannot be null");
+        }
+        this.in = in;
+        this.decoder = new InputDecoder(new InputDecoder.Handler() {
+            @Override
+            public void keyDecoded(KeyEvent event) {
+                deliver(event);
+            }
+
+            @Override
+            public void cursorPositionReported(Position position) {
+                positionReported(position);
+            }
+
+            @Override
+            public boolean cursorPositionExpected() {
+                dropAbandonedPositions();
+                return !pendingPositions.isEmpty();
+            }
+        });
+    }
+
+    // Getters and setters
+    /**
+     * Returns the time after which an ESC not followed by more bytes is
+     * taken as the Escape key.
+     *
+     * @return the time in milliseconds
+     */
+    public long getEscapeTimeoutMillis() {
+        return escapeTimeoutMillis;
+    }
+
+    /**
+     * Sets the time after which an ESC not followed by more bytes is taken as
+     * the Escape key.
+     *
+     * @param escapeTimeoutMillis the time in milliseconds
+     * @throws IllegalArgumentException if the time is not positive
+     */
+    public void setEscapeTimeoutMillis(long escapeTimeoutMillis) throws IllegalArgumentException {
+        if (escapeTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("The escape timeout must be positive");
+        }
+        this.escapeTimeoutMillis = escapeTimeoutMillis;
+    }
+
+    /**
+     * Returns the time during which a cursor position query whose future has
+     * been cancelled or has timed out still waits for its report.
+     *
+     * @return the time in milliseconds
+     */
+    public long getLateReportMillis() {
+        return lateReportMillis;
+    }
+
+    /**
+     * Sets the time during which a cursor position query whose future has
+     * been cancelled or has timed out still waits for its report.
+     *
+     * @param lateReportMillis the time in milliseconds
+     * @throws IllegalArgumentException if the time is negative
+     */
+    public void setLateReportMillis(long lateReportMillis) throws IllegalArgumentException {
+        if (lateReportMillis < 0) {
+            throw new IllegalArgumentException("The time for late reports cannot be negative");
+        }
+        this.lateReportMillis = lateReportMillis;
+    }
+
+    /**
+     * Indicates whether the reader thread is running.
+     *
+     * @return true if the reader has been started and has not finished
+     */
+    public synchronized boolean isRunning() {
+        return thread != null && thread.isAlive() && !closed;
+    }
+
+    // Methods
+    /**
+     * Starts the reader thread. Calling it again has no effect.
+     *
+     * @return this reader
+     * @throws IllegalStateException if the reader has been closed
+     */
+    public synchronized InputReader start() throws IllegalStateException {
+        if (closed) {
+            throw new IllegalStateException("The input reader is closed");
+        }
+        if (thread == null) {
+            thread = Thread.ofVirtual().name("ansiterm-input-reader").start(this::readLoop);
+        }
+        return this;
+    }
+
+    /**
+     * Registers a listener notified of each key. While there are listeners
+     * the keys are not stored in the queue.
+     *
+     * @param listener the listener
+     * @throws IllegalArgumentException if the listener is null
+     */
+    public void addKeyListener(KeyListener listener) throws IllegalArgumentException {
+        if (listener == null) {
+            throw new IllegalArgumentException("The key listener cannot be null");
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a key listener.
+     *
+     * @param listener the listener
+     */
+    public void removeKeyListener(KeyListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Takes the next key, without waiting.
+     *
+     * @return the key, or null if no key has been pressed
+     */
+    public KeyEvent pollKey() {
+        return keys.poll();
+    }
+
+    /**
+     * Takes the next key, waiting up to the given time.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     * @return the key, or null if no key has been pressed in time
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public KeyEvent pollKey(long timeout, TimeUnit unit) throws InterruptedException {
+        return keys.poll(timeout, unit);
+    }
+
+    /**
+     * Takes the next key, waiting until one is pressed. When the end of the
+     * input is reached {@link KeyEvent#END_OF_INPUT} is returned.
+     *
+     * @return the key
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public KeyEvent takeKey() throws InterruptedException {
+        return keys.take();
+    }
+
+    /**
+     * Registers the wait for the answer to a cursor position query (DSR,
+     * ESC [ 6 n). It must be called once per query, before the query is
+     * written, and in the same order as the queries are written: the reports
+     * complete the registered futures in order.
+     * <p>
+     * A future that is cancelled or times out keeps its place in the queue
+     * for {@link #getLateReportMillis()} more milliseconds, so its late report
+     * does not complete the future of the next query. After that time the
+     * report is taken as lost and the query is forgotten. While any query is
+     * waiting, Ctrl or Shift+F3 cannot be told apart from a report and is
+     * taken as one.
+     *
+     * @return a future completed with the reported position, or exceptionally
+     * with an {@link EOFException} if the input ends first
+     */
+    public CompletableFuture<Position> expectCursorPosition() {
+        dropAbandonedPositions();
+        PendingPosition pending = new PendingPosition();
+        pending.future.whenComplete((position, error) -> pending.doneNanos = System.nanoTime());
+        pendingPositions.add(pending);
+        if (closed) {
+            failPendingPositions();
+        }
+        return pending.future;
+    }
+
+    /**
+     * Returns the number of cursor position reports still expected.
+     *
+     * @return the number of pending queries
+     */
+    public int getPendingPositions() {
+        dropAbandonedPositions();
+        return pendingPositions.size();
+    }
+
+    /**
+     * Stops the reader. The keys already queued can still be taken.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        failPendingPositions();
+    }
+
+    /**
+     * Body of the reader thread: reads the stream, decodes it and, when an
+     * incomplete sequence is left and no more bytes arrive within the escape
+     * timeout, finishes it.
+     */
+    private void readLoop() {
+        byte[] buf = new byte[BUFFER_SIZE];
+        try {
+            while (!closed) {
+                int n = in.read(buf);
+                if (n < 0) {
+                    break;
+                }
+                if (closed) {
+                    break;
+                }
+                decoder.decode(buf, 0, n);
+                if (decoder.hasPending() && !waitForInput()) {
+                    decoder.flushPending();
+                }
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                logger.error(e.getMessage());
+            }
+        }
+        decoder.flushPending();
+        closed = true;
+        failPendingPositions();
+        deliver(KeyEvent.END_OF_INPUT);
+    }
+
+    /**
+     * Waits up to the escape timeout for more bytes to be available.
+     *
+     * @return true if there are bytes available
+     * @throws IOException if the stream cannot be queried
+     */
+    private boolean waitForInput() throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(escapeTimeoutMillis);
+        while (in.available() == 0) {
+            if (System.nanoTime() >= deadline || closed) {
+                return false;
+            }
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Delivers a key to the listeners or, if there are none, to the queue.
+     *
+     * @param event the key
+     */
+    private void deliver(KeyEvent event) {
+        if (listeners.isEmpty()) {
+            keys.offer(event);
+            return;
+        }
+        for (KeyListener listener : listeners) {
+            try {
+                listener.keyPressed(event);
+            } catch (RuntimeException e) {
+                logger.error("Error in key listener: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stores a cursor position report.
+     *
+     * @param position the position of the cursor
+     */
+    private void positionReported(Position position) {
+        PendingPosition pending = pendingPositions.poll();
+        if (pending != null) {
+            pending.future.complete(position);
+        }
+    }
+
+    /**
+     * Forgets the oldest queries whose futures were cancelled or timed out
+     * more than {@link #getLateReportMillis()} milliseconds ago. Only the
+     * head of the queue is examined, since the reports arrive in order.
+     */
+    private void dropAbandonedPositions() {
+        long lateReportNanos = TimeUnit.MILLISECONDS.toNanos(lateReportMillis);
+        PendingPosition pending;
+        while ((pending = pendingPositions.peek()) != null) {
+            long doneNanos = pending.doneNanos;
+            if (!pending.future.isDone() || doneNanos == 0 || System.nanoTime() - doneNanos < lateReportNanos) {
+                return;
+            }
+            // remove() instead of poll(), in case another thread has already dropped it
+            pendingPositions.remove(pending);
+        }
+    }
+
+    /**
+     * Completes exceptionally the futures still waiting for a report, because
+     * no more input will be read.
+     */
+    private void failPendingPositions() {
+        PendingPosition pending;
+        while ((pending = pendingPositions.poll()) != null) {
+            pending.future.completeExceptionally(new EOFException("The input reader has stopped"));
+        }
+    }
+
+    /**
+     * A cursor position query waiting for its report.
+     */
+    private static final class PendingPosition {
+        /**
+         * The future completed with the report
+         */
+        final CompletableFuture<Position> future = new CompletableFuture<>();
+        /**
+         * Instant (System.nanoTime()) when the future was completed, or 0
+         */
+        volatile long doneNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "InputReader{" +
+                "running=" + isRunning() +
+                ", queuedKeys=" + keys.size() +
+                ", pendingPositions=" + pendingPositions.size() +
+                ", escapeTimeoutMillis=" + escapeTimeoutMillis +
+                '}';
+    }
+}
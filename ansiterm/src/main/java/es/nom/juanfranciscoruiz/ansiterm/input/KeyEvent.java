@@ -0,0 +1,148 @@
+package es.nom.juanfranciscoruiz.ansiterm.input;
+
+/**
+ * A key pressed by the user, decoded from the bytes received from the
+ * terminal by {@link InputDecoder}. Instances are immutable.
+ *
+ * @author Juan F. Ruiz
+ */
+public final class KeyEvent {
+    /**
+     * Modifier flag of the Shift key.
+     */
+    public static final int SHIFT = 1;
+    /**
+     * Modifier flag of the Alt (Meta) key.
+     */
+    public static final int ALT = 1 << 1;
+    /**
+     * Modifier flag of the Ctrl key.
+     */
+    public static final int CTRL = 1 << 2;
+
+    /**
+     * The event that signals the end of the input stream.
+     */
+    public static final KeyEvent END_OF_INPUT = new KeyEvent(KeyType.EOF, -1, 0);
+
+    /**
+     * The kind of key
+     */
+    private final KeyType type;
+    /**
+     * The Unicode code point of a CHARACTER key, or -1
+     */
+    private final int codePoint;
+    /**
+     * Combination of the modifier flags
+     */
+    private final int modifiers;
+
+    /**
+     * Creates a new key event.
+     *
+     * @param type      the kind of key
+     * @param codePoint the Unicode code point of a {@link KeyType#CHARACTER}
+     *                  key, or -1 for the other kinds
+     * @param modifiers a combination of {@link #SHIFT}, {@link #ALT} and
+     *                  {@link #CTRL}
+     * @throws IllegalArgumentException if the type is null
+     */
+    public KeyEvent(KeyType type, int codePoint, int modifiers) throws IllegalArgumentException {
+        if (type == null) {
+            throw new IllegalArgumentException("The key type cannot be null");
+        }
+        this.type = type;
+        this.codePoint = codePoint;
+        this.modifiers = modifiers & (SHIFT | ALT | CTRL);
+    }
+
+    // Getters
+    /**
+     * Returns the kind of key.
+     *
+     * @return the type of the key
+     */
+    public KeyType getType() {
+        return type;
+    }
+
+    /**
+     * Returns the character of a {@link KeyType#CHARACTER} key. For Ctrl
+     * combinations it is the lowercase letter or the symbol pressed with Ctrl.
+     *
+     * @return the Unicode code point, or -1 if the key is not a character
+     */
+    public int getCodePoint() {
+        return codePoint;
+    }
+
+    /**
+     * Returns the modifiers pressed together with the key.
+     *
+     * @return a combination of {@link #SHIFT}, {@link #ALT} and {@link #CTRL}
+     */
+    public int getModifiers() {
+        return modifiers;
+    }
+
+    /**
+     * Indicates whether the Shift key was pressed.
+     *
+     * @return true if the Shift modifier is set
+     */
+    public boolean isShift() {
+        return (modifiers & SHIFT) != 0;
+    }
+
+    /**
+     * Indicates whether the Alt key was pressed.
+     *
+     * @return true if the Alt modifier is set
+     */
+    public boolean isAlt() {
+        return (modifiers & ALT) != 0;
+    }
+
+    /**
+     * Indicates whether the Ctrl key was pressed.
+     *
+     * @return true if the Ctrl modifier is set
+     */
+    public boolean isCtrl() {
+        return (modifiers & CTRL) != 0;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof KeyEvent other)) {
+            return false;
+        }
+        return type == other.type && codePoint == other.codePoint && modifiers == other.modifiers;
+    }
+
+    @Override
+    public int hashCode() {
+        return (type.hashCode() * 31 + codePoint) * 31 + modifiers;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("KeyEvent[");
+        if (isCtrl()) {
+            sb.append("Ctrl+");
+        }
+        if (isAlt()) {
+            sb.append("Alt+");
+        }
+        if (isShift()) {
+            sb.append("Shift+");
+        }
+        if (type == KeyType.CHARACTER) {
+            sb.append('\'').appendCodePoint(codePoint).append('\'');
+        } else {
+            sb.append(type);
+        }
+        return sb.append(']').toString();
+    }
+}
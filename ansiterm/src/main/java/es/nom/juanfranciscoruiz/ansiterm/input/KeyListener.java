@@ -0,0 +1,19 @@
+package es.nom.juanfranciscoruiz.ansiterm.input;
+
+/**
+ * Receives the keys decoded by an {@link InputReader}. Listeners are called
+ * from the reader thread, so they must not block it for long.
+ *
+ * @author Juan F. Ruiz
+ * @see InputReader#addKeyListener(KeyListener)
+ */
+@FunctionalInterface
+public interface KeyListener {
+
+    /**
+     * Called when a key has been pressed.
+     *
+     * @param event the decoded key
+     */
+    void keyPressed(KeyEvent event);
+}
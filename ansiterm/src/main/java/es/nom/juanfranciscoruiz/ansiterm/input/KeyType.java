@@ -0,0 +1,127 @@
+package es.nom.juanfranciscoruiz.ansiterm.input;
+
+/**
+ * Enumeration of the kinds of keys decoded from the terminal input by
+ * {@link InputDecoder}.
+ *
+ * @author Juan F. Ruiz
+ */
+public enum KeyType {
+    /**
+     * A printable character (see {@link KeyEvent#getCodePoint()}), or a
+     * letter or symbol pressed together with Ctrl.
+     */
+    CHARACTER,
+    /**
+     * The Enter key.
+     */
+    ENTER,
+    /**
+     * The Tab key (Shift+Tab has the shift modifier).
+     */
+    TAB,
+    /**
+     * The Backspace key.
+     */
+    BACKSPACE,
+    /**
+     * The Escape key.
+     */
+    ESCAPE,
+    /**
+     * The up arrow key.
+     */
+    ARROW_UP,
+    /**
+     * The down arrow key.
+     */
+    ARROW_DOWN,
+    /**
+     * The right arrow key.
+     */
+    ARROW_RIGHT,
+    /**
+     * The left arrow key.
+     */
+    ARROW_LEFT,
+    /**
+     * The Home key.
+     */
+    HOME,
+    /**
+     * The End key.
+     */
+    END,
+    /**
+     * The Insert key.
+     */
+    INSERT,
+    /**
+     * The Delete key.
+     */
+    DELETE,
+    /**
+     * The Page Up key.
+     */
+    PAGE_UP,
+    /**
+     * The Page Down key.
+     */
+    PAGE_DOWN,
+    /**
+     * The F1 function key.
+     */
+    F1,
+    /**
+     * The F2 function key.
+     */
+    F2,
+    /**
+     * The F3 function key.
+     */
+    F3,
+    /**
+     * The F4 function key.
+     */
+    F4,
+    /**
+     * The F5 function key.
+     */
+    F5,
+    /**
+     * The F6 function key.
+     */
+    F6,
+    /**
+     * The F7 function key.
+     */
+    F7,
+    /**
+     * The F8 function key.
+     */
+    F8,
+    /**
+     * The F9 function key.
+     */
+    F9,
+    /**
+     * The F10 function key.
+     */
+    F10,
+    /**
+     * The F11 function key.
+     */
+    F11,
+    /**
+     * The F12 function key.
+     */
+    F12,
+    /**
+     * An escape sequence that is not recognized.
+     */
+    UNKNOWN,
+    /**
+     * The end of the input stream has been reached.
+     */
+    EOF
+}
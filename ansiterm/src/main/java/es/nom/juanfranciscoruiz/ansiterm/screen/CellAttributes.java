@@ -0,0 +1,248 @@
+package es.nom.juanfranciscoruiz.ansiterm.screen;
+
+import es.nom.juanfranciscoruiz.ansiterm.codes.BGColor;
+import es.nom.juanfranciscoruiz.ansiterm.codes.Color;
+
+import static es.nom.juanfranciscoruiz.ansiterm.codes.CSI.ESC;
+
+/**
+ * Packs the style and color attributes of a screen cell into a single int so
+ * that a {@link ScreenBuffer} can store and compare them without creating
+ * objects.
+ * <p>
+ * Layout of the packed value:
+ * <ul>
+ * <li>bits 0-7: style flags ({@link #BOLD}, {@link #DIM}, {@link #ITALIC},
+ * {@link #UNDERLINE}, {@link #BLINK}, {@link #INVERSE}, {@link #HIDDEN},
+ * {@link #STRIKETHROUGH})</li>
+ * <li>bits 8-16: foreground color. 0 is the default color, 1 to 256 are the
+ * colors 0 to 255 of the 256-color palette</li>
+ * <li>bits 17-25: background color, with the same encoding</li>
+ * </ul>
+ * The value 0 ({@link #NONE}) is a cell without styles and with the default
+ * colors.
+ *
+ * @author Juan F. Ruiz
+ */
+public final class CellAttributes {
+    /**
+     * No styles and default colors.
+     */
+    public static final int NONE = 0;
+    /**
+     * Bold style flag.
+     */
+    public static final int BOLD = 1;
+    /**
+     * Dim style flag.
+     */
+    public static final int DIM = 1 << 1;
+    /**
+     * Italic style flag.
+     */
+    public static final int ITALIC = 1 << 2;
+    /**
+     * Underline style flag.
+     */
+    public static final int UNDERLINE = 1 << 3;
+    /**
+     * Blink style flag.
+     */
+    public static final int BLINK = 1 << 4;
+    /**
+     * Inverse (swapped colors) style flag.
+     */
+    public static final int INVERSE = 1 << 5;
+    /**
+     * Hidden style flag.
+     */
+    public static final int HIDDEN = 1 << 6;
+    /**
+     * Strikethrough style flag.
+     */
+    public static final int STRIKETHROUGH = 1 << 7;
+    /**
+     * Mask with all the style flags.
+     */
+    public static final int STYLE_MASK = 0xFF;
+
+    /**
+     * SGR parameter of each style flag, indexed by bit number.
+     */
+    private static final int[] STYLE_SGR = {1, 2, 3, 4, 5, 7, 8, 9};
+    /**
+     * Position of the foreground color in the packed value.
+     */
+    private static final int FG_SHIFT = 8;
+    /**
+     * Position of the background color in the packed value.
+     */
+    private static final int BG_SHIFT = 17;
+    /**
+     * Mask of a color once shifted.
+     */
+    private static final int COLOR_MASK = 0x1FF;
+    /**
+     * Value of a color field that means 'default color'.
+     */
+    private static final int DEFAULT_COLOR = 0;
+
+    /**
+     * This class is not meant to be instantiated.
+     */
+    private CellAttributes() {
+    }
+
+    /**
+     * Packs styles and colors of the 256-color palette into an int.
+     *
+     * @param styles     a combination of the style flags of this class
+     * @param foreground the foreground color (0 to 255), or -1 for the default
+     *                   color
+     * @param background the background color (0 to 255), or -1 for the default
+     *                   color
+     * @return the packed attributes
+     * @throws IllegalArgumentException if a color is out of range
+     */
+    public static int of(int styles, int foreground, int background) throws IllegalArgumentException {
+        return (styles & STYLE_MASK)
+                | (encodeColor(foreground) << FG_SHIFT)
+                | (encodeColor(background) << BG_SHIFT);
+    }
+
+    /**
+     * Packs styles and colors of the {@link Color} and {@link BGColor} enums
+     * into an int.
+     *
+     * @param styles     a combination of the style flags of this class
+     * @param foreground the foreground color, or null for the default color
+     * @param background the background color, or null for the default color
+     * @return the packed attributes
+     */
+    public static int of(int styles, Color foreground, BGColor background) {
+        return of(styles, paletteIndex(foreground), paletteIndex(background));
+    }
+
+    /**
+     * Returns the style flags of the packed attributes.
+     *
+     * @param attributes the packed attributes
+     * @return the style flags
+     */
+    public static int getStyles(int attributes) {
+        return attributes & STYLE_MASK;
+    }
+
+    /**
+     * Returns the foreground color of the packed attributes.
+     *
+     * @param attributes the packed attributes
+     * @return the color (0 to 255) of the 256-color palette, or -1 for the
+     * default color
+     */
+    public static int getForeground(int attributes) {
+        return ((attributes >>> FG_SHIFT) & COLOR_MASK) - 1;
+    }
+
+    /**
+     * Returns the background color of the packed attributes.
+     *
+     * @param attributes the packed attributes
+     * @return the color (0 to 255) of the 256-color palette, or -1 for the
+     * default color
+     */
+    public static int getBackground(int attributes) {
+        return ((attributes >>> BG_SHIFT) & COLOR_MASK) - 1;
+    }
+
+    /**
+     * Returns the index in the 256-color palette of a foreground color.
+     * The eight normal colors are 0 to 7 and the glossy ones 8 to 15.
+     *
+     * @param color the color
+     * @return the palette index, or -1 for null or the default color
+     */
+    public static int paletteIndex(Color color) {
+        if (color == null || color == Color.DEFAULT) {
+            return -1;
+        }
+        int code = color.getCode();
+        return code >= 90 ? code - 90 + 8 : code - 30;
+    }
+
+    /**
+     * Returns the index in the 256-color palette of a background color.
+     * The eight normal colors are 0 to 7 and the glossy ones 8 to 15.
+     *
+     * @param color the background color
+     * @return the palette index, or -1 for null or the default color
+     */
+    public static int paletteIndex(BGColor color) {
+        if (color == null || color == BGColor.DEFAULT) {
+            return -1;
+        }
+        int code = color.getCode();
+        return code >= 100 ? code - 100 + 8 : code - 40;
+    }
+
+    /**
+     * Appends to sb the SGR sequence that resets the terminal attributes and
+     * then sets the packed ones, merged in a single sequence
+     * (e.g. ESC[0;1;4;38;5;208m).
+     * The first 16 colors of the palette are emitted with their basic codes
+     * (30-37, 90-97, 40-47, 100-107) so that they also work in terminals
+     * without 256-color support.
+     *
+     * @param sb         where the sequence is appended
+     * @param attributes the packed attributes
+     */
+    public static void appendSgr(StringBuilder sb, int attributes) {
+        sb.append(ESC).append("[0");
+        int styles = attributes & STYLE_MASK;
+        for (int bit = 0; styles != 0; bit++, styles >>>= 1) {
+            if ((styles & 1) != 0) {
+                sb.append(';').append(STYLE_SGR[bit]);
+            }
+        }
+        appendColor(sb, getForeground(attributes), 30, 90, 38);
+        appendColor(sb, getBackground(attributes), 40, 100, 48);
+        sb.append('m');
+    }
+
+    /**
+     * Appends the SGR parameters of a color.
+     *
+     * @param sb       where the parameters are appended
+     * @param color    the palette index, or -1 for the default color
+     * @param normal   base code of the eight normal colors
+     * @param glossy   base code of the eight glossy colors
+     * @param extended code that introduces a 256-color parameter
+     */
+    private static void appendColor(StringBuilder sb, int color, int normal, int glossy, int extended) {
+        if (color < 0) {
+            return;
+        }
+        sb.append(';');
+        if (color < 8) {
+            sb.append(normal + color);
+        } else if (color < 16) {
+            sb.append(glossy + color - 8);
+        } else {
+            sb.append(extended).append(";5;").append(color);
+        }
+    }
+
+    /**
+     * Encodes a palette index in the 9 bits of a color field.
+     *
+     * @param color the color (0 to 255), or -1 for the default color
+     * @return the encoded color
+     * @throws IllegalArgumentException if the color is out of range
+     */
+    private static int encodeColor(int color) throws IllegalArgumentException {
+        if (color < -1 || color > 255) {
+            throw new IllegalArgumentException("Invalid color: " + color);
+        }
+        return color < 0 ? DEFAULT_COLOR : color + 1;
+    }
+}
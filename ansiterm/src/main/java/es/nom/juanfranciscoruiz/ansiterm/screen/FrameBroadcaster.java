@@ -0,0 +1,494 @@
+package es.nom.juanfranciscoruiz.ansiterm.screen;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Sends the frames of one {@link ScreenBuffer} to many read-only viewers, such
+ * as the sockets or pipes of the screens of a wallboard.
+ * <p>
+ * The producer draws in the screen buffer and calls
+ * {@link #publish(ScreenBuffer)}: the changes are rendered and encoded once,
+ * and the same bytes are queued to every viewer, so the cost of a frame does
+ * not depend on the number of viewers except for the writes. Each viewer is
+ * written by its own virtual thread, so a slow viewer never delays the
+ * producer or the other viewers.
+ * <p>
+ * The frames are differences from the previous frame, so a viewer must
+ * receive all of them in order, or start again from a keyframe: a complete
+ * image of the screen. A viewer receives a keyframe when it joins, and when
+ * it falls more than {@link #getMaxPendingFrames()} frames behind its pending
+ * frames are dropped and it jumps to a keyframe of the latest frame, instead
+ * of buffering without limit. The keyframes are rendered by the producer
+ * thread in the next call to {@link #publish(ScreenBuffer)}, only when a
+ * viewer needs one; publishing a screen without changes costs nothing but
+ * still serves the keyframes requested.
+ * <pre>{@code
+ * ScreenBuffer screen = new ScreenBuffer(24, 80);
+ * FrameBroadcaster broadcaster = new FrameBroadcaster();
+ * broadcaster.addViewer(socketChannel);
+ * while (running) {
+ *     drawDashboard(screen);
+ *     broadcaster.publish(screen);
+ *     Thread.sleep(1000);
+ * }
+ * }</pre>
+ * A screen buffer published here must not be flushed to a terminal as well,
+ * because both operations advance the same front buffer.
+ *
+ * @author Juan F. Ruiz
+ */
+public class FrameBroadcaster implements AutoCloseable {
+    /**
+     * For logging
+     */
+    public static final Logger logger = LoggerFactory.getLogger(FrameBroadcaster.class);
+
+    /**
+     * Default number of frames that can be waiting to be written to a viewer
+     * before it is skipped to the latest frame.
+     */
+    public static final int DEFAULT_MAX_PENDING_FRAMES = 4;
+
+    /**
+     * Attached viewers
+     */
+    private final List<Viewer> viewers = new CopyOnWriteArrayList<>();
+    /**
+     * Encoder of the frames
+     */
+    private final CharsetEncoder encoder;
+    /**
+     * Sequences of the frame being published, reused between frames
+     */
+    private final StringBuilder output = new StringBuilder(4096);
+    /**
+     * Number of frames that can be waiting for a viewer
+     */
+    private volatile int maxPendingFrames = DEFAULT_MAX_PENDING_FRAMES;
+    /**
+     * Number of frames published
+     */
+    private long frames;
+    /**
+     * True once the broadcaster has been closed
+     */
+    private volatile boolean closed;
+
+    /**
+     * Instantiates a broadcaster that encodes the frames in UTF-8.
+     */
+    public FrameBroadcaster() {
+        this(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Instantiates a broadcaster.
+     *
+     * @param charset the charset of the viewer terminals
+     * @throws IllegalArgumentException if the charset is null
+     */
+    public FrameBroadcaster(Charset charset) throws IllegalArgumentException {
+        if (charset == null) {
+            throw new IllegalArgumentException("The charset cannot be null");
+        }
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    // Getters and setters
+    /**
+     * Returns the number of frames that can be waiting to be written to a
+     * viewer before it is skipped to the latest frame.
+     *
+     * @return the maximum number of pending frames
+     */
+    public int getMaxPendingFrames() {
+        return maxPendingFrames;
+    }
+
+    /**
+     * Sets the number of frames that can be waiting to be written to a viewer
+     * before it is skipped to the latest frame.
+     *
+     * @param maxPendingFrames the maximum number of pending frames
+     * @throws IllegalArgumentException if the number is not positive
+     */
+    public void setMaxPendingFrames(int maxPendingFrames) throws IllegalArgumentException {
+        if (maxPendingFrames <= 0) {
+            throw new IllegalArgumentException("The maximum number of pending frames must be positive");
+        }
+        this.maxPendingFrames = maxPendingFrames;
+    }
+
+    /**
+     * Returns the attached viewers.
+     *
+     * @return a copy of the list of viewers
+     */
+    public List<Viewer> getViewers() {
+        return List.copyOf(viewers);
+    }
+
+    /**
+     * Returns the number of attached viewers.
+     *
+     * @return the number of viewers
+     */
+    public int getViewerCount() {
+        return viewers.size();
+    }
+
+    /**
+     * Returns the number of frames published.
+     *
+     * @return the number of frames
+     */
+    public synchronized long getFrames() {
+        return frames;
+    }
+
+    // Methods
+    /**
+     * Attaches a viewer. It receives a keyframe in the next call to
+     * {@link #publish(ScreenBuffer)} and the following frames after it.
+     *
+     * @param channel where the frames are written, in blocking mode
+     * @return the viewer
+     * @throws IllegalArgumentException if the channel is null
+     * @throws IllegalStateException    if the broadcaster has been closed
+     */
+    public Viewer addViewer(WritableByteChannel channel) throws IllegalArgumentException, IllegalStateException {
+        if (channel == null) {
+            throw new IllegalArgumentException("The channel cannot be null");
+        }
+        if (closed) {
+            throw new IllegalStateException("The broadcaster is closed");
+        }
+        Viewer viewer = new Viewer(channel);
+        viewers.add(viewer);
+        viewer.start();
+        return viewer;
+    }
+
+    /**
+     * Attaches a viewer that writes to a stream, such as a pipe.
+     *
+     * @param out where the frames are written
+     * @return the viewer
+     * @throws IllegalArgumentException if the stream is null
+     * @throws IllegalStateException    if the broadcaster has been closed
+     * @see #addViewer(WritableByteChannel)
+     */
+    public Viewer addViewer(OutputStream out) throws IllegalArgumentException, IllegalStateException {
+        if (out == null) {
+            throw new IllegalArgumentException("The output stream cannot be null");
+        }
+        return addViewer(Channels.newChannel(out));
+    }
+
+    /**
+     * Detaches a viewer and stops writing to it. Its channel is not closed.
+     *
+     * @param viewer the viewer
+     */
+    public void removeViewer(Viewer viewer) {
+        if (viewer != null) {
+            viewer.stop();
+        }
+    }
+
+    /**
+     * Renders once the changes of the screen since the last frame and queues
+     * them to every viewer. The viewers that have joined or fallen behind
+     * receive instead a keyframe of the screen, rendered once for all of them.
+     *
+     * @param screen the screen drawn by the producer
+     * @return the number of cells that have changed
+     * @throws IllegalArgumentException if the screen is null
+     */
+    public synchronized int publish(ScreenBuffer screen) throws IllegalArgumentException {
+        if (screen == null) {
+            throw new IllegalArgumentException("The screen cannot be null");
+        }
+        output.setLength(0);
+        int changed = screen.render(output);
+        ByteBuffer diff = output.isEmpty() ? null : encode(output);
+        ByteBuffer keyframe = null;
+        int limit = maxPendingFrames;
+        for (Viewer viewer : viewers) {
+            if (viewer.needsKeyframe(limit)) {
+                output.setLength(0);
+                screen.renderKeyframe(output);
+                keyframe = encode(output);
+                break;
+            }
+        }
+        if (diff == null && keyframe == null) {
+            return changed;
+        }
+        frames++;
+        for (Viewer viewer : viewers) {
+            viewer.offer(diff, keyframe, limit);
+        }
+        return changed;
+    }
+
+    /**
+     * Detaches all the viewers. Their channels are not closed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Viewer viewer : viewers) {
+            viewer.stop();
+        }
+    }
+
+    /**
+     * Encodes a frame into a read-only buffer shared by all the viewers.
+     *
+     * @param chars the sequences of the frame
+     * @return the encoded frame
+     */
+    private ByteBuffer encode(CharSequence chars) {
+        try {
+            encoder.reset();
+            ByteBuffer encoded = encoder.encode(CharBuffer.wrap(chars));
+            return encoded.asReadOnlyBuffer();
+        } catch (CharacterCodingException e) {
+            // Not thrown: the encoder replaces malformed and unmappable input
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FrameBroadcaster{" +
+                "viewers=" + viewers.size() +
+                ", frames=" + getFrames() +
+                ", maxPendingFrames=" + maxPendingFrames +
+                '}';
+    }
+
+    /**
+     * A viewer attached to a {@link FrameBroadcaster}, with its own queue of
+     * pending frames and its own writer thread.
+     */
+    public final class Viewer implements AutoCloseable {
+        /**
+         * Where the frames are written
+         */
+        private final WritableByteChannel channel;
+        /**
+         * Frames waiting to be written, oldest first
+         */
+        private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+        /**
+         * True while the viewer is waiting for a keyframe: at the start and
+         * after its pending frames have been dropped
+         */
+        private boolean awaitingKeyframe = true;
+        /**
+         * True once the viewer has been detached
+         */
+        private boolean stopped;
+        /**
+         * Number of frames written, keyframes included
+         */
+        private long framesSent;
+        /**
+         * Number of keyframes queued
+         */
+        private long keyframesSent;
+        /**
+         * Number of frames dropped because the viewer fell behind
+         */
+        private long framesSkipped;
+
+        /**
+         * Instantiates a viewer.
+         *
+         * @param channel where the frames are written
+         */
+        private Viewer(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Returns the number of frames written, keyframes included.
+         *
+         * @return the number of frames
+         */
+        public synchronized long getFramesSent() {
+            return framesSent;
+        }
+
+        /**
+         * Returns the number of keyframes queued to the viewer: the first
+         * one and one each time it has been skipped to the latest frame.
+         *
+         * @return the number of keyframes
+         */
+        public synchronized long getKeyframesSent() {
+            return keyframesSent;
+        }
+
+        /**
+         * Returns the number of frames dropped because the viewer fell behind.
+         *
+         * @return the number of frames skipped
+         */
+        public synchronized long getFramesSkipped() {
+            return framesSkipped;
+        }
+
+        /**
+         * Returns the number of frames waiting to be written.
+         *
+         * @return the number of pending frames
+         */
+        public synchronized int getPendingFrames() {
+            return pending.size();
+        }
+
+        /**
+         * Indicates whether the viewer is still attached.
+         *
+         * @return true if the viewer receives frames
+         */
+        public synchronized boolean isAttached() {
+            return !stopped;
+        }
+
+        /**
+         * Detaches the viewer from its broadcaster.
+         */
+        @Override
+        public void close() {
+            stop();
+        }
+
+        /**
+         * Starts the writer thread.
+         */
+        private void start() {
+            Thread.ofVirtual().name("ansiterm-broadcast-viewer").start(this::writeLoop);
+        }
+
+        /**
+         * Detaches the viewer and wakes up its writer thread.
+         */
+        private synchronized void stop() {
+            stopped = true;
+            pending.clear();
+            viewers.remove(this);
+            notifyAll();
+        }
+
+        /**
+         * Indicates whether the viewer needs a keyframe in the next frame.
+         *
+         * @param limit the maximum number of pending frames
+         * @return true if it is waiting for a keyframe or its queue is full
+         */
+        private synchronized boolean needsKeyframe(int limit) {
+            return !stopped && (awaitingKeyframe || pending.size() >= limit);
+        }
+
+        /**
+         * Queues a frame. A viewer waiting for a keyframe, or with its queue
+         * full, drops its pending frames and gets the keyframe instead.
+         *
+         * @param diff     the changes since the previous frame, or null
+         * @param keyframe the complete frame, or null if no viewer needs it
+         * @param limit    the maximum number of pending frames
+         */
+        private synchronized void offer(ByteBuffer diff, ByteBuffer keyframe, int limit) {
+            if (stopped) {
+                return;
+            }
+            if (awaitingKeyframe || pending.size() >= limit) {
+                if (!awaitingKeyframe) {
+                    framesSkipped += pending.size();
+                    pending.clear();
+                    awaitingKeyframe = true;
+                }
+                if (keyframe != null) {
+                    pending.add(keyframe.duplicate());
+                    awaitingKeyframe = false;
+                    keyframesSent++;
+                    notifyAll();
+                }
+                return;
+            }
+            if (diff != null) {
+                pending.add(diff.duplicate());
+                notifyAll();
+            }
+        }
+
+        /**
+         * Takes the next frame to write, waiting until there is one.
+         *
+         * @return the frame, or null if the viewer has been detached
+         * @throws InterruptedException if the thread is interrupted
+         */
+        private synchronized ByteBuffer take() throws InterruptedException {
+            while (pending.isEmpty() && !stopped) {
+                wait();
+            }
+            return stopped ? null : pending.poll();
+        }
+
+        /**
+         * Body of the writer thread: writes the frames in order until the
+         * viewer is detached or its channel fails.
+         */
+        private void writeLoop() {
+            try {
+                ByteBuffer frame;
+                while ((frame = take()) != null) {
+                    while (frame.hasRemaining()) {
+                        channel.write(frame);
+                    }
+                    synchronized (this) {
+                        framesSent++;
+                    }
+                }
+            } catch (IOException e) {
+                logger.debug("Viewer detached: {}", e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            stop();
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "Viewer{" +
+                    "attached=" + !stopped +
+                    ", pendingFrames=" + pending.size() +
+                    ", framesSent=" + framesSent +
+                    ", keyframesSent=" + keyframesSent +
+                    ", framesSkipped=" + framesSkipped +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package es.nom.juanfranciscoruiz.ansiterm.screen;
+
+import es.nom.juanfranciscoruiz.ansiterm.ANSITerm;
+import es.nom.juanfranciscoruiz.ansiterm.TerminalSize;
+import es.nom.juanfranciscoruiz.ansiterm.codes.EraseSecuencesCodes;
+import es.nom.juanfranciscoruiz.ansiterm.codes.SequenceEncoder;
+
+import java.util.Arrays;
+
+import static es.nom.juanfranciscoruiz.ansiterm.codes.ColorsAndStylesCodes.RESET_STYLES;
+
+/**
+ * Double-buffered model of the terminal screen.
+ * <p>
+ * The application draws into the back buffer, a grid of characters and
+ * {@link CellAttributes packed attributes} with the size of the terminal.
+ * Nothing is sent to the terminal until {@link #flush(ANSITerm)} is called:
+ * then the back buffer is compared with the front buffer (what the terminal
+ * is showing) and only the cells that have changed are sent, with the minimum
+ * cursor movements and style changes, in a single output frame. Short gaps of
+ * unchanged cells between two changes are re-sent instead of moving the
+ * cursor when that takes fewer bytes.
+ * <p>
+ * Lines and columns start at 1, as in the terminal. Drawing outside the
+ * screen is silently clipped. Every cell holds one character, so characters
+ * that take two columns in the terminal are not supported. Control characters
+ * are stored as spaces.
+ *
+ * @author Juan F. Ruiz
+ */
+public class ScreenBuffer {
+    /**
+     * Character of an empty cell.
+     */
+    private static final char BLANK = ' ';
+
+    /**
+     * Number of lines of the screen.
+     */
+    private int lines;
+    /**
+     * Number of columns of the screen.
+     */
+    private int columns;
+    /**
+     * Characters the application is drawing (back buffer).
+     */
+    private char[] backChars;
+    /**
+     * Attributes the application is drawing (back buffer).
+     */
+    private int[] backAttrs;
+    /**
+     * Characters the terminal is showing (front buffer).
+     */
+    private char[] frontChars;
+    /**
+     * Attributes the terminal is showing (front buffer).
+     */
+    private int[] frontAttrs;
+    /**
+     * If true, the next flush clears the terminal and repaints every cell.
+     */
+    private boolean fullRedraw;
+    /**
+     * Reusable buffer where the sequences of each flush are rendered.
+     */
+    private final StringBuilder output;
+
+    /**
+     * Creates a screen buffer with the size of the terminal.
+     *
+     * @param size the size of the terminal
+     * @throws IllegalArgumentException if the size is null or not positive
+     */
+    public ScreenBuffer(TerminalSize size) throws IllegalArgumentException {
+        this(size == null ? 0 : size.getLines(), size == null ? 0 : size.getColumns());
+    }
+
+    /**
+     * Creates a screen buffer with the given number of lines and columns.
+     *
+     * @param lines   the number of lines
+     * @param columns the number of columns
+     * @throws IllegalArgumentException if any dimension is not positive
+     */
+    public ScreenBuffer(int lines, int columns) throws IllegalArgumentException {
+        this.output = new StringBuilder(4096);
+        allocate(lines, columns);
+    }
+
+    // Getters
+    /**
+     * Returns the number of lines of the screen.
+     *
+     * @return the number of lines
+     */
+    public int getLines() {
+        return lines;
+    }
+
+    /**
+     * Returns the number of columns of the screen.
+     *
+     * @return the number of columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the character drawn in a cell of the back buffer.
+     *
+     * @param line   the line of the cell
+     * @param column the column of the cell
+     * @return the character, or a space if the cell is outside the screen
+     */
+    public char getChar(int line, int column) {
+        return isInside(line, column) ? backChars[index(line, column)] : BLANK;
+    }
+
+    /**
+     * Returns the attributes drawn in a cell of the back buffer.
+     *
+     * @param line   the line of the cell
+     * @param column the column of the cell
+     * @return the packed attributes, or {@link CellAttributes#NONE} if the
+     * cell is outside the screen
+     */
+    public int getAttributes(int line, int column) {
+        return isInside(line, column) ? backAttrs[index(line, column)] : CellAttributes.NONE;
+    }
+
+    // Methods
+    /**
+     * Changes the size of the screen. The content of the back buffer that
+     * fits in the new size is kept and the next flush repaints the whole
+     * screen.
+     *
+     * @param size the new size
+     * @throws IllegalArgumentException if the size is null or not positive
+     */
+    public void resize(TerminalSize size) throws IllegalArgumentException {
+        if (size == null) {
+            throw new IllegalArgumentException("The size cannot be null");
+        }
+        char[] oldChars = backChars;
+        int[] oldAttrs = backAttrs;
+        int oldLines = lines;
+        int oldColumns = columns;
+        allocate(size.getLines(), size.getColumns());
+        int copyLines = Math.min(oldLines, lines);
+        int copyColumns = Math.min(oldColumns, columns);
+        for (int l = 0; l < copyLines; l++) {
+            System.arraycopy(oldChars, l * oldColumns, backChars, l * columns, copyColumns);
+            System.arraycopy(oldAttrs, l * oldColumns, backAttrs, l * columns, copyColumns);
+        }
+    }
+
+    /**
+     * Erases the back buffer (every cell becomes a space without attributes).
+     */
+    public void clear() {
+        Arrays.fill(backChars, BLANK);
+        Arrays.fill(backAttrs, CellAttributes.NONE);
+    }
+
+    /**
+     * Draws a character in a cell of the back buffer.
+     *
+     * @param line       the line of the cell
+     * @param column     the column of the cell
+     * @param c          the character
+     * @param attributes the packed attributes of the cell
+     */
+    public void put(int line, int column, char c, int attributes) {
+        if (isInside(line, column)) {
+            int i = index(line, column);
+            backChars[i] = c < BLANK ? BLANK : c;
+            backAttrs[i] = attributes;
+        }
+    }
+
+    /**
+     * Draws a text without attributes in the back buffer. The text is clipped
+     * at the end of the line.
+     *
+     * @param line   the line where the text starts
+     * @param column the column where the text starts
+     * @param text   the text to draw
+     */
+    public void print(int line, int column, String text) {
+        print(line, column, text, CellAttributes.NONE);
+    }
+
+    /**
+     * Draws a text in the back buffer. The text is clipped at the end of the
+     * line.
+     *
+     * @param line       the line where the text starts
+     * @param column     the column where the text starts
+     * @param text       the text to draw
+     * @param attributes the packed attributes of the text
+     */
+    public void print(int line, int column, String text, int attributes) {
+        if (text == null || line < 1 || line > lines) {
+            return;
+        }
+        int first = Math.max(0, 1 - column);
+        int last = Math.min(text.length(), columns - column + 1);
+        for (int i = first; i < last; i++) {
+            put(line, column + i, text.charAt(i), attributes);
+        }
+    }
+
+    /**
+     * Fills a rectangle of the back buffer with a character.
+     *
+     * @param line       the top line of the rectangle
+     * @param column     the left column of the rectangle
+     * @param height     the number of lines of the rectangle
+     * @param width      the number of columns of the rectangle
+     * @param c          the character
+     * @param attributes the packed attributes of the cells
+     */
+    public void fill(int line, int column, int height, int width, char c, int attributes) {
+        for (int l = Math.max(1, line); l < line + height && l <= lines; l++) {
+            for (int col = Math.max(1, column); col < column + width && col <= columns; col++) {
+                put(l, col, c, attributes);
+            }
+        }
+    }
+
+    /**
+     * Forces the next flush to clear the terminal and repaint every cell, for
+     * example because something else has written to the terminal.
+     */
+    public void invalidate() {
+        fullRedraw = true;
+    }
+
+    /**
+     * Sends to the terminal the cells that have changed since the last flush,
+     * in a single output frame.
+     *
+     * @param term the terminal where the changes are sent
+     * @return the number of cells that have been sent
+     */
+    public int flush(ANSITerm term) {
+        output.setLength(0);
+        int changed = render(output);
+        if (!output.isEmpty()) {
+            term.beginFrame();
+            try {
+                term.print(output);
+            } finally {
+                term.commitFrame();
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Appends to sb the sequences that bring the terminal from the front
+     * buffer to the back buffer and then makes the front buffer equal to the
+     * back buffer. The terminal attributes are left reset.
+     *
+     * @param sb where the sequences are appended
+     * @return the number of cells that have changed
+     */
+    public int render(StringBuilder sb) {
+        int curAttr = -1;
+        if (fullRedraw) {
+            sb.append(RESET_STYLES).append(EraseSecuencesCodes.clearScreen());
+            Arrays.fill(frontChars, BLANK);
+            Arrays.fill(frontAttrs, CellAttributes.NONE);
+            curAttr = CellAttributes.NONE;
+            fullRedraw = false;
+        }
+        int changed = 0;
+        int curLine = -1;
+        int curCol = -1;
+        for (int l = 0; l < lines; l++) {
+            int base = l * columns;
+            for (int c = 0; c < columns; c++) {
+                int i = base + c;
+                if (backChars[i] == frontChars[i] && backAttrs[i] == frontAttrs[i]) {
+                    continue;
+                }
+                if (curLine != l || curCol != c) {
+                    if (curLine == l && curCol < c && canBridge(base, curCol, c, curAttr)) {
+                        sb.append(backChars, base + curCol, c - curCol);
+                    } else {
+                        SequenceEncoder.csi(sb, l + 1, c + 1, SequenceEncoder.CUP);
+                    }
+                }
+                if (backAttrs[i] != curAttr) {
+                    curAttr = backAttrs[i];
+                    CellAttributes.appendSgr(sb, curAttr);
+                }
+                sb.append(backChars[i]);
+                frontChars[i] = backChars[i];
+                frontAttrs[i] = backAttrs[i];
+                changed++;
+                curLine = l;
+                curCol = c + 1;
+                if (curCol >= columns) {
+                    // Pending wrap: the real cursor position is not reliable
+                    curLine = -1;
+                }
+            }
+        }
+        if (curAttr != -1 && curAttr != CellAttributes.NONE) {
+            sb.append(RESET_STYLES);
+        }
+        return changed;
+    }
+
+    /**
+     * Appends to sb the sequences that paint the whole front buffer (what the
+     * terminal is showing after the last render) on a terminal in any state:
+     * a keyframe that does not depend on the previous frames, for example for
+     * a viewer that joins a broadcast late. The buffers are not modified.
+     * The terminal attributes are left reset.
+     *
+     * @param sb where the sequences are appended
+     * @return the number of cells that have been painted
+     */
+    public int renderKeyframe(StringBuilder sb) {
+        sb.append(RESET_STYLES).append(EraseSecuencesCodes.clearScreen());
+        int curAttr = CellAttributes.NONE;
+        int painted = 0;
+        for (int l = 0; l < lines; l++) {
+            int base = l * columns;
+            int last = columns - 1;
+            // Trailing blank cells are already blank after clearing the screen
+            while (last >= 0 && frontChars[base + last] == BLANK && frontAttrs[base + last] == CellAttributes.NONE) {
+                last--;
+            }
+            if (last < 0) {
+                continue;
+            }
+            SequenceEncoder.csi(sb, l + 1, 1, SequenceEncoder.CUP);
+            for (int i = base; i <= base + last; i++) {
+                if (frontAttrs[i] != curAttr) {
+                    curAttr = frontAttrs[i];
+                    CellAttributes.appendSgr(sb, curAttr);
+                }
+                sb.append(frontChars[i]);
+            }
+            painted += last + 1;
+        }
+        if (curAttr != CellAttributes.NONE) {
+            sb.append(RESET_STYLES);
+        }
+        return painted;
+    }
+
+    /**
+     * Indicates whether it is cheaper to re-send the unchanged cells between
+     * two columns of a line than to move the cursor, and whether they can be
+     * re-sent with the current attributes.
+     *
+     * @param base    index of the first cell of the line
+     * @param from    column (0-based) where the cursor is
+     * @param to      column (0-based) of the next changed cell
+     * @param curAttr the attributes currently set in the terminal
+     * @return true if the gap can be bridged re-sending the cells
+     */
+    private boolean canBridge(int base, int from, int to, int curAttr) {
+        int gap = to - from;
+        int line = base / columns + 1;
+        int moveCost = SequenceEncoder.length(line, to + 1);
+        if (gap >= moveCost) {
+            return false;
+        }
+        for (int i = base + from; i < base + to; i++) {
+            if (frontAttrs[i] != curAttr) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Allocates the buffers for the given size and schedules a full redraw.
+     *
+     * @param lines   the number of lines
+     * @param columns the number of columns
+     * @throws IllegalArgumentException if any dimension is not positive
+     */
+    private void allocate(int lines, int columns) throws IllegalArgumentException {
+        if (lines <= 0 || columns <= 0) {
+            throw new IllegalArgumentException("Invalid screen size: " + lines + "x" + columns);
+        }
+        this.lines = lines;
+        this.columns = columns;
+        int cells = lines * columns;
+        this.backChars = new char[cells];
+        this.backAttrs = new int[cells];
+        this.frontChars = new char[cells];
+        this.frontAttrs = new int[cells];
+        Arrays.fill(backChars, BLANK);
+        Arrays.fill(frontChars, BLANK);
+        this.fullRedraw = true;
+    }
+
+    /**
+     * Indicates whether a cell is inside the screen.
+     *
+     * @param line   the line of the cell
+     * @param column the column of the cell
+     * @return true if the cell is inside the screen
+     */
+    private boolean isInside(int line, int column) {
+        return line >= 1 && line <= lines && column >= 1 && column <= columns;
+    }
+
+    /**
+     * Returns the position in the buffers of a cell.
+     *
+     * @param line   the line of the cell
+     * @param column the column of the cell
+     * @return the index of the cell in the buffers
+     */
+    private int index(int line, int column) {
+        return (line - 1) * columns + (column - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "ScreenBuffer{" +
+                "lines=" + lines +
+                ", columns=" + columns +
+                ", fullRedraw=" + fullRedraw +
+                '}';
+    }
+}
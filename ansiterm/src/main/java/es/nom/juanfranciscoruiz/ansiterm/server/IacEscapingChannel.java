@@ -0,0 +1,82 @@
+package es.nom.juanfranciscoruiz.ansiterm.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Channel that doubles every 0xFF byte (IAC) of the data written to a telnet
+ * connection, so the client does not take it as the start of a command.
+ * <p>
+ * UTF-8 never produces the byte 0xFF, but other charsets do (e.g. 'ÿ' in
+ * ISO-8859-1). The wrapped channel must be in blocking mode: every write is
+ * completed before returning.
+ *
+ * @author Juan F. Ruiz
+ */
+final class IacEscapingChannel implements WritableByteChannel {
+
+    /**
+     * The connection
+     */
+    private final WritableByteChannel channel;
+    /**
+     * The extra IAC written after each IAC of the data
+     */
+    private final ByteBuffer iac = ByteBuffer.wrap(new byte[]{(byte) TelnetInputStream.IAC});
+
+    /**
+     * Instantiates the channel.
+     *
+     * @param channel the connection, in blocking mode
+     */
+    IacEscapingChannel(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Writes all the remaining bytes of the buffer, doubling the IAC bytes.
+     *
+     * @param src the bytes
+     * @return the number of bytes of the buffer written, which is all of them
+     * @throws IOException if the connection fails
+     */
+    @Override
+    public synchronized int write(ByteBuffer src) throws IOException {
+        int start = src.position();
+        int limit = src.limit();
+        for (int i = start; i < limit; i++) {
+            if (src.get(i) == (byte) TelnetInputStream.IAC) {
+                src.limit(i + 1);
+                writeFully(src);
+                src.limit(limit);
+                iac.clear();
+                writeFully(iac);
+            }
+        }
+        writeFully(src);
+        return limit - start;
+    }
+
+    /**
+     * Writes all the remaining bytes of a buffer.
+     *
+     * @param b the bytes
+     * @throws IOException if the connection fails
+     */
+    private void writeFully(ByteBuffer b) throws IOException {
+        while (b.hasRemaining()) {
+            channel.write(b);
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,23 @@
+package es.nom.juanfranciscoruiz.ansiterm.server;
+
+/**
+ * The application run by a {@link TerminalServer} for each connection.
+ * <p>
+ * The handler is called in the virtual thread of the session and owns it
+ * until it returns; then the connection is closed. The handler draws in the
+ * terminal of the session ({@link TelnetSession#getTerminal()}) as it would
+ * in the local terminal.
+ *
+ * @author Juan F. Ruiz
+ */
+@FunctionalInterface
+public interface SessionHandler {
+    /**
+     * Runs the application for one session.
+     *
+     * @param session the session of the connection
+     * @throws Exception In case of any error. It is logged and the session is
+     *                   closed.
+     */
+    void handle(TelnetSession session) throws Exception;
+}
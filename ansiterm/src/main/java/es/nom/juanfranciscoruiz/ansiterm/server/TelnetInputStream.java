@@ -0,0 +1,445 @@
+package es.nom.juanfranciscoruiz.ansiterm.server;
+
+import es.nom.juanfranciscoruiz.ansiterm.StreamTerminal;
+import es.nom.juanfranciscoruiz.ansiterm.TerminalSize;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Input stream that removes the telnet protocol (RFC 854) from the input of a
+ * connection, so that only the bytes typed by the user reach the
+ * {@link es.nom.juanfranciscoruiz.ansiterm.input.InputReader}.
+ * <p>
+ * The stream answers the option negotiation of the client through the
+ * output channel of the connection: the server offers to echo (ECHO) and to
+ * suppress the go-ahead (SUPPRESS-GO-AHEAD), which puts the client in
+ * character mode without local echo, and asks the client to report its
+ * window size (NAWS, RFC 1073). Every window size reported is set in the
+ * {@link StreamTerminal} of the session, so the terminal size and the resize
+ * listeners follow the window of the client. Any other option is refused.
+ * <p>
+ * The end of line sent by the client (CR LF or CR NUL) is reduced to a single
+ * CR, so the ENTER key is decoded once.
+ *
+ * @author Juan F. Ruiz
+ */
+public class TelnetInputStream extends FilterInputStream {
+    /**
+     * For logging
+     */
+    public static final Logger logger = LoggerFactory.getLogger(TelnetInputStream.class);
+
+    /**
+     * Interpret As Command
+     */
+    public static final int IAC = 255;
+    /**
+     * Refusal to perform an option
+     */
+    public static final int DONT = 254;
+    /**
+     * Request to perform an option
+     */
+    public static final int DO = 253;
+    /**
+     * Refusal to perform an option
+     */
+    public static final int WONT = 252;
+    /**
+     * Offer to perform an option
+     */
+    public static final int WILL = 251;
+    /**
+     * Start of a subnegotiation
+     */
+    public static final int SB = 250;
+    /**
+     * End of a subnegotiation
+     */
+    public static final int SE = 240;
+    /**
+     * Echo option (RFC 857)
+     */
+    public static final int OPT_ECHO = 1;
+    /**
+     * Suppress go ahead option (RFC 858)
+     */
+    public static final int OPT_SUPPRESS_GO_AHEAD = 3;
+    /**
+     * Negotiate about window size option (RFC 1073)
+     */
+    public static final int OPT_NAWS = 31;
+
+    /**
+     * Maximum length of a subnegotiation kept; longer ones are truncated.
+     */
+    private static final int MAX_SUBNEGOTIATION = 64;
+
+    /**
+     * States of the protocol parser
+     */
+    private enum State {
+        DATA, IAC, WILL, WONT, DO, DONT, SB, SB_DATA, SB_IAC
+    }
+
+    /**
+     * Channel where the answers to the negotiation are written
+     */
+    private final WritableByteChannel out;
+    /**
+     * Terminal whose size is set by the NAWS reports
+     */
+    private final StreamTerminal terminal;
+    /**
+     * Bytes of the subnegotiation in progress
+     */
+    private final byte[] subnegotiation = new byte[MAX_SUBNEGOTIATION];
+    /**
+     * Number of bytes of the subnegotiation in progress
+     */
+    private int subnegotiationLength;
+    /**
+     * Option of the subnegotiation in progress
+     */
+    private int subnegotiationOption;
+    /**
+     * Current state of the parser
+     */
+    private State state = State.DATA;
+    /**
+     * True if the last data byte was a CR
+     */
+    private boolean afterCr;
+    /**
+     * True while this side performs the ECHO option
+     */
+    private boolean echo;
+    /**
+     * True while this side performs the SUPPRESS-GO-AHEAD option
+     */
+    private boolean suppressGoAhead;
+    /**
+     * True if the client has agreed to report its window size
+     */
+    private boolean naws;
+
+    /**
+     * Instantiates the stream.
+     *
+     * @param in       the input of the connection
+     * @param out      the output of the connection, for the negotiation
+     * @param terminal the terminal whose size is set by the client
+     * @throws IllegalArgumentException if any argument is null
+     */
+    public TelnetInputStream(InputStream in, WritableByteChannel out, StreamTerminal terminal)
+            throws IllegalArgumentException {
+        super(in);
+        if (in == null || out == null || terminal == null) {
+            throw new IllegalArgumentException("The streams and the terminal cannot be null");
+        }
+        this.out = out;
+        this.terminal = terminal;
+    }
+
+    /**
+     * Sends the initial negotiation: the server will echo and suppress the
+     * go-ahead, and the client is asked to report its window size.
+     *
+     * @throws IOException if the negotiation cannot be written
+     */
+    public void negotiate() throws IOException {
+        synchronized (this) {
+            echo = true;
+            suppressGoAhead = true;
+        }
+        send(WILL, OPT_ECHO, WILL, OPT_SUPPRESS_GO_AHEAD, DO, OPT_NAWS);
+    }
+
+    /**
+     * Indicates whether the client has agreed to report its window size.
+     *
+     * @return true if NAWS is active
+     */
+    public synchronized boolean isNawsActive() {
+        return naws;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int n;
+        do {
+            n = read(b, 0, 1);
+        } while (n == 0);
+        return n < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    /**
+     * Reads the data bytes of the connection, processing and removing the
+     * telnet commands. It blocks until at least one data byte is available,
+     * so it never returns 0 for a non-empty request.
+     *
+     * @param b   the buffer where the data is stored
+     * @param off the start offset in the buffer
+     * @param len the maximum number of bytes to read
+     * @return the number of data bytes read, or -1 at the end of the stream
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        int n;
+        int kept;
+        do {
+            n = in.read(b, off, len);
+            if (n < 0) {
+                return -1;
+            }
+            kept = filter(b, off, n);
+        } while (kept == 0);
+        return kept;
+    }
+
+    /**
+     * Data cannot be skipped without processing the commands: the bytes are
+     * read and discarded.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] buf = new byte[(int) Math.min(Math.max(n, 0), 512)];
+        long skipped = 0;
+        while (skipped < n) {
+            int r = read(buf, 0, (int) Math.min(buf.length, n - skipped));
+            if (r < 0) {
+                break;
+            }
+            skipped += r;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Processes the bytes read, moving the data bytes to the start of the
+     * range.
+     *
+     * @param b   the buffer
+     * @param off the start of the bytes read
+     * @param n   the number of bytes read
+     * @return the number of data bytes left at b[off]
+     * @throws IOException if an answer cannot be written
+     */
+    private int filter(byte[] b, int off, int n) throws IOException {
+        int w = off;
+        for (int r = off; r < off + n; r++) {
+            int c = b[r] & 0xFF;
+            switch (state) {
+                case DATA -> {
+                    if (c == IAC) {
+                        state = State.IAC;
+                    } else if (afterCr && (c == '\n' || c == 0)) {
+                        afterCr = false;
+                    } else {
+                        afterCr = c == '\r';
+                        b[w++] = (byte) c;
+                    }
+                }
+                case IAC -> {
+                    state = State.DATA;
+                    switch (c) {
+                        case IAC -> {
+                            afterCr = false;
+                            b[w++] = (byte) IAC;
+                        }
+                        case WILL -> state = State.WILL;
+                        case WONT -> state = State.WONT;
+                        case DO -> state = State.DO;
+                        case DONT -> state = State.DONT;
+                        case SB -> state = State.SB;
+                        default -> {
+                            // NOP, GA, AYT and the other commands are ignored
+                        }
+                    }
+                }
+                case WILL -> {
+                    state = State.DATA;
+                    remoteWill(c);
+                }
+                case WONT -> {
+                    state = State.DATA;
+                    remoteWont(c);
+                }
+                case DO -> {
+                    state = State.DATA;
+                    remoteDo(c);
+                }
+                case DONT -> {
+                    state = State.DATA;
+                    remoteDont(c);
+                }
+                case SB -> {
+                    subnegotiationOption = c;
+                    subnegotiationLength = 0;
+                    state = State.SB_DATA;
+                }
+                case SB_DATA -> {
+                    if (c == IAC) {
+                        state = State.SB_IAC;
+                    } else {
+                        addSubnegotiation(c);
+                    }
+                }
+                case SB_IAC -> {
+                    if (c == SE) {
+                        state = State.DATA;
+                        subnegotiation();
+                    } else {
+                        addSubnegotiation(c);
+                        state = State.SB_DATA;
+                    }
+                }
+            }
+        }
+        return w - off;
+    }
+
+    /**
+     * Stores a byte of the subnegotiation in progress.
+     *
+     * @param c the byte
+     */
+    private void addSubnegotiation(int c) {
+        if (subnegotiationLength < MAX_SUBNEGOTIATION) {
+            subnegotiation[subnegotiationLength++] = (byte) c;
+        }
+    }
+
+    /**
+     * Processes a complete subnegotiation. Only NAWS is understood: the
+     * columns and lines are two 16-bit big-endian numbers.
+     */
+    private void subnegotiation() {
+        if (subnegotiationOption != OPT_NAWS || subnegotiationLength != 4) {
+            return;
+        }
+        int columns = ((subnegotiation[0] & 0xFF) << 8) | (subnegotiation[1] & 0xFF);
+        int lines = ((subnegotiation[2] & 0xFF) << 8) | (subnegotiation[3] & 0xFF);
+        // 0 means that the client does not know that dimension
+        if (columns > 0 && lines > 0) {
+            terminal.setTerminalSize(new TerminalSize(columns, lines));
+        }
+    }
+
+    /**
+     * Answers an offer of the client.
+     *
+     * @param option the option offered
+     * @throws IOException if the answer cannot be written
+     */
+    private void remoteWill(int option) throws IOException {
+        if (option == OPT_NAWS) {
+            synchronized (this) {
+                naws = true;
+            }
+        } else {
+            send(DONT, option);
+        }
+    }
+
+    /**
+     * Answers a refusal of the client.
+     *
+     * @param option the option refused
+     * @throws IOException if the answer cannot be written
+     */
+    private void remoteWont(int option) throws IOException {
+        if (option == OPT_NAWS) {
+            boolean wasActive;
+            synchronized (this) {
+                wasActive = naws;
+                naws = false;
+            }
+            if (wasActive) {
+                send(DONT, option);
+            }
+        }
+    }
+
+    /**
+     * Answers a request of the client.
+     *
+     * @param option the option requested
+     * @throws IOException if the answer cannot be written
+     */
+    private void remoteDo(int option) throws IOException {
+        boolean accepted;
+        synchronized (this) {
+            accepted = (option == OPT_ECHO && echo) || (option == OPT_SUPPRESS_GO_AHEAD && suppressGoAhead);
+        }
+        if (!accepted) {
+            send(WONT, option);
+        }
+    }
+
+    /**
+     * Answers a request of the client to stop performing an option.
+     *
+     * @param option the option
+     * @throws IOException if the answer cannot be written
+     */
+    private void remoteDont(int option) throws IOException {
+        boolean wasActive = false;
+        synchronized (this) {
+            if (option == OPT_ECHO) {
+                wasActive = echo;
+                echo = false;
+            } else if (option == OPT_SUPPRESS_GO_AHEAD) {
+                wasActive = suppressGoAhead;
+                suppressGoAhead = false;
+            }
+        }
+        if (wasActive) {
+            send(WONT, option);
+        }
+    }
+
+    /**
+     * Writes pairs of command and option to the client.
+     *
+     * @param commandsAndOptions the commands, each followed by its option
+     * @throws IOException if the commands cannot be written
+     */
+    private void send(int... commandsAndOptions) throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate(commandsAndOptions.length / 2 * 3);
+        for (int i = 0; i + 1 < commandsAndOptions.length; i += 2) {
+            bb.put((byte) IAC).put((byte) commandsAndOptions[i]).put((byte) commandsAndOptions[i + 1]);
+        }
+        bb.flip();
+        logger.debug("Sending telnet negotiation of {} bytes", bb.remaining());
+        while (bb.hasRemaining()) {
+            out.write(bb);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TelnetInputStream{" +
+                "state=" + state +
+                ", echo=" + echo +
+                ", suppressGoAhead=" + suppressGoAhead +
+                ", naws=" + naws +
+                '}';
+    }
+}
@@ -0,0 +1,185 @@
+package es.nom.juanfranciscoruiz.ansiterm.server;
+
+import es.nom.juanfranciscoruiz.ansiterm.ANSITerm;
+import es.nom.juanfranciscoruiz.ansiterm.FrameWriter;
+import es.nom.juanfranciscoruiz.ansiterm.StreamTerminal;
+import es.nom.juanfranciscoruiz.ansiterm.exceptions.ANSITermException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A telnet connection accepted by a {@link TerminalServer}, with its own
+ * {@link ANSITerm}.
+ * <p>
+ * The output of the terminal is written to the socket channel from the direct
+ * buffers of a {@link FrameWriter}, and the input is read through a
+ * {@link TelnetInputStream}, which removes the protocol and keeps the size of
+ * the terminal equal to the window of the client. The terminal has its own
+ * size, cursor, input reader and resize listeners, independent from the
+ * other sessions and from the terminal of the server process. With charsets
+ * other than UTF-8 and ASCII the 0xFF bytes of the output are doubled, as
+ * the telnet protocol requires.
+ *
+ * @author Juan F. Ruiz
+ */
+public class TelnetSession implements AutoCloseable {
+    /**
+     * For logging
+     */
+    public static final Logger logger = LoggerFactory.getLogger(TelnetSession.class);
+
+    /**
+     * Number of the session in its server
+     */
+    private final long id;
+    /**
+     * The connection
+     */
+    private final SocketChannel channel;
+    /**
+     * Keeps the size reported by the client
+     */
+    private final StreamTerminal streamTerminal;
+    /**
+     * Input of the connection without the telnet protocol
+     */
+    private final TelnetInputStream input;
+    /**
+     * Terminal of the session
+     */
+    private final ANSITerm terminal;
+    /**
+     * Address of the client, kept to be shown after the connection is closed
+     */
+    private final SocketAddress remoteAddress;
+
+    /**
+     * Instantiates a session over a connected channel in blocking mode. The
+     * negotiation is not sent until {@link #negotiate()} is called.
+     *
+     * @param id      the number of the session
+     * @param channel the connection
+     * @param charset the charset of the client terminal
+     * @throws IOException       if the streams of the connection cannot be
+     *                           obtained
+     * @throws ANSITermException if the terminal cannot be created
+     */
+    public TelnetSession(long id, SocketChannel channel, Charset charset) throws IOException, ANSITermException {
+        if (channel == null || charset == null) {
+            throw new ANSITermException("The channel and the charset cannot be null");
+        }
+        this.id = id;
+        this.channel = channel;
+        this.remoteAddress = channel.getRemoteAddress();
+        this.streamTerminal = new StreamTerminal();
+        // The input stream of the socket does not take the blocking lock of
+        // the channel, so the writes of other threads are not blocked while
+        // the input reader waits for the user.
+        this.input = new TelnetInputStream(channel.socket().getInputStream(), channel, streamTerminal);
+        // UTF-8 and ASCII never produce the byte 0xFF, which must be doubled
+        // so the client does not take it as a command (IAC)
+        boolean noIac = charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII);
+        WritableByteChannel output = noIac ? channel : new IacEscapingChannel(channel);
+        this.terminal = new ANSITerm(input, new FrameWriter(output, charset), streamTerminal);
+    }
+
+    // Getters
+    /**
+     * Returns the number of the session in its server.
+     *
+     * @return the id
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Returns the terminal of the session.
+     *
+     * @return the ANSITerm that draws in the window of the client
+     */
+    public ANSITerm getTerminal() {
+        return terminal;
+    }
+
+    /**
+     * Returns the low-level terminal that keeps the size reported by the
+     * client.
+     *
+     * @return the StreamTerminal of the session
+     */
+    public StreamTerminal getStreamTerminal() {
+        return streamTerminal;
+    }
+
+    /**
+     * Returns the input of the connection without the telnet protocol.
+     *
+     * @return the telnet input stream
+     */
+    public TelnetInputStream getInput() {
+        return input;
+    }
+
+    /**
+     * Returns the address of the client.
+     *
+     * @return the remote address
+     */
+    public SocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    /**
+     * Indicates whether the connection is open.
+     *
+     * @return true if the connection has not been closed
+     */
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    // Methods
+    /**
+     * Sends the initial telnet negotiation: character mode without local
+     * echo and window size reports (see {@link TelnetInputStream}).
+     *
+     * @throws IOException if the negotiation cannot be written
+     */
+    public void negotiate() throws IOException {
+        input.negotiate();
+    }
+
+    /**
+     * Stops the input reader and the resize watcher of the terminal, writes
+     * the pending output and closes the connection.
+     */
+    @Override
+    public void close() {
+        terminal.stopInputReader();
+        terminal.removeResizeListeners();
+        terminal.flush();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TelnetSession{" +
+                "id=" + id +
+                ", remoteAddress=" + remoteAddress +
+                ", open=" + isOpen() +
+                ", size=" + streamTerminal.getTerminalSize() +
+                '}';
+    }
+}
@@ -0,0 +1,361 @@
+package es.nom.juanfranciscoruiz.ansiterm.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Telnet server that runs an ANSITerm application for each connection, so
+ * that many users share one JVM instead of starting one JVM each.
+ * <p>
+ * Each accepted connection becomes a {@link TelnetSession} with its own
+ * {@link es.nom.juanfranciscoruiz.ansiterm.ANSITerm}, and is served by its
+ * own virtual thread, which runs the {@link SessionHandler}. The blocking
+ * reads and writes of the sessions park their virtual threads instead of
+ * holding a platform thread, so hundreds of sessions only need a few carrier
+ * threads:
+ * <pre>{@code
+ * try (TerminalServer server = new TerminalServer(2323, session -> {
+ *     ANSITerm term = session.getTerminal();
+ *     term.clearScreen();
+ *     term.printAt("Hello!", 1, 1);
+ *     Util.pauseWithMessage(term, 0, null);
+ * })) {
+ *     server.start();
+ *     ...
+ * }
+ * }</pre>
+ * A server bound to port 0 listens on a free port of the loopback address
+ * (see {@link #getPort()}), which allows testing it locally with a socket or
+ * with {@code telnet localhost port}.
+ *
+ * @author Juan F. Ruiz
+ */
+public class TerminalServer implements AutoCloseable {
+    /**
+     * For logging
+     */
+    public static final Logger logger = LoggerFactory.getLogger(TerminalServer.class);
+
+    /**
+     * Default maximum number of simultaneous sessions.
+     */
+    public static final int DEFAULT_MAX_SESSIONS = 1000;
+
+    /**
+     * First wait, in milliseconds, after a failed accept. It is doubled after
+     * each consecutive failure up to {@link #MAX_ACCEPT_RETRY_MILLIS}.
+     */
+    private static final long MIN_ACCEPT_RETRY_MILLIS = 10L;
+
+    /**
+     * Longest wait, in milliseconds, after a failed accept.
+     */
+    private static final long MAX_ACCEPT_RETRY_MILLIS = 1000L;
+
+    /**
+     * Address where the server listens
+     */
+    private final InetSocketAddress address;
+    /**
+     * Application run for each session
+     */
+    private final SessionHandler handler;
+    /**
+     * Charset of the client terminals
+     */
+    private final Charset charset;
+    /**
+     * Open sessions
+     */
+    private final Set<TelnetSession> sessions = ConcurrentHashMap.newKeySet();
+    /**
+     * Number of accepted connections whose session has not ended, counted
+     * when they are accepted so a burst of connections cannot exceed the
+     * limit
+     */
+    private final AtomicInteger sessionCount = new AtomicInteger();
+    /**
+     * Number of the next session
+     */
+    private final AtomicLong nextId = new AtomicLong(1);
+    /**
+     * Maximum number of simultaneous sessions
+     */
+    private volatile int maxSessions = DEFAULT_MAX_SESSIONS;
+    /**
+     * The listening channel, or null if the server has not been started
+     */
+    private ServerSocketChannel serverChannel;
+    /**
+     * Thread that accepts the connections
+     */
+    private Thread acceptor;
+    /**
+     * True once the server has been closed
+     */
+    private volatile boolean closed;
+
+    /**
+     * Instantiates a server that listens on a port of the loopback address
+     * with UTF-8 terminals.
+     *
+     * @param port    the port, or 0 for any free port
+     * @param handler the application run for each session
+     * @throws IllegalArgumentException if the port is out of range or the
+     *                                  handler is null
+     */
+    public TerminalServer(int port, SessionHandler handler) throws IllegalArgumentException {
+        this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), handler, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Instantiates a server.
+     *
+     * @param address the address where the server listens, e.g.
+     *                {@code new InetSocketAddress(2323)} for all the
+     *                interfaces
+     * @param handler the application run for each session
+     * @param charset the charset of the client terminals
+     * @throws IllegalArgumentException if any argument is null
+     */
+    public TerminalServer(InetSocketAddress address, SessionHandler handler, Charset charset)
+            throws IllegalArgumentException {
+        if (address == null || handler == null || charset == null) {
+            throw new IllegalArgumentException("The address, the handler and the charset cannot be null");
+        }
+        this.address = address;
+        this.handler = handler;
+        this.charset = charset;
+    }
+
+    // Getters and setters
+    /**
+     * Returns the maximum number of simultaneous sessions. The connections
+     * received when the limit has been reached are closed.
+     *
+     * @return the maximum number of sessions
+     */
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    /**
+     * Sets the maximum number of simultaneous sessions.
+     *
+     * @param maxSessions the maximum number of sessions
+     * @throws IllegalArgumentException if the number is not positive
+     */
+    public void setMaxSessions(int maxSessions) throws IllegalArgumentException {
+        if (maxSessions <= 0) {
+            throw new IllegalArgumentException("The maximum number of sessions must be positive");
+        }
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * Returns the address where the server is listening.
+     *
+     * @return the local address, or null if the server is not running
+     * @throws IOException if the address cannot be obtained
+     */
+    public synchronized InetSocketAddress getLocalAddress() throws IOException {
+        return serverChannel == null ? null : (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    /**
+     * Returns the port where the server is listening, which is useful when
+     * it was bound to port 0.
+     *
+     * @return the port, or -1 if the server is not running
+     * @throws IOException if the address cannot be obtained
+     */
+    public int getPort() throws IOException {
+        InetSocketAddress local = getLocalAddress();
+        return local == null ? -1 : local.getPort();
+    }
+
+    /**
+     * Returns the open sessions.
+     *
+     * @return a copy of the list of sessions
+     */
+    public List<TelnetSession> getSessions() {
+        return List.copyOf(sessions);
+    }
+
+    /**
+     * Returns the number of open sessions, including those accepted whose
+     * negotiation has not started yet.
+     *
+     * @return the number of sessions
+     */
+    public int getSessionCount() {
+        return sessionCount.get();
+    }
+
+    /**
+     * Indicates whether the server is accepting connections.
+     *
+     * @return true if the server has been started and not closed
+     */
+    public synchronized boolean isRunning() {
+        return serverChannel != null && !closed;
+    }
+
+    // Methods
+    /**
+     * Binds the server to its address and starts accepting connections.
+     * Calling it again has no effect.
+     *
+     * @return this server
+     * @throws IOException           if the server cannot be bound
+     * @throws IllegalStateException if the server has been closed
+     */
+    public synchronized TerminalServer start() throws IOException, IllegalStateException {
+        if (closed) {
+            throw new IllegalStateException("The server is closed");
+        }
+        if (serverChannel != null) {
+            return this;
+        }
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        acceptor = Thread.ofVirtual().name("ansiterm-server-acceptor").start(this::acceptLoop);
+        logger.info("Terminal server listening on {}", serverChannel.getLocalAddress());
+        return this;
+    }
+
+    /**
+     * Stops accepting connections and closes all the open sessions.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (serverChannel != null) {
+                try {
+                    serverChannel.close();
+                } catch (IOException e) {
+                    logger.error(e.getMessage());
+                }
+            }
+        }
+        for (TelnetSession session : sessions) {
+            session.close();
+        }
+    }
+
+    /**
+     * Body of the acceptor thread: accepts the connections and starts a
+     * virtual thread for each one. After a failed accept it waits before
+     * trying again, longer after each consecutive failure, so a persistent
+     * error (e.g. too many open files) does not spin nor flood the log.
+     */
+    private void acceptLoop() {
+        long retryMillis = 0;
+        while (!closed) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+                retryMillis = 0;
+            } catch (ClosedChannelException e) {
+                break;
+            } catch (IOException e) {
+                if (closed) {
+                    break;
+                }
+                retryMillis = Math.min(Math.max(retryMillis * 2, MIN_ACCEPT_RETRY_MILLIS), MAX_ACCEPT_RETRY_MILLIS);
+                logger.error("Cannot accept connections, retrying in {} ms: {}", retryMillis, e.getMessage());
+                try {
+                    Thread.sleep(retryMillis);
+                } catch (InterruptedException ie) {
+                    break;
+                }
+                continue;
+            }
+            if (sessionCount.incrementAndGet() > maxSessions) {
+                sessionCount.decrementAndGet();
+                logger.warn("Connection refused: {} sessions open", maxSessions);
+                closeQuietly(channel);
+                continue;
+            }
+            long id = nextId.getAndIncrement();
+            Thread.ofVirtual().name("ansiterm-session-" + id).start(() -> runSession(id, channel));
+        }
+    }
+
+    /**
+     * Body of a session thread: creates the session, negotiates the telnet
+     * options, runs the handler and closes the session.
+     *
+     * @param id      the number of the session
+     * @param channel the connection
+     */
+    private void runSession(long id, SocketChannel channel) {
+        TelnetSession session = null;
+        try {
+            channel.socket().setTcpNoDelay(true);
+            session = new TelnetSession(id, channel, charset);
+            sessions.add(session);
+            if (closed) {
+                return;
+            }
+            logger.info("Session {} opened from {}", id, session.getRemoteAddress());
+            session.negotiate();
+            handler.handle(session);
+        } catch (Exception e) {
+            if (!closed && channel.isOpen()) {
+                logger.error("Error in session {}: {}", id, e.getMessage());
+            }
+        } finally {
+            if (session != null) {
+                sessions.remove(session);
+                session.close();
+                logger.info("Session {} closed", id);
+            } else {
+                closeQuietly(channel);
+            }
+            sessionCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Closes a connection, ignoring the errors.
+     *
+     * @param channel the connection
+     */
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug(e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TerminalServer{" +
+                "address=" + address +
+                ", running=" + isRunning() +
+                ", sessions=" + sessionCount.get() +
+                ", maxSessions=" + maxSessions +
+                '}';
+    }
+}
@@ -5,9 +5,11 @@ import es.nom.juanfranciscoruiz.ansiterm.TerminalSize;
 import es.nom.juanfranciscoruiz.ansiterm.codes.Color;
 import es.nom.juanfranciscoruiz.ansiterm.exceptions.ANSITermException;
 
-import java.io.BufferedInputStream;
+import es.nom.juanfranciscoruiz.ansiterm.input.InputReader;
+import es.nom.juanfranciscoruiz.ansiterm.input.KeyType;
+
+import java.io.InputStream;
 import java.util.Random;
-import java.util.Scanner;
 
 /**
  * Utility class providing helper methods for terminal operations, such as
@@ -16,12 +18,32 @@ import java.util.Scanner;
  * @author Juan F. Ruiz
  */
 public class Util {
+    /**
+     * Terminal shared by the pause methods, created on first use so that the
+     * terminal size is not read again on every pause.
+     */
+    private static ANSITerm sharedTerm;
+
     /**
      * Private constructor to prevent instantiation.
      */
     private Util() {
     }
 
+    /**
+     * Returns the terminal shared by the pause methods, creating it the first
+     * time.
+     *
+     * @return the shared ANSITerm object
+     * @throws ANSITermException if the operating system is unsupported
+     */
+    private static synchronized ANSITerm sharedTerm() throws ANSITermException {
+        if (sharedTerm == null) {
+            sharedTerm = new ANSITerm();
+        }
+        return sharedTerm;
+    }
+
     /**
      * Pauses the program for a specified number of milliseconds and optionally
      * displays a message. If no message is provided, it defaults to
@@ -37,7 +59,22 @@ public class Util {
      * @throws Exception In case of any error.
      */
     public static void pauseWithMessage(long milliseconds, String msg) throws Exception {
-        ANSITerm t = new ANSITerm();
+        pauseWithMessage(sharedTerm(), milliseconds, msg);
+    }
+
+    /**
+     * Pauses the program for a specified number of milliseconds and optionally
+     * displays a message in the given terminal, reading the ENTER key from the
+     * input of that terminal instead of System.in.
+     *
+     * @param t            The terminal where the message is displayed.
+     * @param milliseconds The duration of the pause in milliseconds. If 0,
+     *                     the function waits for the user to press ENTER.
+     * @param msg          The message to display to the user.
+     * @throws Exception In case of any error.
+     * @see #pauseWithMessage(long, String)
+     */
+    public static void pauseWithMessage(ANSITerm t, long milliseconds, String msg) throws Exception {
         if (msg == null || msg.isEmpty()) {
             msg = "\nPress <ENTER> to continue...";
         }
@@ -47,8 +84,7 @@ public class Util {
 
         if (milliseconds == 0) {
             t.printAt(msg, lastLine - 1, 1);
-            Scanner sc = new Scanner(new BufferedInputStream(System.in));
-            sc.nextLine();
+            waitForEnter(t);
             return;
         }
         t.printAt("The program will continue in " + milliseconds + " milliseconds...",
@@ -66,16 +102,53 @@ public class Util {
      * @throws Exception In case of any error.
      */
     public static void pauseForMilliseconds(long milliseconds) throws Exception {
-        ANSITerm t = new ANSITerm();
+        pauseForMilliseconds(sharedTerm(), milliseconds);
+    }
+
+    /**
+     * Pauses the program for a specified number of milliseconds. If 0 is
+     * specified, it waits for the user to press ENTER in the given terminal.
+     * No message is displayed.
+     *
+     * @param t            The terminal whose input is read.
+     * @param milliseconds The duration of the pause in milliseconds. If 0,
+     *                     the function waits for the user to press ENTER.
+     * @throws Exception In case of any error.
+     */
+    public static void pauseForMilliseconds(ANSITerm t, long milliseconds) throws Exception {
         t.moveCursorToBegin();
         if (milliseconds == 0) {
-            Scanner sc = new Scanner(new BufferedInputStream(System.in));
-            sc.nextLine();
+            waitForEnter(t);
             return;
         }
         Thread.sleep(milliseconds);
     }
 
+    /**
+     * Waits until the user presses ENTER in a terminal or its input ends. If
+     * the terminal has an input reader running the key is taken from it;
+     * otherwise the input of the terminal is read byte by byte, so no input
+     * after the end of the line is consumed.
+     *
+     * @param t the terminal
+     * @throws Exception In case of any error.
+     */
+    private static void waitForEnter(ANSITerm t) throws Exception {
+        InputReader reader = t.getInputReader();
+        if (reader != null && reader.isRunning()) {
+            KeyType type;
+            do {
+                type = reader.takeKey().getType();
+            } while (type != KeyType.ENTER && type != KeyType.EOF);
+            return;
+        }
+        InputStream in = t.getInput();
+        int c;
+        do {
+            c = in.read();
+        } while (c != '\n' && c != '\r' && c != -1);
+    }
+
     /**
      * Displays a block of random text starting at 'lineaInicial', with
      * 'lineas' number of rows and 'cols' number of columns per row.
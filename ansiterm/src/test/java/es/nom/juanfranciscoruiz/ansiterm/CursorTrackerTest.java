@@ -0,0 +1,195 @@
+package es.nom.juanfranciscoruiz.ansiterm;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing the software model of the cursor
+ *
+ * @author Juan F. Ruiz
+ */
+class CursorTrackerTest {
+
+    @Test
+    void pendingWrapAtLastColumn() {
+        CursorTracker cursor = new CursorTracker(new TerminalSize(10, 5), false);
+        cursor.advance("abcdefghij");
+        assertCursor(cursor, 1, 10);
+        assertTrue(cursor.isPendingWrap());
+        cursor.advance('k');
+        assertCursor(cursor, 2, 2);
+        assertFalse(cursor.isPendingWrap());
+
+        cursor.advance("\033[2;1H0123456789\r");
+        assertCursor(cursor, 2, 1);
+        assertFalse(cursor.isPendingWrap());
+
+        // The wrap on the last line scrolls instead of moving down
+        cursor.advance("\033[5;1H0123456789x");
+        assertCursor(cursor, 5, 2);
+    }
+
+    @Test
+    void lineFeedAndCarriageReturn() {
+        CursorTracker cursor = new CursorTracker(new TerminalSize(80, 24), true);
+        cursor.advance("ab\n");
+        assertCursor(cursor, 2, 1);
+        cursor.setNewlineReturns(false);
+        cursor.advance("ab\n");
+        assertCursor(cursor, 3, 3);
+        cursor.advance("\u000Bc\f");
+        assertCursor(cursor, 5, 4);
+        cursor.advance("\b\b\b\b\b\b");
+        assertCursor(cursor, 5, 1);
+    }
+
+    @Test
+    void scrollingRegionLimits() {
+        CursorTracker cursor = new CursorTracker(new TerminalSize(80, 10), false);
+        cursor.advance("\033[5;7H\033[3;6r");
+        // DECSTBM homes the cursor
+        assertCursor(cursor, 1, 1);
+
+        cursor.advance("\033[6;1H\n\n");
+        assertCursor(cursor, 6, 1);
+        cursor.advance("\033[20A");
+        assertCursor(cursor, 3, 1);
+        cursor.advance("\033M\033M");
+        assertCursor(cursor, 3, 1);
+        cursor.advance("\033[20B");
+        assertCursor(cursor, 6, 1);
+
+        // Outside the region the movements stop at the screen edges
+        cursor.advance("\033[8;1H\033[20B");
+        assertCursor(cursor, 10, 1);
+        cursor.advance("\n");
+        assertCursor(cursor, 10, 1);
+        cursor.advance("\033[1;1H\033[20B");
+        assertCursor(cursor, 6, 1);
+        cursor.advance("\033[2;1H\033[20A");
+        assertCursor(cursor, 1, 1);
+
+        // CSI r without parameters restores the whole screen
+        cursor.advance("\033[r\033[9;1H\n");
+        assertCursor(cursor, 10, 1);
+    }
+
+    @Test
+    void tabStops() {
+        CursorTracker cursor = new CursorTracker(new TerminalSize(20, 5), false);
+        cursor.advance("\t");
+        assertCursor(cursor, 1, 9);
+        cursor.advance("abc\t");
+        assertCursor(cursor, 1, 17);
+        cursor.advance("\t\t");
+        assertCursor(cursor, 1, 20);
+    }
+
+    @Test
+    void saveAndRestore() {
+        CursorTracker cursor = new CursorTracker(new TerminalSize(80, 24), false);
+        cursor.advance("\033[3;7H\0337\033[1;1H\0338");
+        assertCursor(cursor, 3, 7);
+        cursor.advance("\033[10;20H\033[s\033[H\033[u");
+        assertCursor(cursor, 10, 20);
+
+        // The alternate buffer saves the cursor on entry and restores it on exit
+        cursor.advance("\033[2;3H\033[?1049h");
+        assertCursor(cursor, 2, 3);
+        cursor.advance("\033[15;15Hxyz\033[?1049l");
+        assertCursor(cursor, 2, 3);
+
+        // RIS homes the cursor and the saved position
+        cursor.advance("\033c\0338");
+        assertCursor(cursor, 1, 1);
+    }
+
+    @Test
+    void stringSequencesAreSkipped() {
+        CursorTracker cursor = new CursorTracker(new TerminalSize(80, 24), false);
+        cursor.advance("\033]0;A long window title\007ab");
+        assertCursor(cursor, 1, 3);
+        cursor.advance("\033]8;;http://example.com\033\\c");
+        assertCursor(cursor, 1, 4);
+        cursor.advance("\033P+q544e\033\\\033(0q\033(B\033[1;31md");
+        assertCursor(cursor, 1, 6);
+    }
+
+    @Test
+    void movementsAreClamped() {
+        CursorTracker cursor = new CursorTracker(new TerminalSize(80, 24), false);
+        cursor.advance("\033[100;200H");
+        assertCursor(cursor, 24, 80);
+        cursor.advance("\033[999D\033[999A");
+        assertCursor(cursor, 1, 1);
+        cursor.advance("\033[5G\033[7d");
+        assertCursor(cursor, 7, 5);
+    }
+
+    @Test
+    void resizeClampsTheCursor() {
+        CursorTracker cursor = new CursorTracker(new TerminalSize(80, 24), false);
+        cursor.advance("\033[5;20r\033[20;80Hx");
+        assertTrue(cursor.isPendingWrap());
+        cursor.resize(new TerminalSize(40, 10));
+        assertCursor(cursor, 10, 40);
+        assertFalse(cursor.isPendingWrap());
+        // The scrolling region is reset to the whole screen
+        cursor.advance("\033[1;1H\033[20B");
+        assertCursor(cursor, 10, 1);
+        assertThrows(IllegalArgumentException.class, () -> cursor.resize(null));
+    }
+
+    @Test
+    void rawModeLineFeeds() throws Exception {
+        // A local terminal whose driver stops translating LF in raw mode
+        boolean[] raw = new boolean[1];
+        ITerminal terminal = new ITerminal() {
+            @Override
+            public void enableRawMode() {
+                raw[0] = true;
+            }
+
+            @Override
+            public void disableRawMode() {
+                raw[0] = false;
+            }
+
+            @Override
+            public TerminalSize getTerminalSize() {
+                return new TerminalSize(80, 24);
+            }
+
+            @Override
+            public boolean isNewlineTranslated() {
+                return !raw[0];
+            }
+        };
+        ANSITerm term = new ANSITerm(new ByteArrayInputStream(new byte[0]),
+                new FrameWriter(new ByteArrayOutputStream(), StandardCharsets.UTF_8), terminal);
+        term.print("ab\n");
+        assertEquals(new Position(1, 2), term.getCursorPosition());
+        term.enableRawMode();
+        term.print("ab\n");
+        assertEquals(new Position(3, 3), term.getCursorPosition());
+        term.disableRawMode();
+        term.print("ab\n");
+        assertEquals(new Position(1, 4), term.getCursorPosition());
+    }
+
+    /**
+     * Checks the position of the cursor.
+     *
+     * @param cursor the tracker
+     * @param line   the expected line
+     * @param column the expected column
+     */
+    private static void assertCursor(CursorTracker cursor, int line, int column) {
+        assertEquals(line + ";" + column, cursor.getLine() + ";" + cursor.getColumn());
+    }
+}
@@ -0,0 +1,181 @@
+package es.nom.juanfranciscoruiz.ansiterm;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing the batching of the terminal output
+ *
+ * @author Juan F. Ruiz
+ */
+class FrameWriterTest {
+
+    /**
+     * Text with characters of one, two, three and four bytes in UTF-8
+     */
+    private static final String MIXED = "añ€😀";
+
+    /**
+     * Temporary file written through a FileChannel, or null
+     */
+    private Path file;
+
+    @AfterEach
+    void deleteFile() throws IOException {
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void outsideFrameWritesImmediately() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FrameWriter writer = new FrameWriter(out, StandardCharsets.UTF_8);
+        writer.append("ab").append('c').append("xdex", 1, 3);
+        assertAll(
+                () -> assertFalse(writer.isInFrame()),
+                () -> assertEquals("abcde", out.toString(StandardCharsets.UTF_8))
+        );
+    }
+
+    @Test
+    void onlyTheOutermostCommitWrites() throws IOException {
+        Pipe pipe = Pipe.open();
+        FrameWriter writer = new FrameWriter(pipe.sink(), StandardCharsets.UTF_8);
+        writer.append("before");
+        assertEquals("before", readAvailable(pipe));
+
+        writer.beginFrame();
+        writer.append("1");
+        writer.beginFrame();
+        writer.append(MIXED);
+        writer.commitFrame();
+        assertAll(
+                () -> assertTrue(writer.isInFrame()),
+                () -> assertEquals("", readAvailable(pipe))
+        );
+        writer.append("2");
+        writer.commitFrame();
+        assertAll(
+                () -> assertFalse(writer.isInFrame()),
+                () -> assertEquals("1" + MIXED + "2", readAvailable(pipe)),
+                () -> assertThrows(IllegalStateException.class, writer::commitFrame)
+        );
+
+        // Closing the writer leaves the channel of the caller open
+        writer.close();
+        assertTrue(pipe.sink().isOpen());
+        pipe.sink().close();
+        pipe.source().close();
+    }
+
+    @Test
+    void autoFlushByChars() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FrameWriter writer = new FrameWriter(out, StandardCharsets.UTF_8);
+        writer.setAutoFlushChars(8);
+        writer.setAutoFlushMillis(0);
+        writer.beginFrame();
+        writer.append("1234567");
+        assertEquals(0, out.size());
+        writer.append("89");
+        assertEquals("123456789", out.toString(StandardCharsets.UTF_8));
+        writer.append("abc");
+        assertEquals("123456789", out.toString(StandardCharsets.UTF_8));
+        writer.commitFrame();
+        assertAll(
+                () -> assertEquals("123456789abc", out.toString(StandardCharsets.UTF_8)),
+                () -> assertThrows(IllegalArgumentException.class, () -> writer.setAutoFlushChars(-1)),
+                () -> assertThrows(IllegalArgumentException.class, () -> writer.setAutoFlushMillis(-1))
+        );
+    }
+
+    @Test
+    void frameLargerThanOneSegment() throws IOException {
+        file = Files.createTempFile("framewriter", ".out");
+        StringBuilder expected = new StringBuilder();
+        try (FileChannel fc = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            FrameWriter writer = new FrameWriter(fc, StandardCharsets.UTF_8);
+            writer.setAutoFlushChars(0);
+            writer.setAutoFlushMillis(0);
+            writer.beginFrame();
+            // More than three segments once encoded
+            for (int i = 0; expected.length() < 3 * FrameWriter.SEGMENT_SIZE; i++) {
+                String line = "\033[" + (i % 24 + 1) + ";1H" + i + MIXED;
+                writer.append(line);
+                expected.append(line);
+            }
+            assertEquals(0, fc.size());
+            writer.commitFrame();
+            writer.close();
+            assertTrue(fc.isOpen());
+        }
+        byte[] written = Files.readAllBytes(file);
+        assertAll(
+                () -> assertTrue(written.length > 3 * FrameWriter.SEGMENT_SIZE),
+                () -> assertEquals(expected.toString(), new String(written, StandardCharsets.UTF_8))
+        );
+    }
+
+    @Test
+    void surrogatePairsAreNotSplit() throws IOException {
+        String smile = "😀";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FrameWriter writer = new FrameWriter(out, StandardCharsets.UTF_8);
+        // Outside a frame each character would be written on its own
+        writer.append(smile.charAt(0));
+        assertEquals(0, out.size());
+        writer.append(smile.charAt(1));
+        assertEquals(smile, out.toString(StandardCharsets.UTF_8));
+
+        // An auto-flush that ends in the middle of a pair keeps the high surrogate
+        file = Files.createTempFile("framewriter", ".out");
+        StringBuilder expected = new StringBuilder();
+        try (FileChannel fc = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            FrameWriter channelWriter = new FrameWriter(fc, StandardCharsets.UTF_8);
+            channelWriter.setAutoFlushChars(5);
+            channelWriter.setAutoFlushMillis(0);
+            channelWriter.beginFrame();
+            for (int i = 0; i < 20; i++) {
+                String text = "x" + smile;
+                for (int j = 0; j < text.length(); j++) {
+                    channelWriter.append(text.charAt(j));
+                }
+                expected.append(text);
+            }
+            channelWriter.commitFrame();
+        }
+        assertEquals(expected.toString(), Files.readString(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the bytes already written to a pipe without waiting for more.
+     *
+     * @param pipe the pipe
+     * @return the bytes decoded as UTF-8
+     * @throws IOException if the pipe cannot be read
+     */
+    private static String readAvailable(Pipe pipe) throws IOException {
+        pipe.source().configureBlocking(false);
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        while (pipe.source().read(buffer) > 0) {
+            if (!buffer.hasRemaining()) {
+                break;
+            }
+        }
+        buffer.flip();
+        return StandardCharsets.UTF_8.decode(buffer).toString();
+    }
+}
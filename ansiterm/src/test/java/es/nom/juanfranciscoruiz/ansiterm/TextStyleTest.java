@@ -0,0 +1,132 @@
+package es.nom.juanfranciscoruiz.ansiterm;
+
+import es.nom.juanfranciscoruiz.ansiterm.codes.BGColor;
+import es.nom.juanfranciscoruiz.ansiterm.codes.Color;
+import es.nom.juanfranciscoruiz.ansiterm.codes.ColorSequences;
+import es.nom.juanfranciscoruiz.ansiterm.codes.ColorsAndStylesCodes;
+import es.nom.juanfranciscoruiz.ansiterm.emulator.VirtualTerminal;
+import es.nom.juanfranciscoruiz.ansiterm.screen.CellAttributes;
+import org.junit.jupiter.api.Test;
+
+import static es.nom.juanfranciscoruiz.ansiterm.codes.CSI.ESC;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing the precomputed SGR sequences of the text styles
+ *
+ * @author Juan F. Ruiz
+ */
+class TextStyleTest {
+
+    @Test
+    void singleStylesMatchTheStyleCodes() {
+        assertAll(
+                () -> assertEquals(ColorsAndStylesCodes.BOLD_START, TextStyle.NONE.bold().getPrefix()),
+                () -> assertEquals(ColorsAndStylesCodes.BOLD_END, TextStyle.NONE.bold().getSuffix()),
+                () -> assertEquals(ColorsAndStylesCodes.DIM_START, TextStyle.NONE.dim().getPrefix()),
+                () -> assertEquals(ColorsAndStylesCodes.DIM_END, TextStyle.NONE.dim().getSuffix()),
+                () -> assertEquals(ColorsAndStylesCodes.ITALIC_START, TextStyle.NONE.italic().getPrefix()),
+                () -> assertEquals(ColorsAndStylesCodes.ITALIC_END, TextStyle.NONE.italic().getSuffix()),
+                () -> assertEquals(ColorsAndStylesCodes.UNDERLINE_START, TextStyle.NONE.underline().getPrefix()),
+                () -> assertEquals(ColorsAndStylesCodes.UNDERLINE_STOP, TextStyle.NONE.underline().getSuffix()),
+                () -> assertEquals(ColorsAndStylesCodes.BLINK_START, TextStyle.NONE.blink().getPrefix()),
+                () -> assertEquals(ColorsAndStylesCodes.BLINK_END, TextStyle.NONE.blink().getSuffix()),
+                () -> assertEquals(ColorsAndStylesCodes.REVERSE_START, TextStyle.NONE.inverse().getPrefix()),
+                () -> assertEquals(ColorsAndStylesCodes.REVERSE_END, TextStyle.NONE.inverse().getSuffix()),
+                () -> assertEquals(ColorsAndStylesCodes.INVISIBLE_START,
+                        TextStyle.NONE.with(TextStyle.HIDDEN).getPrefix()),
+                () -> assertEquals(ColorsAndStylesCodes.INVISIBLE_END,
+                        TextStyle.NONE.with(TextStyle.HIDDEN).getSuffix()),
+                () -> assertEquals(ColorsAndStylesCodes.STRIKETHROUGH_START,
+                        TextStyle.NONE.strikeThrough().getPrefix()),
+                () -> assertEquals(ColorsAndStylesCodes.STRIKETHROUGH_END,
+                        TextStyle.NONE.strikeThrough().getSuffix())
+        );
+    }
+
+    @Test
+    void colorsMatchTheColorSequences() {
+        assertAll(
+                () -> assertEquals(ColorSequences.foreground(Color.YELLOW),
+                        TextStyle.NONE.withForeground(Color.YELLOW).getPrefix()),
+                () -> assertEquals(ColorSequences.foreground(Color.GLOSSY_RED),
+                        TextStyle.NONE.withForeground(Color.GLOSSY_RED).getPrefix()),
+                () -> assertEquals(ColorSequences.background(BGColor.BLACK),
+                        TextStyle.NONE.withBackground(BGColor.BLACK).getPrefix()),
+                () -> assertEquals(ColorSequences.background(BGColor.GLOSSY_BLACK),
+                        TextStyle.NONE.withBackground(BGColor.GLOSSY_BLACK).getPrefix()),
+                () -> assertEquals(ColorSequences.foreground256(208), TextStyle.NONE.withForeground(208).getPrefix()),
+                () -> assertEquals(ColorSequences.background256(17), TextStyle.NONE.withBackground(17).getPrefix()),
+                () -> assertEquals(ColorSequences.FOREGROUND_RESET, TextStyle.NONE.withForeground(208).getSuffix()),
+                () -> assertEquals(ColorSequences.BACKGROUND_RESET, TextStyle.NONE.withBackground(17).getSuffix())
+        );
+    }
+
+    @Test
+    void mergedSequences() {
+        TextStyle style = TextStyle.NONE.bold().italic().underline().withForeground(208).withBackground(BGColor.BLUE);
+        // Bold and dim share the same reset, which is written only once
+        TextStyle boldDim = TextStyle.NONE.bold().dim();
+        assertAll(
+                () -> assertEquals(ESC + "[1;3;4;38;5;208;44m", style.getPrefix()),
+                () -> assertEquals(ESC + "[22;23;24;39;49m", style.getSuffix()),
+                () -> assertEquals(style.getPrefix() + "text" + style.getSuffix(), style.apply("text")),
+                () -> assertEquals("> " + style.apply("text"),
+                        style.appendTo(new StringBuilder("> "), "text").toString()),
+                () -> assertEquals(ESC + "[1;2m", boldDim.getPrefix()),
+                () -> assertEquals(ESC + "[22m", boldDim.getSuffix())
+        );
+    }
+
+    @Test
+    void noneLeavesTheTextUnchanged() {
+        String msg = "plain";
+        assertAll(
+                () -> assertEquals("", TextStyle.NONE.getPrefix()),
+                () -> assertEquals("", TextStyle.NONE.getSuffix()),
+                () -> assertSame(msg, TextStyle.NONE.apply(msg)),
+                () -> assertEquals(msg, TextStyle.NONE.appendTo(new StringBuilder(), msg).toString()),
+                () -> assertSame(TextStyle.NONE, TextStyle.ofAttributes(CellAttributes.NONE))
+        );
+    }
+
+    @Test
+    void stylesAreCached() {
+        TextStyle style = TextStyle.NONE.bold().withForeground(Color.GREEN);
+        assertAll(
+                () -> assertSame(style, TextStyle.NONE.withForeground(Color.GREEN).bold()),
+                () -> assertSame(style, TextStyle.of(TextStyle.BOLD, Color.GREEN, BGColor.DEFAULT)),
+                () -> assertSame(style, TextStyle.ofAttributes(style.getAttributes())),
+                () -> assertSame(style.getPrefix(), TextStyle.ofAttributes(style.getAttributes()).getPrefix()),
+                () -> assertSame(TextStyle.NONE, style.without(TextStyle.BOLD).withForeground(-1)),
+                () -> assertEquals(style.hashCode(), TextStyle.NONE.bold().withForeground(Color.GREEN).hashCode())
+        );
+    }
+
+    @Test
+    void withAndWithout() {
+        TextStyle style = TextStyle.NONE.with(TextStyle.BOLD | TextStyle.UNDERLINE).withBackground(100);
+        assertAll(
+                () -> assertEquals(TextStyle.BOLD | TextStyle.UNDERLINE, style.getStyles()),
+                () -> assertEquals(-1, style.getForeground()),
+                () -> assertEquals(100, style.getBackground()),
+                () -> assertEquals(TextStyle.UNDERLINE, style.without(TextStyle.BOLD).getStyles()),
+                () -> assertEquals(100, style.without(TextStyle.BOLD).getBackground()),
+                () -> assertSame(style, style.without(TextStyle.ITALIC)),
+                () -> assertThrows(IllegalArgumentException.class, () -> style.withForeground(256)),
+                () -> assertThrows(IllegalArgumentException.class, () -> style.withBackground(-2))
+        );
+    }
+
+    @Test
+    void terminalGetsTheAttributesOfTheStyle() {
+        TextStyle style = TextStyle.NONE.bold().inverse().withForeground(Color.GLOSSY_RED).withBackground(200);
+        VirtualTerminal vt = new VirtualTerminal(new TerminalSize(10, 2));
+        vt.process(style.apply("ab") + "c");
+        assertAll(
+                () -> assertEquals(style.getAttributes(), vt.getAttributes(1, 1)),
+                () -> assertEquals(style.getAttributes(), vt.getAttributes(1, 2)),
+                () -> assertEquals(CellAttributes.NONE, vt.getAttributes(1, 3))
+        );
+    }
+}
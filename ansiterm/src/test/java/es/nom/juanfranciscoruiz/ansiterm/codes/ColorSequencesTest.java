@@ -0,0 +1,111 @@
+package es.nom.juanfranciscoruiz.ansiterm.codes;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static es.nom.juanfranciscoruiz.ansiterm.codes.CSI.ESC;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing the precomputed color sequences against the sequences built with
+ * the constants of ColorsAndStylesCodes and the codes of the color enums
+ *
+ * @author Juan F. Ruiz
+ */
+class ColorSequencesTest {
+
+    @Test
+    void palette256() {
+        for (int i = 0; i < 256; i++) {
+            String fg = ColorsAndStylesCodes.FOREGROUND_COLOR256 + i + "m";
+            String bg = ColorsAndStylesCodes.BACKGROUND_COLOR256 + i + "m";
+            int color = i;
+            assertAll("color=" + i,
+                    () -> assertEquals(fg, ColorSequences.foreground256(color)),
+                    () -> assertEquals(bg, ColorSequences.background256(color)),
+                    () -> assertSame(ColorSequences.foreground256(color), ColorSequences.foreground256(color)),
+                    () -> {
+                        byte[] dst = new byte[32];
+                        int end = ColorSequences.copyForeground256(color, dst, 2);
+                        assertEquals(fg, ascii(dst, 2, end));
+                        end = ColorSequences.copyBackground256(color, dst, 0);
+                        assertEquals(bg, ascii(dst, 0, end));
+                    },
+                    () -> {
+                        ByteBuffer buffer = ByteBuffer.allocate(32);
+                        ColorSequences.putForeground256(color, buffer);
+                        ColorSequences.putBackground256(color, buffer);
+                        assertEquals(fg + bg, ascii(buffer.array(), 0, buffer.position()));
+                    }
+            );
+        }
+    }
+
+    @Test
+    void enumColors() {
+        for (Color color : Color.values()) {
+            String fg = ESC + "[" + color.getCode() + "m";
+            assertAll(color.name(),
+                    () -> assertEquals(fg, ColorSequences.foreground(color)),
+                    () -> {
+                        byte[] dst = new byte[16];
+                        assertEquals(fg, ascii(dst, 0, ColorSequences.copy(color, dst, 0)));
+                    }
+            );
+            for (BGColor background : BGColor.values()) {
+                assertEquals(ESC + "[" + color.getCode() + ";" + background.getCode() + "m",
+                        ColorSequences.colors(color, background), color + "/" + background);
+            }
+        }
+        for (BGColor background : BGColor.values()) {
+            String bg = ESC + "[" + background.getCode() + "m";
+            assertAll(background.name(),
+                    () -> assertEquals(bg, ColorSequences.background(background)),
+                    () -> {
+                        byte[] dst = new byte[16];
+                        assertEquals(bg, ascii(dst, 0, ColorSequences.copy(background, dst, 0)));
+                    }
+            );
+        }
+    }
+
+    @Test
+    void resets() {
+        assertAll(
+                () -> assertEquals(ESC + "[39m", ColorSequences.FOREGROUND_RESET),
+                () -> assertEquals(ESC + "[49m", ColorSequences.BACKGROUND_RESET),
+                () -> assertEquals(ColorsAndStylesCodes.RESET_STYLES, ColorSequences.COLORS_RESET)
+        );
+    }
+
+    @Test
+    void invalidArguments() {
+        assertAll(
+                () -> assertThrows(IllegalArgumentException.class, () -> ColorSequences.foreground256(-1)),
+                () -> assertThrows(IllegalArgumentException.class, () -> ColorSequences.background256(256)),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> ColorSequences.copyForeground256(300, new byte[32], 0)),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> ColorSequences.putBackground256(-5, ByteBuffer.allocate(32))),
+                () -> assertThrows(IllegalArgumentException.class, () -> ColorSequences.foreground(null)),
+                () -> assertThrows(IllegalArgumentException.class, () -> ColorSequences.background(null)),
+                () -> assertThrows(IllegalArgumentException.class, () -> ColorSequences.colors(Color.RED, null)),
+                () -> assertThrows(IndexOutOfBoundsException.class,
+                        () -> ColorSequences.copyForeground256(255, new byte[8], 0))
+        );
+    }
+
+    /**
+     * Decodes a range of an array as ASCII.
+     *
+     * @param bytes the array
+     * @param from  the first index
+     * @param to    the index following the last byte
+     * @return the decoded text
+     */
+    private static String ascii(byte[] bytes, int from, int to) {
+        return new String(bytes, from, to - from, StandardCharsets.US_ASCII);
+    }
+}
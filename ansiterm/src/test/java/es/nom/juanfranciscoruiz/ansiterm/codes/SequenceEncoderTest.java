@@ -0,0 +1,146 @@
+package es.nom.juanfranciscoruiz.ansiterm.codes;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing the allocation-free encoder of CSI sequences against the String
+ * builders of the codes package
+ *
+ * @author Juan F. Ruiz
+ */
+class SequenceEncoderTest {
+
+    /**
+     * Parameters with 1 to 10 digits, including the limits of each length
+     */
+    private static final int[] NUMBERS = {0, 1, 9, 10, 42, 99, 100, 255, 999, 1000, 12345, 99999, 100000,
+            999999, 1000000, 9999999, 10000000, 99999999, 100000000, 999999999, 1000000000, Integer.MAX_VALUE};
+
+    @Test
+    void sameSequencesAsStringBuilders() {
+        assertAll(
+                () -> assertEquals(CursorMovementCodes.getSecforSetCursorAtPosition(12, 40),
+                        encode(12, 40, SequenceEncoder.CUP)),
+                () -> assertEquals(CursorMovementCodes.getSecForMoveCursorNLinesUp(3),
+                        encode(3, SequenceEncoder.CUU)),
+                () -> assertEquals(CursorMovementCodes.getSecForMoveCursorNLinesDown(100),
+                        encode(100, SequenceEncoder.CUD)),
+                () -> assertEquals(CursorMovementCodes.getSecForMoveCursorNCharsToRight(7),
+                        encode(7, SequenceEncoder.CUF)),
+                () -> assertEquals(CursorMovementCodes.getSecForMoveCursorNCharsToLeft(80),
+                        encode(80, SequenceEncoder.CUB)),
+                () -> assertEquals(TextModificationCodes.insertSpaces(3), encode(3, SequenceEncoder.ICH)),
+                () -> assertEquals(TextModificationCodes.eraseCharacters(11), encode(11, SequenceEncoder.DCH)),
+                () -> assertEquals(TextModificationCodes.eraseCharactersWithSpaces(5),
+                        encode(5, SequenceEncoder.ECH)),
+                () -> assertEquals(TextModificationCodes.insertLines(2), encode(2, SequenceEncoder.IL)),
+                () -> assertEquals(TextModificationCodes.deleteLines(24), encode(24, SequenceEncoder.DL)),
+                () -> assertEquals(ViewportPositioningCodes.getEsForScrollTextUp(1), encode(1, SequenceEncoder.SU)),
+                () -> assertEquals(ViewportPositioningCodes.getEsForScrollTextDown(9), encode(9, SequenceEncoder.SD)),
+                () -> assertEquals(TabCodes.set_TAB_CURSOR_HORIZONTAL_TAB(4), encode(4, SequenceEncoder.CHT)),
+                () -> assertEquals(TabCodes.set_TAB_CURSOR_BACKWARDS_TAB(2), encode(2, SequenceEncoder.CBT)),
+                () -> assertEquals(ScrollingMarginsCodes.getEsForSetScrollingMargins(5, 120),
+                        encode(5, 120, SequenceEncoder.DECSTBM))
+        );
+    }
+
+    @Test
+    void allTargetsWriteTheSameBytes() {
+        for (int n : NUMBERS) {
+            String one = CSI.ESC + "[" + n + "m";
+            String two = CSI.ESC + "[" + n + ";" + (n / 7) + "H";
+            assertAll("n=" + n,
+                    () -> assertEquals(one, encode(n, SequenceEncoder.SGR)),
+                    () -> assertEquals(two, encode(n, n / 7, SequenceEncoder.CUP)),
+                    () -> {
+                        byte[] dst = new byte[40];
+                        int end = SequenceEncoder.csi(dst, 3, n, n / 7, SequenceEncoder.CUP);
+                        assertEquals(two, new String(dst, 3, end - 3, StandardCharsets.US_ASCII));
+                        end = SequenceEncoder.csi(dst, 0, n, SequenceEncoder.SGR);
+                        assertEquals(one, new String(dst, 0, end, StandardCharsets.US_ASCII));
+                    },
+                    () -> {
+                        // Heap and direct buffers take different paths
+                        for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(40), ByteBuffer.allocateDirect(40)}) {
+                            buffer.put((byte) 'x');
+                            SequenceEncoder.csi(buffer, n, n / 7, SequenceEncoder.CUP);
+                            SequenceEncoder.csi(buffer, n, SequenceEncoder.SGR);
+                            buffer.flip();
+                            byte[] written = new byte[buffer.remaining()];
+                            buffer.get(written);
+                            assertEquals("x" + two + one, new String(written, StandardCharsets.US_ASCII));
+                        }
+                    },
+                    () -> {
+                        StringWriter writer = new StringWriter();
+                        SequenceEncoder.csi(writer, n, n / 7, SequenceEncoder.CUP);
+                        SequenceEncoder.csi(writer, n, SequenceEncoder.SGR);
+                        assertEquals(two + one, writer.toString());
+                    }
+            );
+        }
+    }
+
+    @Test
+    void lengthMatchesTheEncodedSequence() {
+        for (int n : NUMBERS) {
+            assertEquals(String.valueOf(n).length(), SequenceEncoder.digits(n), "digits(" + n + ")");
+            assertEquals(encode(n, SequenceEncoder.CUU).length(), SequenceEncoder.length(n), "length(" + n + ")");
+            for (int m : new int[]{0, 7, 10, 99, 100, 999}) {
+                assertEquals(encode(n, m, SequenceEncoder.CUP).length(), SequenceEncoder.length(n, m),
+                        "length(" + n + ", " + m + ")");
+            }
+        }
+        assertAll(
+                () -> assertEquals(4, SequenceEncoder.length(5)),
+                () -> assertEquals(5, SequenceEncoder.length(42)),
+                () -> assertEquals(6, SequenceEncoder.length(100)),
+                () -> assertEquals(6, SequenceEncoder.length(1, 1)),
+                () -> assertEquals(8, SequenceEncoder.length(24, 80)),
+                () -> assertEquals(10, SequenceEncoder.length(100, 200))
+        );
+    }
+
+    @Test
+    void negativeParametersAreRejected() {
+        assertAll(
+                () -> assertThrows(IllegalArgumentException.class, () -> SequenceEncoder.digits(-1)),
+                () -> assertThrows(IllegalArgumentException.class, () -> SequenceEncoder.length(-1)),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> SequenceEncoder.csi(new StringBuilder(), 1, -5, SequenceEncoder.CUP)),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> SequenceEncoder.csi(new byte[16], 0, -1, SequenceEncoder.CUU)),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> SequenceEncoder.csi(ByteBuffer.allocate(16), -1, SequenceEncoder.CUU))
+        );
+    }
+
+    /**
+     * Encodes a sequence with one parameter into a StringBuilder.
+     *
+     * @param n         the parameter
+     * @param finalChar the final character
+     * @return the sequence
+     */
+    private static String encode(int n, char finalChar) {
+        return SequenceEncoder.csi(new StringBuilder(), n, finalChar).toString();
+    }
+
+    /**
+     * Encodes a sequence with two parameters into a StringBuilder.
+     *
+     * @param n1        the first parameter
+     * @param n2        the second parameter
+     * @param finalChar the final character
+     * @return the sequence
+     */
+    private static String encode(int n1, int n2, char finalChar) {
+        return SequenceEncoder.csi(new StringBuilder(), n1, n2, finalChar).toString();
+    }
+}
@@ -0,0 +1,150 @@
+package es.nom.juanfranciscoruiz.ansiterm.emulator;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing the parser of the terminal output fed in chunks
+ *
+ * @author Juan F. Ruiz
+ */
+class VTParserTest {
+
+    /**
+     * Writes the results of the parser as text: the printable characters as
+     * they are, and the rest between square brackets.
+     */
+    private static final class Recorder implements VTParser.Handler {
+        final StringBuilder events = new StringBuilder();
+
+        @Override
+        public void print(char[] chars, int off, int len) {
+            events.append(chars, off, len);
+        }
+
+        @Override
+        public void execute(char c) {
+            events.append("[x").append((int) c).append(']');
+        }
+
+        @Override
+        public void escDispatch(char intermediate, char command) {
+            events.append("[esc");
+            if (intermediate != 0) {
+                events.append(intermediate);
+            }
+            events.append(command).append(']');
+        }
+
+        @Override
+        public void csiDispatch(char prefix, int[] params, int count, char intermediate, char command) {
+            events.append("[csi");
+            if (prefix != 0) {
+                events.append(prefix);
+            }
+            for (int i = 0; i < count; i++) {
+                events.append(i == 0 ? "" : ";").append(params[i]);
+            }
+            if (intermediate != 0) {
+                events.append(intermediate);
+            }
+            events.append(command).append(']');
+        }
+
+        @Override
+        public void oscDispatch(CharSequence data) {
+            events.append("[osc").append(data).append(']');
+        }
+    }
+
+    @Test
+    void utf8SplitInsideCharacter() {
+        byte[] bytes = "añ€😀z".getBytes(StandardCharsets.UTF_8);
+        // Every possible cut point, including inside the 2, 3 and 4 byte characters
+        for (int cut = 0; cut <= bytes.length; cut++) {
+            Recorder recorder = new Recorder();
+            VTParser parser = new VTParser(recorder);
+            parser.parse(bytes, 0, cut);
+            parser.parse(bytes, cut, bytes.length - cut);
+            assertEquals("añ€😀z", recorder.events.toString(), "Cut at " + cut);
+            assertFalse(parser.hasPending());
+        }
+    }
+
+    @Test
+    void utf8ByteByByte() {
+        byte[] bytes = "€uro ñ😀".getBytes(StandardCharsets.UTF_8);
+        Recorder recorder = new Recorder();
+        VTParser parser = new VTParser(recorder);
+        for (byte b : bytes) {
+            parser.parse(ByteBuffer.wrap(new byte[]{b}));
+        }
+        assertEquals("€uro ñ😀", recorder.events.toString());
+    }
+
+    @Test
+    void csiSplitInsideSequence() {
+        String text = "a\033[?25;1049hb\033[1;31mc\033[2 qd";
+        String expected = "a[csi?25;1049h]b[csi1;31m]c[csi2 q]d";
+        for (int cut = 0; cut <= text.length(); cut++) {
+            Recorder recorder = new Recorder();
+            VTParser parser = new VTParser(recorder);
+            parser.parse(text.substring(0, cut));
+            parser.parse(text.substring(cut));
+            assertEquals(expected, recorder.events.toString(), "Cut at " + cut);
+        }
+    }
+
+    @Test
+    void oscSplitInsideSequence() {
+        String text = "\033]0;Título\007x\033]2;Other\033\\y";
+        String expected = "[osc0;Título]x[osc2;Other]y";
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        for (int cut = 0; cut <= bytes.length; cut++) {
+            Recorder recorder = new Recorder();
+            VTParser parser = new VTParser(recorder);
+            parser.parse(bytes, 0, cut);
+            parser.parse(bytes, cut, bytes.length - cut);
+            assertEquals(expected, recorder.events.toString(), "Cut at " + cut);
+        }
+    }
+
+    @Test
+    void cancelAbortsSequence() {
+        Recorder recorder = new Recorder();
+        VTParser parser = new VTParser(recorder);
+        // CAN and SUB abort the sequence in progress without dispatching it
+        parser.parse("a\033[12\030b\033]0;title\032c\033(\030d");
+        assertEquals("abcd", recorder.events.toString());
+        assertFalse(parser.hasPending());
+        // ESC inside a sequence starts a new one
+        recorder.events.setLength(0);
+        parser.parse("\033[3\033[4me");
+        assertEquals("[csi4m]e", recorder.events.toString());
+        // Control characters inside a CSI are executed
+        recorder.events.setLength(0);
+        parser.parse("\033[1\r;2Hf");
+        assertEquals("[x13][csi1;2H]f", recorder.events.toString());
+    }
+
+    @Test
+    void resetDiscardsPendingSequence() {
+        Recorder recorder = new Recorder();
+        VTParser parser = new VTParser(recorder);
+        parser.parse("\033[12");
+        assertTrue(parser.hasPending());
+        parser.reset();
+        assertFalse(parser.hasPending());
+        parser.parse("3m");
+        assertEquals("3m", recorder.events.toString());
+    }
+
+    @Test
+    void nullHandlerIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new VTParser(null));
+    }
+}
@@ -0,0 +1,135 @@
+package es.nom.juanfranciscoruiz.ansiterm.emulator;
+
+import es.nom.juanfranciscoruiz.ansiterm.ANSITerm;
+import es.nom.juanfranciscoruiz.ansiterm.Position;
+import es.nom.juanfranciscoruiz.ansiterm.TerminalSize;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing the headless terminal emulator
+ *
+ * @author Juan F. Ruiz
+ */
+class VirtualTerminalTest {
+
+    @Test
+    void wrapAtLastColumn() {
+        VirtualTerminal vt = new VirtualTerminal(new TerminalSize(5, 3));
+        vt.process("abcde");
+        // The cursor stays on the last column until the next character
+        assertEquals(new Position(5, 1), vt.getCursorPosition());
+        vt.process("fg");
+        assertEquals("abcde\nfg", vt.getScreenText());
+        assertEquals(new Position(3, 2), vt.getCursorPosition());
+
+        // Without autowrap the last column is overwritten
+        vt.process("\033[?7l\033[3;1Hvwxyz12");
+        assertFalse(vt.isAutowrap());
+        assertEquals("vwxy2", vt.getLineText(3));
+    }
+
+    @Test
+    void scrollAtBottom() {
+        VirtualTerminal vt = new VirtualTerminal(new TerminalSize(10, 3));
+        vt.process("one\r\ntwo\r\nthree\r\nfour");
+        assertEquals("two\nthree\nfour", vt.getScreenText());
+        assertEquals(new Position(5, 3), vt.getCursorPosition());
+        vt.process("\033[2S");
+        assertEquals("four", vt.getScreenText());
+        vt.process("\033[T");
+        assertEquals("\nfour", vt.getScreenText());
+    }
+
+    @Test
+    void scrollingMargins() {
+        VirtualTerminal vt = new VirtualTerminal(new TerminalSize(10, 5));
+        vt.process("1\r\n2\r\n3\r\n4\r\n5");
+        vt.process("\033[2;4r");
+        assertArrayEquals(new int[]{2, 4}, vt.getScrollRegion());
+        // A line feed on the bottom margin scrolls only the region
+        vt.process("\033[4;1H\nx");
+        assertEquals("1\n3\n4\nx\n5", vt.getScreenText());
+        // A reverse line feed on the top margin scrolls it down
+        vt.process("\033[2;1H\033My");
+        assertEquals("1\ny\n3\n4\n5", vt.getScreenText());
+        // Insertion and deletion of lines stay inside the region
+        vt.process("\033[3;1H\033[L");
+        assertEquals("1\ny\n\n3\n5", vt.getScreenText());
+        vt.process("\033[2;1H\033[2M");
+        assertEquals("1\n3\n\n\n5", vt.getScreenText());
+        vt.process("\033[r");
+        assertArrayEquals(new int[]{1, 5}, vt.getScrollRegion());
+    }
+
+    @Test
+    void insertAndDeleteCharacters() {
+        VirtualTerminal vt = new VirtualTerminal(new TerminalSize(8, 2));
+        vt.process("abcdefgh\033[1;3H\033[2@");
+        assertEquals("ab  cdef", vt.getLineText(1));
+        assertEquals(new Position(3, 1), vt.getCursorPosition());
+        vt.process("\033[3P");
+        assertEquals("abdef   ", vt.getLineText(1));
+        // The counts are clamped to the end of the line
+        vt.process("\033[1;2H\033[99P");
+        assertEquals("a       ", vt.getLineText(1));
+        vt.process("\033[2;1Hxyz\033[2;1H\033[99@");
+        assertEquals("        ", vt.getLineText(2));
+    }
+
+    @Test
+    void alternateScreenBuffer() {
+        VirtualTerminal vt = new VirtualTerminal(new TerminalSize(10, 3));
+        vt.process("main\033[2;3H");
+        vt.process("\033[?1049h");
+        assertTrue(vt.isAlternateBuffer());
+        assertEquals("", vt.getScreenText());
+        vt.process("\033[3;1Halt");
+        assertEquals("\n\nalt", vt.getScreenText());
+        vt.process("\033[?1049l");
+        assertFalse(vt.isAlternateBuffer());
+        assertEquals("main", vt.getScreenText());
+        assertEquals(new Position(3, 2), vt.getCursorPosition());
+        // The alternate buffer is cleared each time it is entered
+        vt.process("\033[?1049h");
+        assertEquals("", vt.getScreenText());
+    }
+
+    @Test
+    void lineDrawingCharacterSet() {
+        VirtualTerminal vt = new VirtualTerminal(new TerminalSize(10, 3));
+        vt.process("\033(0lqk\r\nx x\033(B\r\nmqj");
+        assertEquals("┌─┐\n│ │\nmqj", vt.getScreenText());
+    }
+
+    @Test
+    void outputSplitAcrossWrites() throws Exception {
+        VirtualTerminal vt = new VirtualTerminal(new TerminalSize(20, 3));
+        byte[] bytes = "\033[2;5Hñ€\033]0;Title\007".getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) {
+            vt.getOutputStream().write(b);
+        }
+        assertEquals("ñ€", vt.getLineText(2).strip());
+        assertEquals("Title", vt.getTitle());
+        assertEquals(bytes.length, vt.getWrites());
+    }
+
+    @Test
+    void resyncMatchesTrackedPosition() throws Exception {
+        VirtualTerminal vt = new VirtualTerminal(new TerminalSize(40, 10));
+        ANSITerm term = vt.createANSITerm();
+        term.clearScreen();
+        term.printAt("Hello!", 3, 5);
+        term.print("\033[2;4r\033[4;1H\n\n");
+        term.print("0123456789012345678901234567890123456789x\tab");
+        term.flush();
+        Position tracked = term.getCursorPosition();
+        assertEquals(vt.getCursorPosition(), tracked);
+        assertEquals(tracked, term.resyncCursorPosition());
+        assertEquals(tracked, term.getCursorPosition());
+        assertEquals(0, vt.getInputStream().available());
+    }
+}
@@ -0,0 +1,114 @@
+package es.nom.juanfranciscoruiz.ansiterm.input;
+
+import es.nom.juanfranciscoruiz.ansiterm.Position;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing the demultiplexing of keys and cursor position reports
+ *
+ * @author Juan F. Ruiz
+ */
+class InputReaderTest {
+
+    @Test
+    void unexpectedReportIsModifiedF3() throws Exception {
+        try (PipedOutputStream out = new PipedOutputStream();
+             InputReader reader = new InputReader(new PipedInputStream(out)).start()) {
+            write(out, "\033[1;5R");
+            KeyEvent key = reader.pollKey(2, TimeUnit.SECONDS);
+            assertEquals(new KeyEvent(KeyType.F3, -1, KeyEvent.CTRL), key);
+        }
+    }
+
+    @Test
+    void expectedReportCompletesFuture() throws Exception {
+        try (PipedOutputStream out = new PipedOutputStream();
+             InputReader reader = new InputReader(new PipedInputStream(out)).start()) {
+            CompletableFuture<Position> first = reader.expectCursorPosition();
+            CompletableFuture<Position> second = reader.expectCursorPosition();
+            write(out, "a\033[12;40Rb\033[3;7R\033[1;2R");
+            assertEquals(new Position(40, 12), first.get(2, TimeUnit.SECONDS));
+            assertEquals(new Position(7, 3), second.get(2, TimeUnit.SECONDS));
+            assertEquals(0, reader.getPendingPositions());
+            assertEquals(new KeyEvent(KeyType.CHARACTER, 'a', 0), reader.pollKey(2, TimeUnit.SECONDS));
+            assertEquals(new KeyEvent(KeyType.CHARACTER, 'b', 0), reader.pollKey(2, TimeUnit.SECONDS));
+            // Nothing is pending any more: Shift+F3
+            assertEquals(new KeyEvent(KeyType.F3, -1, KeyEvent.SHIFT), reader.pollKey(2, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void abandonedQueryIsForgotten() throws Exception {
+        try (PipedOutputStream out = new PipedOutputStream();
+             InputReader reader = new InputReader(new PipedInputStream(out)).start()) {
+            reader.setLateReportMillis(200);
+            CompletableFuture<Position> cancelled = reader.expectCursorPosition();
+            CompletableFuture<Position> timedOut = reader.expectCursorPosition().orTimeout(10, TimeUnit.MILLISECONDS);
+            cancelled.cancel(false);
+            assertThrows(Exception.class, () -> timedOut.get(2, TimeUnit.SECONDS));
+            // A late report still goes to the abandoned query, not to the next one
+            assertEquals(2, reader.getPendingPositions());
+            CompletableFuture<Position> next = reader.expectCursorPosition();
+            write(out, "\033[5;5R");
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while (reader.getPendingPositions() > 2 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(2, reader.getPendingPositions());
+            assertFalse(next.isDone());
+
+            // Once the late reports are given up, the keys are not swallowed
+            next.cancel(false);
+            Thread.sleep(300);
+            assertEquals(0, reader.getPendingPositions());
+            write(out, "\033[1;5R");
+            assertEquals(new KeyEvent(KeyType.F3, -1, KeyEvent.CTRL), reader.pollKey(2, TimeUnit.SECONDS));
+            assertThrows(IllegalArgumentException.class, () -> reader.setLateReportMillis(-1));
+        }
+    }
+
+    @Test
+    void decoderWithoutPendingQuery() {
+        StringBuilder events = new StringBuilder();
+        InputDecoder decoder = new InputDecoder(new InputDecoder.Handler() {
+            @Override
+            public void keyDecoded(KeyEvent event) {
+                events.append(event.getType()).append(event.getModifiers()).append(' ');
+            }
+
+            @Override
+            public void cursorPositionReported(Position position) {
+                events.append("position ");
+            }
+
+            @Override
+            public boolean cursorPositionExpected() {
+                return false;
+            }
+        });
+        byte[] bytes = "\033[R\033[1;3R\033[1;6R".getBytes(StandardCharsets.US_ASCII);
+        decoder.decode(bytes, 0, bytes.length);
+        assertEquals("F30 F32 F35 ", events.toString());
+    }
+
+    /**
+     * Writes text to the input of the reader.
+     *
+     * @param out  the pipe
+     * @param text the text
+     * @throws IOException if the pipe is broken
+     */
+    private static void write(PipedOutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+}
@@ -0,0 +1,202 @@
+package es.nom.juanfranciscoruiz.ansiterm.screen;
+
+import es.nom.juanfranciscoruiz.ansiterm.TerminalSize;
+import es.nom.juanfranciscoruiz.ansiterm.emulator.VirtualTerminal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing the broadcast of the frames of a screen buffer to several viewers
+ *
+ * @author Juan F. Ruiz
+ */
+class FrameBroadcasterTest {
+
+    /**
+     * Lines of the screens
+     */
+    private static final int LINES = 4;
+    /**
+     * Columns of the screens
+     */
+    private static final int COLUMNS = 20;
+
+    /**
+     * Broadcaster under test
+     */
+    private final FrameBroadcaster broadcaster = new FrameBroadcaster();
+    /**
+     * Screen drawn by the producer
+     */
+    private final ScreenBuffer screen = new ScreenBuffer(LINES, COLUMNS);
+    /**
+     * Lets the writes of the slow viewer go on
+     */
+    private final CountDownLatch gate = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        gate.countDown();
+        broadcaster.close();
+    }
+
+    @Test
+    void lateViewerStartsFromKeyframe() throws Exception {
+        VirtualTerminal early = new VirtualTerminal(new TerminalSize(COLUMNS, LINES));
+        FrameBroadcaster.Viewer first = broadcaster.addViewer(early.getOutputStream());
+        for (int i = 1; i <= 3; i++) {
+            draw(i);
+            broadcaster.publish(screen);
+        }
+
+        VirtualTerminal late = new VirtualTerminal(new TerminalSize(COLUMNS, LINES));
+        late.process("stale contents of the viewer");
+        FrameBroadcaster.Viewer second = broadcaster.addViewer(late.getOutputStream());
+        // A frame without changes still serves the keyframe of the new viewer
+        assertEquals(0, broadcaster.publish(screen));
+        draw(4);
+        broadcaster.publish(screen);
+
+        waitUntil(() -> sameScreen(early) && sameScreen(late));
+        assertEquals(1, first.getKeyframesSent());
+        assertEquals(1, second.getKeyframesSent());
+        assertEquals(0, first.getFramesSkipped());
+        assertEquals(0, second.getFramesSkipped());
+        assertEquals(2, broadcaster.getViewerCount());
+    }
+
+    @Test
+    void slowViewerSkipsToLatestFrame() throws Exception {
+        broadcaster.setMaxPendingFrames(2);
+        VirtualTerminal fastTerminal = new VirtualTerminal(new TerminalSize(COLUMNS, LINES));
+        VirtualTerminal slowTerminal = new VirtualTerminal(new TerminalSize(COLUMNS, LINES));
+        FrameBroadcaster.Viewer fast = broadcaster.addViewer(fastTerminal.getOutputStream());
+        FrameBroadcaster.Viewer slow = broadcaster.addViewer(new GatedStream(slowTerminal.getOutputStream()));
+
+        for (int i = 1; i <= 10; i++) {
+            draw(i);
+            broadcaster.publish(screen);
+            assertTrue(slow.getPendingFrames() <= 2, "Pending frames: " + slow.getPendingFrames());
+            // The fast viewer is not delayed by the slow one
+            long sent = i;
+            waitUntil(() -> fast.getFramesSent() == sent);
+        }
+        assertTrue(sameScreen(fastTerminal));
+        assertEquals(0, fast.getFramesSkipped());
+        assertEquals(1, fast.getKeyframesSent());
+        assertTrue(slow.getFramesSkipped() > 0);
+        assertTrue(slow.getKeyframesSent() > 1);
+
+        gate.countDown();
+        waitUntil(() -> sameScreen(slowTerminal));
+        draw(11);
+        broadcaster.publish(screen);
+        waitUntil(() -> sameScreen(slowTerminal) && sameScreen(fastTerminal));
+        assertTrue(slow.isAttached());
+    }
+
+    @Test
+    void removedViewerGetsNoFrames() throws Exception {
+        VirtualTerminal vt = new VirtualTerminal(new TerminalSize(COLUMNS, LINES));
+        FrameBroadcaster.Viewer viewer = broadcaster.addViewer(vt.getOutputStream());
+        draw(1);
+        broadcaster.publish(screen);
+        waitUntil(() -> sameScreen(vt));
+
+        broadcaster.removeViewer(viewer);
+        assertFalse(viewer.isAttached());
+        long writes = vt.getWrites();
+        draw(2);
+        broadcaster.publish(screen);
+        assertEquals(writes, vt.getWrites());
+        assertEquals(0, broadcaster.getViewerCount());
+        broadcaster.close();
+        assertThrows(IllegalStateException.class, () -> broadcaster.addViewer(vt.getOutputStream()));
+    }
+
+    /**
+     * Draws a frame of the producer.
+     *
+     * @param frame the number of the frame
+     */
+    private void draw(int frame) {
+        screen.print(1, 1, "Frame " + frame + "   ");
+        screen.put(2, frame, '*', CellAttributes.of(CellAttributes.BOLD, frame % 8, -1));
+        screen.fill(3 + frame % 2, 1, 1, COLUMNS, (char) ('a' + frame), CellAttributes.NONE);
+    }
+
+    /**
+     * Indicates whether a viewer terminal shows the screen of the producer.
+     *
+     * @param vt the viewer terminal
+     * @return true if every cell is equal
+     */
+    private boolean sameScreen(VirtualTerminal vt) {
+        for (int l = 1; l <= LINES; l++) {
+            for (int c = 1; c <= COLUMNS; c++) {
+                if (screen.getChar(l, c) != vt.getChar(l, c)
+                        || screen.getAttributes(l, c) != vt.getAttributes(l, c)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits up to 5 seconds for a condition.
+     *
+     * @param condition the condition
+     * @throws InterruptedException if the thread is interrupted
+     */
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean(), "Timed out");
+    }
+
+    /**
+     * A viewer connection that blocks every write until the gate is opened.
+     */
+    private final class GatedStream extends OutputStream {
+        /**
+         * Where the bytes go once the gate is open
+         */
+        private final OutputStream out;
+
+        /**
+         * Instantiates the stream.
+         *
+         * @param out where the bytes go once the gate is open
+         */
+        GatedStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+            out.write(b, off, len);
+        }
+    }
+}
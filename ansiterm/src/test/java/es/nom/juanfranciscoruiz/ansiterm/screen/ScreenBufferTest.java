@@ -0,0 +1,210 @@
+package es.nom.juanfranciscoruiz.ansiterm.screen;
+
+import es.nom.juanfranciscoruiz.ansiterm.ANSITerm;
+import es.nom.juanfranciscoruiz.ansiterm.TerminalSize;
+import es.nom.juanfranciscoruiz.ansiterm.emulator.VirtualTerminal;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing the diff renderer of the screen buffer against the virtual terminal
+ *
+ * @author Juan F. Ruiz
+ */
+class ScreenBufferTest {
+
+    /**
+     * Bold red on the default background
+     */
+    private static final int RED = CellAttributes.of(CellAttributes.BOLD, 1, -1);
+
+    @Test
+    void fullRedrawReplacesTheScreen() throws Exception {
+        VirtualTerminal vt = new VirtualTerminal(new TerminalSize(20, 5));
+        ANSITerm term = vt.createANSITerm();
+        vt.process("garbage left by someone else\033[1;31m");
+        ScreenBuffer screen = new ScreenBuffer(5, 20);
+        screen.print(2, 3, "Hello", RED);
+        screen.print(4, 1, "World");
+
+        assertEquals(10, screen.flush(term));
+        assertScreen(screen, vt);
+        assertEquals("\n  Hello\n\nWorld", vt.getScreenText());
+    }
+
+    @Test
+    void unchangedFrameEmitsNothing() throws Exception {
+        VirtualTerminal vt = new VirtualTerminal(new TerminalSize(20, 5));
+        ANSITerm term = vt.createANSITerm();
+        ScreenBuffer screen = new ScreenBuffer(5, 20);
+        screen.print(1, 1, "static", RED);
+        screen.flush(term);
+
+        long writes = vt.getWrites();
+        long bytes = vt.getBytesProcessed();
+        screen.print(1, 1, "static", RED);
+        assertEquals(0, screen.flush(term));
+        assertEquals(writes, vt.getWrites());
+        assertEquals(bytes, vt.getBytesProcessed());
+        StringBuilder sb = new StringBuilder();
+        assertEquals(0, screen.render(sb));
+        assertEquals("", sb.toString());
+    }
+
+    @Test
+    void partialRedrawBridgesShortGaps() throws Exception {
+        VirtualTerminal vt = new VirtualTerminal(new TerminalSize(20, 5));
+        ANSITerm term = vt.createANSITerm();
+        ScreenBuffer screen = new ScreenBuffer(5, 20);
+        screen.print(3, 1, "abcdefgh");
+        screen.flush(term);
+
+        // One unchanged cell between two changes: re-sent, not jumped over
+        screen.put(3, 2, 'X', CellAttributes.NONE);
+        screen.put(3, 4, 'Y', CellAttributes.NONE);
+        StringBuilder sb = new StringBuilder();
+        assertEquals(2, screen.render(sb));
+        assertEquals("\033[3;2H\033[0mXcY", sb.toString());
+        vt.process(sb);
+        assertScreen(screen, vt);
+
+        // A long gap is jumped over with a cursor movement
+        screen.put(3, 1, '1', CellAttributes.NONE);
+        screen.put(3, 20, '2', CellAttributes.NONE);
+        sb.setLength(0);
+        assertEquals(2, screen.render(sb));
+        assertEquals("\033[3;1H\033[0m1\033[3;20H2", sb.toString());
+        vt.process(sb);
+        assertScreen(screen, vt);
+    }
+
+    @Test
+    void gapWithOtherAttributesIsNotBridged() throws Exception {
+        VirtualTerminal vt = new VirtualTerminal(new TerminalSize(20, 5));
+        ANSITerm term = vt.createANSITerm();
+        ScreenBuffer screen = new ScreenBuffer(5, 20);
+        screen.print(1, 1, "a");
+        screen.print(1, 2, "b", RED);
+        screen.print(1, 3, "c");
+        screen.flush(term);
+
+        screen.put(1, 1, 'x', CellAttributes.NONE);
+        screen.put(1, 3, 'z', CellAttributes.NONE);
+        assertEquals(2, screen.flush(term));
+        assertScreen(screen, vt);
+        assertEquals(RED, vt.getAttributes(1, 2));
+    }
+
+    @Test
+    void lastColumnAndCorner() throws Exception {
+        VirtualTerminal vt = new VirtualTerminal(new TerminalSize(6, 3));
+        ANSITerm term = vt.createANSITerm();
+        ScreenBuffer screen = new ScreenBuffer(3, 6);
+        screen.fill(1, 1, 3, 6, '#', CellAttributes.NONE);
+        assertEquals(18, screen.flush(term));
+        // Writing the bottom right corner must not scroll the screen
+        assertScreen(screen, vt);
+
+        // After the last column the next change is reached with a CUP
+        screen.put(1, 6, 'a', CellAttributes.NONE);
+        screen.put(2, 1, 'b', CellAttributes.NONE);
+        screen.put(3, 6, 'c', RED);
+        StringBuilder sb = new StringBuilder();
+        assertEquals(3, screen.render(sb));
+        assertTrue(sb.indexOf("a\033[2;1H") >= 0, sb.toString());
+        vt.process(sb);
+        assertScreen(screen, vt);
+    }
+
+    @Test
+    void attributesAreResetAfterFlush() throws Exception {
+        VirtualTerminal vt = new VirtualTerminal(new TerminalSize(20, 5));
+        ANSITerm term = vt.createANSITerm();
+        ScreenBuffer screen = new ScreenBuffer(5, 20);
+        screen.print(1, 1, "red", RED);
+        screen.flush(term);
+        assertEquals(RED, vt.getAttributes(1, 3));
+
+        term.print("plain");
+        term.flush();
+        assertEquals(CellAttributes.NONE, vt.getAttributes(1, 4));
+    }
+
+    @Test
+    void resizedRedraw() throws Exception {
+        VirtualTerminal vt = new VirtualTerminal(new TerminalSize(10, 4));
+        ANSITerm term = vt.createANSITerm();
+        ScreenBuffer screen = new ScreenBuffer(4, 10);
+        screen.print(1, 1, "0123456789");
+        screen.print(4, 1, "bottom");
+        screen.flush(term);
+
+        TerminalSize smaller = new TerminalSize(6, 3);
+        vt.setTerminalSize(smaller);
+        screen.resize(smaller);
+        assertEquals('5', screen.getChar(1, 6));
+        assertEquals(' ', screen.getChar(4, 1));
+        screen.print(3, 1, "new");
+        screen.flush(term);
+        assertScreen(screen, vt);
+        assertEquals("012345\n\nnew", vt.getScreenText());
+
+        TerminalSize larger = new TerminalSize(12, 5);
+        vt.setTerminalSize(larger);
+        screen.resize(larger);
+        screen.print(5, 7, "corner");
+        screen.flush(term);
+        assertScreen(screen, vt);
+    }
+
+    @Test
+    void invalidateRepaintsEverything() throws Exception {
+        VirtualTerminal vt = new VirtualTerminal(new TerminalSize(10, 3));
+        ANSITerm term = vt.createANSITerm();
+        ScreenBuffer screen = new ScreenBuffer(3, 10);
+        screen.print(2, 2, "kept");
+        screen.flush(term);
+
+        vt.process("\033[2;1Hoverwritten");
+        screen.invalidate();
+        assertEquals(4, screen.flush(term));
+        assertScreen(screen, vt);
+    }
+
+    @Test
+    void keyframeTrimsTrailingBlanks() {
+        ScreenBuffer screen = new ScreenBuffer(4, 10);
+        screen.print(1, 1, "ab");
+        screen.print(3, 4, "c", RED);
+        screen.render(new StringBuilder());
+
+        StringBuilder sb = new StringBuilder();
+        assertEquals(6, screen.renderKeyframe(sb));
+        String keyframe = sb.toString();
+        assertEquals("\033[0m\033[2J\033[1;1Hab\033[3;1H   \033[0;1;31mc\033[0m", keyframe);
+
+        // The keyframe paints the same screen on a terminal in any state
+        VirtualTerminal vt = new VirtualTerminal(new TerminalSize(10, 4));
+        vt.process("\033[7mnoise\r\nmore noise\r\n\033[4;5Hx");
+        vt.process(keyframe);
+        assertScreen(screen, vt);
+    }
+
+    /**
+     * Checks that the virtual terminal shows the back buffer.
+     *
+     * @param screen the screen buffer
+     * @param vt     the virtual terminal
+     */
+    private static void assertScreen(ScreenBuffer screen, VirtualTerminal vt) {
+        assertEquals(new TerminalSize(screen.getColumns(), screen.getLines()).toString(),
+                vt.getTerminalSize().toString());
+        for (int l = 1; l <= screen.getLines(); l++) {
+            for (int c = 1; c <= screen.getColumns(); c++) {
+                assertEquals(screen.getChar(l, c), vt.getChar(l, c), "Character at " + l + ";" + c);
+                assertEquals(screen.getAttributes(l, c), vt.getAttributes(l, c), "Attributes at " + l + ";" + c);
+            }
+        }
+    }
+}
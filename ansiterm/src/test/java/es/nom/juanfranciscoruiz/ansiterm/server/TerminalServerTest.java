@@ -0,0 +1,228 @@
+package es.nom.juanfranciscoruiz.ansiterm.server;
+
+import es.nom.juanfranciscoruiz.ansiterm.TerminalSize;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static es.nom.juanfranciscoruiz.ansiterm.server.TelnetInputStream.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing the telnet server over the loopback interface
+ *
+ * @author Juan F. Ruiz
+ */
+class TerminalServerTest {
+
+    /**
+     * The initial negotiation sent by the server
+     */
+    private static final byte[] NEGOTIATION = bytes(IAC, WILL, OPT_ECHO, IAC, WILL, OPT_SUPPRESS_GO_AHEAD,
+            IAC, DO, OPT_NAWS);
+
+    /**
+     * Data bytes read by the sessions, -1 at the end of the input
+     */
+    private final BlockingQueue<Integer> data = new LinkedBlockingQueue<>();
+    /**
+     * Sessions that have started their handler
+     */
+    private final BlockingQueue<TelnetSession> started = new LinkedBlockingQueue<>();
+    /**
+     * Server under test
+     */
+    private TerminalServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void negotiation() throws Exception {
+        startEchoServer();
+        try (Socket socket = connect()) {
+            assertArrayEquals(NEGOTIATION, socket.getInputStream().readNBytes(NEGOTIATION.length));
+        }
+    }
+
+    @Test
+    void windowSizeReachesTerminal() throws Exception {
+        startEchoServer();
+        try (Socket socket = connect()) {
+            skipNegotiation(socket);
+            TelnetSession session = started.poll(5, TimeUnit.SECONDS);
+            assertNotNull(session);
+            send(socket, bytes(IAC, WILL, OPT_NAWS, IAC, SB, OPT_NAWS, 0, 100, 0, 40, IAC, SE, 'x'));
+            assertEquals('x', data.poll(5, TimeUnit.SECONDS));
+            assertTrue(session.getInput().isNawsActive());
+            TerminalSize size = session.getStreamTerminal().getTerminalSize();
+            assertEquals(100, size.getColumns());
+            assertEquals(40, size.getLines());
+        }
+    }
+
+    @Test
+    void lineEndsAndEscapedIac() throws Exception {
+        startEchoServer();
+        try (Socket socket = connect()) {
+            skipNegotiation(socket);
+            send(socket, bytes('a', '\r', '\n', 'b', '\r', 0, 'c', IAC, IAC, 'd'));
+            assertArrayEquals(new int[]{'a', '\r', 'b', '\r', 'c', 0xFF, 'd'}, take(7));
+        }
+    }
+
+    @Test
+    void sessionClosesOnEndOfInput() throws Exception {
+        startEchoServer();
+        try (Socket socket = connect()) {
+            skipNegotiation(socket);
+            assertNotNull(started.poll(5, TimeUnit.SECONDS));
+            assertEquals(1, server.getSessionCount());
+            socket.shutdownOutput();
+            assertEquals(-1, data.poll(5, TimeUnit.SECONDS));
+            assertEquals(-1, socket.getInputStream().read());
+            waitForSessions(0);
+        }
+    }
+
+    @Test
+    void sessionsOverTheLimitAreRefused() throws Exception {
+        startEchoServer();
+        server.setMaxSessions(1);
+        try (Socket first = connect(); Socket second = connect()) {
+            skipNegotiation(first);
+            assertEquals(-1, second.getInputStream().read());
+            assertEquals(1, server.getSessionCount());
+        }
+    }
+
+    @Test
+    void iacIsDoubledInOutput() throws Exception {
+        CountDownLatch written = new CountDownLatch(1);
+        server = new TerminalServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), session -> {
+            session.getTerminal().print("ÿ!");
+            session.getTerminal().flush();
+            written.countDown();
+        }, StandardCharsets.ISO_8859_1).start();
+        try (Socket socket = connect()) {
+            skipNegotiation(socket);
+            assertTrue(written.await(5, TimeUnit.SECONDS));
+            ByteArrayOutputStream received = new ByteArrayOutputStream();
+            socket.getInputStream().transferTo(received);
+            assertArrayEquals(bytes(IAC, IAC, '!'), received.toByteArray());
+        }
+    }
+
+    /**
+     * Starts a server whose sessions store the data bytes they read.
+     *
+     * @throws IOException if the server cannot be started
+     */
+    private void startEchoServer() throws IOException {
+        server = new TerminalServer(0, session -> {
+            started.add(session);
+            InputStream in = session.getInput();
+            int c;
+            do {
+                c = in.read();
+                data.add(c);
+            } while (c >= 0);
+        }).start();
+    }
+
+    /**
+     * Connects to the server.
+     *
+     * @return the socket, which fails the reads after 5 seconds
+     * @throws IOException if the connection fails
+     */
+    private Socket connect() throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    /**
+     * Reads and checks the initial negotiation.
+     *
+     * @param socket the connection
+     * @throws IOException if the connection fails
+     */
+    private static void skipNegotiation(Socket socket) throws IOException {
+        assertArrayEquals(NEGOTIATION, socket.getInputStream().readNBytes(NEGOTIATION.length));
+    }
+
+    /**
+     * Sends bytes to the server.
+     *
+     * @param socket the connection
+     * @param b      the bytes
+     * @throws IOException if the connection fails
+     */
+    private static void send(Socket socket, byte[] b) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(b);
+        out.flush();
+    }
+
+    /**
+     * Takes the data bytes read by the sessions.
+     *
+     * @param n the number of bytes
+     * @return the bytes
+     * @throws InterruptedException if the thread is interrupted
+     */
+    private int[] take(int n) throws InterruptedException {
+        int[] result = new int[n];
+        for (int i = 0; i < n; i++) {
+            Integer c = data.poll(5, TimeUnit.SECONDS);
+            assertNotNull(c, "Byte " + i + " not received");
+            result[i] = c;
+        }
+        return result;
+    }
+
+    /**
+     * Waits until the server has the given number of sessions.
+     *
+     * @param count the number of sessions
+     * @throws InterruptedException if the thread is interrupted
+     */
+    private void waitForSessions(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (server.getSessionCount() != count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, server.getSessionCount());
+    }
+
+    /**
+     * Converts unsigned values to bytes.
+     *
+     * @param values the values, from 0 to 255
+     * @return the bytes
+     */
+    private static byte[] bytes(int... values) {
+        byte[] b = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            b[i] = (byte) values[i];
+        }
+        return b;
+    }
+}
@@ -0,0 +1,104 @@
+package es.nom.juanfranciscoruiz.benchmarks;
+
+import es.nom.juanfranciscoruiz.ansiterm.ANSITerm;
+import es.nom.juanfranciscoruiz.ansiterm.TerminalSize;
+import es.nom.juanfranciscoruiz.ansiterm.codes.BGColor;
+import es.nom.juanfranciscoruiz.ansiterm.codes.Color;
+import es.nom.juanfranciscoruiz.ansiterm.exceptions.ANSITermException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the methods of {@link ANSITerm} that wrap a string with the
+ * sequences of styles and colors.
+ *
+ * @author Juan F. Ruiz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnsiTermStylesBenchmark {
+    /**
+     * Text to which the styles are applied
+     */
+    private static final String MSG = "The quick brown fox jumps over the lazy dog";
+
+    /**
+     * Terminal that writes nowhere
+     */
+    private ANSITerm term;
+    /**
+     * Color of the 256-color palette, changed on each call
+     */
+    private int color;
+
+    /**
+     * Creates the terminal.
+     *
+     * @throws ANSITermException if the terminal cannot be created
+     */
+    @Setup
+    public void setup() throws ANSITermException {
+        term = ANSITerm.forStreams(InputStream.nullInputStream(), OutputStream.nullOutputStream(),
+                StandardCharsets.UTF_8, new TerminalSize(120, 40));
+    }
+
+    /**
+     * Applies several styles at once.
+     *
+     * @return the styled string
+     * @throws ANSITermException if the arguments are not valid
+     */
+    @Benchmark
+    public String setStyles() throws ANSITermException {
+        return term.setStyles(true, false, true, true, false, false, false, MSG);
+    }
+
+    /**
+     * Applies a single style.
+     *
+     * @return the styled string
+     */
+    @Benchmark
+    public String setBold() {
+        return term.setBold(MSG);
+    }
+
+    /**
+     * Applies a color of the 256-color palette.
+     *
+     * @return the colored string
+     */
+    @Benchmark
+    public String setColor256() {
+        color = (color + 1) & 0xFF;
+        return term.setColor256(color, MSG);
+    }
+
+    /**
+     * Applies a foreground and a background color.
+     *
+     * @return the colored string
+     * @throws ANSITermException if the arguments are not valid
+     */
+    @Benchmark
+    public String setColors() throws ANSITermException {
+        return term.setColors(Color.YELLOW, BGColor.BLUE, MSG);
+    }
+}
@@ -0,0 +1,61 @@
+package es.nom.juanfranciscoruiz.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the allocation profiler (gc) enabled, so that
+ * every result shows, besides the time, the bytes allocated per operation
+ * ({@code gc.alloc.rate.norm}) and regressions in the number of objects
+ * created are visible. The results are also saved in JSON format in
+ * {@value #RESULT_FILE}, to compare them between versions.
+ * <p>
+ * The arguments are regular expressions of the benchmarks to run; without
+ * arguments all of them are run:
+ * <pre>
+ * mvn package
+ * mvn exec:java -Dexec.args="TypeConverterBenchmark"
+ * </pre>
+ * The benchmarks.jar built by {@code mvn package} also runs them with all
+ * the options of JMH: {@code java -jar target/benchmarks.jar -prof gc}.
+ *
+ * @author Juan F. Ruiz
+ */
+public class BenchmarkRunner {
+    /**
+     * File where the results are saved.
+     */
+    public static final String RESULT_FILE = "target/jmh-result.json";
+
+    /**
+     * This class is not meant to be instantiated.
+     */
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args the regular expressions of the benchmarks to run
+     * @throws RunnerException if the benchmarks cannot be run
+     */
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder builder = new OptionsBuilder();
+        if (args.length == 0) {
+            builder.include(BenchmarkRunner.class.getPackageName() + ".*");
+        }
+        for (String arg : args) {
+            builder.include(arg);
+        }
+        Options options = builder
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(RESULT_FILE)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,119 @@
+package es.nom.juanfranciscoruiz.benchmarks;
+
+import es.nom.juanfranciscoruiz.ansiterm.codes.BGColor;
+import es.nom.juanfranciscoruiz.ansiterm.codes.Color;
+import es.nom.juanfranciscoruiz.ansiterm.codes.ColorSequences;
+import es.nom.juanfranciscoruiz.ansiterm.codes.CursorMovementCodes;
+import es.nom.juanfranciscoruiz.ansiterm.codes.ScrollingMarginsCodes;
+import es.nom.juanfranciscoruiz.ansiterm.codes.SequenceEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the generators of sequences of the codes package, both the ones
+ * that return a new string and the ones that append to a reused
+ * StringBuilder.
+ *
+ * @author Juan F. Ruiz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CodesBenchmark {
+    /**
+     * Buffer reused by the appending generators
+     */
+    private final StringBuilder sb = new StringBuilder(64);
+    /**
+     * Line and column, changed on each call so that the results are not
+     * constant
+     */
+    private int line;
+    private int column;
+
+    /**
+     * Returns the next position of the cursor.
+     */
+    private void nextPosition() {
+        line = line % 40 + 1;
+        column = column % 120 + 1;
+    }
+
+    /**
+     * Generates a cursor position sequence as a string.
+     *
+     * @return the sequence
+     */
+    @Benchmark
+    public String cursorPosition() {
+        nextPosition();
+        return CursorMovementCodes.getSecforSetCursorAtPosition(line, column);
+    }
+
+    /**
+     * Appends a cursor position sequence to a reused buffer.
+     *
+     * @return the buffer
+     */
+    @Benchmark
+    public StringBuilder cursorPositionAppend() {
+        nextPosition();
+        sb.setLength(0);
+        return SequenceEncoder.csi(sb, line, column, SequenceEncoder.CUP);
+    }
+
+    /**
+     * Generates a cursor movement sequence.
+     *
+     * @return the sequence
+     */
+    @Benchmark
+    public String cursorRight() {
+        nextPosition();
+        return CursorMovementCodes.getSecForMoveCursorNCharsToRight(column);
+    }
+
+    /**
+     * Generates a 256-color foreground sequence.
+     *
+     * @return the sequence
+     */
+    @Benchmark
+    public String foreground256() {
+        nextPosition();
+        return ColorSequences.foreground256(column);
+    }
+
+    /**
+     * Generates a sequence with a foreground and a background color.
+     *
+     * @return the sequence
+     */
+    @Benchmark
+    public String colors() {
+        return ColorSequences.colors(Color.GREEN, BGColor.BLACK);
+    }
+
+    /**
+     * Generates a scrolling margins sequence.
+     *
+     * @return the sequence
+     */
+    @Benchmark
+    public String scrollingMargins() {
+        nextPosition();
+        return ScrollingMarginsCodes.getEsForSetScrollingMargins(1, line + 1);
+    }
+}
@@ -0,0 +1,66 @@
+package es.nom.juanfranciscoruiz.benchmarks;
+
+import es.nom.juanfranciscoruiz.utiles.impl.IOimpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link IOimpl#prtln(int, Object...)} writing to a channel that
+ * discards the output, so that the cost of formatting and encoding is
+ * measured instead of the speed of the console.
+ *
+ * @author Juan F. Ruiz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IOimplBenchmark {
+    /**
+     * Sends the output of IOimpl nowhere.
+     */
+    @Setup
+    public void setup() {
+        IOimpl.setOutputChannel(Channels.newChannel(OutputStream.nullOutputStream()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Sends the output of IOimpl back to the console.
+     */
+    @TearDown
+    public void tearDown() {
+        IOimpl.setOutputChannel(null);
+    }
+
+    /**
+     * Prints a line of text.
+     */
+    @Benchmark
+    public void prtlnText() {
+        IOimpl.prtln(1, "The quick brown fox jumps over the lazy dog");
+    }
+
+    /**
+     * Prints several objects of different types in a line.
+     */
+    @Benchmark
+    public void prtlnObjects() {
+        IOimpl.prtln(2, "Total: ", 1234, " items, ", 56.78, " EUR");
+    }
+}
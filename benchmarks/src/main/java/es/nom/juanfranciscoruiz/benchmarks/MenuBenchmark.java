@@ -0,0 +1,68 @@
+package es.nom.juanfranciscoruiz.benchmarks;
+
+import es.nom.juanfranciscoruiz.utiles.Menu;
+import es.nom.juanfranciscoruiz.utiles.exceptions.MenuException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the generation of the text of a {@link Menu}, which is rebuilt
+ * each time the menu is shown.
+ *
+ * @author Juan F. Ruiz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MenuBenchmark {
+    /**
+     * Number of options of the menu
+     */
+    @Param({"5", "30"})
+    public int options;
+
+    /**
+     * The menu
+     */
+    private Menu menu;
+
+    /**
+     * Creates the menu.
+     *
+     * @throws MenuException if the menu cannot be created
+     */
+    @Setup
+    public void setup() throws MenuException {
+        List<String> list = new ArrayList<>();
+        for (int i = 1; i <= options; i++) {
+            list.add(i + ". Option number " + i + " of the menu");
+        }
+        menu = new Menu(list, "Main menu of the benchmark", "Choose an option:", true);
+    }
+
+    /**
+     * Generates the text of the menu.
+     *
+     * @return the text
+     */
+    @Benchmark
+    public String generateMenuView() {
+        return menu.getMenuView();
+    }
+}
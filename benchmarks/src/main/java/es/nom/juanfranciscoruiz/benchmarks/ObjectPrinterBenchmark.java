@@ -0,0 +1,97 @@
+package es.nom.juanfranciscoruiz.benchmarks;
+
+import es.nom.juanfranciscoruiz.utiles.CollectionFormatter;
+import es.nom.juanfranciscoruiz.utiles.ObjectPrinter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the printing of object graphs with {@link ObjectPrinter} and of
+ * large containers with {@link CollectionFormatter}, whose cost must depend on
+ * the limits and not on the size of the objects.
+ *
+ * @author Juan F. Ruiz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ObjectPrinterBenchmark {
+    /**
+     * A small graph of records, as found in log messages.
+     */
+    public record Point(int x, int y) {
+    }
+
+    /**
+     * A record with nested records and a list.
+     */
+    public record Shape(String name, Point origin, List<Point> points) {
+    }
+
+    private final ObjectPrinter printer = new ObjectPrinter();
+    private final StringBuilder sb = new StringBuilder(256);
+    private Shape shape;
+    private Map<Integer, String> cache;
+
+    /**
+     * Creates the graph and a map with a million entries.
+     */
+    @Setup
+    public void setup() {
+        shape = new Shape("triangle", new Point(0, 0), List.of(new Point(1, 2), new Point(3, 4), new Point(5, 6)));
+        cache = new HashMap<>();
+        for (int i = 0; i < 1_000_000; i++) {
+            cache.put(i, "value" + i);
+        }
+    }
+
+    /**
+     * Prints the graph with the cached accessors into a reused builder.
+     *
+     * @return true if the graph was truncated
+     * @throws IOException never, the destination is a StringBuilder
+     */
+    @Benchmark
+    public boolean printGraph() throws IOException {
+        sb.setLength(0);
+        return printer.print(shape, sb);
+    }
+
+    /**
+     * Prints the graph with the toString() generated for records, as a
+     * reference.
+     *
+     * @return the text
+     */
+    @Benchmark
+    public String recordToString() {
+        return shape.toString();
+    }
+
+    /**
+     * Prints the first 20 entries of a map with a million entries.
+     *
+     * @return the text
+     */
+    @Benchmark
+    public String formatLargeMap() {
+        return CollectionFormatter.format(cache, 20);
+    }
+}
@@ -0,0 +1,96 @@
+package es.nom.juanfranciscoruiz.benchmarks;
+
+import es.nom.juanfranciscoruiz.ansiterm.ANSITerm;
+import es.nom.juanfranciscoruiz.ansiterm.TerminalSize;
+import es.nom.juanfranciscoruiz.ansiterm.exceptions.ANSITermException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the redraw of a full screen with printAt, as a dashboard does on
+ * each refresh. The output goes to a stream that discards it, so only the
+ * cost of building and encoding the frame is measured.
+ *
+ * @author Juan F. Ruiz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedrawBenchmark {
+    /**
+     * Number of lines of the screen
+     */
+    @Param({"24", "60"})
+    public int lines;
+
+    /**
+     * Terminal that writes nowhere
+     */
+    private ANSITerm term;
+    /**
+     * Text of each line
+     */
+    private String[] texts;
+
+    /**
+     * Creates the terminal and the texts.
+     *
+     * @throws ANSITermException if the terminal cannot be created
+     */
+    @Setup
+    public void setup() throws ANSITermException {
+        term = ANSITerm.forStreams(InputStream.nullInputStream(), OutputStream.nullOutputStream(),
+                StandardCharsets.UTF_8, new TerminalSize(120, lines));
+        texts = new String[lines];
+        for (int i = 0; i < lines; i++) {
+            texts[i] = "Line %3d | cpu %5.1f%% | mem %6d KB | status OK".formatted(i + 1, i * 1.7, i * 1024);
+        }
+    }
+
+    /**
+     * Redraws the whole screen in a single frame, one printAt per line.
+     *
+     * @throws ANSITermException if a position is not valid
+     */
+    @Benchmark
+    public void redrawFrame() throws ANSITermException {
+        term.beginFrame();
+        try {
+            for (int i = 0; i < lines; i++) {
+                term.printAt(texts[i], i + 1, 1);
+            }
+        } finally {
+            term.commitFrame();
+        }
+    }
+
+    /**
+     * Redraws the whole screen without a frame, flushing at the end.
+     *
+     * @throws ANSITermException if a position is not valid
+     */
+    @Benchmark
+    public void redrawFlush() throws ANSITermException {
+        for (int i = 0; i < lines; i++) {
+            term.printAt(texts[i], i + 1, 1);
+        }
+        term.flush();
+    }
+}
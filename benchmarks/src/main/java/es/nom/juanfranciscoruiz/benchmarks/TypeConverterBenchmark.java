@@ -0,0 +1,137 @@
+package es.nom.juanfranciscoruiz.benchmarks;
+
+import es.nom.juanfranciscoruiz.utiles.TypeConverter;
+import es.nom.juanfranciscoruiz.utiles.exceptions.TypeConverterException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversions of {@link TypeConverter}: the extraction of
+ * numbers from strings and the conversion of arrays and maps to strings.
+ *
+ * @author Juan F. Ruiz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypeConverterBenchmark {
+    /**
+     * Arrays and maps converted to strings
+     */
+    private int[] ints;
+    private String[] strings;
+    private byte[] bytes;
+    private Map<String, Object> map;
+
+    /**
+     * Creates the arrays and the maps.
+     */
+    @Setup
+    public void setup() {
+        ints = new int[100];
+        strings = new String[100];
+        bytes = new byte[256];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = i * 31;
+            strings[i] = "item-" + i;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        map = new LinkedHashMap<>();
+        for (int i = 0; i < 50; i++) {
+            map.put("key" + i, i % 2 == 0 ? Integer.valueOf(i) : List.of(i, i + 1, i + 2));
+        }
+    }
+
+    /**
+     * Extracts a long from a string with other characters.
+     *
+     * @return the number
+     * @throws TypeConverterException if the number cannot be extracted
+     */
+    @Benchmark
+    public Long extractLongFromString() throws TypeConverterException {
+        return TypeConverter.extractLongFromString("-987654321012 items in stock");
+    }
+
+    /**
+     * Extracts a double from a string with other characters.
+     *
+     * @return the number
+     * @throws TypeConverterException if the number cannot be extracted
+     */
+    @Benchmark
+    public Double extractDoubleFromString() throws TypeConverterException {
+        return TypeConverter.extractDoubleFromString("Price: 1234.56 EUR");
+    }
+
+    /**
+     * Converts an array of primitives to a string.
+     *
+     * @return the string
+     */
+    @Benchmark
+    public String intArray2String() {
+        return TypeConverter.array2String(ints);
+    }
+
+    /**
+     * Writes an array of primitives to a Writer that discards the text.
+     *
+     * @return true if the text was truncated
+     * @throws IOException never, the Writer discards the text
+     */
+    @Benchmark
+    public boolean intArray2Writer() throws IOException {
+        return TypeConverter.array2String(ints, Writer.nullWriter(), Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Converts an array of objects to a string.
+     *
+     * @return the string
+     */
+    @Benchmark
+    public String stringArray2String() {
+        return TypeConverter.array2String(strings);
+    }
+
+    /**
+     * Converts an array of bytes to a string with indexes.
+     *
+     * @return the string
+     */
+    @Benchmark
+    public String arrayByte2String() {
+        return TypeConverter.arrayByte2String(bytes, true, true);
+    }
+
+    /**
+     * Converts a map with nested lists to a string.
+     *
+     * @return the string
+     */
+    @Benchmark
+    public String map2String() {
+        return TypeConverter.map2String(map);
+    }
+}
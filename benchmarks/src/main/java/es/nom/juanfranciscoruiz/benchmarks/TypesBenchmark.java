@@ -0,0 +1,88 @@
+package es.nom.juanfranciscoruiz.benchmarks;
+
+import es.nom.juanfranciscoruiz.utiles.Types;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the type checks of {@link Types}, with valid and invalid values,
+ * since the invalid ones may be much slower if they throw exceptions.
+ *
+ * @author Juan F. Ruiz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypesBenchmark {
+    /**
+     * Values checked. They are fields so that the JIT cannot fold them.
+     */
+    private Object string = "Hello";
+    private Object emptyString = "";
+    private Object list = List.of(1, 2, 3);
+    private Object map = Map.of("a", 1);
+    private Object array = new int[]{1, 2, 3};
+    private Object integer = 123_456;
+    private Object integerText = "123456";
+    private Object notInteger = "12a456";
+
+    /**
+     * Checks values of several types with isNullOrEmpty.
+     *
+     * @param bh consumes the results
+     */
+    @Benchmark
+    public void isNullOrEmpty(Blackhole bh) {
+        bh.consume(Types.isNullOrEmpty(null));
+        bh.consume(Types.isNullOrEmpty(string));
+        bh.consume(Types.isNullOrEmpty(emptyString));
+        bh.consume(Types.isNullOrEmpty(list));
+        bh.consume(Types.isNullOrEmpty(map));
+        bh.consume(Types.isNullOrEmpty(array));
+    }
+
+    /**
+     * Checks an Integer.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public boolean isIntegerObject() {
+        return Types.isInteger(integer);
+    }
+
+    /**
+     * Checks a string with an integer.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public boolean isIntegerValid() {
+        return Types.isInteger(integerText);
+    }
+
+    /**
+     * Checks a string that is not an integer.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public boolean isIntegerInvalid() {
+        return Types.isInteger(notInteger);
+    }
+}
@@ -0,0 +1,394 @@
+package es.nom.juanfranciscoruiz.utiles;
+
+import es.nom.juanfranciscoruiz.utiles.impl.IOimpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Array;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the textual representation of collections, maps, iterables and
+ * arrays within a budget of elements.
+ * <p>
+ * The containers are iterated only until the budget is exhausted, so writing
+ * a container with millions of elements costs as much as writing the budget,
+ * and the text is written to any {@link Appendable} as it is produced.
+ * Nested containers are written recursively, sharing the same budget, and a
+ * container that contains itself, directly or through other containers, is
+ * written as {@value #CYCLE} instead of being followed.
+ * <p>
+ * The format is that of {@link java.util.AbstractCollection#toString()} and
+ * {@link java.util.AbstractMap#toString()}: {@code [a, b, c]} and
+ * {@code {k1=v1, k2=v2}}, with "..." in place of the elements left out.
+ *
+ * @author Juan F. Ruiz
+ */
+public class CollectionFormatter {
+
+    /**
+     * Written in place of a container that contains itself.
+     */
+    public static final String CYCLE = "(cycle)";
+
+    /**
+     * For debugging.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(CollectionFormatter.class);
+
+    /**
+     * Singleton instance of the {@code CollectionFormatter} class.
+     */
+    private static final CollectionFormatter INSTANCE = new CollectionFormatter();
+
+    /**
+     * How a container is written: its delimiters, the text around each
+     * element or entry, the separator between them and the mark of the
+     * elements left out.
+     *
+     * @param open              the start of a collection, iterable or array
+     * @param close             the end of a collection, iterable or array
+     * @param mapOpen           the start of a map
+     * @param mapClose          the end of a map
+     * @param elementPrefix     written before each element
+     * @param elementSuffix     written after each element
+     * @param entryPrefix       written before each entry of a map
+     * @param keyValueSeparator written between the key and the value
+     * @param entrySuffix       written after each entry of a map
+     * @param separator         written between two elements or entries
+     * @param ellipsis          written in place of the elements left out
+     */
+    record Style(String open, String close, String mapOpen, String mapClose,
+                 String elementPrefix, String elementSuffix,
+                 String entryPrefix, String keyValueSeparator, String entrySuffix,
+                 String separator, String ellipsis) {
+    }
+
+    /**
+     * The format of the collections of the JDK, used for nested containers.
+     */
+    static final Style JDK = new Style("[", "]", "{", "}", "", "", "", "=", "", ", ", "...");
+
+    /**
+     * The format of {@link Util#CollectionToString(Object, boolean, int)}.
+     */
+    static final Style QUOTED = new Style("[", "]", "[", "]", "'", "' ", "{'", "'->'", "'} ", "", " ...");
+
+    /**
+     * The format of {@link TypeConverter#map2String(Map)}: one line per entry.
+     */
+    static final Style LINES = new Style("", "", "", "", "", IOimpl.getLS(), "", IOimpl.getSEP(),
+            IOimpl.getLS(), "", "..." + IOimpl.getLS());
+
+    /**
+     * Private constructor to prevent instantiation from outside the class.
+     */
+    private CollectionFormatter() {
+    }
+
+    /**
+     * Returns the singleton instance of the CollectionFormatter class.
+     *
+     * @return the singleton instance of the CollectionFormatter class.
+     */
+    public static CollectionFormatter getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the textual representation of a container within a budget of
+     * elements. Any other object is written with {@link String#valueOf(Object)}.
+     *
+     * @param obj         a collection, map, iterable or array, may be null
+     * @param maxElements the maximum number of elements written, nested
+     *                    ones included; values below zero are taken as zero
+     * @return the textual representation
+     */
+    public static String format(Object obj, int maxElements) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            format(obj, sb, maxElements);
+        } catch (IOException e) {
+            // A StringBuilder never throws
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the textual representation of a container within a budget of
+     * elements. Any other object is written with {@link String#valueOf(Object)}.
+     *
+     * @param obj         a collection, map, iterable or array, may be null
+     * @param out         where the text is written, e.g. a Writer or a StringBuilder
+     * @param maxElements the maximum number of elements written, nested
+     *                    ones included; values below zero are taken as zero
+     * @return true if some element was left out
+     * @throws IOException if the destination fails
+     * @throws IllegalArgumentException if 'out' is null
+     */
+    public static boolean format(Object obj, Appendable out, int maxElements)
+            throws IOException, IllegalArgumentException {
+        return write(obj, out, maxElements, JDK);
+    }
+
+    /**
+     * Writes an object with the given style for its outermost container.
+     *
+     * @param obj         the object, may be null
+     * @param out         the destination
+     * @param maxElements the budget of elements
+     * @param style       the style of the outermost container
+     * @return true if some element was left out
+     * @throws IOException if the destination fails
+     * @throws IllegalArgumentException if 'out' is null
+     */
+    static boolean write(Object obj, Appendable out, int maxElements, Style style)
+            throws IOException, IllegalArgumentException {
+        if (out == null) {
+            String error = "Parameter is null!";
+            logger.error(error);
+            throw new IllegalArgumentException(error);
+        }
+        Walker walker = new Walker(out, maxElements);
+        if (isContainer(obj)) {
+            walker.container(obj, style);
+        } else {
+            out.append(String.valueOf(obj));
+        }
+        return walker.truncated;
+    }
+
+    /**
+     * Indicates whether an object is written element by element. Paths are
+     * iterable but are written as text, since each of their elements is in
+     * turn a path.
+     *
+     * @param obj the object
+     * @return true for collections, maps, arrays and other iterables
+     */
+    static boolean isContainer(Object obj) {
+        return obj instanceof Map<?, ?>
+                || (obj instanceof Iterable<?> && !(obj instanceof Path))
+                || (obj != null && obj.getClass().isArray());
+    }
+
+    /**
+     * Returns the number of elements of a container, if it can be known
+     * without iterating it.
+     *
+     * @param obj the object
+     * @return the number of elements, or -1 if it is not a collection, map or
+     * array
+     */
+    static int size(Object obj) {
+        if (obj instanceof Collection<?> collection) {
+            return collection.size();
+        } else if (obj instanceof Map<?, ?> map) {
+            return map.size();
+        } else if (obj != null && obj.getClass().isArray()) {
+            return Array.getLength(obj);
+        }
+        return -1;
+    }
+
+    /**
+     * Walks the containers of one call keeping the budget and the containers
+     * being written. {@link ObjectPrinter} extends it to write the objects
+     * that are not containers.
+     */
+    static class Walker {
+        /**
+         * Destination of the text
+         */
+        final Appendable out;
+        /**
+         * Maximum number of elements written
+         */
+        private final int maxElements;
+        /**
+         * Containers and objects being written, from the outermost
+         */
+        private final List<Object> ancestors = new ArrayList<>();
+        /**
+         * Number of elements written
+         */
+        private int elements;
+        /**
+         * True once some element has been left out
+         */
+        boolean truncated;
+
+        /**
+         * Creates a walker.
+         *
+         * @param out         the destination
+         * @param maxElements the budget of elements
+         */
+        Walker(Appendable out, int maxElements) {
+            this.out = out;
+            this.maxElements = Math.max(0, maxElements);
+        }
+
+        /**
+         * Writes an element or a key or value of an entry.
+         *
+         * @param obj the object, may be null
+         * @throws IOException if the destination fails
+         */
+        final void value(Object obj) throws IOException {
+            if (isContainer(obj)) {
+                container(obj, JDK);
+            } else {
+                other(obj);
+            }
+        }
+
+        /**
+         * Writes an object that is not a container.
+         *
+         * @param obj the object, may be null
+         * @throws IOException if the destination fails
+         */
+        void other(Object obj) throws IOException {
+            out.append(String.valueOf(obj));
+        }
+
+        /**
+         * Writes a container, unless it is one of the containers being written.
+         *
+         * @param obj   the container
+         * @param style its style
+         * @throws IOException if the destination fails
+         */
+        final void container(Object obj, Style style) throws IOException {
+            if (!enter(obj)) {
+                return;
+            }
+            if (obj instanceof Map<?, ?> map) {
+                out.append(style.mapOpen());
+                Iterator<? extends Map.Entry<?, ?>> it = map.entrySet().iterator();
+                for (boolean first = true; it.hasNext() && next(first, style); first = false) {
+                    Map.Entry<?, ?> entry = it.next();
+                    out.append(style.entryPrefix());
+                    value(entry.getKey());
+                    out.append(style.keyValueSeparator());
+                    value(entry.getValue());
+                    out.append(style.entrySuffix());
+                }
+                out.append(style.mapClose());
+            } else if (obj instanceof Iterable<?> iterable) {
+                out.append(style.open());
+                Iterator<?> it = iterable.iterator();
+                for (boolean first = true; it.hasNext() && next(first, style); first = false) {
+                    element(it.next(), style);
+                }
+                out.append(style.close());
+            } else if (style == JDK && obj.getClass().getComponentType().isPrimitive()) {
+                // Written by TypeConverter without boxing the elements
+                int written = TypeConverter.primitiveArray2String(obj, out, maxElements - elements);
+                elements += written;
+                truncated |= written < Array.getLength(obj);
+            } else {
+                out.append(style.open());
+                int length = Array.getLength(obj);
+                for (int i = 0; i < length && next(i == 0, style); i++) {
+                    element(Array.get(obj, i), style);
+                }
+                out.append(style.close());
+            }
+            leave();
+        }
+
+        /**
+         * Starts the writing of a container or object, unless it is one of
+         * those being written.
+         *
+         * @param obj the container or object
+         * @return false if it is being written, once {@value #CYCLE} is written
+         * @throws IOException if the destination fails
+         */
+        boolean enter(Object obj) throws IOException {
+            if (isAncestor(obj)) {
+                out.append(CYCLE);
+                return false;
+            }
+            ancestors.add(obj);
+            return true;
+        }
+
+        /**
+         * Indicates whether a container or object is one of those being
+         * written.
+         *
+         * @param obj the container or object
+         * @return true if it contains itself
+         */
+        final boolean isAncestor(Object obj) {
+            for (Object ancestor : ancestors) {
+                if (ancestor == obj) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Ends the writing of the last container or object entered.
+         */
+        final void leave() {
+            ancestors.remove(ancestors.size() - 1);
+        }
+
+        /**
+         * Returns the number of containers and objects being written.
+         *
+         * @return the depth of the next value written
+         */
+        final int depth() {
+            return ancestors.size();
+        }
+
+        /**
+         * Writes an element of a collection, iterable or array.
+         *
+         * @param obj   the element
+         * @param style the style of its container
+         * @throws IOException if the destination fails
+         */
+        private void element(Object obj, Style style) throws IOException {
+            out.append(style.elementPrefix());
+            value(obj);
+            out.append(style.elementSuffix());
+        }
+
+        /**
+         * Prepares the writing of the next element of a container, which is
+         * known to exist, writing the separator in front of it.
+         *
+         * @param first true if it is the first element of its container
+         * @param style the style of the container
+         * @return false if the budget is exhausted, once the ellipsis is written
+         * @throws IOException if the destination fails
+         */
+        final boolean next(boolean first, Style style) throws IOException {
+            if (!first) {
+                out.append(style.separator());
+            }
+            if (elements >= maxElements) {
+                out.append(style.ellipsis());
+                truncated = true;
+                return false;
+            }
+            elements++;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package es.nom.juanfranciscoruiz.utiles;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Encodes bytes to hexadecimal text and decodes hexadecimal text to bytes in
+ * bulk.
+ * <p>
+ * Encoding looks up the two digits of every byte in a table of 512 characters
+ * and writes them straight into the destination array, so no object is
+ * created per byte. Decoding accepts lowercase and uppercase digits.
+ *
+ * @author Juan F. Ruiz
+ */
+public class Hex {
+
+    /**
+     * For debugging.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(Hex.class);
+
+    /**
+     * Singleton instance of the {@code Hex} class.
+     */
+    private static final Hex INSTANCE = new Hex();
+
+    /**
+     * The two lowercase digits of every byte value: those of byte b are at
+     * positions 2b and 2b + 1.
+     */
+    static final char[] TABLE = new char[512];
+
+    /**
+     * The value of every ASCII hexadecimal digit, or -1 for other characters.
+     */
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        char[] digits = "0123456789abcdef".toCharArray();
+        for (int b = 0; b < 256; b++) {
+            TABLE[b << 1] = digits[b >>> 4];
+            TABLE[(b << 1) + 1] = digits[b & 0x0f];
+        }
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < 16; i++) {
+            VALUES[digits[i]] = (byte) i;
+            VALUES[Character.toUpperCase(digits[i])] = (byte) i;
+        }
+    }
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private Hex() {
+    }
+
+    /**
+     * Returns the singleton instance of the Hex class.
+     *
+     * @return the singleton instance of the Hex class.
+     */
+    public static Hex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Encodes the bytes of an array.
+     *
+     * @param src the bytes
+     * @return two lowercase hexadecimal digits per byte
+     * @throws IllegalArgumentException if 'src' is null
+     */
+    public static char[] encode(byte[] src) throws IllegalArgumentException {
+        checkNotNull(src);
+        char[] dst = new char[src.length << 1];
+        encode(src, 0, src.length, dst, 0);
+        return dst;
+    }
+
+    /**
+     * Encodes the bytes of an array to a string.
+     *
+     * @param src the bytes
+     * @return a string with two lowercase hexadecimal digits per byte
+     * @throws IllegalArgumentException if 'src' is null
+     */
+    public static String encodeToString(byte[] src) throws IllegalArgumentException {
+        return new String(encode(src));
+    }
+
+    /**
+     * Encodes the remaining bytes of a buffer. The position of the buffer
+     * does not change.
+     *
+     * @param src the bytes
+     * @return two lowercase hexadecimal digits per byte
+     * @throws IllegalArgumentException if 'src' is null
+     */
+    public static char[] encode(ByteBuffer src) throws IllegalArgumentException {
+        checkNotNull(src);
+        int position = src.position();
+        char[] dst = new char[src.remaining() << 1];
+        for (int i = 0, j = 0; j < dst.length; i++, j += 2) {
+            int k = (src.get(position + i) & 0xff) << 1;
+            dst[j] = TABLE[k];
+            dst[j + 1] = TABLE[k + 1];
+        }
+        return dst;
+    }
+
+    /**
+     * Encodes a range of bytes into a character array.
+     *
+     * @param src    the bytes
+     * @param off    the first byte encoded
+     * @param len    the number of bytes encoded
+     * @param dst    the destination, with room for 2 * len characters
+     * @param dstOff the position of the first digit in the destination
+     * @return the number of characters written, 2 * len
+     * @throws IllegalArgumentException if an array is null
+     * @throws IndexOutOfBoundsException if a range is out of its array
+     */
+    public static int encode(byte[] src, int off, int len, char[] dst, int dstOff)
+            throws IllegalArgumentException {
+        checkNotNull(src);
+        checkNotNull(dst);
+        Objects.checkFromIndexSize(off, len, src.length);
+        Objects.checkFromIndexSize(dstOff, len << 1, dst.length);
+        for (int i = off, j = dstOff, end = off + len; i < end; i++, j += 2) {
+            int k = (src[i] & 0xff) << 1;
+            dst[j] = TABLE[k];
+            dst[j + 1] = TABLE[k + 1];
+        }
+        return len << 1;
+    }
+
+    /**
+     * Encodes a range of bytes into a byte array as ASCII digits.
+     *
+     * @param src    the bytes
+     * @param off    the first byte encoded
+     * @param len    the number of bytes encoded
+     * @param dst    the destination, with room for 2 * len bytes
+     * @param dstOff the position of the first digit in the destination
+     * @return the number of bytes written, 2 * len
+     * @throws IllegalArgumentException if an array is null
+     * @throws IndexOutOfBoundsException if a range is out of its array
+     */
+    public static int encode(byte[] src, int off, int len, byte[] dst, int dstOff)
+            throws IllegalArgumentException {
+        checkNotNull(src);
+        checkNotNull(dst);
+        Objects.checkFromIndexSize(off, len, src.length);
+        Objects.checkFromIndexSize(dstOff, len << 1, dst.length);
+        for (int i = off, j = dstOff, end = off + len; i < end; i++, j += 2) {
+            int k = (src[i] & 0xff) << 1;
+            dst[j] = (byte) TABLE[k];
+            dst[j + 1] = (byte) TABLE[k + 1];
+        }
+        return len << 1;
+    }
+
+    /**
+     * Decodes hexadecimal text.
+     *
+     * @param hex an even number of hexadecimal digits, without separators
+     * @return the bytes
+     * @throws IllegalArgumentException if 'hex' is null, has an odd length
+     *                                  or has characters that are not
+     *                                  hexadecimal digits
+     */
+    public static byte[] decode(CharSequence hex) throws IllegalArgumentException {
+        checkNotNull(hex);
+        byte[] dst = new byte[checkEven(hex.length()) >> 1];
+        decode(hex, 0, hex.length(), dst, 0);
+        return dst;
+    }
+
+    /**
+     * Decodes the remaining bytes of a buffer holding hexadecimal digits as
+     * ASCII characters. The position of the buffer does not change.
+     *
+     * @param hex an even number of ASCII hexadecimal digits
+     * @return the bytes
+     * @throws IllegalArgumentException if 'hex' is null, has an odd length
+     *                                  or has bytes that are not hexadecimal
+     *                                  digits
+     */
+    public static byte[] decode(ByteBuffer hex) throws IllegalArgumentException {
+        checkNotNull(hex);
+        int position = hex.position();
+        byte[] dst = new byte[checkEven(hex.remaining()) >> 1];
+        for (int i = 0, j = position; i < dst.length; i++, j += 2) {
+            dst[i] = (byte) (value(hex.get(j) & 0xff, j - position) << 4
+                    | value(hex.get(j + 1) & 0xff, j + 1 - position));
+        }
+        return dst;
+    }
+
+    /**
+     * Decodes a range of hexadecimal text into a byte array.
+     *
+     * @param hex    the text
+     * @param off    the first digit decoded
+     * @param len    the number of digits decoded, an even number
+     * @param dst    the destination, with room for len / 2 bytes
+     * @param dstOff the position of the first byte in the destination
+     * @return the number of bytes written, len / 2
+     * @throws IllegalArgumentException if 'hex' or 'dst' is null, 'len' is
+     *                                  odd or the range has characters that
+     *                                  are not hexadecimal digits
+     * @throws IndexOutOfBoundsException if a range is out of its array
+     */
+    public static int decode(CharSequence hex, int off, int len, byte[] dst, int dstOff)
+            throws IllegalArgumentException {
+        checkNotNull(hex);
+        checkNotNull(dst);
+        checkEven(len);
+        Objects.checkFromIndexSize(off, len, hex.length());
+        Objects.checkFromIndexSize(dstOff, len >> 1, dst.length);
+        for (int i = off, j = dstOff, end = off + len; i < end; i += 2, j++) {
+            dst[j] = (byte) (value(hex.charAt(i), i) << 4 | value(hex.charAt(i + 1), i + 1));
+        }
+        return len >> 1;
+    }
+
+    /**
+     * Returns the value of a hexadecimal digit.
+     *
+     * @param c        the digit
+     * @param position its position, for the error message
+     * @return the value, between 0 and 15
+     * @throws IllegalArgumentException if the character is not a digit
+     */
+    private static int value(int c, int position) throws IllegalArgumentException {
+        int value = c < 128 ? VALUES[c] : -1;
+        if (value < 0) {
+            String error = "Invalid hexadecimal digit at position " + position + "!";
+            logger.error(error);
+            throw new IllegalArgumentException(error);
+        }
+        return value;
+    }
+
+    /**
+     * Checks that a number of digits is even.
+     *
+     * @param length the number of digits
+     * @return the number of digits
+     * @throws IllegalArgumentException if it is odd
+     */
+    private static int checkEven(int length) throws IllegalArgumentException {
+        if ((length & 1) != 0) {
+            String error = "The number of hexadecimal digits must be even!";
+            logger.error(error);
+            throw new IllegalArgumentException(error);
+        }
+        return length;
+    }
+
+    /**
+     * Checks that a parameter is not null.
+     *
+     * @param obj the parameter
+     * @throws IllegalArgumentException if it is null
+     */
+    private static void checkNotNull(Object obj) throws IllegalArgumentException {
+        if (obj == null) {
+            String error = "Parameter is null!";
+            logger.error(error);
+            throw new IllegalArgumentException(error);
+        }
+    }
+}
@@ -0,0 +1,498 @@
+package es.nom.juanfranciscoruiz.utiles;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the hexadecimal dump of bytes in the format of the {@code xxd}
+ * command: one line per group of bytes with the offset, the bytes in
+ * hexadecimal and the bytes as ASCII characters.
+ * <pre>
+ * 00000000: 4865 6c6c 6f2c 2057 6f72 6c64 0a00 ff09  Hello, World....
+ * </pre>
+ * Files are read through memory-mapped windows and the text is written to the
+ * destination in blocks, so files of any size can be dumped with constant
+ * memory. The dump can optionally be colored, as {@code xxd -R} does, with
+ * any set of ANSI sequences (see {@link Colors}).
+ *
+ * @author Juan F. Ruiz
+ */
+public class HexDump {
+
+    /**
+     * For debugging.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(HexDump.class);
+
+    /**
+     * Bytes per line by default, as in xxd.
+     */
+    public static final int DEFAULT_BYTES_PER_LINE = 16;
+
+    /**
+     * Bytes per group of hexadecimal digits by default, as in xxd.
+     */
+    public static final int DEFAULT_GROUP_SIZE = 2;
+
+    /**
+     * Greatest number of bytes per line.
+     */
+    public static final int MAX_BYTES_PER_LINE = 256;
+
+    /**
+     * Sequences that start the color of each kind of byte. Any of them may be
+     * null to leave that kind of byte uncolored. The sequences can be taken
+     * from any source, for instance the {@code ColorSequences} class of the
+     * ansiterm library.
+     *
+     * @param zero       the sequence for the byte 0x00
+     * @param printable  the sequence for printable ASCII characters
+     * @param whitespace the sequence for tabs, line feeds, vertical tabs,
+     *                   form feeds and carriage returns
+     * @param other      the sequence for the rest of the bytes
+     * @param ff         the sequence for the byte 0xff
+     * @param reset      the sequence that restores the default colors
+     */
+    public record Colors(String zero, String printable, String whitespace, String other, String ff,
+                         String reset) {
+    }
+
+    /**
+     * The colors of {@code xxd -R}: white for 0x00, green for printable
+     * characters, yellow for whitespace, blue for 0xff and red for the rest.
+     */
+    public static final Colors XXD_COLORS = new Colors(
+            "\033[1;37m", "\033[1;32m", "\033[1;33m", "\033[1;31m", "\033[1;34m", "\033[0m");
+
+    /**
+     * Size of the windows in which files are mapped into memory.
+     */
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Characters accumulated before passing them to the destination.
+     */
+    private static final int BLOCK_SIZE = 16 * 1024;
+
+    /**
+     * Kinds of byte, indexes of the color sequences.
+     */
+    private static final byte ZERO = 0;
+    private static final byte PRINTABLE = 1;
+    private static final byte WHITESPACE = 2;
+    private static final byte OTHER = 3;
+    private static final byte FF = 4;
+
+    /**
+     * The kind of every byte value.
+     */
+    private static final byte[] KINDS = new byte[256];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            if (b == 0) {
+                KINDS[b] = ZERO;
+            } else if (b == 0xff) {
+                KINDS[b] = FF;
+            } else if (b >= 0x20 && b < 0x7f) {
+                KINDS[b] = PRINTABLE;
+            } else if (b >= '\t' && b <= '\r') {
+                KINDS[b] = WHITESPACE;
+            } else {
+                KINDS[b] = OTHER;
+            }
+        }
+    }
+
+    private final int bytesPerLine;
+    private final int groupSize;
+    private final Colors colors;
+    private final char[][] sequences;
+    private final char[] reset;
+    private final int maxLineLength;
+
+    /**
+     * Creates a dumper with the format of xxd: 16 bytes per line in groups of
+     * two and no colors.
+     */
+    public HexDump() {
+        this(DEFAULT_BYTES_PER_LINE, DEFAULT_GROUP_SIZE, null);
+    }
+
+    /**
+     * Creates a dumper.
+     *
+     * @param bytesPerLine the bytes per line, between 1 and
+     *                     {@link #MAX_BYTES_PER_LINE}
+     * @param groupSize    the bytes per group of hexadecimal digits, between
+     *                     1 and 'bytesPerLine'
+     * @param colors       the colors, or null for a plain dump
+     * @throws IllegalArgumentException if a size is out of range
+     */
+    public HexDump(int bytesPerLine, int groupSize, Colors colors) throws IllegalArgumentException {
+        if (bytesPerLine < 1 || bytesPerLine > MAX_BYTES_PER_LINE
+                || groupSize < 1 || groupSize > bytesPerLine) {
+            String error = "The bytes per line must be between 1 and " + MAX_BYTES_PER_LINE
+                    + " and the group size between 1 and the bytes per line!";
+            logger.error(error);
+            throw new IllegalArgumentException(error);
+        }
+        this.bytesPerLine = bytesPerLine;
+        this.groupSize = groupSize;
+        this.colors = colors;
+        int longest = 0;
+        if (colors != null) {
+            sequences = new char[][]{
+                toChars(colors.zero()), toChars(colors.printable()), toChars(colors.whitespace()),
+                toChars(colors.other()), toChars(colors.ff())
+            };
+            reset = toChars(colors.reset());
+            for (char[] sequence : sequences) {
+                longest = Math.max(longest, sequence.length);
+            }
+            longest += reset.length;
+        } else {
+            sequences = null;
+            reset = null;
+        }
+        int groups = (bytesPerLine + groupSize - 1) / groupSize;
+        // Offset, hexadecimal and ASCII columns, with a color change per byte
+        maxLineLength = 16 + 2 + bytesPerLine * 2 + groups + 1 + bytesPerLine + 1
+                + 2 * bytesPerLine * longest;
+    }
+
+    // Getters and setters
+
+    /**
+     * Returns the bytes per line.
+     *
+     * @return the bytes per line
+     */
+    public int getBytesPerLine() {
+        return bytesPerLine;
+    }
+
+    /**
+     * Returns the bytes per group of hexadecimal digits.
+     *
+     * @return the bytes per group
+     */
+    public int getGroupSize() {
+        return groupSize;
+    }
+
+    /**
+     * Returns the colors of the dump.
+     *
+     * @return the colors, or null if the dump is plain
+     */
+    public Colors getColors() {
+        return colors;
+    }
+
+    // Methods
+
+    /**
+     * Dumps the bytes of an array.
+     *
+     * @param data the bytes
+     * @param out  where the dump is written, e.g. a Writer or a StringBuilder
+     * @return the number of bytes dumped
+     * @throws IOException if the destination fails
+     * @throws IllegalArgumentException if a parameter is null
+     */
+    public long dump(byte[] data, Appendable out) throws IOException, IllegalArgumentException {
+        checkNotNull(data);
+        return dump(ByteBuffer.wrap(data), out);
+    }
+
+    /**
+     * Dumps the remaining bytes of a buffer, with offsets counted from its
+     * position. The position of the buffer does not change.
+     *
+     * @param data the bytes
+     * @param out  where the dump is written, e.g. a Writer or a StringBuilder
+     * @return the number of bytes dumped
+     * @throws IOException if the destination fails
+     * @throws IllegalArgumentException if a parameter is null
+     */
+    public long dump(ByteBuffer data, Appendable out) throws IOException, IllegalArgumentException {
+        checkNotNull(data);
+        Sink sink = new Sink(checkNotNull(out));
+        dump(data, data.position(), data.remaining(), 0, sink);
+        sink.flush();
+        return data.remaining();
+    }
+
+    /**
+     * Dumps a whole file.
+     *
+     * @param file the file
+     * @param out  where the dump is written, e.g. a Writer or a StringBuilder
+     * @return the number of bytes dumped
+     * @throws IOException if the file cannot be read or the destination fails
+     * @throws IllegalArgumentException if a parameter is null
+     */
+    public long dump(Path file, Appendable out) throws IOException, IllegalArgumentException {
+        return dump(file, 0, Long.MAX_VALUE, out);
+    }
+
+    /**
+     * Dumps part of a file, like {@code xxd -s start -l length}. The offsets
+     * written are those of the file.
+     *
+     * @param file   the file
+     * @param start  the offset of the first byte dumped
+     * @param length the maximum number of bytes dumped
+     * @param out    where the dump is written, e.g. a Writer or a StringBuilder
+     * @return the number of bytes dumped
+     * @throws IOException if the file cannot be read or the destination fails
+     * @throws IllegalArgumentException if a parameter is null or 'start' or
+     *                                  'length' is negative
+     */
+    public long dump(Path file, long start, long length, Appendable out)
+            throws IOException, IllegalArgumentException {
+        checkNotNull(file);
+        Sink sink = new Sink(checkNotNull(out));
+        if (start < 0 || length < 0) {
+            String error = "The start and the length cannot be negative!";
+            logger.error(error);
+            throw new IllegalArgumentException(error);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long end = start + Math.min(length, Math.max(0, channel.size() - start));
+            // Whole lines per window, so that no line is split between two
+            long window = (long) (WINDOW_SIZE / bytesPerLine) * bytesPerLine;
+            for (long position = start; position < end; position += window) {
+                int size = (int) Math.min(window, end - position);
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+                dump(buffer, 0, size, position, sink);
+            }
+            sink.flush();
+            return end - start;
+        }
+    }
+
+    /**
+     * Dumps a range of a buffer line by line.
+     *
+     * @param buffer the bytes, read with absolute positions
+     * @param from   the position of the first byte
+     * @param length the number of bytes
+     * @param offset the offset written for the first byte
+     * @param sink   where the lines are written
+     * @throws IOException if the destination fails
+     */
+    private void dump(ByteBuffer buffer, int from, int length, long offset, Sink sink) throws IOException {
+        for (int done = 0; done < length; done += bytesPerLine) {
+            int count = Math.min(bytesPerLine, length - done);
+            char[] dst = sink.reserve(maxLineLength);
+            sink.position = writeLine(buffer, from + done, count, offset + done, dst, sink.position);
+        }
+    }
+
+    /**
+     * Writes one line of the dump.
+     *
+     * @param buffer the bytes
+     * @param from   the position of the first byte of the line
+     * @param count  the number of bytes of the line
+     * @param offset the offset written
+     * @param dst    the destination
+     * @param p      the position in the destination
+     * @return the position after the line
+     */
+    private int writeLine(ByteBuffer buffer, int from, int count, long offset, char[] dst, int p) {
+        // Offset, with at least eight digits
+        int digits = Math.max(8, (67 - Long.numberOfLeadingZeros(offset)) >> 2);
+        for (int shift = (digits - 1) << 2; shift >= 0; shift -= 4) {
+            dst[p++] = Hex.TABLE[(((int) (offset >>> shift) & 0x0f) << 1) + 1];
+        }
+        dst[p++] = ':';
+        dst[p++] = ' ';
+        // Hexadecimal column
+        int current = -1;
+        for (int i = 0; i < bytesPerLine; i++) {
+            if (i < count) {
+                int b = buffer.get(from + i) & 0xff;
+                if (sequences != null) {
+                    p = color(KINDS[b], current, dst, p);
+                    current = KINDS[b];
+                }
+                dst[p++] = Hex.TABLE[b << 1];
+                dst[p++] = Hex.TABLE[(b << 1) + 1];
+                if (i == count - 1) {
+                    p = endColor(current, dst, p);
+                }
+            } else {
+                dst[p++] = ' ';
+                dst[p++] = ' ';
+            }
+            if ((i + 1) % groupSize == 0 || i == bytesPerLine - 1) {
+                dst[p++] = ' ';
+            }
+        }
+        dst[p++] = ' ';
+        // ASCII column
+        current = -1;
+        for (int i = 0; i < count; i++) {
+            int b = buffer.get(from + i) & 0xff;
+            if (sequences != null) {
+                p = color(KINDS[b], current, dst, p);
+                current = KINDS[b];
+            }
+            dst[p++] = KINDS[b] == PRINTABLE ? (char) b : '.';
+        }
+        p = endColor(current, dst, p);
+        dst[p++] = '\n';
+        return p;
+    }
+
+    /**
+     * Writes the color sequence of a kind of byte if it differs from the
+     * current one.
+     *
+     * @param kind    the kind of the byte
+     * @param current the kind of the previous byte, or -1
+     * @param dst     the destination
+     * @param p       the position in the destination
+     * @return the position after the sequence
+     */
+    private int color(int kind, int current, char[] dst, int p) {
+        if (kind != current) {
+            if (current >= 0 && sequences[kind].length == 0) {
+                p = put(reset, dst, p);
+            }
+            p = put(sequences[kind], dst, p);
+        }
+        return p;
+    }
+
+    /**
+     * Restores the default colors at the end of a column.
+     *
+     * @param current the kind of the last byte, or -1 if there were none
+     * @param dst     the destination
+     * @param p       the position in the destination
+     * @return the position after the sequence
+     */
+    private int endColor(int current, char[] dst, int p) {
+        return current >= 0 ? put(reset, dst, p) : p;
+    }
+
+    /**
+     * Copies a sequence to the destination.
+     *
+     * @param sequence the sequence
+     * @param dst      the destination
+     * @param p        the position in the destination
+     * @return the position after the sequence
+     */
+    private static int put(char[] sequence, char[] dst, int p) {
+        System.arraycopy(sequence, 0, dst, p, sequence.length);
+        return p + sequence.length;
+    }
+
+    /**
+     * Returns the characters of a sequence.
+     *
+     * @param sequence the sequence, may be null
+     * @return its characters, none if it is null
+     */
+    private static char[] toChars(String sequence) {
+        return sequence == null ? new char[0] : sequence.toCharArray();
+    }
+
+    /**
+     * Checks that a parameter is not null.
+     *
+     * @param obj the parameter
+     * @param <T> the type of the parameter
+     * @return the parameter
+     * @throws IllegalArgumentException if it is null
+     */
+    private static <T> T checkNotNull(T obj) throws IllegalArgumentException {
+        if (obj == null) {
+            String error = "Parameter is null!";
+            logger.error(error);
+            throw new IllegalArgumentException(error);
+        }
+        return obj;
+    }
+
+    /**
+     * Accumulates the lines in a block of characters and passes it to the
+     * destination when it is full.
+     */
+    private static final class Sink {
+        private final Appendable out;
+        private final char[] block = new char[BLOCK_SIZE];
+        private char[] large;
+        private int position;
+
+        /**
+         * Creates a sink.
+         *
+         * @param out the destination
+         */
+        Sink(Appendable out) {
+            this.out = out;
+        }
+
+        /**
+         * Makes room for a line, passing the accumulated text to the
+         * destination if needed.
+         *
+         * @param length the greatest length of the line
+         * @return the array where the line must be written from 'position'
+         * @throws IOException if the destination fails
+         */
+        char[] reserve(int length) throws IOException {
+            char[] current = buffer();
+            if (position + length > current.length) {
+                flush();
+                if (length > block.length && large == null) {
+                    large = new char[length];
+                }
+            }
+            return buffer();
+        }
+
+        /**
+         * Returns the array in use: the block, or a larger array for lines
+         * that do not fit in it.
+         *
+         * @return the array
+         */
+        private char[] buffer() {
+            return large != null ? large : block;
+        }
+
+        /**
+         * Passes the accumulated text to the destination.
+         *
+         * @throws IOException if the destination fails
+         */
+        void flush() throws IOException {
+            if (position > 0) {
+                char[] chars = buffer();
+                if (out instanceof Writer writer) {
+                    writer.write(chars, 0, position);
+                } else if (out instanceof StringBuilder sb) {
+                    sb.append(chars, 0, position);
+                } else {
+                    out.append(CharBuffer.wrap(chars, 0, position));
+                }
+                position = 0;
+            }
+        }
+    }
+}
@@ -189,7 +189,7 @@ public class MenuManager {
 
         // Extracts and validates option; throws on failure
         try {
-            resp = TypeConverter.extractLongFromString(respuesta);
+            resp = TypeConverter.extractLong(respuesta);
             // Validates option is within allowed range; throws on failure
             if (Objects.equals(resp, MenuConstants.WRONG_OPTION)) {
                 error(logger, MenuErrors.ERR_NOT_VALID_NUMBER);
@@ -0,0 +1,877 @@
+package es.nom.juanfranciscoruiz.utiles;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
+import java.util.function.LongConsumer;
+import java.util.stream.DoubleStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Extracts all the numbers of a text, which may be a String, a CharBuffer, a
+ * Reader or a file of any size, and delivers them as primitives, without
+ * boxing them, to a {@link LongStream}, a {@link DoubleStream} or a
+ * {@link LongConsumer}/{@link DoubleConsumer} sink.
+ * <p>
+ * A number is an optional '-', one or more digits and optionally a '.'
+ * followed by one or more digits, as in
+ * {@link TypeConverter#extractDouble(CharSequence)}: "t=-3.07s, n=12" has the
+ * numbers -3.07 and 12. The double methods return all the numbers, and the
+ * long methods only the integers, skipping the decimal numbers and the
+ * integers out of the range of a long.
+ * <p>
+ * The text is read once, character by character, with a state machine that
+ * keeps the number being read in primitives, so a text of any size is
+ * scanned in constant memory. The streams of a CharSequence and of a file can
+ * be run in parallel: the input is split in chunks at characters that cannot
+ * be part of a number, so every number is read whole by exactly one chunk.
+ * Files are read through memory-mapped windows, without copying them into
+ * the heap, and must be in an ASCII-compatible encoding such as UTF-8 or
+ * ISO-8859-1:
+ * <pre>{@code
+ * try (LongStream ids = NumberTokenizer.longs(Path.of("export.log"))) {
+ *     long total = ids.parallel().sum();
+ * }
+ * }</pre>
+ *
+ * @author Juan F. Ruiz
+ */
+public class NumberTokenizer {
+
+    /**
+     * Size of the chunks below which a parallel stream is no longer split.
+     */
+    public static final int MIN_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Maximum size of the memory-mapped windows of a file.
+     */
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Size of the buffer used to read from a Reader.
+     */
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    /**
+     * Singleton instance of the {@code NumberTokenizer} class.
+     */
+    private static final NumberTokenizer INSTANCE = new NumberTokenizer();
+
+    /**
+     * The constructor is private to prevent instantiation, as all the methods
+     * of the class are static.
+     */
+    private NumberTokenizer() {
+    }
+
+    /**
+     * Returns the singleton instance of the NumberTokenizer class.
+     *
+     * @return the singleton instance of NumberTokenizer.
+     */
+    public static NumberTokenizer getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the integers of a text. The stream can be run in parallel.
+     *
+     * @param text the text, e.g. a String or a CharBuffer
+     * @return a stream with the integers
+     * @throws IllegalArgumentException if the text is null
+     */
+    public static LongStream longs(CharSequence text) throws IllegalArgumentException {
+        return StreamSupport.longStream(new LongSpliterator(new TextChunk(checkNotNull(text))), false);
+    }
+
+    /**
+     * Returns the numbers of a text. The stream can be run in parallel.
+     *
+     * @param text the text, e.g. a String or a CharBuffer
+     * @return a stream with the numbers
+     * @throws IllegalArgumentException if the text is null
+     */
+    public static DoubleStream doubles(CharSequence text) throws IllegalArgumentException {
+        return StreamSupport.doubleStream(new DoubleSpliterator(new TextChunk(checkNotNull(text))), false);
+    }
+
+    /**
+     * Returns the integers read from a Reader. The stream is sequential and
+     * reads the Reader as it is consumed; closing the Reader is up to the
+     * caller. The read errors are thrown as {@link UncheckedIOException}.
+     *
+     * @param reader the reader
+     * @return a stream with the integers
+     * @throws IllegalArgumentException if the reader is null
+     */
+    public static LongStream longs(Reader reader) throws IllegalArgumentException {
+        return StreamSupport.longStream(new LongSpliterator(new ReaderChunk(checkNotNull(reader))), false);
+    }
+
+    /**
+     * Returns the numbers read from a Reader. The stream is sequential and
+     * reads the Reader as it is consumed; closing the Reader is up to the
+     * caller. The read errors are thrown as {@link UncheckedIOException}.
+     *
+     * @param reader the reader
+     * @return a stream with the numbers
+     * @throws IllegalArgumentException if the reader is null
+     */
+    public static DoubleStream doubles(Reader reader) throws IllegalArgumentException {
+        return StreamSupport.doubleStream(new DoubleSpliterator(new ReaderChunk(checkNotNull(reader))), false);
+    }
+
+    /**
+     * Returns the integers of a file, which is read through memory-mapped
+     * windows. The stream can be run in parallel and must be closed to close
+     * the file. The read errors are thrown as {@link UncheckedIOException}.
+     *
+     * @param file the file, in an ASCII-compatible encoding
+     * @return a stream with the integers
+     * @throws IOException              if the file cannot be opened
+     * @throws IllegalArgumentException if the file is null
+     */
+    public static LongStream longs(Path file) throws IOException, IllegalArgumentException {
+        FileChannel channel = FileChannel.open(checkNotNull(file), StandardOpenOption.READ);
+        return StreamSupport.longStream(new LongSpliterator(new FileChunk(channel, 0, channel.size())), false)
+                .onClose(() -> closeUnchecked(channel));
+    }
+
+    /**
+     * Returns the numbers of a file, which is read through memory-mapped
+     * windows. The stream can be run in parallel and must be closed to close
+     * the file. The read errors are thrown as {@link UncheckedIOException}.
+     *
+     * @param file the file, in an ASCII-compatible encoding
+     * @return a stream with the numbers
+     * @throws IOException              if the file cannot be opened
+     * @throws IllegalArgumentException if the file is null
+     */
+    public static DoubleStream doubles(Path file) throws IOException, IllegalArgumentException {
+        FileChannel channel = FileChannel.open(checkNotNull(file), StandardOpenOption.READ);
+        return StreamSupport.doubleStream(new DoubleSpliterator(new FileChunk(channel, 0, channel.size())), false)
+                .onClose(() -> closeUnchecked(channel));
+    }
+
+    /**
+     * Passes the integers of a text to a sink.
+     *
+     * @param text the text, e.g. a String or a CharBuffer
+     * @param sink receives the integers
+     * @return the number of integers found
+     * @throws IllegalArgumentException if an argument is null
+     */
+    public static long scanLongs(CharSequence text, LongConsumer sink) throws IllegalArgumentException {
+        Machine machine = new Machine(false);
+        machine.longSink = checkNotNull(sink);
+        new TextChunk(checkNotNull(text)).feed(machine, false);
+        return machine.count;
+    }
+
+    /**
+     * Passes the numbers of a text to a sink.
+     *
+     * @param text the text, e.g. a String or a CharBuffer
+     * @param sink receives the numbers
+     * @return the number of numbers found
+     * @throws IllegalArgumentException if an argument is null
+     */
+    public static long scanDoubles(CharSequence text, DoubleConsumer sink) throws IllegalArgumentException {
+        Machine machine = new Machine(true);
+        machine.doubleSink = checkNotNull(sink);
+        new TextChunk(checkNotNull(text)).feed(machine, false);
+        return machine.count;
+    }
+
+    /**
+     * Passes the integers read from a Reader to a sink. Closing the Reader is
+     * up to the caller.
+     *
+     * @param reader the reader
+     * @param sink   receives the integers
+     * @return the number of integers found
+     * @throws IOException              if the reader fails
+     * @throws IllegalArgumentException if an argument is null
+     */
+    public static long scanLongs(Reader reader, LongConsumer sink) throws IOException, IllegalArgumentException {
+        Machine machine = new Machine(false);
+        machine.longSink = checkNotNull(sink);
+        feedChecked(new ReaderChunk(checkNotNull(reader)), machine);
+        return machine.count;
+    }
+
+    /**
+     * Passes the numbers read from a Reader to a sink. Closing the Reader is
+     * up to the caller.
+     *
+     * @param reader the reader
+     * @param sink   receives the numbers
+     * @return the number of numbers found
+     * @throws IOException              if the reader fails
+     * @throws IllegalArgumentException if an argument is null
+     */
+    public static long scanDoubles(Reader reader, DoubleConsumer sink) throws IOException, IllegalArgumentException {
+        Machine machine = new Machine(true);
+        machine.doubleSink = checkNotNull(sink);
+        feedChecked(new ReaderChunk(checkNotNull(reader)), machine);
+        return machine.count;
+    }
+
+    /**
+     * Returns true if a character can be part of a number, so that a text
+     * cannot be split after it.
+     *
+     * @param c the character
+     * @return true for the digits, '-' and '.'
+     */
+    static boolean isNumberChar(int c) {
+        return (c >= '0' && c <= '9') || c == '-' || c == '.';
+    }
+
+    /**
+     * Checks that an argument is not null.
+     *
+     * @param <T> the type of the argument
+     * @param obj the argument
+     * @return the argument
+     * @throws IllegalArgumentException if the argument is null
+     */
+    private static <T> T checkNotNull(T obj) throws IllegalArgumentException {
+        if (obj == null) {
+            throw new IllegalArgumentException("The argument cannot be null");
+        }
+        return obj;
+    }
+
+    /**
+     * Feeds a whole chunk to a machine, rethrowing the read errors as checked
+     * exceptions.
+     *
+     * @param chunk   the chunk
+     * @param machine the machine
+     * @throws IOException if the chunk cannot be read
+     */
+    private static void feedChecked(Chunk chunk, Machine machine) throws IOException {
+        try {
+            chunk.feed(machine, false);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Closes a file channel, rethrowing the error as an unchecked exception.
+     *
+     * @param channel the channel
+     */
+    private static void closeUnchecked(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * State machine that recognizes the numbers of a text fed character by
+     * character and passes them to a sink.
+     */
+    private static final class Machine {
+        // States
+        private static final int GROUND = 0;
+        private static final int MINUS = 1;
+        private static final int INTEGER = 2;
+        private static final int POINT = 3;
+        private static final int FRACTION = 4;
+
+        /**
+         * Greatest integer below which all the integers are exactly
+         * representable by a double.
+         */
+        private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+        /**
+         * Exact powers of ten that can be represented by a double.
+         */
+        private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+        };
+
+        /**
+         * True to deliver all the numbers as doubles, false to deliver only
+         * the integers as longs
+         */
+        final boolean decimals;
+        /**
+         * Sinks of the numbers
+         */
+        LongConsumer longSink;
+        DoubleConsumer doubleSink;
+        /**
+         * Number of numbers delivered
+         */
+        long count;
+        /**
+         * Current state
+         */
+        private int state = GROUND;
+        /**
+         * True if the number being read is negative
+         */
+        private boolean negative;
+        /**
+         * Integer being read, accumulated in negative, and whether it has
+         * overflowed a long
+         */
+        private long integer;
+        private boolean overflow;
+        /**
+         * Significant digits and number of decimals of the number being read,
+         * while they fit in the 53 bits of a double
+         */
+        private long mantissa;
+        private int fractionDigits;
+        private boolean exact;
+        /**
+         * Characters of the number being read, for the numbers that cannot
+         * be converted exactly from the mantissa
+         */
+        private final StringBuilder digits = new StringBuilder(32);
+
+        /**
+         * Creates a machine.
+         *
+         * @param decimals true to deliver all the numbers as doubles, false
+         *                 to deliver only the integers as longs
+         */
+        Machine(boolean decimals) {
+            this.decimals = decimals;
+        }
+
+        /**
+         * Returns true if the machine is not in the middle of a number.
+         *
+         * @return true if the machine is idle
+         */
+        boolean isIdle() {
+            return state == GROUND;
+        }
+
+        /**
+         * Processes a character.
+         *
+         * @param c the character
+         * @return true if a number has been delivered
+         */
+        boolean accept(int c) {
+            int digit = c - '0';
+            boolean isDigit = digit >= 0 && digit <= 9;
+            switch (state) {
+                case GROUND -> {
+                    if (isDigit) {
+                        start(false, digit);
+                    } else if (c == '-') {
+                        state = MINUS;
+                    }
+                    return false;
+                }
+                case MINUS -> {
+                    if (isDigit) {
+                        start(true, digit);
+                    } else if (c != '-') {
+                        state = GROUND;
+                    }
+                    return false;
+                }
+                case INTEGER -> {
+                    if (isDigit) {
+                        addIntegerDigit(digit);
+                        return false;
+                    }
+                    if (c == '.') {
+                        state = POINT;
+                        return false;
+                    }
+                }
+                case POINT -> {
+                    if (isDigit) {
+                        state = FRACTION;
+                        digits.append('.');
+                        addFractionDigit(digit);
+                        return false;
+                    }
+                }
+                default -> {
+                    if (isDigit) {
+                        addFractionDigit(digit);
+                        return false;
+                    }
+                }
+            }
+            // The number has ended at c, which may start another one
+            boolean delivered = finish();
+            state = c == '-' ? MINUS : GROUND;
+            return delivered;
+        }
+
+        /**
+         * Delivers the number being read, if any, at the end of the text.
+         *
+         * @return true if a number has been delivered
+         */
+        boolean finish() {
+            int ended = state;
+            state = GROUND;
+            if (ended == INTEGER || ended == POINT) {
+                if (!decimals) {
+                    if (overflow) {
+                        return false;
+                    }
+                    count++;
+                    longSink.accept(negative ? integer : -integer);
+                    return true;
+                }
+                return deliverDouble();
+            }
+            if (ended == FRACTION && decimals) {
+                return deliverDouble();
+            }
+            return false;
+        }
+
+        /**
+         * Starts reading a number.
+         *
+         * @param isNegative true if the number is negative
+         * @param digit      its first digit
+         */
+        private void start(boolean isNegative, int digit) {
+            state = INTEGER;
+            negative = isNegative;
+            integer = 0;
+            overflow = false;
+            mantissa = 0;
+            fractionDigits = 0;
+            exact = true;
+            digits.setLength(0);
+            if (isNegative) {
+                digits.append('-');
+            }
+            addIntegerDigit(digit);
+        }
+
+        /**
+         * Adds a digit of the integer part.
+         *
+         * @param digit the digit
+         */
+        private void addIntegerDigit(int digit) {
+            if (!overflow) {
+                long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+                if (integer < limit / 10 || integer * 10 < limit + digit) {
+                    overflow = true;
+                } else {
+                    integer = integer * 10 - digit;
+                }
+            }
+            addMantissaDigit(digit);
+        }
+
+        /**
+         * Adds a digit of the decimal part.
+         *
+         * @param digit the digit
+         */
+        private void addFractionDigit(int digit) {
+            fractionDigits++;
+            addMantissaDigit(digit);
+        }
+
+        /**
+         * Adds a digit to the mantissa while it stays exact, and to the
+         * characters of the number when a double is needed.
+         *
+         * @param digit the digit
+         */
+        private void addMantissaDigit(int digit) {
+            if (!decimals) {
+                return;
+            }
+            digits.append((char) ('0' + digit));
+            if (exact) {
+                if (mantissa >= MAX_EXACT_MANTISSA / 10) {
+                    exact = false;
+                } else {
+                    mantissa = mantissa * 10 + digit;
+                }
+            }
+        }
+
+        /**
+         * Delivers the number being read as a double.
+         *
+         * @return true
+         */
+        private boolean deliverDouble() {
+            double value;
+            if (exact && fractionDigits < POWERS_OF_TEN.length) {
+                value = mantissa / POWERS_OF_TEN[fractionDigits];
+                if (negative) {
+                    value = -value;
+                }
+            } else {
+                value = Double.parseDouble(digits.toString());
+            }
+            count++;
+            doubleSink.accept(value);
+            return true;
+        }
+    }
+
+    /**
+     * Part of the input scanned by a machine.
+     */
+    private abstract static class Chunk {
+        /**
+         * Feeds the characters of the chunk to a machine, up to the end of
+         * the chunk or up to the first number delivered.
+         *
+         * @param machine     the machine
+         * @param stopOnValue true to stop after the first number delivered
+         * @return false if the end of the chunk has been reached
+         * @throws UncheckedIOException if the chunk cannot be read
+         */
+        abstract boolean feed(Machine machine, boolean stopOnValue) throws UncheckedIOException;
+
+        /**
+         * Splits off the second half of the chunk, at a character that
+         * cannot be part of a number.
+         *
+         * @return the second half, or null if the chunk cannot be split
+         * @throws UncheckedIOException if the chunk cannot be read
+         */
+        abstract Chunk trySplit() throws UncheckedIOException;
+
+        /**
+         * Returns the number of characters left.
+         *
+         * @return the number of characters, or Long.MAX_VALUE if unknown
+         */
+        abstract long remaining();
+    }
+
+    /**
+     * Chunk of a CharSequence.
+     */
+    private static final class TextChunk extends Chunk {
+        private final CharSequence text;
+        private int position;
+        private int end;
+
+        /**
+         * Creates a chunk with the whole text.
+         *
+         * @param text the text
+         */
+        TextChunk(CharSequence text) {
+            this(text, 0, text.length());
+        }
+
+        /**
+         * Creates a chunk with part of a text.
+         *
+         * @param text  the text
+         * @param start the start of the chunk
+         * @param end   the end of the chunk
+         */
+        TextChunk(CharSequence text, int start, int end) {
+            this.text = text;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        boolean feed(Machine machine, boolean stopOnValue) {
+            while (position < end) {
+                if (machine.accept(text.charAt(position++)) && stopOnValue) {
+                    return true;
+                }
+            }
+            return machine.finish() && stopOnValue;
+        }
+
+        @Override
+        Chunk trySplit() {
+            if (end - position < 2 * MIN_CHUNK_SIZE) {
+                return null;
+            }
+            for (int split = position + (end - position) / 2; split < end; split++) {
+                if (!isNumberChar(text.charAt(split - 1))) {
+                    Chunk second = new TextChunk(text, split, end);
+                    end = split;
+                    return second;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        long remaining() {
+            return end - position;
+        }
+    }
+
+    /**
+     * Chunk of a file, read through memory-mapped windows.
+     */
+    private static final class FileChunk extends Chunk {
+        private final FileChannel channel;
+        private long position;
+        private long end;
+        /**
+         * Window of the file being read, and its offset in the file
+         */
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        /**
+         * Creates a chunk with part of a file.
+         *
+         * @param channel the file
+         * @param start   the start of the chunk
+         * @param end     the end of the chunk
+         */
+        FileChunk(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        boolean feed(Machine machine, boolean stopOnValue) {
+            while (position < end) {
+                if (window == null || !window.hasRemaining()) {
+                    mapWindow();
+                }
+                while (window.hasRemaining()) {
+                    position++;
+                    if (machine.accept(window.get() & 0xFF) && stopOnValue) {
+                        return true;
+                    }
+                }
+            }
+            return machine.finish() && stopOnValue;
+        }
+
+        /**
+         * Maps the next window of the chunk.
+         *
+         * @throws UncheckedIOException if the file cannot be mapped
+         */
+        private void mapWindow() {
+            try {
+                windowStart = position;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, end - position));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        Chunk trySplit() {
+            if (end - position < 2 * MIN_CHUNK_SIZE) {
+                return null;
+            }
+            try {
+                ByteBuffer probe = ByteBuffer.allocate(4096);
+                long split = position + (end - position) / 2;
+                while (split < end) {
+                    probe.clear();
+                    int n = channel.read(probe, split - 1);
+                    if (n <= 0) {
+                        return null;
+                    }
+                    for (int i = 0; i < n && split < end; i++, split++) {
+                        if (!isNumberChar(probe.get(i) & 0xFF)) {
+                            Chunk second = new FileChunk(channel, split, end);
+                            end = split;
+                            if (window != null && windowStart + window.limit() > end) {
+                                window.limit((int) (end - windowStart));
+                            }
+                            return second;
+                        }
+                    }
+                }
+                return null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        long remaining() {
+            return end - position;
+        }
+    }
+
+    /**
+     * Chunk with all the characters of a Reader.
+     */
+    private static final class ReaderChunk extends Chunk {
+        private final Reader reader;
+        private final char[] buffer = new char[READ_BUFFER_SIZE];
+        private int position;
+        private int length;
+        private boolean eof;
+
+        /**
+         * Creates the chunk.
+         *
+         * @param reader the reader
+         */
+        ReaderChunk(Reader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        boolean feed(Machine machine, boolean stopOnValue) {
+            while (!eof) {
+                if (position == length) {
+                    try {
+                        length = reader.read(buffer);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    position = 0;
+                    if (length < 0) {
+                        length = 0;
+                        eof = true;
+                        break;
+                    }
+                }
+                while (position < length) {
+                    if (machine.accept(buffer[position++]) && stopOnValue) {
+                        return true;
+                    }
+                }
+            }
+            return machine.finish() && stopOnValue;
+        }
+
+        @Override
+        Chunk trySplit() {
+            return null;
+        }
+
+        @Override
+        long remaining() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Spliterator of the integers of a chunk.
+     */
+    private static final class LongSpliterator implements Spliterator.OfLong {
+        private final Chunk chunk;
+        private final Machine machine = new Machine(false);
+
+        /**
+         * Creates the spliterator.
+         *
+         * @param chunk the chunk
+         */
+        LongSpliterator(Chunk chunk) {
+            this.chunk = chunk;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            machine.longSink = action;
+            return chunk.feed(machine, true);
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            machine.longSink = action;
+            chunk.feed(machine, false);
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            if (!machine.isIdle()) {
+                return null;
+            }
+            Chunk second = chunk.trySplit();
+            return second == null ? null : new LongSpliterator(second);
+        }
+
+        @Override
+        public long estimateSize() {
+            return chunk.remaining();
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+
+    /**
+     * Spliterator of the numbers of a chunk.
+     */
+    private static final class DoubleSpliterator implements Spliterator.OfDouble {
+        private final Chunk chunk;
+        private final Machine machine = new Machine(true);
+
+        /**
+         * Creates the spliterator.
+         *
+         * @param chunk the chunk
+         */
+        DoubleSpliterator(Chunk chunk) {
+            this.chunk = chunk;
+        }
+
+        @Override
+        public boolean tryAdvance(DoubleConsumer action) {
+            machine.doubleSink = action;
+            return chunk.feed(machine, true);
+        }
+
+        @Override
+        public void forEachRemaining(DoubleConsumer action) {
+            machine.doubleSink = action;
+            chunk.feed(machine, false);
+        }
+
+        @Override
+        public Spliterator.OfDouble trySplit() {
+            if (!machine.isIdle()) {
+                return null;
+            }
+            Chunk second = chunk.trySplit();
+            return second == null ? null : new DoubleSpliterator(second);
+        }
+
+        @Override
+        public long estimateSize() {
+            return chunk.remaining();
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+}
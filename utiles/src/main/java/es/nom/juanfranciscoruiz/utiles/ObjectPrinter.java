@@ -0,0 +1,430 @@
+package es.nom.juanfranciscoruiz.utiles;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Prints the graph of objects reachable from an object, for diagnostics and
+ * logging.
+ * <p>
+ * Records are printed with their components, {@code Point[x=1, y=2]}; beans
+ * with the properties of their public getters, {@code Person{age=3, name=Ann}};
+ * other classes of the application with their fields; collections, maps,
+ * iterables and arrays with their elements, as {@link CollectionFormatter}
+ * does; and the classes of the JDK, enums, numbers and strings with their
+ * {@code toString()} method.
+ * <p>
+ * Each class is examined only once: the accessors of its components,
+ * getters or fields are converted into method handles and cached in a
+ * {@link ClassValue}, so printing an object does not use reflection. The
+ * output is bounded by a maximum depth, beyond which objects are printed as
+ * "...", and by a maximum number of values, after which "..." is printed in
+ * place of the rest. An object that contains itself, directly or through
+ * other objects, is printed as {@value CollectionFormatter#CYCLE}. An
+ * accessor that throws an exception is printed as the simple name of the
+ * exception, {@code <IllegalStateException>}; an {@link Error} is rethrown.
+ *
+ * @author Juan F. Ruiz
+ */
+public class ObjectPrinter {
+
+    /**
+     * For debugging.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ObjectPrinter.class);
+
+    /**
+     * Maximum depth by default.
+     */
+    public static final int DEFAULT_MAX_DEPTH = 4;
+
+    /**
+     * Maximum number of values by default.
+     */
+    public static final int DEFAULT_MAX_VALUES = 100;
+
+    /**
+     * The type to which all the accessors are adapted.
+     */
+    private static final MethodType ACCESSOR_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    /**
+     * The way every class seen so far is printed.
+     */
+    private static final ClassValue<Shape> SHAPES = new ClassValue<>() {
+        @Override
+        protected Shape computeValue(Class<?> type) {
+            return Shape.of(type);
+        }
+    };
+
+    private final int maxDepth;
+    private final int maxValues;
+
+    /**
+     * Creates a printer with the default limits.
+     */
+    public ObjectPrinter() {
+        this(DEFAULT_MAX_DEPTH, DEFAULT_MAX_VALUES);
+    }
+
+    /**
+     * Creates a printer.
+     *
+     * @param maxDepth  the maximum depth of the objects printed with their
+     *                  values; the object passed has depth 0
+     * @param maxValues the maximum number of values printed: components,
+     *                  properties, fields and elements
+     * @throws IllegalArgumentException if a limit is negative
+     */
+    public ObjectPrinter(int maxDepth, int maxValues) throws IllegalArgumentException {
+        if (maxDepth < 0 || maxValues < 0) {
+            String error = "The maximum depth and number of values cannot be negative!";
+            logger.error(error);
+            throw new IllegalArgumentException(error);
+        }
+        this.maxDepth = maxDepth;
+        this.maxValues = maxValues;
+    }
+
+    // Getters and setters
+
+    /**
+     * Returns the maximum depth of the objects printed.
+     *
+     * @return the maximum depth
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns the maximum number of values printed.
+     *
+     * @return the maximum number of values
+     */
+    public int getMaxValues() {
+        return maxValues;
+    }
+
+    // Methods
+
+    /**
+     * Returns the textual representation of an object graph.
+     *
+     * @param obj the object, may be null
+     * @return the textual representation
+     */
+    public String print(Object obj) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            print(obj, sb);
+        } catch (IOException e) {
+            // A StringBuilder never throws
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the textual representation of an object graph to any
+     * {@link Appendable}.
+     *
+     * @param obj the object, may be null
+     * @param out where the text is written, e.g. a Writer or a StringBuilder
+     * @return true if some value was left out because of the limits
+     * @throws IOException if the destination fails
+     * @throws IllegalArgumentException if 'out' is null
+     */
+    public boolean print(Object obj, Appendable out) throws IOException, IllegalArgumentException {
+        if (out == null) {
+            String error = "Parameter is null!";
+            logger.error(error);
+            throw new IllegalArgumentException(error);
+        }
+        Walker walker = new Walker(out, maxDepth, maxValues);
+        walker.value(obj);
+        return walker.truncated;
+    }
+
+    /**
+     * The kinds of object, according to how they are printed.
+     */
+    private enum Kind {
+        /**
+         * Printed with toString().
+         */
+        LEAF,
+        /**
+         * Printed with its components: Name[a=1, b=2].
+         */
+        RECORD,
+        /**
+         * Printed with its properties or fields: Name{a=1, b=2}.
+         */
+        OBJECT
+    }
+
+    /**
+     * How the objects of a class that is not a container are printed: their
+     * kind and, for records
+     * and other objects, the names and accessors of their values.
+     *
+     * @param kind      the kind
+     * @param name      the name printed before the values
+     * @param names     the names of the values
+     * @param accessors the accessors of the values, of type (Object)Object
+     */
+    private record Shape(Kind kind, String name, String[] names, MethodHandle[] accessors) {
+
+        /**
+         * The shape of the classes printed with toString().
+         */
+        private static final Shape LEAF = new Shape(Kind.LEAF, null, null, null);
+
+        /**
+         * Examines a class.
+         *
+         * @param type the class
+         * @return its shape
+         */
+        static Shape of(Class<?> type) {
+            if (isLeaf(type)) {
+                return LEAF;
+            }
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+                String name = type.getSimpleName().isEmpty() ? type.getName() : type.getSimpleName();
+                if (type.isRecord()) {
+                    RecordComponent[] components = type.getRecordComponents();
+                    String[] names = new String[components.length];
+                    MethodHandle[] accessors = new MethodHandle[components.length];
+                    for (int i = 0; i < components.length; i++) {
+                        names[i] = components[i].getName();
+                        accessors[i] = lookup.unreflect(components[i].getAccessor()).asType(ACCESSOR_TYPE);
+                    }
+                    return new Shape(Kind.RECORD, name, names, accessors);
+                }
+                Shape bean = beanOf(type, name, lookup);
+                return bean != null ? bean : fieldsOf(type, name, lookup);
+            } catch (IllegalAccessException | RuntimeException e) {
+                // Classes of modules not open to this one are printed with toString()
+                if (logger.isDebugEnabled()) {
+                    logger.debug("{} is printed with toString(): {}", type.getName(), e.toString());
+                }
+                return LEAF;
+            }
+        }
+
+        /**
+         * Indicates whether the objects of a class are printed with
+         * toString(): those of the JDK, enums and classes that are not
+         * expected to hold an object graph.
+         *
+         * @param type the class
+         * @return true if its objects are printed with toString()
+         */
+        private static boolean isLeaf(Class<?> type) {
+            String name = type.getName();
+            return type.isPrimitive() || type.isEnum() || type.isSynthetic() || type.isHidden()
+                    || name.startsWith("java.") || name.startsWith("javax.")
+                    || name.startsWith("jdk.") || name.startsWith("sun.") || name.startsWith("com.sun.")
+                    || Enum.class.isAssignableFrom(type) || CharSequence.class.isAssignableFrom(type)
+                    || Number.class.isAssignableFrom(type) || Path.class.isAssignableFrom(type);
+        }
+
+        /**
+         * Examines the public getters of a class: methods without parameters
+         * whose name is getX, or isX if they return a boolean.
+         *
+         * @param type   the class
+         * @param name   the name printed
+         * @param lookup a lookup with access to the class
+         * @return its shape, or null if it has no getters
+         * @throws IllegalAccessException if a getter is not accessible
+         */
+        private static Shape beanOf(Class<?> type, String name, MethodHandles.Lookup lookup)
+                throws IllegalAccessException {
+            List<Method> getters = new ArrayList<>();
+            for (Method method : type.getMethods()) {
+                if (propertyName(method) != null) {
+                    getters.add(method);
+                }
+            }
+            if (getters.isEmpty()) {
+                return null;
+            }
+            getters.sort(Comparator.comparing(ObjectPrinter.Shape::propertyName));
+            String[] names = new String[getters.size()];
+            MethodHandle[] accessors = new MethodHandle[getters.size()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = propertyName(getters.get(i));
+                accessors[i] = lookup.unreflect(getters.get(i)).asType(ACCESSOR_TYPE);
+            }
+            return new Shape(Kind.OBJECT, name, names, accessors);
+        }
+
+        /**
+         * Returns the name of the property read by a method.
+         *
+         * @param method the method
+         * @return the name of the property, or null if it is not a getter
+         */
+        private static String propertyName(Method method) {
+            if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 0
+                    || method.getDeclaringClass() == Object.class || method.getReturnType() == void.class) {
+                return null;
+            }
+            String name = method.getName();
+            int prefix;
+            if (name.startsWith("get")) {
+                prefix = 3;
+            } else if (name.startsWith("is") && (method.getReturnType() == boolean.class
+                    || method.getReturnType() == Boolean.class)) {
+                prefix = 2;
+            } else {
+                return null;
+            }
+            if (name.length() == prefix || !Character.isUpperCase(name.charAt(prefix))) {
+                return null;
+            }
+            return Character.toLowerCase(name.charAt(prefix)) + name.substring(prefix + 1);
+        }
+
+        /**
+         * Examines the instance fields of a class and its superclasses, which
+         * are read through var handles.
+         *
+         * @param type   the class
+         * @param name   the name printed
+         * @param lookup a lookup with access to the class
+         * @return its shape
+         * @throws IllegalAccessException if a field is not accessible
+         */
+        private static Shape fieldsOf(Class<?> type, String name, MethodHandles.Lookup lookup)
+                throws IllegalAccessException {
+            List<String> names = new ArrayList<>();
+            List<MethodHandle> accessors = new ArrayList<>();
+            for (Class<?> c = type; c != null && !isLeaf(c); c = c.getSuperclass()) {
+                MethodHandles.Lookup classLookup = c == type ? lookup
+                        : MethodHandles.privateLookupIn(c, MethodHandles.lookup());
+                Field[] fields = c.getDeclaredFields();
+                Arrays.sort(fields, Comparator.comparing(Field::getName));
+                for (Field field : fields) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                        VarHandle handle = classLookup.unreflectVarHandle(field);
+                        names.add(field.getName());
+                        accessors.add(handle.toMethodHandle(VarHandle.AccessMode.GET).asType(ACCESSOR_TYPE));
+                    }
+                }
+            }
+            return new Shape(Kind.OBJECT, name, names.toArray(new String[0]),
+                    accessors.toArray(new MethodHandle[0]));
+        }
+    }
+
+    /**
+     * Walks the graph of one call keeping the limits and the objects being
+     * printed. The containers are written by {@link CollectionFormatter},
+     * which passes back the other objects they contain.
+     */
+    private static final class Walker extends CollectionFormatter.Walker {
+        /**
+         * Maximum depth of the objects printed with their values
+         */
+        private final int maxDepth;
+
+        /**
+         * Creates a walker.
+         *
+         * @param out       the destination
+         * @param maxDepth  the maximum depth
+         * @param maxValues the maximum number of values
+         */
+        Walker(Appendable out, int maxDepth, int maxValues) {
+            super(out, maxValues);
+            this.maxDepth = maxDepth;
+        }
+
+        /**
+         * Prints an object that is not a container.
+         *
+         * @param obj the object, may be null
+         * @throws IOException if the destination fails
+         */
+        @Override
+        void other(Object obj) throws IOException {
+            Shape shape = obj == null ? Shape.LEAF : SHAPES.get(obj.getClass());
+            if (shape.kind() == Kind.LEAF) {
+                out.append(String.valueOf(obj));
+            } else if (enter(obj)) {
+                properties(obj, shape, shape.kind() == Kind.RECORD ? "[" : "{",
+                        shape.kind() == Kind.RECORD ? "]" : "}");
+                leave();
+            }
+        }
+
+        /**
+         * Starts the printing of a container or object, unless it is one of
+         * those being printed or it is deeper than the maximum depth.
+         *
+         * @param obj the container or object
+         * @return false if it is not printed, once {@value CollectionFormatter#CYCLE}
+         * or "..." is written
+         * @throws IOException if the destination fails
+         */
+        @Override
+        boolean enter(Object obj) throws IOException {
+            if (depth() > maxDepth && !isAncestor(obj)) {
+                out.append("...");
+                truncated = true;
+                return false;
+            }
+            return super.enter(obj);
+        }
+
+        /**
+         * Prints the components, properties or fields of an object.
+         *
+         * @param obj   the object
+         * @param shape its shape
+         * @param open  the start of the values
+         * @param close the end of the values
+         * @throws IOException if the destination fails
+         */
+        private void properties(Object obj, Shape shape, String open, String close) throws IOException {
+            out.append(shape.name()).append(open);
+            for (int i = 0; i < shape.names().length && next(i == 0, CollectionFormatter.JDK); i++) {
+                out.append(shape.names()[i]).append('=');
+                Object value;
+                try {
+                    value = shape.accessors()[i].invokeExact(obj);
+                } catch (Error e) {
+                    // Out of memory, stack overflow and the like are not values
+                    throw e;
+                } catch (Throwable e) {
+                    out.append("<").append(e.getClass().getSimpleName()).append(">");
+                    continue;
+                }
+                value(value);
+            }
+            out.append(close);
+        }
+    }
+}
@@ -1,16 +1,13 @@
 package es.nom.juanfranciscoruiz.utiles;
 
-import java.lang.reflect.Array;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
-import static es.nom.juanfranciscoruiz.utiles.Types.isArray;
-import static es.nom.juanfranciscoruiz.utiles.Types.isNullOrEmpty;
 import es.nom.juanfranciscoruiz.utiles.exceptions.TypeConverterException;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import es.nom.juanfranciscoruiz.utiles.impl.IOimpl;
 import org.slf4j.Logger;
@@ -96,30 +93,75 @@ public class TypeConverter {
      * Extracts a Long object from an arbitrary string
      *
      * @param src the string that can contain digits
-     * @return a long from the existing digits in the string.
-     * @throws TypeConverterException in case a NumberFormatException or
-     * ParseException is generated when attempting the extraction.
+     * @return a long from the existing digits in the string, or -1 if the
+     * string is null.
+     * @throws TypeConverterException in case the string has no digits or
+     * they exceed the range of a long.
+     * @see #extractLong(CharSequence)
      */
     public static Long extractLongFromString(String src) throws TypeConverterException {
-        Long theLong = (long) -1;
-        try {
-            if (src != null) {
-                // We 'sanitize' the input, because it may come with characters 
-                // that are not digits...
-                src = src.trim();
+        if (src == null) {
+            return -1L;
+        }
+        return extractLong(src);
+    }
 
-                // regular expression that only allows digits to pass
-                src = src.replaceAll("(?=^-?)|(\\D+)", "");
+    /**
+     * Extracts a long from an arbitrary sequence of characters without
+     * boxing it and without creating any object. All the digits of the
+     * sequence are joined into a number, ignoring the rest of the characters,
+     * and the number is negative if the first character that is not blank is
+     * '-' (e.g. "-9,876 units" is -9876).
+     *
+     * @param src the sequence that can contain digits
+     * @return the long formed by the digits of the sequence
+     * @throws TypeConverterException in case the sequence is null, has no
+     * digits or they exceed the range of a long.
+     */
+    public static long extractLong(CharSequence src) throws TypeConverterException {
+        return scanLong(src, Long.MIN_VALUE, Long.MAX_VALUE, 0L, true);
+    }
 
-                // Makes the conversion
-                theLong = Long.valueOf(src);
-            }
+    /**
+     * Extracts a long from an arbitrary sequence of characters in the same
+     * way as {@link #extractLong(CharSequence)}, but returns a default value
+     * instead of throwing an exception, so that it can validate user input
+     * on every keystroke without creating objects.
+     *
+     * @param src          the sequence that can contain digits
+     * @param defaultValue the value returned if the sequence is null, has no
+     *                     digits or they exceed the range of a long
+     * @return the long formed by the digits of the sequence, or defaultValue
+     */
+    public static long extractLong(CharSequence src, long defaultValue) {
+        return scanLong(src, Long.MIN_VALUE, Long.MAX_VALUE, defaultValue, false);
+    }
 
-        } catch (NumberFormatException ex) {
-            logger.error(ex.getMessage());
-            throw new TypeConverterException(ex.getMessage(), ex.getCause());
-        }
-        return theLong;
+    /**
+     * Extracts an int from an arbitrary sequence of characters in the same
+     * way as {@link #extractLong(CharSequence)}.
+     *
+     * @param src the sequence that can contain digits
+     * @return the int formed by the digits of the sequence
+     * @throws TypeConverterException in case the sequence is null, has no
+     * digits or they exceed the range of an int.
+     */
+    public static int extractInt(CharSequence src) throws TypeConverterException {
+        return (int) scanLong(src, Integer.MIN_VALUE, Integer.MAX_VALUE, 0L, true);
+    }
+
+    /**
+     * Extracts an int from an arbitrary sequence of characters in the same
+     * way as {@link #extractInt(CharSequence)}, but returns a default value
+     * instead of throwing an exception.
+     *
+     * @param src          the sequence that can contain digits
+     * @param defaultValue the value returned if the sequence is null, has no
+     *                     digits or they exceed the range of an int
+     * @return the int formed by the digits of the sequence, or defaultValue
+     */
+    public static int extractInt(CharSequence src, int defaultValue) {
+        return (int) scanLong(src, Integer.MIN_VALUE, Integer.MAX_VALUE, defaultValue, false);
     }
 
     /**
@@ -127,32 +169,53 @@ public class TypeConverter {
      *
      * @param src a string that can contain digits that can be extracted to
      * generate a Double object
-     * @return a Double object if it can be extracted from the string
-     * @throws TypeConverterException in case a NumberFormatException or
-     * ParseException is generated when attempting the extraction.
+     * @return a Double object with the last number of the string, or null if
+     * it has none
+     * @throws TypeConverterException in case the string is null or blank.
+     * @see #extractDouble(CharSequence)
      */
     public static Double extractDoubleFromString(String src) throws TypeConverterException {
-        Double theDouble = null;
-        String error;
-        if (src == null) {
-            error = "Parameter is null!";
-            logger.error(error);
-            throw new TypeConverterException(error);
-        }
+        checkNotBlank(src);
+        long bounds = findLastNumber(src);
+        return bounds < 0 ? null : parseNumber(src, (int) (bounds >>> 32), (int) bounds);
+    }
 
-        if (src.isBlank()) {
-            error = "Parameter is empty or only contain blank characters!";
+    /**
+     * Extracts a double from an arbitrary sequence of characters without
+     * boxing it. The sequence is scanned once looking for numbers with an
+     * optional sign and an optional decimal part (e.g. "-3.07"), and the
+     * last one is returned. Numbers of up to 15 significant digits are
+     * converted without creating any object.
+     *
+     * @param src the sequence that can contain a number
+     * @return the last number of the sequence
+     * @throws TypeConverterException in case the sequence is null, blank or
+     * has no number.
+     */
+    public static double extractDouble(CharSequence src) throws TypeConverterException {
+        checkNotBlank(src);
+        long bounds = findLastNumber(src);
+        if (bounds < 0) {
+            String error = "Parameter does not contain any number!";
             logger.error(error);
             throw new TypeConverterException(error);
         }
+        return parseNumber(src, (int) (bounds >>> 32), (int) bounds);
+    }
 
-        Pattern pattern = Pattern.compile("-?\\d+(\\.\\d+)?");
-        Matcher matcher = pattern.matcher(src);
-
-        while (matcher.find()) {
-            theDouble = Double.valueOf(matcher.group());
-        }
-        return theDouble;
+    /**
+     * Extracts a double from an arbitrary sequence of characters in the same
+     * way as {@link #extractDouble(CharSequence)}, but returns a default
+     * value instead of throwing an exception.
+     *
+     * @param src          the sequence that can contain a number
+     * @param defaultValue the value returned if the sequence is null or has
+     *                     no number
+     * @return the last number of the sequence, or defaultValue
+     */
+    public static double extractDouble(CharSequence src, double defaultValue) {
+        long bounds = src == null ? -1 : findLastNumber(src);
+        return bounds < 0 ? defaultValue : parseNumber(src, (int) (bounds >>> 32), (int) bounds);
     }
 
     /**
@@ -163,32 +226,76 @@ public class TypeConverter {
      * constant ("null") in case the array points to null.
      */
     public static String array2String(Object obj) {
-        StringBuilder result;
-        if (obj == null) {
-            return IOimpl.getNULL();
-        }
-        if (isArray(obj)) {
-            result = new StringBuilder(IOimpl.getCHAR_INI());
-            int length = Array.getLength(obj);
-            for (int idx = 0; idx < length; ++idx) {
-                Object item = Array.get(obj, idx);
-                if (isNotNullArray(item)) {
-                    //recursive call!
-                    result.append(array2String(item));
-                } else {
-                    result.append(item);
-                }
-                if (!isLastElement(idx, length)) {
-                    result.append(IOimpl.getSEP());
-                }
-            }
-            result.append(IOimpl.getCHAR_END());
-        } else {
-            return IOimpl.getNULL();
+        StringBuilder result = new StringBuilder();
+        try {
+            array2String(obj, result, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        } catch (IOException e) {
+            // A StringBuilder never throws
+            throw new UncheckedIOException(e);
         }
         return result.toString();
     }
 
+    /**
+     * Writes a textual representation of an array, in the same format as
+     * {@link #array2String(Object)}, to any {@link Appendable}. Arrays of
+     * primitives are written without boxing their elements and the text is
+     * passed to the destination in blocks, so it is never held whole in
+     * memory.
+     *
+     * @param obj the array, may be null
+     * @param out where the text is written, e.g. a Writer or a StringBuilder
+     * @throws IOException if the destination fails
+     * @throws IllegalArgumentException if 'out' is null
+     */
+    public static void array2String(Object obj, Appendable out) throws IOException {
+        array2String(obj, out, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Writes a textual representation of an array to any {@link Appendable}
+     * within a budget. Once 'maxElements' values have been written (nested
+     * arrays included) the rest are replaced by "...", and the brackets are
+     * still closed. Once 'maxChars' characters have been written the text is
+     * cut there and "..." is appended.
+     *
+     * @param obj         the array, may be null
+     * @param out         where the text is written, e.g. a Writer or a StringBuilder
+     * @param maxElements the maximum number of values written
+     * @param maxChars    the maximum number of characters written, not
+     *                    counting the final "..."
+     * @return true if the text was truncated
+     * @throws IOException if the destination fails
+     * @throws IllegalArgumentException if 'out' is null or a budget is negative
+     */
+    public static boolean array2String(Object obj, Appendable out, int maxElements, int maxChars)
+            throws IOException, IllegalArgumentException {
+        ArrayWriter writer = new ArrayWriter(out, maxElements, maxChars);
+        if (isNotNullArray(obj)) {
+            writer.array(obj);
+        } else {
+            writer.append(IOimpl.getNULL());
+        }
+        return writer.finish();
+    }
+
+    /**
+     * Writes an array of primitives, nested in a container written by
+     * {@link CollectionFormatter}, without boxing its elements.
+     *
+     * @param array       the array of primitives
+     * @param out         the destination
+     * @param maxElements the maximum number of values written
+     * @return the number of values written
+     * @throws IOException if the destination fails
+     */
+    static int primitiveArray2String(Object array, Appendable out, int maxElements) throws IOException {
+        ArrayWriter writer = new ArrayWriter(out, maxElements, Integer.MAX_VALUE);
+        writer.array(array);
+        writer.finish();
+        return writer.written();
+    }
+
     /**
      * Returns a textual representation of the bytes in an array.
      *
@@ -199,23 +306,42 @@ public class TypeConverter {
      */
     public static String arrayByte2String(byte[] array, boolean showLength, boolean showIndex) {
         StringBuilder sb = new StringBuilder();
-        if (!isNullOrEmpty(array)) {
-            if (showLength) {
-                sb.append("(").append(array.length).append(" bytes), ");
-            }
-            for (int i = 0; i < array.length; i++) {
-                if (showIndex) {
-                    sb.append("[").append(i).append("]=");
-                }
-                sb.append(array[i]).append(",");
-            }
-            sb.deleteCharAt(sb.length() - 1);
-        } else {
-            return "";
+        try {
+            arrayByte2String(array, showLength, showIndex, sb, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        } catch (IOException e) {
+            // A StringBuilder never throws
+            throw new UncheckedIOException(e);
         }
         return sb.toString();
     }
 
+    /**
+     * Writes a textual representation of the bytes in an array, in the same
+     * format as {@link #arrayByte2String(byte[], boolean, boolean)}, to any
+     * {@link Appendable} within a budget. Once 'maxElements' bytes have been
+     * written the rest are replaced by "...". Once 'maxChars' characters have
+     * been written the text is cut there and "..." is appended.
+     *
+     * @param array       the byte vector, may be null
+     * @param showLength  If true, it will also display the length of the vector.
+     * @param showIndex   If true, it will also display the array index.
+     * @param out         where the text is written, e.g. a Writer or a StringBuilder
+     * @param maxElements the maximum number of bytes written
+     * @param maxChars    the maximum number of characters written, not
+     *                    counting the final "..."
+     * @return true if the text was truncated
+     * @throws IOException if the destination fails
+     * @throws IllegalArgumentException if 'out' is null or a budget is negative
+     */
+    public static boolean arrayByte2String(byte[] array, boolean showLength, boolean showIndex,
+            Appendable out, int maxElements, int maxChars) throws IOException, IllegalArgumentException {
+        ArrayWriter writer = new ArrayWriter(out, maxElements, maxChars);
+        if (array != null && array.length > 0) {
+            writer.bytes(array, showLength, showIndex);
+        }
+        return writer.finish();
+    }
+
     /**
      * Returns a textual representation of the map. This is util in toString()
      * methods, for example.
@@ -226,16 +352,36 @@ public class TypeConverter {
      */
     public static String map2String(Map<?, ?> map) {
         StringBuilder sb = new StringBuilder();
-        if (map != null && !map.isEmpty()) {
-            for (Map.Entry<?, ?> entry : map.entrySet()) {
-                Object key = entry.getKey();
-                Object value = entry.getValue();
-                sb.append(key).append(IOimpl.getSEP()).append(value).append(IOimpl.getLS());
-            }
+        try {
+            map2String(map, sb, Integer.MAX_VALUE);
+        } catch (IOException e) {
+            // A StringBuilder never throws
+            throw new UncheckedIOException(e);
         }
         return sb.toString();
     }
 
+    /**
+     * Writes a textual representation of the map, in the same format as
+     * {@link #map2String(Map)}, to any {@link Appendable}. Only the first
+     * 'maxElements' entries are visited; if there are more, a line with "..."
+     * is written in place of the rest. Keys and values that are containers are
+     * written as {@link CollectionFormatter} does, within the same budget.
+     *
+     * @param map         A map of any two types, may be null
+     * @param out         where the text is written, e.g. a Writer or a StringBuilder
+     * @param maxElements the maximum number of entries and nested elements
+     *                    written
+     * @return true if some entry or element was left out
+     * @throws IOException if the destination fails
+     * @throws IllegalArgumentException if 'out' is null
+     */
+    public static boolean map2String(Map<?, ?> map, Appendable out, int maxElements)
+            throws IOException, IllegalArgumentException {
+        return CollectionFormatter.write(map == null ? Map.of() : map, out, maxElements,
+                CollectionFormatter.LINES);
+    }
+
     /**
      * Returns a string with the hexadecimal representation of the byte
      *
@@ -243,12 +389,7 @@ public class TypeConverter {
      * @return a String with the hexadecimal representation of the byte
      */
     public static String byteToHex(byte b) {
-        char[] hexDigit = {
-            '0', '1', '2', '3', '4', '5', '6', '7',
-            '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'
-        };
-        char[] array = {hexDigit[(b >> 4) & 0x0f], hexDigit[b & 0x0f]};
-        return new String(array);
+        return new String(Hex.TABLE, (b & 0xff) << 1, 2);
     }
 
     /**
@@ -258,9 +399,9 @@ public class TypeConverter {
      * @return a String with the hexadecimal representation of the char
      */
     public static String charToHex(char c) {
-        byte hi = (byte) (c >>> 8);
-        byte lo = (byte) (c & 0xff);
-        return byteToHex(hi) + byteToHex(lo);
+        int hi = (c >>> 8) << 1;
+        int lo = (c & 0xff) << 1;
+        return new String(new char[]{Hex.TABLE[hi], Hex.TABLE[hi + 1], Hex.TABLE[lo], Hex.TABLE[lo + 1]});
     }
 
     /**
@@ -283,6 +424,194 @@ public class TypeConverter {
         return builder.toString();
     }
 
+    // Utility methods for the extraction of numbers
+    /**
+     * Exact powers of ten that can be represented by a double.
+     */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Greatest integer below which all the integers are exactly representable
+     * by a double.
+     */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /**
+     * Joins the digits of a sequence into a number in a single pass. The
+     * number is accumulated in negative, so that the minimum value of the
+     * range can also be represented, and the overflow is checked before each
+     * digit.
+     *
+     * @param src          the sequence
+     * @param min          the minimum value allowed
+     * @param max          the maximum value allowed
+     * @param defaultValue the value returned on error if throwOnError is false
+     * @param throwOnError true to throw an exception on error
+     * @return the number, or defaultValue on error
+     * @throws TypeConverterException on error if throwOnError is true
+     */
+    private static long scanLong(CharSequence src, long min, long max, long defaultValue, boolean throwOnError)
+            throws TypeConverterException {
+        if (src == null) {
+            return failure("Parameter is null!", defaultValue, throwOnError);
+        }
+        int length = src.length();
+        int i = 0;
+        while (i < length && src.charAt(i) <= ' ') {
+            i++;
+        }
+        boolean negative = i < length && src.charAt(i) == '-';
+        long limit = negative ? min : -max;
+        long multiplyLimit = limit / 10;
+        long result = 0;
+        boolean hasDigits = false;
+        for (; i < length; i++) {
+            int digit = src.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                continue;
+            }
+            if (result < multiplyLimit || result * 10 < limit + digit) {
+                return failure("The number in \"" + src + "\" is out of range ["
+                        + min + ", " + max + "]", defaultValue, throwOnError);
+            }
+            result = result * 10 - digit;
+            hasDigits = true;
+        }
+        if (!hasDigits) {
+            return failure("Parameter does not contain any digit!", defaultValue, throwOnError);
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Reports an error of the extraction of a number.
+     *
+     * @param error        the error message
+     * @param defaultValue the value returned if throwOnError is false
+     * @param throwOnError true to throw an exception
+     * @return defaultValue
+     * @throws TypeConverterException if throwOnError is true
+     */
+    private static long failure(String error, long defaultValue, boolean throwOnError)
+            throws TypeConverterException {
+        if (throwOnError) {
+            logger.error(error);
+            throw new TypeConverterException(error);
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Checks that a sequence is neither null nor blank.
+     *
+     * @param src the sequence
+     * @throws TypeConverterException if the sequence is null or blank
+     */
+    private static void checkNotBlank(CharSequence src) throws TypeConverterException {
+        String error;
+        if (src == null) {
+            error = "Parameter is null!";
+            logger.error(error);
+            throw new TypeConverterException(error);
+        }
+        for (int i = 0; i < src.length(); i++) {
+            if (!Character.isWhitespace(src.charAt(i))) {
+                return;
+            }
+        }
+        error = "Parameter is empty or only contain blank characters!";
+        logger.error(error);
+        throw new TypeConverterException(error);
+    }
+
+    /**
+     * Finds the last number of a sequence in a single pass. A number is an
+     * optional '-', one or more digits and optionally a '.' followed by one
+     * or more digits.
+     *
+     * @param src the sequence
+     * @return the start of the number in the high 32 bits and its end in the
+     * low 32 bits, or -1 if the sequence has no number
+     */
+    private static long findLastNumber(CharSequence src) {
+        int length = src.length();
+        long bounds = -1;
+        int i = 0;
+        while (i < length) {
+            int start = i;
+            char c = src.charAt(i);
+            if (c == '-' && i + 1 < length && isAsciiDigit(src.charAt(i + 1))) {
+                i++;
+            } else if (!isAsciiDigit(c)) {
+                i++;
+                continue;
+            }
+            while (i < length && isAsciiDigit(src.charAt(i))) {
+                i++;
+            }
+            if (i + 1 < length && src.charAt(i) == '.' && isAsciiDigit(src.charAt(i + 1))) {
+                i += 2;
+                while (i < length && isAsciiDigit(src.charAt(i))) {
+                    i++;
+                }
+            }
+            bounds = ((long) start << 32) | i;
+        }
+        return bounds;
+    }
+
+    /**
+     * Converts a number found by {@link #findLastNumber(CharSequence)} to a
+     * double. When the digits fit in the 53 bits of a double and the power of
+     * ten is exact, the result is computed with a single correctly rounded
+     * operation; otherwise Double.parseDouble is used.
+     *
+     * @param src   the sequence
+     * @param start the start of the number
+     * @param end   the end of the number
+     * @return the number
+     */
+    private static double parseNumber(CharSequence src, int start, int end) {
+        int i = start;
+        boolean negative = src.charAt(i) == '-';
+        if (negative) {
+            i++;
+        }
+        long mantissa = 0;
+        int decimals = 0;
+        boolean exact = true;
+        for (; i < end; i++) {
+            char c = src.charAt(i);
+            if (c == '.') {
+                decimals = end - i - 1;
+                continue;
+            }
+            if (mantissa >= MAX_EXACT_MANTISSA / 10) {
+                exact = false;
+                break;
+            }
+            mantissa = mantissa * 10 + (c - '0');
+        }
+        if (!exact || decimals >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(src.subSequence(start, end).toString());
+        }
+        double value = mantissa / POWERS_OF_TEN[decimals];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Returns true if the character is an ASCII digit.
+     *
+     * @param c the character
+     * @return true if c is between '0' and '9'
+     */
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
     // Utility methods for array2String()
     /**
      * If the object passed is an array and is not null it will return true,
@@ -297,13 +626,326 @@ public class TypeConverter {
     }
 
     /**
-     * Returns true if index is the last element
-     *
-     * @param index entero con el valor del índice
-     * @param length integer with the length of elements of the object
-     * @return boolean which will be true if 'index' is the last element
+     * Writes arrays to an {@link Appendable} keeping count of the values and
+     * characters written. The text is accumulated in a buffer that is passed
+     * to the destination every {@link #BLOCK_SIZE} characters; when the
+     * destination is itself a StringBuilder it is written directly.
      */
-    private static boolean isLastElement(int index, int length) {
-        return (index == length - 1);
+    private static final class ArrayWriter {
+
+        /**
+         * Characters accumulated before passing them to the destination.
+         */
+        private static final int BLOCK_SIZE = 8192;
+
+        /**
+         * Marks the values or characters left out.
+         */
+        private static final String ELLIPSIS = "...";
+
+        /**
+         * Destination of the text
+         */
+        private final Appendable out;
+        /**
+         * Text not yet passed to the destination
+         */
+        private final StringBuilder buffer;
+        /**
+         * True if the buffer is the destination itself
+         */
+        private final boolean direct;
+        /**
+         * Length of the buffer before the first character written
+         */
+        private final int start;
+        /**
+         * Maximum number of values written
+         */
+        private final int maxElements;
+        /**
+         * Maximum number of characters written, not counting the final "..."
+         */
+        private final long maxChars;
+        /**
+         * Number of characters already passed to the destination
+         */
+        private long flushed;
+        /**
+         * Number of values written
+         */
+        private int elements;
+        /**
+         * True once the values left out have been replaced by "..."
+         */
+        private boolean exhausted;
+        /**
+         * True once the text has been cut at 'maxChars' characters
+         */
+        private boolean stopped;
+        /**
+         * True if the text ends with the "..." of the values left out,
+         * followed at most by closing brackets
+         */
+        private boolean marked;
+
+        /**
+         * Creates a writer.
+         *
+         * @param out         the destination
+         * @param maxElements the maximum number of values written
+         * @param maxChars    the maximum number of characters written
+         * @throws IllegalArgumentException if 'out' is null or a budget is negative
+         */
+        ArrayWriter(Appendable out, int maxElements, int maxChars) throws IllegalArgumentException {
+            String error = null;
+            if (out == null) {
+                error = "Parameter is null!";
+            } else if (maxElements < 0 || maxChars < 0) {
+                error = "The maximum number of elements and characters cannot be negative!";
+            }
+            if (error != null) {
+                logger.error(error);
+                throw new IllegalArgumentException(error);
+            }
+            this.out = out;
+            this.direct = out instanceof StringBuilder;
+            this.buffer = direct ? (StringBuilder) out : new StringBuilder(BLOCK_SIZE + 64);
+            this.start = buffer.length();
+            this.maxElements = maxElements;
+            this.maxChars = maxChars;
+        }
+
+        /**
+         * Writes an array and, recursively, the arrays it contains.
+         *
+         * @param array an array of any type
+         * @throws IOException if the destination fails
+         */
+        void array(Object array) throws IOException {
+            append(IOimpl.getCHAR_INI());
+            switch (array) {
+                case int[] a -> {
+                    for (int i = 0; i < a.length && next(i); i++) {
+                        buffer.append(a[i]);
+                        check();
+                    }
+                }
+                case long[] a -> {
+                    for (int i = 0; i < a.length && next(i); i++) {
+                        buffer.append(a[i]);
+                        check();
+                    }
+                }
+                case double[] a -> {
+                    for (int i = 0; i < a.length && next(i); i++) {
+                        buffer.append(a[i]);
+                        check();
+                    }
+                }
+                case float[] a -> {
+                    for (int i = 0; i < a.length && next(i); i++) {
+                        buffer.append(a[i]);
+                        check();
+                    }
+                }
+                case byte[] a -> {
+                    for (int i = 0; i < a.length && next(i); i++) {
+                        buffer.append(a[i]);
+                        check();
+                    }
+                }
+                case short[] a -> {
+                    for (int i = 0; i < a.length && next(i); i++) {
+                        buffer.append(a[i]);
+                        check();
+                    }
+                }
+                case char[] a -> {
+                    for (int i = 0; i < a.length && next(i); i++) {
+                        buffer.append(a[i]);
+                        check();
+                    }
+                }
+                case boolean[] a -> {
+                    for (int i = 0; i < a.length && next(i); i++) {
+                        buffer.append(a[i]);
+                        check();
+                    }
+                }
+                case Object[] a -> {
+                    for (int i = 0; i < a.length && next(i); i++) {
+                        Object item = a[i];
+                        if (isNotNullArray(item)) {
+                            //recursive call!
+                            array(item);
+                        } else {
+                            buffer.append(item);
+                            check();
+                        }
+                    }
+                }
+                default -> throw new IllegalStateException("Not an array: " + array.getClass());
+            }
+            if (!stopped) {
+                if (marked && !fits(1)) {
+                    // The text already ends with "...", which needs no other
+                    stopped = true;
+                } else {
+                    append(IOimpl.getCHAR_END());
+                }
+            }
+        }
+
+        /**
+         * Writes the bytes of an array with their optional length and indexes.
+         *
+         * @param array      a non empty byte vector
+         * @param showLength If true, the length of the vector is written
+         * @param showIndex  If true, the index of each byte is written
+         * @throws IOException if the destination fails
+         */
+        void bytes(byte[] array, boolean showLength, boolean showIndex) throws IOException {
+            if (showLength) {
+                buffer.append("(").append(array.length).append(" bytes), ");
+                check();
+            }
+            for (int i = 0; i < array.length && !stopped; i++) {
+                if (i > 0) {
+                    append(",");
+                    if (stopped) {
+                        return;
+                    }
+                }
+                if (elements++ >= maxElements) {
+                    leaveOut();
+                    return;
+                }
+                if (showIndex) {
+                    buffer.append('[').append(i).append("]=");
+                }
+                buffer.append(array[i]);
+                check();
+                flush(false);
+            }
+        }
+
+        /**
+         * Writes a fragment of text.
+         *
+         * @param text the text
+         * @throws IOException if the destination fails
+         */
+        void append(String text) throws IOException {
+            if (!stopped) {
+                buffer.append(text);
+                check();
+            }
+        }
+
+        /**
+         * Prepares the writing of the element of an array at the given
+         * index, writing the separator in front of it.
+         *
+         * @param index the index of the element
+         * @return false if the budget is exhausted and nothing more must be
+         * written in this array
+         * @throws IOException if the destination fails
+         */
+        private boolean next(int index) throws IOException {
+            if (stopped || exhausted) {
+                return false;
+            }
+            if (index > 0) {
+                append(IOimpl.getSEP());
+                if (stopped) {
+                    return false;
+                }
+            }
+            if (elements++ >= maxElements) {
+                leaveOut();
+                return false;
+            }
+            flush(false);
+            return true;
+        }
+
+        /**
+         * Replaces the values left out by "...". If it does not fit in
+         * 'maxChars' the text is cut here instead, so that {@link #finish()}
+         * writes the only "...".
+         */
+        private void leaveOut() {
+            exhausted = true;
+            if (fits(ELLIPSIS.length())) {
+                buffer.append(ELLIPSIS);
+                marked = true;
+            } else {
+                stopped = true;
+            }
+        }
+
+        /**
+         * Indicates whether some more characters fit in 'maxChars'.
+         *
+         * @param length the number of characters
+         * @return true if they can be written without cutting the text
+         */
+        private boolean fits(int length) {
+            return flushed + buffer.length() - start + length <= maxChars;
+        }
+
+        /**
+         * Cuts the text at 'maxChars' characters if it has gone beyond them.
+         */
+        private void check() {
+            long excess = flushed + buffer.length() - start - maxChars;
+            if (excess > 0 && !stopped) {
+                int length = (int) (buffer.length() - excess);
+                if (length > start && Character.isHighSurrogate(buffer.charAt(length - 1))) {
+                    length--;
+                }
+                buffer.setLength(length);
+                stopped = true;
+            }
+        }
+
+        /**
+         * Passes the buffered text to the destination when a block is full,
+         * or always if 'force' is true.
+         *
+         * @param force true to pass the text even if the block is not full
+         * @throws IOException if the destination fails
+         */
+        private void flush(boolean force) throws IOException {
+            if (!direct && (force || buffer.length() >= BLOCK_SIZE)) {
+                out.append(buffer);
+                flushed += buffer.length();
+                buffer.setLength(0);
+            }
+        }
+
+        /**
+         * Ends the writing, marking the text if it was cut.
+         *
+         * @return true if the text was truncated
+         * @throws IOException if the destination fails
+         */
+        boolean finish() throws IOException {
+            if (stopped && !marked) {
+                buffer.append(ELLIPSIS);
+            }
+            flush(true);
+            return stopped || exhausted;
+        }
+
+        /**
+         * Returns the number of values written.
+         *
+         * @return the number of values, not counting those left out
+         */
+        int written() {
+            return Math.min(elements, maxElements);
+        }
     }
 }
@@ -3,9 +3,11 @@ package es.nom.juanfranciscoruiz.utiles;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import es.nom.juanfranciscoruiz.utiles.model.TypeKind;
+
 import java.lang.reflect.Array;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.List;
 import java.util.Map;
 
 import static es.nom.juanfranciscoruiz.utiles.model.TypeConstants.*;
@@ -48,144 +50,231 @@ public class Types {
         return INSTANCE;
     }
 
+    /**
+     * Caches the {@link TypeKind} of every class seen so far, so that
+     * classifying a value costs a single lookup after the first time its
+     * class is met.
+     */
+    private static final ClassValue<TypeKind> KINDS = new ClassValue<>() {
+        @Override
+        protected TypeKind computeValue(Class<?> type) {
+            if (type == String.class) {
+                return TypeKind.STRING;
+            } else if (CharSequence.class.isAssignableFrom(type)) {
+                return TypeKind.CHAR_SEQUENCE;
+            } else if (type == Boolean.class) {
+                return TypeKind.BOOLEAN;
+            } else if (type == Character.class) {
+                return TypeKind.CHARACTER;
+            } else if (type == Integer.class || type == Short.class || type == Byte.class) {
+                return TypeKind.INTEGER;
+            } else if (type == Long.class) {
+                return TypeKind.LONG;
+            } else if (type == Double.class || type == Float.class) {
+                return TypeKind.DECIMAL;
+            } else if (Number.class.isAssignableFrom(type)) {
+                return TypeKind.NUMBER;
+            } else if (type.isArray()) {
+                return TypeKind.ARRAY;
+            } else if (Collection.class.isAssignableFrom(type)) {
+                return TypeKind.COLLECTION;
+            } else if (Map.class.isAssignableFrom(type)) {
+                return TypeKind.MAP;
+            }
+            return TypeKind.OTHER;
+        }
+    };
+
+    /**
+     * Returns the category of the passed object. The category depends only
+     * on the class of the object and is cached per class, so this method
+     * never inspects the content of the object.
+     *
+     * @param obj the object to classify, may be null
+     * @return the category of the object, {@link TypeKind#NULL} if it is null
+     */
+    public static TypeKind classify(Object obj) {
+        return obj == null ? TypeKind.NULL : KINDS.get(obj.getClass());
+    }
+
+    /**
+     * Classifies every element of an array at once.
+     *
+     * @param values the values to classify
+     * @return an array with the category of each value, in the same order
+     * @throws IllegalArgumentException if 'values' is null
+     */
+    public static TypeKind[] classifyAll(Object[] values) throws IllegalArgumentException {
+        checkColumn(values);
+        TypeKind[] kinds = new TypeKind[values.length];
+        for (int i = 0; i < values.length; i++) {
+            kinds[i] = classify(values[i]);
+        }
+        return kinds;
+    }
+
+    /**
+     * Classifies every element of a collection (for instance a column of
+     * values read from a file) at once.
+     *
+     * @param values the values to classify
+     * @return an array with the category of each value, in iteration order
+     * @throws IllegalArgumentException if 'values' is null
+     */
+    public static TypeKind[] classifyAll(Collection<?> values) throws IllegalArgumentException {
+        checkColumn(values);
+        TypeKind[] kinds = new TypeKind[values.size()];
+        int i = 0;
+        for (Object value : values) {
+            if (i == kinds.length) {
+                break;
+            }
+            kinds[i++] = classify(value);
+        }
+        return i == kinds.length ? kinds : Arrays.copyOf(kinds, i);
+    }
+
     /**
      * Indicates whether the passed object is null or empty (in the case of a
-     * collection, or other object containing objects.
+     * character sequence, an array, a collection or a map).
      *
      * @param obj the object to be checked
      * @return true if the object is null or empty, false otherwise.
      */
     public static boolean isNullOrEmpty(Object obj) {
-        if (obj == null) {
-            if (logger.isDebugEnabled()) {
-                logger.debug(IS_NULL);
-            }
-            return true;
-        } else if (obj.getClass().isAssignableFrom(Object.class)) {
-            if (logger.isDebugEnabled()) {
-                logger.debug(TYPE_OBJECT);
-                logger.debug(IS_NULL_ASK + " {}", obj.toString() == null);
-            }
-            return false;
-        } else if (obj.getClass().isAssignableFrom(String.class)) {
-            if (logger.isDebugEnabled()) {
-                logger.debug(TYPE_STRING);
-                logger.debug(IS_EMPTY + " {}", obj.toString().isEmpty());
-            }
-            return obj.toString().isEmpty();
-        } else if (obj.getClass().isPrimitive()) {
-            if (logger.isDebugEnabled()) {
-                logger.debug(IS_PRIMITIVE);
-            }
-            return obj.toString().isEmpty();
-        } else if (obj.getClass().isArray()) {
-            int l = Array.getLength(obj);
-            if (logger.isDebugEnabled()) {
-                logger.debug(IS_AN_ARRAY);
-                logger.debug(IS_EMPTY + " {}", l > 0);
-            }
-            return l <= 0;
-        } else {
-            Class<?>[] interfaces = obj.getClass().getInterfaces();
-            for (Class<?> anInterface : interfaces) {
-                if (anInterface.equals(List.class)) {
-                    Collection<?> col = (Collection<?>) obj;
-                    if (logger.isDebugEnabled()) {
-                        logger.debug(TYPE_LIST);
-                        logger.debug(IS_EMPTY + " {}", col.isEmpty());
-                    }
-                    return col.isEmpty();
-                }
-                if (anInterface.equals(Map.class)) {
-                    Map<?, ?> col = (Map<?, ?>) obj;
-                    if (logger.isDebugEnabled()) {
-                        logger.debug(TYPE_MAP);
-                        logger.debug(IS_EMPTY + " {}", col.isEmpty());
-                    }
-                    return col.isEmpty();
-                }
-            }
-        }
-        if (logger.isDebugEnabled()) {
-            logger.debug(TYPE_OF_OBJ + " {}", obj.getClass().getCanonicalName());
-        }
-        return false;
+        return switch (classify(obj)) {
+            case NULL -> true;
+            case STRING, CHAR_SEQUENCE -> ((CharSequence) obj).isEmpty();
+            case ARRAY -> Array.getLength(obj) <= 0;
+            case COLLECTION -> ((Collection<?>) obj).isEmpty();
+            case MAP -> ((Map<?, ?>) obj).isEmpty();
+            default -> false;
+        };
     }
 
     /**
      * If the object can be converted to an Integer it will return true.
+     * <p>
+     * Character sequences are scanned directly; any other object is checked
+     * through its string representation. The check never throws.
      *
      * @param obj an object that can hold digits convertible to Integer
      * @return true if the object can be converted to an Integer and false
      * otherwise.
      */
     public static boolean isInteger(Object obj) {
-        if (!isNullOrEmpty(obj)) {
-            try {
-                Integer.valueOf(String.valueOf(obj));
-                return true;
-            } catch (NumberFormatException ex) {
-                return false;
+        return switch (classify(obj)) {
+            case NULL -> false;
+            case INTEGER -> true;
+            case LONG -> {
+                long value = (Long) obj;
+                yield value == (int) value;
             }
-        }
-        return false;
+            case STRING, CHAR_SEQUENCE -> isIntegralText((CharSequence) obj, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            default -> isIntegralText(String.valueOf(obj), Integer.MIN_VALUE, Integer.MAX_VALUE);
+        };
     }
 
     /**
      * If the object can be converted to a Long it will return true.
+     * <p>
+     * Character sequences are scanned directly; any other object is checked
+     * through its string representation. The check never throws.
      *
      * @param obj an object that can hold digits convertible to Long
      * @return true if the object can be converted to a Long and false
      * otherwise.
      */
     public static boolean isLong(Object obj) {
-        if (!isNullOrEmpty(obj)) {
-            try {
-                Long.valueOf((String) obj);
-                return true;
-            } catch (NumberFormatException ex) {
-                return false;
-            }
-        }
-        return false;
+        return switch (classify(obj)) {
+            case NULL -> false;
+            case INTEGER, LONG -> true;
+            case STRING, CHAR_SEQUENCE -> isIntegralText((CharSequence) obj, Long.MIN_VALUE, Long.MAX_VALUE);
+            default -> isIntegralText(String.valueOf(obj), Long.MIN_VALUE, Long.MAX_VALUE);
+        };
     }
 
     /**
      * If the object can be converted to a Float it will return true. Otherwise
      * it will return false.
+     * <p>
+     * The accepted text is the one accepted by {@link Float#valueOf(String)}.
+     * The check never throws.
      *
      * @param obj an object that can hold digits convertible to Float
-     * @return true if the object can be converted to a Double or false
+     * @return true if the object can be converted to a Float or false
      * otherwise.
      */
     public static boolean isFloat(Object obj) {
-        if (!isNullOrEmpty(obj)) {
-            try {
-                Float.valueOf(String.valueOf(obj));
-            } catch (NumberFormatException ex) {
-                return false;
-            }
-        }
-        return true;
+        return isDouble(obj);
     }
 
     /**
      * If the object can be converted to a Double it will return true. Otherwise
      * it will return false.
+     * <p>
+     * The accepted text is the one accepted by {@link Double#valueOf(String)}.
+     * The check never throws.
      *
      * @param obj an object that can hold digits convertible to Double
      * @return true if the object can be converted to a Double or false
      * otherwise.
      */
     public static boolean isDouble(Object obj) {
-        if (!isNullOrEmpty(obj)) {
-            try {
-                Double.valueOf(String.valueOf(obj));
-            } catch (NumberFormatException ex) {
-                return false;
-            }
+        return switch (classify(obj)) {
+            case NULL -> false;
+            case INTEGER, LONG, DECIMAL -> true;
+            case STRING, CHAR_SEQUENCE -> isDecimalText((CharSequence) obj);
+            default -> isDecimalText(String.valueOf(obj));
+        };
+    }
+
+    /**
+     * Checks every element of an array with {@link #isInteger(Object)}.
+     *
+     * @param values the values to check
+     * @return an array with the result for each value, in the same order
+     * @throws IllegalArgumentException if 'values' is null
+     */
+    public static boolean[] checkIntegers(Object[] values) throws IllegalArgumentException {
+        checkColumn(values);
+        boolean[] result = new boolean[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = isInteger(values[i]);
         }
-        return true;
+        return result;
+    }
+
+    /**
+     * Checks every element of an array with {@link #isLong(Object)}.
+     *
+     * @param values the values to check
+     * @return an array with the result for each value, in the same order
+     * @throws IllegalArgumentException if 'values' is null
+     */
+    public static boolean[] checkLongs(Object[] values) throws IllegalArgumentException {
+        checkColumn(values);
+        boolean[] result = new boolean[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = isLong(values[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Checks every element of an array with {@link #isDouble(Object)}.
+     *
+     * @param values the values to check
+     * @return an array with the result for each value, in the same order
+     * @throws IllegalArgumentException if 'values' is null
+     */
+    public static boolean[] checkDoubles(Object[] values) throws IllegalArgumentException {
+        checkColumn(values);
+        boolean[] result = new boolean[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = isDouble(values[i]);
+        }
+        return result;
     }
 
     /**
@@ -193,14 +282,10 @@ public class Types {
      * return false.
      *
      * @param obj the object we are going to check if it is an array.
-     * @return true if the object is an array or false otherwise.
+     * @return true if the object is a non-empty array or false otherwise.
      */
     public static boolean isArray(Object obj) {
-        if (isNullOrEmpty(obj)) {
-            return false;
-        } else {
-            return obj.getClass().isArray();
-        }
+        return classify(obj) == TypeKind.ARRAY && Array.getLength(obj) > 0;
     }
 
     /**
@@ -231,4 +316,192 @@ public class Types {
             }
         }
     }
+
+    /**
+     * Throws if the column of values passed to a bulk method is null.
+     *
+     * @param values the values
+     * @throws IllegalArgumentException if 'values' is null
+     */
+    private static void checkColumn(Object values) throws IllegalArgumentException {
+        if (values == null) {
+            if (logger.isErrorEnabled()) {
+                logger.error(ERR_ARG);
+            }
+            throw new IllegalArgumentException(ERR_ARG);
+        }
+    }
+
+    /**
+     * Scans the text with the grammar of {@link Long#parseLong(String)}: an
+     * optional sign followed by one or more decimal digits, with no
+     * surrounding whitespace, whose value lies within the given range.
+     *
+     * @param s   the text
+     * @param min the lowest value accepted
+     * @param max the highest value accepted
+     * @return true if the text is an integral number in range
+     */
+    private static boolean isIntegralText(CharSequence s, long min, long max) {
+        int len = s.length();
+        if (len == 0) {
+            return false;
+        }
+        int i = 0;
+        boolean negative = false;
+        char first = s.charAt(0);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++i == len) {
+                return false;
+            }
+        }
+        // Accumulated negatively, so that the lowest value does not overflow
+        long limit = negative ? min : -max;
+        long multmin = limit / 10;
+        long result = 0;
+        while (i < len) {
+            int digit = Character.digit(s.charAt(i++), 10);
+            if (digit < 0 || result < multmin) {
+                return false;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                return false;
+            }
+            result -= digit;
+        }
+        return true;
+    }
+
+    /**
+     * Scans the text with the grammar of {@link Double#valueOf(String)}:
+     * leading and trailing whitespace, an optional sign and then either
+     * {@code NaN}, {@code Infinity}, a decimal number with optional exponent
+     * or a hexadecimal number with binary exponent, the last two optionally
+     * followed by a type suffix.
+     *
+     * @param s the text
+     * @return true if the text can be converted to a double
+     */
+    private static boolean isDecimalText(CharSequence s) {
+        int i = 0;
+        int end = s.length();
+        while (i < end && s.charAt(i) <= ' ') {
+            i++;
+        }
+        while (end > i && s.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            i++;
+        }
+        if (i == end) {
+            return false;
+        }
+        if (s.charAt(i) == 'N' || s.charAt(i) == 'I') {
+            return matches(s, i, end, "NaN") || matches(s, i, end, "Infinity");
+        }
+        int digits = 0;
+        if (end - i > 2 && s.charAt(i) == '0' && (s.charAt(i + 1) | 0x20) == 'x') {
+            i += 2;
+            while (i < end && Character.digit(s.charAt(i), 16) >= 0 && s.charAt(i) < 0x80) {
+                i++;
+                digits++;
+            }
+            if (i < end && s.charAt(i) == '.') {
+                i++;
+                while (i < end && Character.digit(s.charAt(i), 16) >= 0 && s.charAt(i) < 0x80) {
+                    i++;
+                    digits++;
+                }
+            }
+            // The binary exponent is mandatory in hexadecimal numbers
+            if (digits == 0 || i == end || (s.charAt(i) | 0x20) != 'p') {
+                return false;
+            }
+            i = skipExponent(s, i + 1, end);
+            if (i < 0) {
+                return false;
+            }
+        } else {
+            while (i < end && isAsciiDigit(s.charAt(i))) {
+                i++;
+                digits++;
+            }
+            if (i < end && s.charAt(i) == '.') {
+                i++;
+                while (i < end && isAsciiDigit(s.charAt(i))) {
+                    i++;
+                    digits++;
+                }
+            }
+            if (digits == 0) {
+                return false;
+            }
+            if (i < end && (s.charAt(i) | 0x20) == 'e') {
+                i = skipExponent(s, i + 1, end);
+                if (i < 0) {
+                    return false;
+                }
+            }
+        }
+        if (i < end) {
+            char suffix = (char) (s.charAt(i) | 0x20);
+            if (suffix == 'f' || suffix == 'd') {
+                i++;
+            }
+        }
+        return i == end;
+    }
+
+    /**
+     * Skips the signed digits of an exponent.
+     *
+     * @param s   the text
+     * @param i   the position after the exponent letter
+     * @param end the end of the text
+     * @return the position after the exponent, or -1 if it has no digits
+     */
+    private static int skipExponent(CharSequence s, int i, int end) {
+        if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            i++;
+        }
+        int start = i;
+        while (i < end && isAsciiDigit(s.charAt(i))) {
+            i++;
+        }
+        return i == start ? -1 : i;
+    }
+
+    /**
+     * Indicates whether the region of the text is exactly the given word.
+     *
+     * @param s     the text
+     * @param start the start of the region
+     * @param end   the end of the region
+     * @param word  the word
+     * @return true if the region and the word are equal
+     */
+    private static boolean matches(CharSequence s, int start, int end, String word) {
+        if (end - start != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (s.charAt(start + i) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indicates whether the character is one of the ASCII digits 0 to 9.
+     *
+     * @param c the character
+     * @return true if it is an ASCII digit
+     */
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
 }
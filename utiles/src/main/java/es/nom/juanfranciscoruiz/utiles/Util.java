@@ -3,9 +3,12 @@ package es.nom.juanfranciscoruiz.utiles;
 import org.slf4j.Logger;
 
 import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
 import java.text.NumberFormat;
 import java.util.*;
+import java.util.function.Supplier;
 
 import static es.nom.juanfranciscoruiz.utiles.impl.IOimpl.prtln;
 
@@ -23,7 +26,8 @@ import static es.nom.juanfranciscoruiz.utiles.impl.IOimpl.prtln;
  * - `getSystemPropertiesAsMap()`: Returns a map of system properties.
  * - `getAllCharsets()`: Retrieves all charsets supported by the current JVM.
  * - `CollectionToString(Object obj, boolean showValues, int maxElements)`: Processes and returns
- * string representations of lists or maps in a specified format or detail level.
+ * string representations of collections, maps, iterables or arrays in a specified format or detail level,
+ * visiting at most 'maxElements' items. An overload writes the same text to any Appendable.
  * - `pause(long milliseconds, String msg)`: Pauses program execution with a custom message or default prompt.
  * - `pauseWithoutMessage(long milliseconds)`: Pauses program execution without displaying any message.
  * - `warn(Logger logger, String msg)`: Logs a sanitized warning message using the specified logger.
@@ -31,6 +35,10 @@ import static es.nom.juanfranciscoruiz.utiles.impl.IOimpl.prtln;
  * - `error(Logger logger, String msg)`: Logs a sanitized error message using the specified logger.
  * - `dbg(Logger logger, String msg)`: Logs a sanitized debug-level message using the specified logger.
  * - `dbg(Logger logger, String msg, Object... params)`: Logs a sanitized formatted debug-level message with parameters.
+ * - `warnLazy`, `infoLazy`, `errorLazy` and `dbgLazy(Logger logger, Supplier<String> msg)`: Log a message
+ * built by the supplier only if that level is enabled.
+ *
+ * Each of the logging methods is gated on its own level.
  */
 public class Util {
     /**
@@ -115,85 +123,69 @@ public class Util {
     }
 
     /**
-     * Processes lists and maps to improve the output of the application
-     * objects' 'toString()' method.
+     * Processes collections, maps, iterables and arrays to improve the output
+     * of the application objects' 'toString()' method.
      *
-     * @param obj the map or list whose elements you want to display or indicate
+     * @param obj the container whose elements you want to display or indicate
      * its type and size.
      * @param showValues boolean, if true, a string with the elements of the 
-     * list or map will be returned. If false, a string with the type of object 
+     * container will be returned. If false, a string with the type of object 
      * and the number of elements it contains will be returned.
      * @param maxElements If values are to be returned, sets the maximum number
      * of items whose textual representation will be returned in the string.
+     * Only that many items are visited, nested containers included.
      * @return a string with the textual representation of the elements 
-     * contained in the list or map or the type of the object and the number of 
-     * elements it contains. If the object passed is neither a map nor a list 
-     * the string returned is generated by the static method String.valueOf(). 
+     * contained in the container or the type of the object and the number of 
+     * elements it contains. If the object passed is not a container the 
+     * string returned is generated by the static method String.valueOf(). 
      * If the object is null it returns the string "null".
      */
     public static String CollectionToString(Object obj, boolean showValues, int maxElements) {
-
         StringBuilder sb = new StringBuilder();
+        try {
+            CollectionToString(obj, showValues, maxElements, sb);
+        } catch (IOException e) {
+            // A StringBuilder never throws
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
 
-        if (obj == null) {
-            sb.append("null");
-        } else {
-            Class<?> clazz = obj.getClass();
-            if (clazz.isAssignableFrom(ArrayList.class)) {
-                List<?> l = (List<?>) obj;
-                if (showValues) {
-                    sb.append("[");
-                    if (l.size() < maxElements) {
-                        for (Object o : l.toArray()) {
-                            sb.append("'").append(o).append("'").append(" ");
-                        }
-                    } else {
-                        for (int i = 0; i < maxElements; i++) {
-                            sb.append("'").append(l.get(i)).append("'").append(" ");
-                        }
-                        sb.append(" ...");
-                    }
-                    sb.append("]");
-                } else {
-                    sb.append(obj.getClass().getCanonicalName())
-                            .append(" ")
-                            .append(l.size())
-                            .append(" items.");
-                }
-
-            } else if (clazz.isAssignableFrom(java.util.HashMap.class)) {
-                Map<?, ?> m = (Map<?, ?>) obj;
-                if (showValues) {
-                    sb.append("[");
-                    if (m.size() < maxElements) {
-                        for (Map.Entry<?, ?> entry : m.entrySet()) {
-                            sb.append("{'").append(entry.getKey()).append("'->'").append(entry.getValue()).append("'}").append(" ");
-                        }
-                    } else {
-                        int i = 0;
-                        for (Iterator<?> it = m.entrySet().iterator(); it.hasNext();) {
-                            if (i < maxElements) {
-                                Map.Entry<?, ?> e = (Map.Entry<?, ?>) it.next();
-                                sb.append("{'").append(e.getKey()).append("'->'").append(e.getValue()).append("'}").append(" ");
-                                i++;
-                            } else {
-                                sb.append(" ...");
-                                break;
-                            }
-                        }
-                    }
-                    sb.append("]");
-                } else {
-                    sb.append(obj.getClass().getCanonicalName())
-                            .append(" ")
-                            .append(m.size())
-                            .append(" items.");
-                }
-            } else {
-                sb.append(obj);
+    /**
+     * Writes the same text as {@link #CollectionToString(Object, boolean, int)}
+     * to any {@link Appendable}, as it is produced. A container that
+     * contains itself is written as {@link CollectionFormatter#CYCLE}.
+     *
+     * @param obj the container whose elements you want to display or indicate
+     * its type and size.
+     * @param showValues if true, the elements are written; if false, the type
+     * of the object and the number of elements it contains. The number is
+     * left out for an Iterable that is not a Collection, such as a stream of
+     * lines, which would have to be consumed to count them.
+     * @param maxElements the maximum number of items written, nested
+     * containers included.
+     * @param out where the text is written, e.g. a Writer or a StringBuilder
+     * @return true if some element was left out
+     * @throws IOException if the destination fails
+     * @throws IllegalArgumentException if 'out' is null
+     */
+    public static boolean CollectionToString(Object obj, boolean showValues, int maxElements, Appendable out)
+            throws IOException, IllegalArgumentException {
+        if (!showValues && CollectionFormatter.isContainer(obj)) {
+            if (out == null) {
+                throw new IllegalArgumentException("Parameter is null!");
             }
+            String name = obj.getClass().getCanonicalName();
+            out.append(name != null ? name : obj.getClass().getName()).append(" ");
+            // A plain Iterable is not iterated just to count its elements
+            int size = CollectionFormatter.size(obj);
+            if (size >= 0) {
+                out.append(String.valueOf(size)).append(" ");
+            }
+            out.append("items.");
+            return false;
         }
-        return sb.toString();
+        return CollectionFormatter.write(obj, out, maxElements, CollectionFormatter.QUOTED);
     }
     
     /**
@@ -243,90 +235,116 @@ public class Util {
     }
 
     /**
-     * Logs a warning message if the provided logger and message are valid. The method ensures
-     * the message is properly sanitized by trimming whitespace, removing newlines, carriage
-     * returns, and tabs, and condensing multiple spaces into a single space before logging.
+     * Logs a warning message if the provided logger and message are valid and the
+     * warning level is enabled. The message is sanitized with {@link #normalize(String)}
+     * before logging.
      *
      * @param logger the logger instance to be used for logging the warning message. If null,
      *               the method will do nothing.
      * @param msg the warning message to log. If null or empty, the method will do nothing.
      */
     public static void warn(Logger logger, String msg) {
-        if (logger != null && logger.isDebugEnabled()) {
-            if (msg != null && !msg.isEmpty()) {
-                msg = msg.trim();
-                msg = msg.replaceAll("\n", " ");
-                msg = msg.replaceAll("\r", " ");
-                msg = msg.replaceAll("\t", " ");
-                msg = msg.replaceAll("  +", " ");
-                logger.warn(msg);
-            }
+        if (logger != null && logger.isWarnEnabled() && msg != null && !msg.isEmpty()) {
+            logger.warn(normalize(msg));
+        }
+    }
+
+    /**
+     * Logs a warning message built only if the warning level of the logger is enabled.
+     *
+     * @param logger the logger instance to be used for logging the warning message. If null,
+     *               the method will do nothing.
+     * @param msg supplies the warning message to log. If it or the message is null or empty,
+     *            the method will do nothing.
+     */
+    public static void warnLazy(Logger logger, Supplier<String> msg) {
+        if (logger != null && logger.isWarnEnabled() && msg != null) {
+            warn(logger, msg.get());
         }
     }
 
     /**
-     * Logs an informational message if the provided logger and message are valid. The method
-     * ensures the message is properly sanitized by trimming whitespace, removing newlines,
-     * carriage returns, and tabs, and condensing multiple spaces into a single space before logging.
+     * Logs an informational message if the provided logger and message are valid and the
+     * info level is enabled. The message is sanitized with {@link #normalize(String)}
+     * before logging.
      *
      * @param logger the logger instance to be used for logging the informational message. If null,
      *               the method will do nothing.
      * @param msg the informational message to log. If null or empty, the method will do nothing.
      */
     public static void info(Logger logger, String msg) {
-        if (logger != null && logger.isDebugEnabled()) {
-            if (msg != null && !msg.isEmpty()) {
-                msg = msg.trim();
-                msg = msg.replaceAll("\n", " ");
-                msg = msg.replaceAll("\r", " ");
-                msg = msg.replaceAll("\t", " ");
-                msg = msg.replaceAll("  +", " ");
-                logger.info(msg);
-            }
+        if (logger != null && logger.isInfoEnabled() && msg != null && !msg.isEmpty()) {
+            logger.info(normalize(msg));
+        }
+    }
+
+    /**
+     * Logs an informational message built only if the info level of the logger is enabled.
+     *
+     * @param logger the logger instance to be used for logging the informational message. If null,
+     *               the method will do nothing.
+     * @param msg supplies the informational message to log. If it or the message is null or
+     *            empty, the method will do nothing.
+     */
+    public static void infoLazy(Logger logger, Supplier<String> msg) {
+        if (logger != null && logger.isInfoEnabled() && msg != null) {
+            info(logger, msg.get());
         }
     }
 
     /**
-     * Logs an error message if the provided logger and message are valid. The method ensures
-     * the message is properly sanitized by trimming whitespace, removing newlines, carriage
-     * returns, and tabs, and condensing multiple spaces into a single space before logging.
+     * Logs an error message if the provided logger and message are valid and the error
+     * level is enabled. The message is sanitized with {@link #normalize(String)} before
+     * logging.
      *
      * @param logger the logger instance to be used for logging the error message. If null,
      *               the method will do nothing.
      * @param msg the error message to log. If null or empty, the method will do nothing.
      */
-    public static void error(Logger logger, String msg){
-        if (logger != null && logger.isDebugEnabled()) {
-            if (msg != null && !msg.isEmpty()) {
-                msg = msg.trim();
-                msg = msg.replaceAll("\n", " ");
-                msg = msg.replaceAll("\r", " ");
-                msg = msg.replaceAll("\t", " ");
-                msg = msg.replaceAll("  +", " ");
-                logger.error(msg);
-            }
+    public static void error(Logger logger, String msg) {
+        if (logger != null && logger.isErrorEnabled() && msg != null && !msg.isEmpty()) {
+            logger.error(normalize(msg));
         }
     }
 
     /**
-     * Logs a debug-level message after performing basic transformations to ensure readability.
-     * The method trims the input message, replaces newlines, carriage returns, tabs,
-     * and multiple spaces with a single space, and then logs the processed message using
-     * the provided logger if debug logging is enabled.
+     * Logs an error message built only if the error level of the logger is enabled.
+     *
+     * @param logger the logger instance to be used for logging the error message. If null,
+     *               the method will do nothing.
+     * @param msg supplies the error message to log. If it or the message is null or empty,
+     *            the method will do nothing.
+     */
+    public static void errorLazy(Logger logger, Supplier<String> msg) {
+        if (logger != null && logger.isErrorEnabled() && msg != null) {
+            error(logger, msg.get());
+        }
+    }
+
+    /**
+     * Logs a debug-level message if the provided logger and message are valid and the
+     * debug level is enabled. The message is sanitized with {@link #normalize(String)}
+     * before logging.
      *
      * @param logger the logger used to log the message; if null, logging is bypassed
      * @param msg    the message to be logged; if null or empty, the method does nothing
      */
     public static void dbg(Logger logger, String msg) {
-        if (logger != null && logger.isDebugEnabled()) {
-            if (msg != null && !msg.isEmpty()) {
-                msg = msg.trim();
-                msg = msg.replaceAll("\n", " ");
-                msg = msg.replaceAll("\r", " ");
-                msg = msg.replaceAll("\t", " ");
-                msg = msg.replaceAll("  +", " ");
-                logger.debug(msg);
-            }
+        if (logger != null && logger.isDebugEnabled() && msg != null && !msg.isEmpty()) {
+            logger.debug(normalize(msg));
+        }
+    }
+
+    /**
+     * Logs a debug-level message built only if the debug level of the logger is enabled.
+     *
+     * @param logger the logger used to log the message; if null, logging is bypassed
+     * @param msg    supplies the message to be logged; if it or the message is null or
+     *               empty, the method does nothing
+     */
+    public static void dbgLazy(Logger logger, Supplier<String> msg) {
+        if (logger != null && logger.isDebugEnabled() && msg != null) {
+            dbg(logger, msg.get());
         }
     }
 
@@ -347,4 +365,56 @@ public class Util {
             System.out.println(String.format(msg, params));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Sanitizes a message for a single log line in one pass: it is trimmed as by
+     * {@link String#trim()} and every run of spaces, newlines, carriage returns and
+     * tabs is replaced by a single space.
+     *
+     * @param msg the message
+     * @return the sanitized message, the same instance if nothing had to change
+     */
+    static String normalize(String msg) {
+        int start = 0;
+        int end = msg.length();
+        while (start < end && msg.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && msg.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        // Look for the first character that has to change
+        int i = start;
+        for (boolean blank = false; i < end; i++) {
+            char c = msg.charAt(i);
+            if (c == ' ') {
+                if (blank) {
+                    break;
+                }
+                blank = true;
+            } else if (c == '\n' || c == '\r' || c == '\t') {
+                break;
+            } else {
+                blank = false;
+            }
+        }
+        if (i == end) {
+            return start == 0 && end == msg.length() ? msg : msg.substring(start, end);
+        }
+        StringBuilder sb = new StringBuilder(end - start).append(msg, start, i);
+        boolean blank = sb.length() > 0 && sb.charAt(sb.length() - 1) == ' ';
+        for (; i < end; i++) {
+            char c = msg.charAt(i);
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                if (!blank) {
+                    sb.append(' ');
+                    blank = true;
+                }
+            } else {
+                sb.append(c);
+                blank = false;
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -1,9 +1,12 @@
 package es.nom.juanfranciscoruiz.utiles.demo.options;
 
+import es.nom.juanfranciscoruiz.utiles.ObjectPrinter;
 import es.nom.juanfranciscoruiz.utiles.TermCtl;
 import es.nom.juanfranciscoruiz.utiles.helper.ObjectsGenerator;
 import es.nom.juanfranciscoruiz.utiles.impl.TermCtlImpl;
 
+import java.util.Map;
+
 import static es.nom.juanfranciscoruiz.utiles.Util.FOREVER;
 import static es.nom.juanfranciscoruiz.utiles.Util.pause;
 import static es.nom.juanfranciscoruiz.utiles.impl.IOimpl.prtln;
@@ -93,6 +96,10 @@ public class ShowSampleObjects {
         ObjectsGenerator.generateList(false)
       )
     );
+    prtln(1, "  - Object graph: " + new ObjectPrinter().print(
+        Map.of("console", tc.getConsoleSize(), "list", ObjectsGenerator.generateList(true))
+      )
+    );
     pause(FOREVER, "");
   }
 }
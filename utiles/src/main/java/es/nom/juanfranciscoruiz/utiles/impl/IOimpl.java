@@ -1,7 +1,17 @@
 package es.nom.juanfranciscoruiz.utiles.impl;
 
 import java.io.Console;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Scanner;
 
 import es.nom.juanfranciscoruiz.utiles.IO;
@@ -36,6 +46,39 @@ public class IOimpl implements IO {
      */
     private static UnclosableInputStreamDecorator inputStream;
 
+    /**
+     * Channel where the output is written instead of the standard output, or
+     * null to use the Console or the standard output.
+     */
+    private static WritableByteChannel outputChannel;
+
+    /**
+     * The output channel when it has been opened by {@link #useTerminalDevice()},
+     * which is closed when it is replaced. Channels set by the caller are
+     * never closed.
+     */
+    private static WritableByteChannel ownedChannel;
+
+    /**
+     * Encoder of the text written to the output channel.
+     */
+    private static CharsetEncoder outputEncoder;
+
+    /**
+     * Reusable direct buffer with the bytes written to the output channel.
+     */
+    private static ByteBuffer outputBuffer;
+
+    /**
+     * Initial size of the output buffer.
+     */
+    private static final int OUTPUT_BUFFER_SIZE = 8192;
+
+    /**
+     * Path of the controlling terminal device on Unix-like systems.
+     */
+    private static final String TTY_PATH = "/dev/tty";
+
     /**
      * Operating system line break character
      */
@@ -167,6 +210,84 @@ public class IOimpl implements IO {
         IOimpl.inputStream = inputStream;
     }
 
+    /**
+     * Returns the channel where the output is written instead of the standard
+     * output.
+     *
+     * @return the output channel, or null if the Console or the standard
+     * output are used.
+     */
+    public static synchronized WritableByteChannel getOutputChannel() {
+        return outputChannel;
+    }
+
+    /**
+     * Sets a channel where prt() and prtln() write their output instead of
+     * the Console or the standard output, encoding the text with the charset
+     * of the standard output.
+     *
+     * @param channel the output channel, or null to use the Console or the
+     *                standard output again.
+     */
+    public static void setOutputChannel(WritableByteChannel channel) {
+        setOutputChannel(channel, System.out.charset());
+    }
+
+    /**
+     * Sets a channel where prt() and prtln() write their output instead of
+     * the Console or the standard output. The text is encoded into a reusable
+     * direct buffer and written with one write per call. If the channel being
+     * replaced was opened by {@link #useTerminalDevice()}, it is closed.
+     *
+     * @param channel the output channel, or null to use the Console or the
+     *                standard output again.
+     * @param charset the charset used to encode the text
+     * @throws IllegalArgumentException if the channel is not null and the
+     *                                  charset is null.
+     */
+    public static synchronized void setOutputChannel(WritableByteChannel channel, Charset charset)
+            throws IllegalArgumentException {
+        if (channel != null && charset == null) {
+            throw new IllegalArgumentException(ERR_NULL);
+        }
+        if (ownedChannel != null && ownedChannel != channel) {
+            try {
+                ownedChannel.close();
+            } catch (IOException e) {
+                if (LOGGER.isErrorEnabled()) {
+                    LOGGER.error(e.getMessage());
+                }
+            }
+            ownedChannel = null;
+        }
+        if (channel == null) {
+            outputChannel = null;
+            outputEncoder = null;
+            return;
+        }
+        outputChannel = channel;
+        outputEncoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        if (outputBuffer == null) {
+            outputBuffer = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+        }
+    }
+
+    /**
+     * Makes prt() and prtln() write directly to the controlling terminal
+     * (/dev/tty) through a FileChannel. The channel belongs to IOimpl: it is
+     * closed when another channel, or null, is set, or when this method is
+     * called again.
+     *
+     * @throws IOException if the terminal device cannot be opened.
+     */
+    public static synchronized void useTerminalDevice() throws IOException {
+        FileChannel channel = FileChannel.open(Path.of(TTY_PATH), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        setOutputChannel(channel);
+        ownedChannel = channel;
+    }
+
     // Methods
     /**
      * Prints the given arguments to standard output. It will attempt to use the
@@ -245,12 +366,50 @@ public class IOimpl implements IO {
      * @param sb StringBuilder object containing the text to print.
      */
     private static void print(StringBuilder sb) {
+        if (getOutputChannel() != null && writeToChannel(sb)) {
+            return;
+        }
         Console con = System.console();
         if (con == null) {
-            System.out.format("%s", sb.toString());
+            System.out.print(sb);
+            System.out.flush();
         } else {
-            con.printf("%s", sb.toString());
+            con.writer().append(sb);
+            con.flush();
+        }
+    }
+
+    /**
+     * Encodes the contents of the sb argument into the reusable output buffer
+     * and writes it to the output channel.
+     *
+     * @param sb StringBuilder object containing the text to print.
+     * @return true if the text has been written, false if the output channel
+     * has been removed in the meantime.
+     */
+    private static synchronized boolean writeToChannel(StringBuilder sb) {
+        if (outputChannel == null) {
+            return false;
+        }
+        int needed = (int) Math.ceil(sb.length() * (double) outputEncoder.maxBytesPerChar());
+        if (outputBuffer.capacity() < needed) {
+            outputBuffer = ByteBuffer.allocateDirect(Math.max(needed, outputBuffer.capacity() * 2));
+        }
+        outputBuffer.clear();
+        outputEncoder.reset();
+        outputEncoder.encode(CharBuffer.wrap(sb), outputBuffer, true);
+        outputEncoder.flush(outputBuffer);
+        outputBuffer.flip();
+        try {
+            while (outputBuffer.hasRemaining()) {
+                outputChannel.write(outputBuffer);
+            }
+        } catch (IOException e) {
+            if (LOGGER.isErrorEnabled()) {
+                LOGGER.error(e.getMessage());
+            }
         }
+        return true;
     }
 
     /**
@@ -0,0 +1,64 @@
+package es.nom.juanfranciscoruiz.utiles.model;
+
+/**
+ * Broad categories of values as returned by {@code Types.classify(Object)}.
+ * <p>
+ * The category depends only on the class of the value, never on its
+ * content, so it can be computed once per class and cached.
+ *
+ * @author Juan F. Ruiz
+ */
+public enum TypeKind {
+    /**
+     * A null reference.
+     */
+    NULL,
+    /**
+     * A {@link String}.
+     */
+    STRING,
+    /**
+     * Any other {@link CharSequence}, such as a {@link StringBuilder}.
+     */
+    CHAR_SEQUENCE,
+    /**
+     * A {@link Boolean}.
+     */
+    BOOLEAN,
+    /**
+     * A {@link Character}.
+     */
+    CHARACTER,
+    /**
+     * A {@link Byte}, {@link Short} or {@link Integer}.
+     */
+    INTEGER,
+    /**
+     * A {@link Long}.
+     */
+    LONG,
+    /**
+     * A {@link Float} or {@link Double}.
+     */
+    DECIMAL,
+    /**
+     * Any other {@link Number}, such as a {@code BigDecimal}.
+     */
+    NUMBER,
+    /**
+     * An array of primitives or objects.
+     */
+    ARRAY,
+    /**
+     * A {@link java.util.Collection}.
+     */
+    COLLECTION,
+    /**
+     * A {@link java.util.Map}.
+     */
+    MAP,
+    /**
+     * Anything else.
+     */
+    OTHER
+}
@@ -0,0 +1,117 @@
+package es.nom.juanfranciscoruiz.utiles;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+import static es.nom.juanfranciscoruiz.utiles.TestUtils.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for CollectionFormatter class
+ *
+ * @author Juan F. Ruiz
+ */
+public class CollectionFormatterTest {
+  
+  /**
+   * For debugging.
+   */
+  public final static Logger logger = LoggerFactory.getLogger(CollectionFormatterTest.class);
+  
+  /**
+   * Tests the format of the different containers
+   */
+  @Test
+  public void testFormat() {
+    printTitletoLogAndConsole("testFormat()", logger);
+    
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("a", 1);
+    map.put("b", List.of(2, 3));
+    
+    assertAll(
+        () -> assertEquals("[1, 2, 3]", CollectionFormatter.format(List.of(1, 2, 3), 10)),
+        () -> assertEquals("[x, y]", CollectionFormatter.format(new TreeSet<>(Set.of("y", "x")), 10)),
+        () -> assertEquals("{a=1, b=[2, 3]}", CollectionFormatter.format(map, 10)),
+        () -> assertEquals("[1, [2, 3], null]", CollectionFormatter.format(new Object[]{1, new int[]{2, 3}, null}, 10)),
+        () -> assertEquals("[]", CollectionFormatter.format(List.of(), 10)),
+        () -> assertEquals("null", CollectionFormatter.format(null, 10)),
+        () -> assertEquals("text", CollectionFormatter.format("text", 10)),
+        () -> assertEquals(Path.of("a", "b").toString(), CollectionFormatter.format(Path.of("a", "b"), 10))
+    );
+  }
+  
+  /**
+   * Tests that the budget is shared by the nested containers and that only
+   * the elements written are visited
+   */
+  @Test
+  public void testBudget() throws IOException {
+    printTitletoLogAndConsole("testBudget()", logger);
+    
+    // An endless iterable: only the budget can stop it
+    Iterable<Integer> naturals = () -> new Iterator<>() {
+      private int next;
+      
+      @Override
+      public boolean hasNext() {
+        return true;
+      }
+      
+      @Override
+      public Integer next() {
+        return next++;
+      }
+    };
+    StringWriter writer = new StringWriter();
+    assertTrue(CollectionFormatter.format(naturals, writer, 3));
+    assertEquals("[0, 1, 2, ...]", writer.toString());
+    
+    assertAll(
+        () -> assertEquals("[1, [2, ...], ...]", CollectionFormatter.format(List.of(1, List.of(2, 3), 4), 3)),
+        () -> assertEquals("[...]", CollectionFormatter.format(List.of(1), 0)),
+        () -> assertFalse(CollectionFormatter.format(List.of(1, 2), new StringBuilder(), 2)),
+        // Arrays of primitives share the same budget
+        () -> assertEquals("[[1, 2, ...], ...]", CollectionFormatter.format(List.of(new int[]{1, 2, 3}, 4), 3)),
+        () -> assertEquals("[[a, b], [true], [0.5]]",
+            CollectionFormatter.format(new Object[]{new char[]{'a', 'b'}, new boolean[]{true}, new double[]{0.5}}, 10)),
+        () -> assertTrue(CollectionFormatter.format(Map.of("k", new byte[]{1, 2}), new StringBuilder(), 2))
+    );
+  }
+  
+  /**
+   * Tests that containers that contain themselves are not followed
+   */
+  @Test
+  public void testCycles() {
+    printTitletoLogAndConsole("testCycles()", logger);
+    
+    List<Object> list = new ArrayList<>();
+    List<Object> inner = new ArrayList<>();
+    list.add(1);
+    list.add(inner);
+    inner.add(list);
+    inner.add(inner);
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("self", map);
+    
+    assertAll(
+        () -> assertEquals("[1, [(cycle), (cycle)]]", CollectionFormatter.format(list, 100)),
+        () -> assertEquals("{self=(cycle)}", CollectionFormatter.format(map, 100)),
+        () -> assertThrows(IllegalArgumentException.class, () -> CollectionFormatter.format(list, null, 1))
+    );
+  }
+}
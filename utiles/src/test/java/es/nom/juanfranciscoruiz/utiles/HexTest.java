@@ -0,0 +1,135 @@
+package es.nom.juanfranciscoruiz.utiles;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import static es.nom.juanfranciscoruiz.utiles.TestUtils.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for Hex and HexDump classes
+ *
+ * @author Juan F. Ruiz
+ */
+public class HexTest {
+  
+  /**
+   * For debugging.
+   */
+  public final static Logger logger = LoggerFactory.getLogger(HexTest.class);
+  
+  /**
+   * Bytes with printable characters, whitespace, 0x00 and 0xff
+   */
+  private static final byte[] DATA = "Hello, World\n\0ÿ\tabcdefghijklmnopq".getBytes(StandardCharsets.ISO_8859_1);
+  
+  /**
+   * The dump of DATA made by xxd
+   */
+  private static final String XXD = """
+      00000000: 4865 6c6c 6f2c 2057 6f72 6c64 0a00 ff09  Hello, World....
+      00000010: 6162 6364 6566 6768 696a 6b6c 6d6e 6f70  abcdefghijklmnop
+      00000020: 71                                       q
+      """;
+  
+  /**
+   * Tests the encoding of bytes
+   */
+  @Test
+  public void testEncode() {
+    printTitletoLogAndConsole("testEncode()", logger);
+    
+    assertAll(
+        () -> assertEquals("00ff2a80", Hex.encodeToString(new byte[]{0, -1, 0x2a, -128})),
+        () -> assertArrayEquals("7f01".toCharArray(), Hex.encode(ByteBuffer.wrap(new byte[]{0x7f, 1}))),
+        () -> {
+          byte[] dst = new byte[6];
+          assertEquals(4, Hex.encode(new byte[]{-2, 3}, 0, 2, dst, 1));
+          assertArrayEquals(new byte[]{0, 'f', 'e', '0', '3', 0}, dst);
+        },
+        () -> assertEquals("", Hex.encodeToString(new byte[0])),
+        () -> assertThrows(IllegalArgumentException.class, () -> Hex.encode((byte[]) null))
+    );
+  }
+  
+  /**
+   * Tests the decoding of hexadecimal text
+   */
+  @Test
+  public void testDecode() {
+    printTitletoLogAndConsole("testDecode()", logger);
+    
+    assertAll(
+        () -> assertArrayEquals(new byte[]{10, -1, 0}, Hex.decode("0AfF00")),
+        () -> assertArrayEquals(new byte[]{127, -128}, Hex.decode(ByteBuffer.wrap("7f80".getBytes(StandardCharsets.US_ASCII)))),
+        () -> assertArrayEquals(DATA, Hex.decode(Hex.encodeToString(DATA))),
+        () -> assertThrows(IllegalArgumentException.class, () -> Hex.decode("abc")),
+        () -> assertThrows(IllegalArgumentException.class, () -> Hex.decode("0g")),
+        () -> assertThrows(IllegalArgumentException.class, () -> Hex.decode("áa"))
+    );
+  }
+  
+  /**
+   * Tests the dump of bytes in the format of xxd
+   */
+  @Test
+  public void testDump() throws IOException {
+    printTitletoLogAndConsole("testDump()", logger);
+    
+    StringBuilder sb = new StringBuilder();
+    assertEquals(DATA.length, new HexDump().dump(DATA, sb));
+    printResultsToLogAndConsole(XXD, sb.toString(), logger);
+    assertEquals(XXD, sb.toString());
+    
+    sb.setLength(0);
+    new HexDump(5, 3, null).dump(new byte[]{'a', 'b', 'c', 'd', 'e', 'f'}, sb);
+    assertEquals("""
+        00000000: 616263 6465  abcde
+        00000005: 66           f
+        """, sb.toString());
+  }
+  
+  /**
+   * Tests the dump of part of a file
+   */
+  @Test
+  public void testDumpFile() throws IOException {
+    printTitletoLogAndConsole("testDumpFile()", logger);
+    
+    Path file = Files.createTempFile("hexdump", ".bin");
+    try {
+      Files.write(file, DATA);
+      StringWriter writer = new StringWriter();
+      assertEquals(DATA.length, new HexDump().dump(file, writer));
+      assertEquals(XXD, writer.toString());
+      
+      writer = new StringWriter();
+      assertEquals(2, new HexDump().dump(file, 0x1f, 100, writer));
+      assertEquals("0000001f: 7071                                     pq\n", writer.toString());
+    } finally {
+      Files.delete(file);
+    }
+  }
+  
+  /**
+   * Tests the colored dump
+   */
+  @Test
+  public void testColors() throws IOException {
+    printTitletoLogAndConsole("testColors()", logger);
+    
+    HexDump.Colors colors = new HexDump.Colors("<z>", "<p>", null, "<o>", "<f>", "<r>");
+    StringBuilder sb = new StringBuilder();
+    new HexDump(4, 2, colors).dump(new byte[]{'A', 'B', '\t', 0}, sb);
+    assertEquals("00000000: <p>4142 <r>09<z>00<r>  <p>AB<r>.<z>.<r>\n", sb.toString());
+  }
+}
@@ -16,6 +16,9 @@ import org.junitpioneer.jupiter.StdOut;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 
 /**
@@ -60,6 +63,27 @@ public class IOimplTest {
     assertEquals(expectedValue, actualValue, "The values should be the same");
   }
   
+  /**
+   * Tests the prt and prtln methods writing to an output channel instead of
+   * the standard output.
+   */
+  @Test
+  public void testPrtToOutputChannel() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    IOimpl.setOutputChannel(Channels.newChannel(bytes), StandardCharsets.UTF_8);
+    try {
+      IOimpl.prt("one", "two");
+      IOimpl.prtln(1, "ñandú");
+    } finally {
+      IOimpl.setOutputChannel(null);
+    }
+    String actualValue = bytes.toString(StandardCharsets.UTF_8);
+    String expectedValue = "onetwoñandú" + System.lineSeparator();
+    printResultsToLogAndConsole(expectedValue, actualValue, logger);
+    assertEquals(expectedValue, actualValue, "The values should be the same");
+    assertNull(IOimpl.getOutputChannel(), "The output channel should have been removed");
+  }
+
   /**
    * Tests that prt method throws IllegalArgumentException when passed a null argument.
    */
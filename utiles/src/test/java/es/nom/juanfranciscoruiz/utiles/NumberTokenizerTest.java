@@ -0,0 +1,104 @@
+package es.nom.juanfranciscoruiz.utiles;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.DoubleStream;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+
+import static es.nom.juanfranciscoruiz.utiles.TestUtils.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for NumberTokenizer class
+ *
+ * @author Juan F. Ruiz
+ */
+public class NumberTokenizerTest {
+  
+  /**
+   * For debugging.
+   */
+  public final static Logger logger = LoggerFactory.getLogger(NumberTokenizerTest.class);
+  
+  /**
+   * Text with integers, decimals, signs and numbers split by points
+   */
+  private static final String TEXT = "t=-3.07s, n=12; 1..2 5.x 3-4 --7 1.2.3 99999999999999999999";
+  
+  /**
+   * Tests the extraction of all the numbers of a text
+   */
+  @Test
+  public void testDoubles() {
+    printTitletoLogAndConsole("testDoubles()", logger);
+    
+    double[] expected = {-3.07, 12, 1, 2, 5, 3, -4, -7, 1.2, 3, 99999999999999999999.0};
+    assertAll(
+        () -> assertArrayEquals(expected, NumberTokenizer.doubles(TEXT).toArray()),
+        () -> assertArrayEquals(expected, NumberTokenizer.doubles(CharBuffer.wrap(TEXT)).toArray()),
+        () -> assertArrayEquals(expected, NumberTokenizer.doubles(new StringReader(TEXT)).toArray()),
+        () -> assertEquals(0, NumberTokenizer.doubles("no numbers").count())
+    );
+  }
+  
+  /**
+   * Tests the extraction of the integers of a text, which skips the decimal
+   * numbers and the integers out of range
+   */
+  @Test
+  public void testLongs() throws IOException {
+    printTitletoLogAndConsole("testLongs()", logger);
+    
+    long[] expected = {12, 1, 2, 5, 3, -4, -7, 3};
+    long[] sum = {0};
+    assertAll(
+        () -> assertArrayEquals(expected, NumberTokenizer.longs(TEXT).toArray()),
+        () -> assertArrayEquals(expected, NumberTokenizer.longs(new StringReader(TEXT)).toArray()),
+        () -> assertEquals(expected.length, NumberTokenizer.scanLongs(TEXT, v -> sum[0] += v)),
+        () -> assertEquals(LongStream.of(expected).sum(), sum[0]),
+        () -> assertEquals(expected.length, NumberTokenizer.scanLongs(new StringReader(TEXT), v -> { })),
+        () -> assertThrows(IllegalArgumentException.class, () -> NumberTokenizer.longs((CharSequence) null))
+    );
+  }
+  
+  /**
+   * Tests that the parallel scanning of a large text and of a file reads
+   * every number whole
+   */
+  @Test
+  public void testParallel() throws IOException {
+    printTitletoLogAndConsole("testParallel()", logger);
+    
+    StringBuilder sb = new StringBuilder();
+    long expectedSum = 0;
+    for (int i = 0; i < 200_000; i++) {
+      long value = (i * 7919L) % 100_003 - 50_000;
+      expectedSum += value;
+      sb.append("row ").append(value).append(" ratio=0.25\n");
+    }
+    String text = sb.toString();
+    assertEquals(expectedSum, NumberTokenizer.longs(text).parallel().sum());
+    assertEquals(400_000, NumberTokenizer.doubles(text).parallel().count());
+    
+    Path file = Files.createTempFile("NumberTokenizerTest", ".log");
+    try {
+      Files.writeString(file, text);
+      try (LongStream longs = NumberTokenizer.longs(file)) {
+        assertEquals(expectedSum, longs.parallel().sum());
+      }
+      try (DoubleStream doubles = NumberTokenizer.doubles(file)) {
+        assertEquals(expectedSum + 200_000 * 0.25, doubles.parallel().sum(), 1e-6);
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+}
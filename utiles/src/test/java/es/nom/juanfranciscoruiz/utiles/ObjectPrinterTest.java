@@ -0,0 +1,143 @@
+package es.nom.juanfranciscoruiz.utiles;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+import es.nom.juanfranciscoruiz.utiles.model.Dimensions;
+import org.junit.jupiter.api.Test;
+
+import static es.nom.juanfranciscoruiz.utiles.TestUtils.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for ObjectPrinter class
+ *
+ * @author Juan F. Ruiz
+ */
+public class ObjectPrinterTest {
+  
+  /**
+   * For debugging.
+   */
+  public final static Logger logger = LoggerFactory.getLogger(ObjectPrinterTest.class);
+  
+  /**
+   * A record with nested records and a list
+   */
+  record Line(Dimensions from, Dimensions to, List<String> tags) {
+  }
+  
+  /**
+   * A bean, printed with its getters
+   */
+  public static class Person {
+    private final String name;
+    private Person friend;
+    
+    public Person(String name) {
+      this.name = name;
+    }
+    
+    public String getName() {
+      return name;
+    }
+    
+    public Person getFriend() {
+      return friend;
+    }
+    
+    public boolean isAlone() {
+      return friend == null;
+    }
+    
+    public String getBroken() {
+      throw new IllegalStateException();
+    }
+  }
+  
+  /**
+   * A bean whose getter fails with an error
+   */
+  public static class Faulty {
+    public String getValue() {
+      throw new LinkageError("getValue");
+    }
+  }
+  
+  /**
+   * A class without getters, printed with its fields
+   */
+  static class Node {
+    private final int value;
+    private Node next;
+    
+    Node(int value) {
+      this.value = value;
+    }
+  }
+  
+  /**
+   * Tests the printing of records, beans, classes with fields and containers
+   */
+  @Test
+  public void testPrint() {
+    printTitletoLogAndConsole("testPrint()", logger);
+    
+    ObjectPrinter printer = new ObjectPrinter();
+    Node node = new Node(1);
+    node.next = new Node(2);
+    
+    assertAll(
+        () -> assertEquals("Line[from=Dimensions[rows=1, columns=2], to=null, tags=[a, b]]",
+            printer.print(new Line(new Dimensions(1, 2), null, List.of("a", "b")))),
+        () -> assertEquals("Person{alone=true, broken=<IllegalStateException>, friend=null, name=Ann}",
+            printer.print(new Person("Ann"))),
+        () -> assertEquals("Node{next=Node{next=null, value=2}, value=1}", printer.print(node)),
+        () -> assertEquals("{k=[1, 2]}", printer.print(Map.of("k", new int[]{1, 2}))),
+        () -> assertEquals("1.5", printer.print(new java.math.BigDecimal("1.5"))),
+        () -> assertEquals("null", printer.print(null))
+    );
+  }
+  
+  /**
+   * Tests the limits of depth and values and the detection of cycles
+   */
+  @Test
+  public void testLimits() throws IOException {
+    printTitletoLogAndConsole("testLimits()", logger);
+    
+    Node first = new Node(0);
+    Node last = first;
+    for (int i = 1; i < 5; i++) {
+      last.next = new Node(i);
+      last = last.next;
+    }
+    Person ann = new Person("Ann");
+    Person bob = new Person("Bob");
+    ann.friend = bob;
+    bob.friend = ann;
+    
+    assertAll(
+        () -> assertEquals("Node{next=Node{next=..., value=1}, value=0}", new ObjectPrinter(1, 100).print(first)),
+        () -> assertEquals("[1, 2, ...]", new ObjectPrinter(4, 2).print(List.of(1, 2, 3))),
+        () -> assertEquals("[[1, 2, 3, ...]]", new ObjectPrinter(4, 4).print(List.of(new long[]{1, 2, 3, 4, 5}))),
+        () -> assertEquals("[...]", new ObjectPrinter(0, 100).print(List.of(List.of(new int[]{1})))),
+        () -> assertEquals("Person{alone=false, broken=<IllegalStateException>, friend="
+                + "Person{alone=false, broken=<IllegalStateException>, friend=(cycle), name=Bob}, name=Ann}",
+            new ObjectPrinter().print(ann)),
+        () -> {
+          StringWriter writer = new StringWriter();
+          assertTrue(new ObjectPrinter(4, 1).print(List.of(1, 2), writer));
+          assertEquals("[1, ...]", writer.toString());
+        },
+        () -> assertThrows(IllegalArgumentException.class, () -> new ObjectPrinter(-1, 1)),
+        // Errors are not printed as values
+        () -> assertThrows(LinkageError.class, () -> new ObjectPrinter().print(new Faulty()))
+    );
+  }
+}
@@ -2,6 +2,7 @@ package es.nom.juanfranciscoruiz.utiles;
 
 import es.nom.juanfranciscoruiz.utiles.exceptions.TypeConverterException;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -146,6 +147,50 @@ public class TypeConverterTest {
     );
   }
   
+  /**
+   * Tests the extraction of primitive longs and ints, including overflows
+   */
+  @Test
+  public void testExtractLongAndInt() {
+    printTitletoLogAndConsole("testExtractLongAndInt()", logger);
+    
+    assertAll(
+        () -> assertEquals(-9876L, extractLong("  -9,876 units")),
+        () -> assertEquals(123L, extractLong("Total: 123")),
+        () -> assertEquals(Long.MAX_VALUE, extractLong("9223372036854775807")),
+        () -> assertEquals(Long.MIN_VALUE, extractLong("-9223372036854775808")),
+        () -> assertEquals(42L, extractLong(new StringBuilder("4x2"))),
+        () -> assertThrows(TypeConverterException.class, () -> extractLong("-9223372036854775809")),
+        () -> assertThrows(TypeConverterException.class, () -> extractLong("no digits")),
+        () -> assertThrows(TypeConverterException.class, () -> extractLong(null)),
+        () -> assertEquals(-1L, extractLong("9223372036854775808", -1L)),
+        () -> assertEquals(-1L, extractLong(null, -1L)),
+        () -> assertEquals(Integer.MIN_VALUE, extractInt("-2147483648")),
+        () -> assertThrows(TypeConverterException.class, () -> extractInt("2147483648")),
+        () -> assertEquals(7, extractInt("", 7))
+    );
+  }
+  
+  /**
+   * Tests the extraction of primitive doubles
+   */
+  @Test
+  public void testExtractDouble() {
+    printTitletoLogAndConsole("testExtractDouble()", logger);
+    
+    assertAll(
+        () -> assertEquals(-3.07, extractDouble("asfk-3.07lkdkr")),
+        () -> assertEquals(0.1, extractDouble("first 5, then 0.1")),
+        () -> assertEquals(3.0, extractDouble("1.2.3")),
+        () -> assertEquals(123456789012345678.5, extractDouble("x123456789012345678.5")),
+        () -> assertEquals(-0.0, extractDouble("-0")),
+        () -> assertThrows(TypeConverterException.class, () -> extractDouble("no numbers")),
+        () -> assertThrows(TypeConverterException.class, () -> extractDouble("  ")),
+        () -> assertEquals(1.5, extractDouble("no numbers", 1.5)),
+        () -> assertNull(extractDoubleFromString("no numbers"))
+    );
+  }
+  
   /**
    * Tests string‑to‑double conversion, including edge cases and exceptions
    */
@@ -314,6 +359,103 @@ public class TypeConverterTest {
     
   }
   
+  /**
+   * Tests the streaming array to string conversion of primitive arrays
+   */
+  @Test
+  public void testArray2StringPrimitives() {
+    printTitletoLogAndConsole("testArray2StringPrimitives()", logger);
+    
+    assertAll(
+        () -> assertEquals("[1, -2, 3]", array2String(new int[]{1, -2, 3})),
+        () -> assertEquals("[5, 6]", array2String(new long[]{5L, 6L})),
+        () -> assertEquals("[1.5, NaN]", array2String(new double[]{1.5, Double.NaN})),
+        () -> assertEquals("[2.5]", array2String(new float[]{2.5f})),
+        () -> assertEquals("[-1, 7]", array2String(new byte[]{-1, 7})),
+        () -> assertEquals("[3]", array2String(new short[]{3})),
+        () -> assertEquals("[a, b]", array2String(new char[]{'a', 'b'})),
+        () -> assertEquals("[true, false]", array2String(new boolean[]{true, false})),
+        () -> assertEquals("[1, [5, 6], null]", array2String(new Object[]{1, new int[]{5, 6}, null})),
+        () -> assertEquals("[]", array2String(new int[0])),
+        () -> {
+          java.io.StringWriter writer = new java.io.StringWriter();
+          int[] values = new int[10000];
+          for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+          }
+          array2String(values, writer);
+          assertEquals(array2String(values), writer.toString());
+        }
+    );
+  }
+  
+  /**
+   * Tests the budgets of the streaming array to string conversion
+   */
+  @Test
+  public void testArray2StringBudget() {
+    printTitletoLogAndConsole("testArray2StringBudget()", logger);
+    
+    assertAll(
+        () -> {
+          StringBuilder sb = new StringBuilder();
+          assertTrue(array2String(new Object[]{0, new int[]{5, 6, 7}, 2}, sb, 3, Integer.MAX_VALUE));
+          assertEquals("[0, [5, ...]]", sb.toString());
+        },
+        () -> {
+          StringBuilder sb = new StringBuilder();
+          assertTrue(array2String(new int[]{100, 200, 300}, sb, Integer.MAX_VALUE, 7));
+          assertEquals("[100, 2...", sb.toString());
+        },
+        () -> {
+          StringBuilder sb = new StringBuilder();
+          assertFalse(array2String(new int[]{1, 2}, sb, 2, 6));
+          assertEquals("[1, 2]", sb.toString());
+        },
+        () -> {
+          StringBuilder sb = new StringBuilder();
+          assertTrue(arrayByte2String(new byte[]{65, 66, 67}, true, true, sb, 2, Integer.MAX_VALUE));
+          assertEquals("(3 bytes), [0]=65,[1]=66,...", sb.toString());
+        },
+        () -> assertThrows(IllegalArgumentException.class, () -> array2String(new int[1], null)),
+        () -> assertThrows(IllegalArgumentException.class,
+            () -> array2String(new int[1], new StringBuilder(), -1, 10))
+    );
+  }
+  
+  /**
+   * Tests the streaming array to string conversion when both the element
+   * and the character budgets apply: only one "..." is ever written
+   */
+  @Test
+  public void testArray2StringBothBudgets() throws IOException {
+    printTitletoLogAndConsole("testArray2StringBothBudgets()", logger);
+    
+    String[] expected = {"[...", "[1...", "[1,...", "[1, ...", "[1, ...", "[1, ...", "[1, ...", "[1, ...]"};
+    for (int maxChars = 1; maxChars <= 8; maxChars++) {
+      StringBuilder sb = new StringBuilder();
+      assertTrue(array2String(new int[]{1, 2, 3}, sb, 1, maxChars), "maxChars=" + maxChars);
+      assertEquals(expected[maxChars - 1], sb.toString(), "maxChars=" + maxChars);
+    }
+    assertAll(
+        () -> {
+          StringBuilder sb = new StringBuilder();
+          assertTrue(array2String(new Object[]{0, new int[]{5, 6, 7}, 2}, sb, 3, 9));
+          assertEquals("[0, [5, ...", sb.toString());
+        },
+        () -> {
+          java.io.StringWriter writer = new java.io.StringWriter();
+          assertTrue(array2String(new int[]{1, 2, 3}, writer, 1, 2));
+          assertEquals("[1...", writer.toString());
+        },
+        () -> {
+          StringBuilder sb = new StringBuilder();
+          assertTrue(arrayByte2String(new byte[]{65, 66, 67}, false, false, sb, 1, 3));
+          assertEquals("65,...", sb.toString());
+        }
+    );
+  }
+  
   @Test
   public void testMap2String() {
     printTitletoLogAndConsole("testMap2String()", logger);
@@ -1,10 +1,14 @@
 package es.nom.juanfranciscoruiz.utiles;
 
+import es.nom.juanfranciscoruiz.utiles.model.TypeKind;
+
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -228,18 +232,98 @@ public class TypesTest {
   
   @Test
   public void testIsLong() {
+    printTitletoLogAndConsole("testIsLong()", logger);
+    
+    assertAll(
+        () -> assertFalse(Types.isLong(null), "null is not a Long"),
+        () -> assertTrue(Types.isLong("-9223372036854775808"), "Long.MIN_VALUE is a Long"),
+        () -> assertFalse(Types.isLong("9223372036854775808"), "Long.MAX_VALUE + 1 is not a Long"),
+        () -> assertTrue(Types.isLong(45566L), "A boxed Long is a Long"),
+        () -> assertTrue(Types.isLong(new StringBuilder("+12")), "Any CharSequence is scanned"),
+        () -> assertFalse(Types.isLong(" 12"), "Whitespace is not allowed"),
+        () -> assertFalse(Types.isLong(new Object()), "An Object is not a Long")
+    );
   }
   
   @Test
   public void testIsFloat() {
+    printTitletoLogAndConsole("testIsFloat()", logger);
+    
+    assertAll(
+        () -> assertFalse(Types.isFloat(null), "null is not a Float"),
+        () -> assertFalse(Types.isFloat(""), "An empty String is not a Float"),
+        () -> assertTrue(Types.isFloat("3.14f"), "A suffixed number is a Float"),
+        () -> assertFalse(Types.isFloat("3.14.15"), "Two decimal points are not a Float")
+    );
   }
   
   @Test
   public void testIsDouble() {
+    printTitletoLogAndConsole("testIsDouble()", logger);
+    
+    assertAll(
+        () -> assertFalse(Types.isDouble(null), "null is not a Double"),
+        () -> assertTrue(Types.isDouble(" -1.5e-3 "), "Surrounding whitespace is allowed"),
+        () -> assertTrue(Types.isDouble("0x1.8p1"), "Hexadecimal numbers are allowed"),
+        () -> assertTrue(Types.isDouble("-Infinity"), "Infinity is a Double"),
+        () -> assertTrue(Types.isDouble(".5"), "The integer part is optional"),
+        () -> assertFalse(Types.isDouble("."), "A lone point is not a Double"),
+        () -> assertFalse(Types.isDouble("1e"), "An exponent needs digits"),
+        () -> assertFalse(Types.isDouble("0x1.8"), "A hexadecimal number needs an exponent"),
+        () -> assertTrue(Types.isDouble(new java.math.BigDecimal("2.5")), "A BigDecimal is a Double")
+    );
   }
   
   @Test
   public void testIsArray() {
+    printTitletoLogAndConsole("testIsArray()", logger);
+    
+    assertAll(
+        () -> assertTrue(Types.isArray(new int[]{1}), "An array of primitives"),
+        () -> assertTrue(Types.isArray(new String[]{"a"}), "An array of objects"),
+        () -> assertFalse(Types.isArray(new Object[0]), "An empty array"),
+        () -> assertFalse(Types.isArray(List.of("a")), "A list is not an array"),
+        () -> assertFalse(Types.isArray(null), "null is not an array")
+    );
+  }
+  
+  @Test
+  public void testClassify() {
+    printTitletoLogAndConsole("testClassify()", logger);
+    
+    assertAll(
+        () -> assertEquals(TypeKind.NULL, Types.classify(null)),
+        () -> assertEquals(TypeKind.STRING, Types.classify("")),
+        () -> assertEquals(TypeKind.CHAR_SEQUENCE, Types.classify(new StringBuilder())),
+        () -> assertEquals(TypeKind.INTEGER, Types.classify((short) 1)),
+        () -> assertEquals(TypeKind.LONG, Types.classify(1L)),
+        () -> assertEquals(TypeKind.DECIMAL, Types.classify(1.0f)),
+        () -> assertEquals(TypeKind.NUMBER, Types.classify(java.math.BigInteger.ONE)),
+        () -> assertEquals(TypeKind.ARRAY, Types.classify(new long[0])),
+        () -> assertEquals(TypeKind.COLLECTION, Types.classify(Set.of())),
+        () -> assertEquals(TypeKind.MAP, Types.classify(Map.of())),
+        () -> assertEquals(TypeKind.OTHER, Types.classify(new Object())),
+        () -> assertTrue(Types.isNullOrEmpty(Set.of()), "Any empty collection is empty"),
+        () -> assertTrue(Types.isNullOrEmpty(new StringBuilder()), "Any empty CharSequence is empty")
+    );
+  }
+  
+  @Test
+  public void testBulkVariants() {
+    printTitletoLogAndConsole("testBulkVariants()", logger);
+    
+    Object[] column = {"12", "3000000000", "1.5", "x", null, 7};
+    
+    assertAll(
+        () -> assertArrayEquals(new TypeKind[]{TypeKind.STRING, TypeKind.STRING, TypeKind.STRING,
+            TypeKind.STRING, TypeKind.NULL, TypeKind.INTEGER}, Types.classifyAll(column)),
+        () -> assertArrayEquals(new TypeKind[]{TypeKind.STRING, TypeKind.NULL},
+            Types.classifyAll(Arrays.asList("a", null))),
+        () -> assertArrayEquals(new boolean[]{true, false, false, false, false, true}, Types.checkIntegers(column)),
+        () -> assertArrayEquals(new boolean[]{true, true, false, false, false, true}, Types.checkLongs(column)),
+        () -> assertArrayEquals(new boolean[]{true, true, true, false, false, true}, Types.checkDoubles(column)),
+        () -> assertThrows(IllegalArgumentException.class, () -> Types.checkIntegers(null))
+    );
   }
   
   @Test
@@ -1,15 +1,21 @@
 package es.nom.juanfranciscoruiz.utiles;
 
+import java.lang.reflect.Proxy;
 import java.text.NumberFormat;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Random;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeSet;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
@@ -186,6 +192,32 @@ public class UtilTest {
     );
     
   }
+  /**
+   * Test of CollectionToString method with containers other than ArrayList
+   * and HashMap.
+   */
+  @Test
+  public void testCollectionAsStringAnyContainer() {
+    printTitletoLogAndConsole("testCollectionAsStringAnyContainer()", logger);
+    
+    assertAll(
+        () -> assertEquals("['a' 'b' ]", Util.CollectionToString(List.of("a", "b"), true, 10)),
+        () -> assertEquals("['a'  ...]", Util.CollectionToString(new TreeSet<>(Set.of("a", "b")), true, 1)),
+        () -> assertEquals("[{'k'->'[1, 2]'} ]", Util.CollectionToString(Map.of("k", List.of(1, 2)), true, 10)),
+        () -> assertEquals("['1' '2' ]", Util.CollectionToString(new int[]{1, 2}, true, 10)),
+        () -> assertEquals("int[] 2 items.", Util.CollectionToString(new int[]{1, 2}, false, 10)),
+        () -> assertEquals("java.util.TreeSet 0 items.", Util.CollectionToString(new TreeSet<>(), false, 10)),
+        () -> assertEquals("java.util.ServiceLoader items.",
+            Util.CollectionToString(ServiceLoader.load(Runnable.class), false, 10)),
+        () -> assertEquals("null", Util.CollectionToString(null, true, 10)),
+        () -> {
+          StringBuilder sb = new StringBuilder();
+          assertTrue(Util.CollectionToString(new LinkedList<>(List.of(1, 2, 3)), true, 2, sb));
+          assertEquals("['1' '2'  ...]", sb.toString());
+        }
+    );
+  }
+  
   //------------------------------------------------------------------------------------
   // Helper methods for test execution testToString()
   
@@ -362,13 +394,88 @@ public class UtilTest {
 
   @Test
   void warn() {
+    printTitletoLogAndConsole("warn()", logger);
+    List<String> lines = new ArrayList<>();
+    Util.warn(recordingLogger(lines, "warn"), "  Disk\t\tis \n almost   full  ");
+    Util.warnLazy(recordingLogger(lines, "warn"), () -> "lazy");
+    Util.warnLazy(recordingLogger(lines), () -> {
+      throw new AssertionError("Supplier called with the level disabled");
+    });
+    Util.warn(recordingLogger(lines, "warn"), "");
+    Util.warn(null, "ignored");
+    assertEquals(List.of("warn:Disk is almost full", "warn:lazy"), lines);
   }
 
   @Test
   void info() {
+    printTitletoLogAndConsole("info()", logger);
+    List<String> lines = new ArrayList<>();
+    Util.info(recordingLogger(lines, "info"), "Starting\r\n");
+    Util.infoLazy(recordingLogger(lines, "info"), () -> "lazy");
+    Util.info(recordingLogger(lines, "warn", "error"), "not logged");
+    Util.infoLazy(recordingLogger(lines, "warn", "error"), () -> {
+      throw new AssertionError("Supplier called with the level disabled");
+    });
+    assertEquals(List.of("info:Starting", "info:lazy"), lines);
   }
 
   @Test
   void error() {
+    printTitletoLogAndConsole("error()", logger);
+    List<String> lines = new ArrayList<>();
+    // Errors are logged even though debug is disabled
+    Util.error(recordingLogger(lines, "error"), "Invalid\toption");
+    Util.errorLazy(recordingLogger(lines, "error"), () -> null);
+    Util.error(recordingLogger(lines, "error"), null);
+    Util.dbgLazy(recordingLogger(lines, "error"), () -> {
+      throw new AssertionError("Supplier called with the level disabled");
+    });
+    Util.dbgLazy(recordingLogger(lines, "debug"), () -> " a  b ");
+    assertEquals(List.of("error:Invalid option", "debug:a b"), lines);
+  }
+
+  @Test
+  void normalize() {
+    printTitletoLogAndConsole("normalize()", logger);
+    String unchanged = "Nothing to change here";
+    assertSame(unchanged, Util.normalize(unchanged));
+    assertEquals("", Util.normalize(" \t\r\n "));
+    assertEquals("a b c", Util.normalize("\ta\n\n b  \r\tc  "));
+    assertEquals("a\fb", Util.normalize("a\fb"));
+    // Same result as the chain of regular expressions it replaces
+    Random random = new Random(42);
+    char[] alphabet = {'a', 'b', ' ', ' ', '\n', '\r', '\t', '\f', '\u0001'};
+    for (int n = 0; n < 10_000; n++) {
+      char[] chars = new char[random.nextInt(12)];
+      for (int i = 0; i < chars.length; i++) {
+        chars[i] = alphabet[random.nextInt(alphabet.length)];
+      }
+      String msg = new String(chars);
+      String expected = msg.trim().replaceAll("\n", " ").replaceAll("\r", " ")
+          .replaceAll("\t", " ").replaceAll("  +", " ");
+      assertEquals(expected, Util.normalize(msg), "Message: " + msg);
+    }
+  }
+
+  /**
+   * Returns a logger that records the messages it receives as "level:message".
+   *
+   * @param lines   where the messages are recorded
+   * @param enabled the enabled levels: "error", "warn", "info" or "debug"
+   * @return the logger
+   */
+  private static Logger recordingLogger(List<String> lines, String... enabled) {
+    Set<String> levels = Set.of(enabled);
+    return (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(), new Class<?>[]{Logger.class},
+        (proxy, method, args) -> {
+          String name = method.getName();
+          if (name.startsWith("is") && name.endsWith("Enabled")) {
+            return levels.contains(name.substring(2, name.length() - 7).toLowerCase(Locale.ROOT));
+          }
+          if (levels.contains(name) && args != null && args.length == 1) {
+            lines.add(name + ":" + args[0]);
+          }
+          return method.getReturnType() == boolean.class ? false : null;
+        });
   }
 }